@@ -18,6 +18,7 @@ dependencies {
   implementation("org.hypertrace.entity.service:entity-service-api:0.8.11")
   implementation("org.hypertrace.core.grpcutils:grpc-context-utils:0.7.0")
   implementation("org.hypertrace.core.serviceframework:platform-metrics:0.1.29")
+  implementation("io.grpc:grpc-netty:1.43.1")
 
   // Config
   implementation("com.typesafe:config:1.4.1")
@@ -34,5 +35,4 @@ dependencies {
   testImplementation("org.mockito:mockito-core:3.9.0")
   testImplementation("org.mockito:mockito-inline:3.9.0")
   testImplementation("org.apache.logging.log4j:log4j-slf4j-impl:2.17.1")
-  testImplementation("io.grpc:grpc-netty:1.43.1")
 }
@@ -4,13 +4,11 @@ import com.google.common.base.Preconditions;
 import com.google.protobuf.ServiceException;
 import com.typesafe.config.Config;
 import io.grpc.ManagedChannel;
-import io.grpc.ManagedChannelBuilder;
 import io.grpc.stub.StreamObserver;
 import java.util.Optional;
 import org.apache.commons.lang3.StringUtils;
 import org.hypertrace.core.attribute.service.client.AttributeServiceClient;
 import org.hypertrace.core.attribute.service.client.config.AttributeServiceClientConfig;
-import org.hypertrace.core.query.service.client.QueryServiceClient;
 import org.hypertrace.core.query.service.client.QueryServiceConfig;
 import org.hypertrace.entity.query.service.client.EntityQueryServiceClient;
 import org.hypertrace.entity.service.client.config.EntityServiceClientConfig;
@@ -19,11 +17,30 @@ import org.hypertrace.gateway.service.baseline.BaselineServiceImpl;
 import org.hypertrace.gateway.service.baseline.BaselineServiceQueryExecutor;
 import org.hypertrace.gateway.service.baseline.BaselineServiceQueryParser;
 import org.hypertrace.gateway.service.common.AttributeMetadataProvider;
+import org.hypertrace.gateway.service.common.QueryServiceExecutor;
 import org.hypertrace.gateway.service.common.RequestContext;
+import org.hypertrace.gateway.service.common.cache.CachingQueryServiceClient;
+import org.hypertrace.gateway.service.common.cache.QueryResultCacheConfig;
+import org.hypertrace.gateway.service.common.circuitbreaker.CircuitBreaker;
+import org.hypertrace.gateway.service.common.circuitbreaker.CircuitBreakerConfig;
+import org.hypertrace.gateway.service.common.circuitbreaker.CircuitBreakers;
+import org.hypertrace.gateway.service.common.circuitbreaker.CircuitBreakingQueryServiceClient;
 import org.hypertrace.gateway.service.common.config.ScopeFilterConfigs;
+import org.hypertrace.gateway.service.common.converters.ValueInternerFactory;
+import org.hypertrace.gateway.service.common.grpc.GrpcChannelConfig;
+import org.hypertrace.gateway.service.common.grpc.GrpcChannelConfig.Downstream;
+import org.hypertrace.gateway.service.common.grpc.GrpcChannelFactory;
+import org.hypertrace.gateway.service.common.hedging.HedgingQueryServiceClient;
+import org.hypertrace.gateway.service.common.hedging.QueryHedgingConfig;
+import org.hypertrace.gateway.service.common.sharding.QueryScatterGatherConfig;
+import org.hypertrace.gateway.service.common.sharding.QueryTimeShardingConfig;
+import org.hypertrace.gateway.service.common.sharding.ScatterGatherQueryServiceClient;
+import org.hypertrace.gateway.service.common.sharding.TimeShardingQueryServiceClient;
 import org.hypertrace.gateway.service.entity.EntityService;
 import org.hypertrace.gateway.service.entity.config.EntityIdColumnsConfigs;
 import org.hypertrace.gateway.service.entity.config.LogConfig;
+import org.hypertrace.gateway.service.entity.query.EntitySnapshotStore;
+import org.hypertrace.gateway.service.entity.query.EntityTotalCache;
 import org.hypertrace.gateway.service.explore.ExploreService;
 import org.hypertrace.gateway.service.logevent.LogEventsService;
 import org.hypertrace.gateway.service.span.SpanService;
@@ -66,34 +83,68 @@ public class GatewayServiceImpl extends GatewayServiceGrpc.GatewayServiceImplBas
   private final LogEventsService logEventsService;
 
   public GatewayServiceImpl(Config appConfig) {
+    CircuitBreakers circuitBreakers = new CircuitBreakers(new CircuitBreakerConfig(appConfig));
+    GrpcChannelFactory grpcChannelFactory =
+        new GrpcChannelFactory(new GrpcChannelConfig(appConfig), circuitBreakers);
     AttributeServiceClientConfig asConfig = AttributeServiceClientConfig.from(appConfig);
     ManagedChannel attributeServiceChannel =
-        ManagedChannelBuilder.forAddress(asConfig.getHost(), asConfig.getPort())
-            .usePlaintext()
-            .build();
+        grpcChannelFactory.newChannel(
+            Downstream.ATTRIBUTE_SERVICE, asConfig.getHost(), asConfig.getPort());
     AttributeServiceClient asClient = new AttributeServiceClient(attributeServiceChannel);
     AttributeMetadataProvider attributeMetadataProvider = new AttributeMetadataProvider(asClient);
     EntityIdColumnsConfigs entityIdColumnsConfigs = EntityIdColumnsConfigs.fromConfig(appConfig);
 
     Config qsConfig = appConfig.getConfig(QUERY_SERVICE_CONFIG_KEY);
-    QueryServiceClient queryServiceClient =
-        new QueryServiceClient(new QueryServiceConfig(qsConfig));
+    QueryServiceConfig queryServiceConfig = new QueryServiceConfig(qsConfig);
+    QueryResultCacheConfig queryResultCacheConfig = new QueryResultCacheConfig(appConfig);
+    QueryServiceExecutor queryServiceClient =
+        grpcChannelFactory.newQueryServiceExecutor(queryServiceConfig);
+    Optional<CircuitBreaker> queryServiceCircuitBreaker =
+        circuitBreakers.get(Downstream.QUERY_SERVICE);
+    if (queryServiceCircuitBreaker.isPresent()) {
+      queryServiceClient =
+          new CircuitBreakingQueryServiceClient(
+              queryServiceClient, queryServiceCircuitBreaker.get());
+    }
+    QueryHedgingConfig queryHedgingConfig = new QueryHedgingConfig(appConfig);
+    if (queryHedgingConfig.isEnabled()) {
+      queryServiceClient = new HedgingQueryServiceClient(queryServiceClient, queryHedgingConfig);
+    }
+    if (queryResultCacheConfig.isEnabled()) {
+      queryServiceClient =
+          new CachingQueryServiceClient(queryServiceClient, queryResultCacheConfig);
+    }
+    QueryTimeShardingConfig queryTimeShardingConfig = new QueryTimeShardingConfig(appConfig);
+    if (queryTimeShardingConfig.isEnabled()) {
+      queryServiceClient =
+          new TimeShardingQueryServiceClient(queryServiceClient, queryTimeShardingConfig);
+    }
     int qsRequestTimeout = getRequestTimeoutMillis(qsConfig);
 
     EntityServiceClientConfig esConfig = EntityServiceClientConfig.from(appConfig);
     ManagedChannel entityServiceChannel =
-        ManagedChannelBuilder.forAddress(esConfig.getHost(), esConfig.getPort())
-            .usePlaintext()
-            .build();
+        grpcChannelFactory.newChannel(
+            Downstream.ENTITY_SERVICE, esConfig.getHost(), esConfig.getPort());
     EntityQueryServiceClient eqsClient = new EntityQueryServiceClient(entityServiceChannel);
 
     ScopeFilterConfigs scopeFilterConfigs = new ScopeFilterConfigs(appConfig);
     LogConfig logConfig = new LogConfig(appConfig);
+    ValueInternerFactory valueInternerFactory = new ValueInternerFactory(appConfig);
     this.traceService =
         new TracesService(
-            queryServiceClient, qsRequestTimeout, attributeMetadataProvider, scopeFilterConfigs);
+            queryServiceClient,
+            qsRequestTimeout,
+            attributeMetadataProvider,
+            scopeFilterConfigs,
+            valueInternerFactory,
+            entityIdColumnsConfigs);
     this.spanService =
-        new SpanService(queryServiceClient, qsRequestTimeout, attributeMetadataProvider);
+        new SpanService(
+            queryServiceClient,
+            qsRequestTimeout,
+            attributeMetadataProvider,
+            valueInternerFactory,
+            entityIdColumnsConfigs);
     this.entityService =
         new EntityService(
             queryServiceClient,
@@ -102,10 +153,21 @@ public class GatewayServiceImpl extends GatewayServiceGrpc.GatewayServiceImplBas
             attributeMetadataProvider,
             entityIdColumnsConfigs,
             scopeFilterConfigs,
-            logConfig);
+            logConfig,
+            valueInternerFactory,
+            new EntityTotalCache(appConfig),
+            new EntitySnapshotStore(appConfig));
+    QueryScatterGatherConfig queryScatterGatherConfig = new QueryScatterGatherConfig(appConfig);
+    QueryServiceExecutor exploreQueryServiceClient =
+        queryScatterGatherConfig.isEnabled()
+            ? new ScatterGatherQueryServiceClient(queryServiceClient, queryScatterGatherConfig)
+            : queryServiceClient;
     this.exploreService =
         new ExploreService(
-            queryServiceClient, qsRequestTimeout, attributeMetadataProvider, scopeFilterConfigs);
+            exploreQueryServiceClient,
+            qsRequestTimeout,
+            attributeMetadataProvider,
+            scopeFilterConfigs);
     BaselineServiceQueryParser baselineServiceQueryParser =
         new BaselineServiceQueryParser(attributeMetadataProvider);
     BaselineServiceQueryExecutor baselineServiceQueryExecutor =
@@ -117,7 +179,12 @@ public class GatewayServiceImpl extends GatewayServiceGrpc.GatewayServiceImplBas
             baselineServiceQueryExecutor,
             entityIdColumnsConfigs);
     this.logEventsService =
-        new LogEventsService(queryServiceClient, qsRequestTimeout, attributeMetadataProvider);
+        new LogEventsService(
+            queryServiceClient,
+            qsRequestTimeout,
+            attributeMetadataProvider,
+            valueInternerFactory,
+            entityIdColumnsConfigs);
   }
 
   private static int getRequestTimeoutMillis(Config config) {
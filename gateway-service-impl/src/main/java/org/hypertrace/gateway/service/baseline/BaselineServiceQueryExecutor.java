@@ -4,14 +4,15 @@ import java.util.Iterator;
 import java.util.Map;
 import org.hypertrace.core.query.service.api.QueryRequest;
 import org.hypertrace.core.query.service.api.ResultSetChunk;
-import org.hypertrace.core.query.service.client.QueryServiceClient;
+import org.hypertrace.gateway.service.common.QueryServiceExecutor;
 
 public class BaselineServiceQueryExecutor {
 
   private final int qsRequestTimeout;
-  private final QueryServiceClient queryServiceClient;
+  private final QueryServiceExecutor queryServiceClient;
 
-  public BaselineServiceQueryExecutor(int qsRequestTimeout, QueryServiceClient queryServiceClient) {
+  public BaselineServiceQueryExecutor(
+      int qsRequestTimeout, QueryServiceExecutor queryServiceClient) {
     this.qsRequestTimeout = qsRequestTimeout;
     this.queryServiceClient = queryServiceClient;
   }
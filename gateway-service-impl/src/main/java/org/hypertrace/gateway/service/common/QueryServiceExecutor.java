@@ -0,0 +1,22 @@
+package org.hypertrace.gateway.service.common;
+
+import java.util.Iterator;
+import java.util.Map;
+import org.hypertrace.core.query.service.api.QueryRequest;
+import org.hypertrace.core.query.service.api.ResultSetChunk;
+import org.hypertrace.core.query.service.client.QueryServiceClient;
+
+/**
+ * Runs the queries of the gateway on the query-service. The {@link QueryServiceClient} of each
+ * channel is adapted to it, and decorated with the caching, hedging, sharding and circuit breaking
+ * executors, which don't need a channel of their own.
+ */
+@FunctionalInterface
+public interface QueryServiceExecutor {
+  Iterator<ResultSetChunk> executeQuery(
+      QueryRequest request, Map<String, String> context, int timeoutMillis);
+
+  static QueryServiceExecutor of(QueryServiceClient queryServiceClient) {
+    return queryServiceClient::executeQuery;
+  }
+}
@@ -0,0 +1,118 @@
+package org.hypertrace.gateway.service.common.admission;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+/** Configuration of the admission control of the incoming requests */
+public class AdmissionControlConfig {
+  private static final String ADMISSION_CONTROL_CONFIG = "admission.control.config";
+  private static final String ENABLED = "enabled";
+  private static final String MAX_QUEUE_WAIT_MILLIS = "max.queue.wait.millis";
+  private static final String SLOW_CALL_THRESHOLD_MILLIS = "slow.call.threshold.millis";
+  private static final String BACKOFF_RATIO = "backoff.ratio";
+  private static final String GLOBAL_INITIAL_LIMIT = "global.initial.limit";
+  private static final String GLOBAL_MIN_LIMIT = "global.min.limit";
+  private static final String GLOBAL_MAX_LIMIT = "global.max.limit";
+  private static final String TENANT_INITIAL_LIMIT = "tenant.initial.limit";
+  private static final String TENANT_MIN_LIMIT = "tenant.min.limit";
+  private static final String TENANT_MAX_LIMIT = "tenant.max.limit";
+
+  private static final boolean DEFAULT_ENABLED = false;
+  private static final long DEFAULT_MAX_QUEUE_WAIT_MILLIS = 100L;
+  private static final long DEFAULT_SLOW_CALL_THRESHOLD_MILLIS = 5000L;
+  private static final double DEFAULT_BACKOFF_RATIO = 0.9;
+  private static final int DEFAULT_GLOBAL_INITIAL_LIMIT = 200;
+  private static final int DEFAULT_GLOBAL_MIN_LIMIT = 20;
+  private static final int DEFAULT_GLOBAL_MAX_LIMIT = 1000;
+  private static final int DEFAULT_TENANT_INITIAL_LIMIT = 50;
+  private static final int DEFAULT_TENANT_MIN_LIMIT = 2;
+  private static final int DEFAULT_TENANT_MAX_LIMIT = 200;
+
+  private final boolean enabled;
+  private final long maxQueueWaitMillis;
+  private final long slowCallThresholdMillis;
+  private final double backoffRatio;
+  private final int globalInitialLimit;
+  private final int globalMinLimit;
+  private final int globalMaxLimit;
+  private final int tenantInitialLimit;
+  private final int tenantMinLimit;
+  private final int tenantMaxLimit;
+
+  public AdmissionControlConfig(Config appConfig) {
+    Config admissionConfig =
+        appConfig.hasPath(ADMISSION_CONTROL_CONFIG)
+            ? appConfig.getConfig(ADMISSION_CONTROL_CONFIG)
+            : ConfigFactory.empty();
+
+    this.enabled =
+        admissionConfig.hasPath(ENABLED) ? admissionConfig.getBoolean(ENABLED) : DEFAULT_ENABLED;
+    this.maxQueueWaitMillis =
+        admissionConfig.hasPath(MAX_QUEUE_WAIT_MILLIS)
+            ? admissionConfig.getLong(MAX_QUEUE_WAIT_MILLIS)
+            : DEFAULT_MAX_QUEUE_WAIT_MILLIS;
+    this.slowCallThresholdMillis =
+        admissionConfig.hasPath(SLOW_CALL_THRESHOLD_MILLIS)
+            ? admissionConfig.getLong(SLOW_CALL_THRESHOLD_MILLIS)
+            : DEFAULT_SLOW_CALL_THRESHOLD_MILLIS;
+    this.backoffRatio =
+        admissionConfig.hasPath(BACKOFF_RATIO)
+            ? admissionConfig.getDouble(BACKOFF_RATIO)
+            : DEFAULT_BACKOFF_RATIO;
+    this.globalInitialLimit =
+        getInt(admissionConfig, GLOBAL_INITIAL_LIMIT, DEFAULT_GLOBAL_INITIAL_LIMIT);
+    this.globalMinLimit = getInt(admissionConfig, GLOBAL_MIN_LIMIT, DEFAULT_GLOBAL_MIN_LIMIT);
+    this.globalMaxLimit = getInt(admissionConfig, GLOBAL_MAX_LIMIT, DEFAULT_GLOBAL_MAX_LIMIT);
+    this.tenantInitialLimit =
+        getInt(admissionConfig, TENANT_INITIAL_LIMIT, DEFAULT_TENANT_INITIAL_LIMIT);
+    this.tenantMinLimit = getInt(admissionConfig, TENANT_MIN_LIMIT, DEFAULT_TENANT_MIN_LIMIT);
+    this.tenantMaxLimit = getInt(admissionConfig, TENANT_MAX_LIMIT, DEFAULT_TENANT_MAX_LIMIT);
+  }
+
+  private static int getInt(Config config, String path, int defaultValue) {
+    return config.hasPath(path) ? config.getInt(path) : defaultValue;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /** @return how long a request may wait for a free slot before being rejected */
+  public long getMaxQueueWaitMillis() {
+    return maxQueueWaitMillis;
+  }
+
+  /** @return requests taking longer than this are taken as a sign of overload */
+  public long getSlowCallThresholdMillis() {
+    return slowCallThresholdMillis;
+  }
+
+  /** @return factor applied to the concurrency limits on overload */
+  public double getBackoffRatio() {
+    return backoffRatio;
+  }
+
+  public int getGlobalInitialLimit() {
+    return globalInitialLimit;
+  }
+
+  public int getGlobalMinLimit() {
+    return globalMinLimit;
+  }
+
+  public int getGlobalMaxLimit() {
+    return globalMaxLimit;
+  }
+
+  public int getTenantInitialLimit() {
+    return tenantInitialLimit;
+  }
+
+  public int getTenantMinLimit() {
+    return tenantMinLimit;
+  }
+
+  public int getTenantMaxLimit() {
+    return tenantMaxLimit;
+  }
+}
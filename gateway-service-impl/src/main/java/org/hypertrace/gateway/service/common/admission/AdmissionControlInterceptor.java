@@ -0,0 +1,456 @@
+package org.hypertrace.gateway.service.common.admission;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.grpc.ForwardingServerCall.SimpleForwardingServerCall;
+import io.grpc.ForwardingServerCallListener.SimpleForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import org.hypertrace.core.grpcutils.context.RequestContextConstants;
+import org.hypertrace.core.serviceframework.metrics.PlatformMetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Admits the incoming requests within a global and a per tenant {@link AimdConcurrencyLimit}, so
+ * that the heavy queries of a single tenant can't take up all the threads and query-service
+ * connections. Requests over a limit are queued, without blocking the thread they come in on, and
+ * get started as soon as slots are released. Those still queued after the max queue wait are
+ * rejected with {@link Status#RESOURCE_EXHAUSTED}.
+ *
+ * <p>The tenant id is read from the same header the request context is built from. Requests without
+ * one are only subject to the global limit and get rejected by the service itself. The tenant
+ * limits of the tenants without requests for a while are dropped, so that arbitrary tenant headers
+ * can't grow them unbounded.
+ */
+public class AdmissionControlInterceptor implements ServerInterceptor {
+  private static final Logger LOG = LoggerFactory.getLogger(AdmissionControlInterceptor.class);
+  private static final Metadata.Key<String> TENANT_ID_KEY =
+      Metadata.Key.of(
+          RequestContextConstants.TENANT_ID_HEADER_KEY, Metadata.ASCII_STRING_MARSHALLER);
+  private static final int MAX_TENANTS = 10000;
+  private static final long TENANT_EXPIRY_MINUTES = 60;
+  // only rejects the queued requests which waited for too long, the admitted ones are started by
+  // the thread releasing the slots
+  private static final ScheduledExecutorService queueTimeoutExecutor =
+      Executors.newSingleThreadScheduledExecutor(
+          new ThreadFactoryBuilder()
+              .setNameFormat("admission-queue-timeout-%d")
+              .setDaemon(true)
+              .build());
+
+  private final AdmissionControlConfig config;
+  private final long maxQueueWaitNanos;
+  private final AimdConcurrencyLimit globalLimit;
+  private final LoadingCache<String, AimdConcurrencyLimit> tenantLimits;
+  // guarded by itself
+  private final Deque<QueuedCall<?, ?>> queuedCalls = new ArrayDeque<>();
+
+  private Counter admittedCounter;
+  private Counter globalRejectedCounter;
+  private Counter tenantRejectedCounter;
+  private Counter overloadedCounter;
+  private Timer queueWaitTimer;
+
+  public AdmissionControlInterceptor(AdmissionControlConfig config) {
+    this.config = config;
+    this.maxQueueWaitNanos = TimeUnit.MILLISECONDS.toNanos(config.getMaxQueueWaitMillis());
+    this.globalLimit =
+        new AimdConcurrencyLimit(
+            config.getGlobalInitialLimit(),
+            config.getGlobalMinLimit(),
+            config.getGlobalMaxLimit(),
+            config.getBackoffRatio(),
+            config.getSlowCallThresholdMillis());
+    // the calls in flight hold on to their tenant limit, so an expired one is still released
+    this.tenantLimits =
+        CacheBuilder.newBuilder()
+            .maximumSize(MAX_TENANTS)
+            .expireAfterAccess(TENANT_EXPIRY_MINUTES, TimeUnit.MINUTES)
+            .build(CacheLoader.from(this::newTenantLimit));
+    initMetrics();
+  }
+
+  private void initMetrics() {
+    this.admittedCounter =
+        PlatformMetricsRegistry.registerCounter("hypertrace.admission.admitted", ImmutableMap.of());
+    this.globalRejectedCounter =
+        PlatformMetricsRegistry.registerCounter(
+            "hypertrace.admission.rejected", ImmutableMap.of("limit", "global"));
+    this.tenantRejectedCounter =
+        PlatformMetricsRegistry.registerCounter(
+            "hypertrace.admission.rejected", ImmutableMap.of("limit", "tenant"));
+    this.overloadedCounter =
+        PlatformMetricsRegistry.registerCounter(
+            "hypertrace.admission.overloaded", ImmutableMap.of());
+    this.queueWaitTimer =
+        PlatformMetricsRegistry.registerTimer("hypertrace.admission.queue.wait", ImmutableMap.of());
+  }
+
+  @Override
+  public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+      ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+    String tenantId = headers.get(TENANT_ID_KEY);
+    AimdConcurrencyLimit tenantLimit =
+        tenantId == null ? null : tenantLimits.getUnchecked(tenantId);
+
+    long queuedTime = System.nanoTime();
+    AimdConcurrencyLimit fullLimit = tryAcquire(tenantLimit);
+    if (fullLimit == null) {
+      return startCall(call, headers, next, tenantLimit, queuedTime);
+    }
+    if (maxQueueWaitNanos <= 0) {
+      return reject(call, tenantId, fullLimit);
+    }
+    QueuedCall<ReqT, RespT> queuedCall =
+        new QueuedCall<>(call, headers, next, tenantId, tenantLimit, queuedTime, fullLimit);
+    synchronized (queuedCalls) {
+      queuedCalls.addLast(queuedCall);
+    }
+    queuedCall.scheduleTimeout();
+    // slots may have been released before the call got queued
+    admitQueuedCalls();
+    return queuedCall;
+  }
+
+  @VisibleForTesting
+  int getGlobalLimit() {
+    return globalLimit.getLimit();
+  }
+
+  private AimdConcurrencyLimit newTenantLimit(String tenantId) {
+    return new AimdConcurrencyLimit(
+        config.getTenantInitialLimit(),
+        config.getTenantMinLimit(),
+        config.getTenantMaxLimit(),
+        config.getBackoffRatio(),
+        config.getSlowCallThresholdMillis());
+  }
+
+  /**
+   * Acquires a slot of the tenant limit, if any, and of the global limit. The tenant limit goes
+   * first, a tenant over its limit should not hold on to global slots.
+   *
+   * @return the limit which is full, or null if the slots were acquired
+   */
+  private AimdConcurrencyLimit tryAcquire(AimdConcurrencyLimit tenantLimit) {
+    if (tenantLimit != null && !tenantLimit.tryAcquire()) {
+      return tenantLimit;
+    }
+    if (!globalLimit.tryAcquire()) {
+      if (tenantLimit != null) {
+        tenantLimit.release();
+      }
+      return globalLimit;
+    }
+    return null;
+  }
+
+  /** Starts the queued calls which fit in the limits, in the order they were queued */
+  private void admitQueuedCalls() {
+    List<QueuedCall<?, ?>> admittedCalls = new ArrayList<>();
+    synchronized (queuedCalls) {
+      Iterator<QueuedCall<?, ?>> iterator = queuedCalls.iterator();
+      while (iterator.hasNext()) {
+        QueuedCall<?, ?> queuedCall = iterator.next();
+        AimdConcurrencyLimit fullLimit = tryAcquire(queuedCall.tenantLimit);
+        if (fullLimit == globalLimit) {
+          break;
+        }
+        if (fullLimit != null) {
+          queuedCall.fullLimit = fullLimit;
+          continue;
+        }
+        iterator.remove();
+        if (queuedCall.markAdmitted()) {
+          admittedCalls.add(queuedCall);
+        } else {
+          releaseSlots(queuedCall.tenantLimit);
+        }
+      }
+    }
+    // started outside of the lock, starting a call may run the service method
+    admittedCalls.forEach(QueuedCall::start);
+  }
+
+  private void releaseSlots(AimdConcurrencyLimit tenantLimit) {
+    globalLimit.release();
+    if (tenantLimit != null) {
+      tenantLimit.release();
+    }
+  }
+
+  private <ReqT, RespT> ServerCall.Listener<ReqT> startCall(
+      ServerCall<ReqT, RespT> call,
+      Metadata headers,
+      ServerCallHandler<ReqT, RespT> next,
+      AimdConcurrencyLimit tenantLimit,
+      long queuedTime) {
+    long admittedTime = System.nanoTime();
+    queueWaitTimer.record(admittedTime - queuedTime, TimeUnit.NANOSECONDS);
+    admittedCounter.increment();
+
+    AdmittedCall<ReqT, RespT> admittedCall = new AdmittedCall<>(call, tenantLimit, admittedTime);
+    ServerCall.Listener<ReqT> listener;
+    try {
+      listener = next.startCall(admittedCall, headers);
+    } catch (RuntimeException e) {
+      admittedCall.release();
+      throw e;
+    }
+    return new SimpleForwardingServerCallListener<>(listener) {
+      @Override
+      public void onCancel() {
+        admittedCall.release();
+        super.onCancel();
+      }
+    };
+  }
+
+  private <ReqT, RespT> ServerCall.Listener<ReqT> reject(
+      ServerCall<ReqT, RespT> call, String tenantId, AimdConcurrencyLimit fullLimit) {
+    String description;
+    if (fullLimit == globalLimit) {
+      globalRejectedCounter.increment();
+      description = "Too many concurrent requests";
+    } else {
+      tenantRejectedCounter.increment();
+      description = "Too many concurrent requests for tenant " + tenantId;
+    }
+    LOG.debug(
+        "Rejecting call to {}: {}", call.getMethodDescriptor().getFullMethodName(), description);
+    call.close(Status.RESOURCE_EXHAUSTED.withDescription(description), new Metadata());
+    return new ServerCall.Listener<>() {};
+  }
+
+  /**
+   * Listener of a call waiting for admission. The call is only started, by the thread releasing the
+   * slots, once admitted. Until then the only event of interest is the cancellation, nothing else
+   * arrives before the service requests the messages. The events arriving while the call is being
+   * started are delivered once it is.
+   */
+  private class QueuedCall<ReqT, RespT> extends ServerCall.Listener<ReqT> {
+    private final ServerCall<ReqT, RespT> call;
+    private final Metadata headers;
+    private final ServerCallHandler<ReqT, RespT> next;
+    private final String tenantId;
+    private final AimdConcurrencyLimit tenantLimit;
+    private final long queuedTime;
+    // the limit the call last waited for, only accessed under the queue lock
+    private AimdConcurrencyLimit fullLimit;
+
+    // guarded by this
+    private boolean queued = true;
+    private ServerCall.Listener<ReqT> delegate;
+    private List<Consumer<ServerCall.Listener<ReqT>>> pendingEvents = new ArrayList<>();
+    private ScheduledFuture<?> timeout;
+
+    private QueuedCall(
+        ServerCall<ReqT, RespT> call,
+        Metadata headers,
+        ServerCallHandler<ReqT, RespT> next,
+        String tenantId,
+        AimdConcurrencyLimit tenantLimit,
+        long queuedTime,
+        AimdConcurrencyLimit fullLimit) {
+      this.call = call;
+      this.headers = headers;
+      this.next = next;
+      this.tenantId = tenantId;
+      this.tenantLimit = tenantLimit;
+      this.queuedTime = queuedTime;
+      this.fullLimit = fullLimit;
+    }
+
+    private void scheduleTimeout() {
+      ScheduledFuture<?> scheduledTimeout =
+          queueTimeoutExecutor.schedule(this::expire, maxQueueWaitNanos, TimeUnit.NANOSECONDS);
+      synchronized (this) {
+        if (queued) {
+          this.timeout = scheduledTimeout;
+          return;
+        }
+      }
+      scheduledTimeout.cancel(false);
+    }
+
+    private synchronized boolean markAdmitted() {
+      if (!queued) {
+        return false;
+      }
+      queued = false;
+      if (timeout != null) {
+        timeout.cancel(false);
+      }
+      return true;
+    }
+
+    /** Takes the call off the queue if it is still there */
+    private boolean dequeue() {
+      synchronized (this) {
+        if (!queued) {
+          return false;
+        }
+        queued = false;
+        if (timeout != null) {
+          timeout.cancel(false);
+        }
+      }
+      synchronized (queuedCalls) {
+        queuedCalls.remove(this);
+      }
+      return true;
+    }
+
+    private void expire() {
+      if (dequeue()) {
+        AimdConcurrencyLimit limit;
+        synchronized (queuedCalls) {
+          limit = fullLimit;
+        }
+        reject(call, tenantId, limit);
+      }
+    }
+
+    private void start() {
+      ServerCall.Listener<ReqT> listener;
+      try {
+        listener = startCall(call, headers, next, tenantLimit, queuedTime);
+      } catch (RuntimeException e) {
+        LOG.error("Unable to start admitted call", e);
+        call.close(Status.fromThrowable(e), new Metadata());
+        listener = new ServerCall.Listener<>() {};
+      }
+      while (true) {
+        List<Consumer<ServerCall.Listener<ReqT>>> events;
+        synchronized (this) {
+          if (pendingEvents.isEmpty()) {
+            delegate = listener;
+            pendingEvents = null;
+            return;
+          }
+          events = pendingEvents;
+          pendingEvents = new ArrayList<>();
+        }
+        for (Consumer<ServerCall.Listener<ReqT>> event : events) {
+          event.accept(listener);
+        }
+      }
+    }
+
+    private void deliver(Consumer<ServerCall.Listener<ReqT>> event) {
+      ServerCall.Listener<ReqT> listener;
+      synchronized (this) {
+        if (queued) {
+          return;
+        }
+        if (delegate == null) {
+          pendingEvents.add(event);
+          return;
+        }
+        listener = delegate;
+      }
+      event.accept(listener);
+    }
+
+    @Override
+    public void onMessage(ReqT message) {
+      deliver(listener -> listener.onMessage(message));
+    }
+
+    @Override
+    public void onHalfClose() {
+      deliver(ServerCall.Listener::onHalfClose);
+    }
+
+    @Override
+    public void onCancel() {
+      if (!dequeue()) {
+        deliver(ServerCall.Listener::onCancel);
+      }
+    }
+
+    @Override
+    public void onComplete() {
+      deliver(ServerCall.Listener::onComplete);
+    }
+
+    @Override
+    public void onReady() {
+      deliver(ServerCall.Listener::onReady);
+    }
+  }
+
+  /** Call holding admission slots, which are given back when the call completes */
+  private class AdmittedCall<ReqT, RespT> extends SimpleForwardingServerCall<ReqT, RespT> {
+    private final AimdConcurrencyLimit tenantLimit;
+    private final long admittedTime;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private AdmittedCall(
+        ServerCall<ReqT, RespT> delegate, AimdConcurrencyLimit tenantLimit, long admittedTime) {
+      super(delegate);
+      this.tenantLimit = tenantLimit;
+      this.admittedTime = admittedTime;
+    }
+
+    @Override
+    public void close(Status status, Metadata trailers) {
+      boolean releasing = released.compareAndSet(false, true);
+      if (releasing) {
+        long latencyNanos = System.nanoTime() - admittedTime;
+        boolean overloaded = isOverloaded(status);
+        if (overloaded) {
+          overloadedCounter.increment();
+        }
+        globalLimit.onComplete(latencyNanos, overloaded);
+        if (tenantLimit != null) {
+          tenantLimit.onComplete(latencyNanos, overloaded);
+        }
+      }
+      super.close(status, trailers);
+      if (releasing) {
+        admitQueuedCalls();
+      }
+    }
+
+    /** Releases the slots without taking the latency into account, e.g. on cancellation */
+    private void release() {
+      if (released.compareAndSet(false, true)) {
+        releaseSlots(tenantLimit);
+        admitQueuedCalls();
+      }
+    }
+
+    private boolean isOverloaded(Status status) {
+      switch (status.getCode()) {
+        case RESOURCE_EXHAUSTED:
+        case DEADLINE_EXCEEDED:
+        case UNAVAILABLE:
+          return true;
+        default:
+          return false;
+      }
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package org.hypertrace.gateway.service.common.admission;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrency limit adapted to the observed latency, additive increase multiplicative decrease
+ * style. Each request completing in time grows the limit by {@code 1 / limit}, i.e. by one per
+ * round of requests, while each slow or overloaded request shrinks it by the backoff ratio.
+ */
+class AimdConcurrencyLimit {
+  private final int minLimit;
+  private final int maxLimit;
+  private final double backoffRatio;
+  private final long slowCallThresholdNanos;
+
+  private double limit;
+  private int inFlight;
+
+  AimdConcurrencyLimit(
+      int initialLimit,
+      int minLimit,
+      int maxLimit,
+      double backoffRatio,
+      long slowCallThresholdMillis) {
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.backoffRatio = backoffRatio;
+    this.slowCallThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowCallThresholdMillis);
+    this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+  }
+
+  /**
+   * Admits a request if the number of requests in flight is below the limit. Never blocks, the
+   * requests over the limit are queued by the caller.
+   *
+   * @return whether the request was admitted
+   */
+  synchronized boolean tryAcquire() {
+    if (inFlight >= getLimit()) {
+      return false;
+    }
+    inFlight++;
+    return true;
+  }
+
+  /** Releases an admitted request which didn't get to run, so says nothing about the latency */
+  synchronized void release() {
+    inFlight--;
+  }
+
+  /** Releases an admitted request and adapts the limit to how it went */
+  synchronized void onComplete(long latencyNanos, boolean overloaded) {
+    if (overloaded || latencyNanos > slowCallThresholdNanos) {
+      limit = Math.max(minLimit, limit * backoffRatio);
+    } else if (inFlight * 2 >= limit) {
+      // there's no point in growing a limit which is not being used
+      limit = Math.min(maxLimit, limit + 1 / limit);
+    }
+    release();
+  }
+
+  synchronized int getLimit() {
+    return (int) limit;
+  }
+
+  synchronized int getInFlight() {
+    return inFlight;
+  }
+}
@@ -0,0 +1,75 @@
+package org.hypertrace.gateway.service.common.cache;
+
+import com.google.common.collect.ImmutableMap;
+import io.micrometer.core.instrument.Counter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.hypertrace.core.grpcutils.context.RequestContextConstants;
+import org.hypertrace.core.query.service.api.QueryRequest;
+import org.hypertrace.core.query.service.api.ResultSetChunk;
+import org.hypertrace.core.serviceframework.metrics.PlatformMetricsRegistry;
+import org.hypertrace.gateway.service.common.QueryServiceExecutor;
+
+/**
+ * {@link QueryServiceExecutor} which serves the results of repeated queries from a {@link
+ * QueryResultCache}, and sends the other queries to the delegate client. Queries are cached per
+ * tenant, for as long as the {@link TimeRangeTtlPolicy} allows, so that drill-downs into historical
+ * time ranges don't hit query-service every time.
+ */
+public class CachingQueryServiceClient implements QueryServiceExecutor {
+  private final QueryServiceExecutor delegate;
+  private final QueryResultCache queryResultCache;
+  private final TimeRangeTtlPolicy timeRangeTtlPolicy;
+  private Counter hitCounter;
+  private Counter missCounter;
+
+  public CachingQueryServiceClient(
+      QueryServiceExecutor delegate, QueryResultCacheConfig queryResultCacheConfig) {
+    this(
+        delegate,
+        new TenantAwareQueryResultCache(queryResultCacheConfig),
+        new TimeRangeTtlPolicy(queryResultCacheConfig));
+  }
+
+  public CachingQueryServiceClient(
+      QueryServiceExecutor delegate,
+      QueryResultCache queryResultCache,
+      TimeRangeTtlPolicy timeRangeTtlPolicy) {
+    this.delegate = delegate;
+    this.queryResultCache = queryResultCache;
+    this.timeRangeTtlPolicy = timeRangeTtlPolicy;
+    initMetrics();
+  }
+
+  private void initMetrics() {
+    this.hitCounter =
+        PlatformMetricsRegistry.registerCounter("hypertrace.query.cache.hit", ImmutableMap.of());
+    this.missCounter =
+        PlatformMetricsRegistry.registerCounter("hypertrace.query.cache.miss", ImmutableMap.of());
+  }
+
+  @Override
+  public Iterator<ResultSetChunk> executeQuery(
+      QueryRequest request, Map<String, String> context, int timeoutMillis) {
+    String tenantId = context.get(RequestContextConstants.TENANT_ID_HEADER_KEY);
+    long ttlMillis = timeRangeTtlPolicy.getTtlMillis(request);
+    if (tenantId == null || ttlMillis <= 0) {
+      return delegate.executeQuery(request, context, timeoutMillis);
+    }
+
+    Optional<List<ResultSetChunk>> cachedResultSetChunks = queryResultCache.get(tenantId, request);
+    if (cachedResultSetChunks.isPresent()) {
+      hitCounter.increment();
+      return cachedResultSetChunks.get().iterator();
+    }
+
+    missCounter.increment();
+    List<ResultSetChunk> resultSetChunks = new ArrayList<>();
+    delegate.executeQuery(request, context, timeoutMillis).forEachRemaining(resultSetChunks::add);
+    queryResultCache.put(tenantId, request, resultSetChunks, ttlMillis);
+    return resultSetChunks.iterator();
+  }
+}
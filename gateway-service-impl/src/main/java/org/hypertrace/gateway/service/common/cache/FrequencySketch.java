@@ -0,0 +1,72 @@
+package org.hypertrace.gateway.service.common.cache;
+
+/**
+ * Approximate access frequency of the keys, kept in a count-min sketch with small counters. All the
+ * counters are halved once enough accesses have been recorded, so that the frequencies reflect the
+ * recent popularity of the keys rather than all the accesses ever made.
+ *
+ * <p>Not thread safe.
+ */
+class FrequencySketch {
+  private static final long[] SEEDS = {
+    0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+  };
+  private static final int MAX_FREQUENCY = 15;
+  private static final int SAMPLE_SIZE_MULTIPLIER = 10;
+
+  private final int[][] table;
+  private final int mask;
+  private final int sampleSize;
+  private int additions;
+
+  FrequencySketch(int expectedKeys) {
+    int width = Integer.highestOneBit(Math.max(expectedKeys, 16) - 1) << 1;
+    this.table = new int[SEEDS.length][width];
+    this.mask = width - 1;
+    this.sampleSize = SAMPLE_SIZE_MULTIPLIER * width;
+  }
+
+  void increment(Object key) {
+    int hash = spread(key.hashCode());
+    boolean added = false;
+    for (int i = 0; i < SEEDS.length; i++) {
+      int index = indexOf(hash, i);
+      if (table[i][index] < MAX_FREQUENCY) {
+        table[i][index]++;
+        added = true;
+      }
+    }
+    if (added && ++additions >= sampleSize) {
+      reset();
+    }
+  }
+
+  int frequency(Object key) {
+    int hash = spread(key.hashCode());
+    int frequency = MAX_FREQUENCY;
+    for (int i = 0; i < SEEDS.length; i++) {
+      frequency = Math.min(frequency, table[i][indexOf(hash, i)]);
+    }
+    return frequency;
+  }
+
+  private void reset() {
+    for (int[] row : table) {
+      for (int i = 0; i < row.length; i++) {
+        row[i] >>>= 1;
+      }
+    }
+    additions >>>= 1;
+  }
+
+  private int indexOf(int hash, int row) {
+    long index = (hash + SEEDS[row]) * SEEDS[row];
+    index += index >>> 32;
+    return (int) index & mask;
+  }
+
+  private static int spread(int hash) {
+    hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+    return (hash >>> 16) ^ hash;
+  }
+}
@@ -0,0 +1,23 @@
+package org.hypertrace.gateway.service.common.cache;
+
+import java.util.List;
+import java.util.Optional;
+import org.hypertrace.core.query.service.api.QueryRequest;
+import org.hypertrace.core.query.service.api.ResultSetChunk;
+
+/** Cache of the results returned by query-service, scoped by tenant */
+public interface QueryResultCache {
+
+  /** @return the cached result chunks of the query, if present and not expired */
+  Optional<List<ResultSetChunk>> get(String tenantId, QueryRequest queryRequest);
+
+  /**
+   * Caches the result chunks of the query. The cache is free to not retain them, e.g. when they are
+   * not expected to be requested again
+   */
+  void put(
+      String tenantId,
+      QueryRequest queryRequest,
+      List<ResultSetChunk> resultSetChunks,
+      long ttlMillis);
+}
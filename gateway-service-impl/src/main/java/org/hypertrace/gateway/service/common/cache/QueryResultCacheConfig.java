@@ -0,0 +1,83 @@
+package org.hypertrace.gateway.service.common.cache;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+/** Configuration of the cache of query-service results */
+public class QueryResultCacheConfig {
+  private static final String QUERY_RESULT_CACHE_CONFIG = "query.service.cache.config";
+  private static final String ENABLED = "enabled";
+  private static final String MAX_BYTES = "max.bytes";
+  private static final String TENANT_MAX_BYTES = "tenant.max.bytes";
+  private static final String RECENT_WINDOW_MILLIS = "recent.window.millis";
+  private static final String RECENT_TTL_MILLIS = "recent.ttl.millis";
+  private static final String HISTORICAL_TTL_MILLIS = "historical.ttl.millis";
+
+  private static final boolean DEFAULT_ENABLED = false;
+  private static final long DEFAULT_MAX_BYTES = 64 * 1024 * 1024L;
+  private static final long DEFAULT_TENANT_MAX_BYTES = 16 * 1024 * 1024L;
+  private static final long DEFAULT_RECENT_WINDOW_MILLIS = 5 * 60 * 1000L;
+  private static final long DEFAULT_RECENT_TTL_MILLIS = 0L;
+  private static final long DEFAULT_HISTORICAL_TTL_MILLIS = 10 * 60 * 1000L;
+
+  private final boolean enabled;
+  private final long maxBytes;
+  private final long tenantMaxBytes;
+  private final long recentWindowMillis;
+  private final long recentTtlMillis;
+  private final long historicalTtlMillis;
+
+  public QueryResultCacheConfig(Config appConfig) {
+    Config cacheConfig =
+        appConfig.hasPath(QUERY_RESULT_CACHE_CONFIG)
+            ? appConfig.getConfig(QUERY_RESULT_CACHE_CONFIG)
+            : ConfigFactory.empty();
+
+    this.enabled = cacheConfig.hasPath(ENABLED) ? cacheConfig.getBoolean(ENABLED) : DEFAULT_ENABLED;
+    this.maxBytes =
+        cacheConfig.hasPath(MAX_BYTES) ? cacheConfig.getLong(MAX_BYTES) : DEFAULT_MAX_BYTES;
+    this.tenantMaxBytes =
+        cacheConfig.hasPath(TENANT_MAX_BYTES)
+            ? cacheConfig.getLong(TENANT_MAX_BYTES)
+            : DEFAULT_TENANT_MAX_BYTES;
+    this.recentWindowMillis =
+        cacheConfig.hasPath(RECENT_WINDOW_MILLIS)
+            ? cacheConfig.getLong(RECENT_WINDOW_MILLIS)
+            : DEFAULT_RECENT_WINDOW_MILLIS;
+    this.recentTtlMillis =
+        cacheConfig.hasPath(RECENT_TTL_MILLIS)
+            ? cacheConfig.getLong(RECENT_TTL_MILLIS)
+            : DEFAULT_RECENT_TTL_MILLIS;
+    this.historicalTtlMillis =
+        cacheConfig.hasPath(HISTORICAL_TTL_MILLIS)
+            ? cacheConfig.getLong(HISTORICAL_TTL_MILLIS)
+            : DEFAULT_HISTORICAL_TTL_MILLIS;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /** @return upper bound on the serialized size of all the cached results */
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /** @return upper bound on the serialized size of the cached results of a single tenant */
+  public long getTenantMaxBytes() {
+    return tenantMaxBytes;
+  }
+
+  /** @return time ranges ending within this window from now are considered recent */
+  public long getRecentWindowMillis() {
+    return recentWindowMillis;
+  }
+
+  public long getRecentTtlMillis() {
+    return recentTtlMillis;
+  }
+
+  public long getHistoricalTtlMillis() {
+    return historicalTtlMillis;
+  }
+}
@@ -0,0 +1,224 @@
+package org.hypertrace.gateway.service.common.cache;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.protobuf.ByteString;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import org.hypertrace.core.query.service.api.QueryRequest;
+import org.hypertrace.core.query.service.api.ResultSetChunk;
+
+/**
+ * {@link QueryResultCache} bounded by the serialized size of the cached results, both in total and
+ * per tenant.
+ *
+ * <p>Eviction follows W-TinyLFU. New results enter a small LRU admission window. Results leaving
+ * the window are admitted into the main LRU region only if they have been requested more often than
+ * the results they would evict, as estimated by a {@link FrequencySketch} of the lookups. This
+ * keeps one off queries, e.g. a scan through many distinct time ranges, from flushing out the
+ * results which are requested again and again.
+ *
+ * <p>A tenant exceeding its share evicts its own least recently used results, never the results of
+ * other tenants.
+ */
+public class TenantAwareQueryResultCache implements QueryResultCache {
+  private static final double WINDOW_FRACTION = 0.01;
+  // rough size of a query result, used to size the frequency sketch
+  private static final long AVERAGE_ENTRY_BYTES = 4096;
+  private static final int MAX_EXPECTED_ENTRIES = 1 << 20;
+
+  private final long windowMaxBytes;
+  private final long mainMaxBytes;
+  private final long tenantMaxBytes;
+  private final Clock clock;
+  private final FrequencySketch frequencySketch;
+
+  // access ordered, so that the iteration starts with the least recently used entry
+  private final LinkedHashMap<CacheKey, CacheEntry> window = new LinkedHashMap<>(16, 0.75f, true);
+  private final LinkedHashMap<CacheKey, CacheEntry> main = new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<String, Long> tenantToBytes = new HashMap<>();
+  private long windowBytes;
+  private long mainBytes;
+
+  public TenantAwareQueryResultCache(QueryResultCacheConfig config) {
+    this(config.getMaxBytes(), config.getTenantMaxBytes(), Clock.systemUTC());
+  }
+
+  @VisibleForTesting
+  TenantAwareQueryResultCache(long maxBytes, long tenantMaxBytes, Clock clock) {
+    this.windowMaxBytes = (long) (maxBytes * WINDOW_FRACTION);
+    this.mainMaxBytes = maxBytes - windowMaxBytes;
+    this.tenantMaxBytes = tenantMaxBytes;
+    this.clock = clock;
+    this.frequencySketch =
+        new FrequencySketch((int) Math.min(maxBytes / AVERAGE_ENTRY_BYTES, MAX_EXPECTED_ENTRIES));
+  }
+
+  @Override
+  public synchronized Optional<List<ResultSetChunk>> get(
+      String tenantId, QueryRequest queryRequest) {
+    CacheKey cacheKey = new CacheKey(tenantId, queryRequest.toByteString());
+    frequencySketch.increment(cacheKey);
+
+    CacheEntry cacheEntry = window.get(cacheKey);
+    if (cacheEntry == null) {
+      cacheEntry = main.get(cacheKey);
+    }
+    if (cacheEntry == null) {
+      return Optional.empty();
+    }
+    if (cacheEntry.isExpired(clock.millis())) {
+      remove(cacheEntry);
+      return Optional.empty();
+    }
+    return Optional.of(cacheEntry.resultSetChunks);
+  }
+
+  @Override
+  public synchronized void put(
+      String tenantId,
+      QueryRequest queryRequest,
+      List<ResultSetChunk> resultSetChunks,
+      long ttlMillis) {
+    CacheKey cacheKey = new CacheKey(tenantId, queryRequest.toByteString());
+    long bytes =
+        cacheKey.queryRequest.size()
+            + resultSetChunks.stream().mapToLong(ResultSetChunk::getSerializedSize).sum();
+    if (ttlMillis <= 0 || bytes > tenantMaxBytes || bytes > mainMaxBytes) {
+      return;
+    }
+
+    Optional.ofNullable(window.get(cacheKey))
+        .or(() -> Optional.ofNullable(main.get(cacheKey)))
+        .ifPresent(this::remove);
+    while (tenantToBytes.getOrDefault(tenantId, 0L) + bytes > tenantMaxBytes) {
+      remove(getLeastRecentlyUsedEntry(tenantId));
+    }
+
+    CacheEntry cacheEntry =
+        new CacheEntry(cacheKey, List.copyOf(resultSetChunks), bytes, clock.millis() + ttlMillis);
+    window.put(cacheKey, cacheEntry);
+    windowBytes += bytes;
+    tenantToBytes.merge(tenantId, bytes, Long::sum);
+
+    while (windowBytes > windowMaxBytes) {
+      CacheEntry candidate = window.values().iterator().next();
+      remove(candidate);
+      admit(candidate);
+    }
+  }
+
+  @VisibleForTesting
+  synchronized long getTenantBytes(String tenantId) {
+    return tenantToBytes.getOrDefault(tenantId, 0L);
+  }
+
+  @VisibleForTesting
+  synchronized long getBytes() {
+    return windowBytes + mainBytes;
+  }
+
+  /** Moves the candidate leaving the window into the main region, if it's worth the evictions */
+  private void admit(CacheEntry candidate) {
+    long now = clock.millis();
+    int candidateFrequency = frequencySketch.frequency(candidate.cacheKey);
+    List<CacheEntry> victims = new ArrayList<>();
+    long freedBytes = 0;
+    Iterator<CacheEntry> iterator = main.values().iterator();
+    while (mainBytes - freedBytes + candidate.bytes > mainMaxBytes && iterator.hasNext()) {
+      CacheEntry victim = iterator.next();
+      if (!victim.isExpired(now)
+          && frequencySketch.frequency(victim.cacheKey) >= candidateFrequency) {
+        return;
+      }
+      victims.add(victim);
+      freedBytes += victim.bytes;
+    }
+
+    victims.forEach(this::remove);
+    main.put(candidate.cacheKey, candidate);
+    mainBytes += candidate.bytes;
+    tenantToBytes.merge(candidate.cacheKey.tenantId, candidate.bytes, Long::sum);
+  }
+
+  private CacheEntry getLeastRecentlyUsedEntry(String tenantId) {
+    // the main region holds the entries that have been around the longest
+    for (Map<CacheKey, CacheEntry> region : List.of(main, window)) {
+      for (CacheEntry cacheEntry : region.values()) {
+        if (cacheEntry.cacheKey.tenantId.equals(tenantId)) {
+          return cacheEntry;
+        }
+      }
+    }
+    throw new IllegalStateException("No cached results for tenant: " + tenantId);
+  }
+
+  private void remove(CacheEntry cacheEntry) {
+    if (window.remove(cacheEntry.cacheKey, cacheEntry)) {
+      windowBytes -= cacheEntry.bytes;
+    } else if (main.remove(cacheEntry.cacheKey, cacheEntry)) {
+      mainBytes -= cacheEntry.bytes;
+    } else {
+      return;
+    }
+    tenantToBytes.computeIfPresent(
+        cacheEntry.cacheKey.tenantId,
+        (tenantId, tenantBytes) ->
+            tenantBytes - cacheEntry.bytes > 0 ? tenantBytes - cacheEntry.bytes : null);
+  }
+
+  private static class CacheEntry {
+    private final CacheKey cacheKey;
+    private final List<ResultSetChunk> resultSetChunks;
+    private final long bytes;
+    private final long expiryTimeMillis;
+
+    private CacheEntry(
+        CacheKey cacheKey,
+        List<ResultSetChunk> resultSetChunks,
+        long bytes,
+        long expiryTimeMillis) {
+      this.cacheKey = cacheKey;
+      this.resultSetChunks = resultSetChunks;
+      this.bytes = bytes;
+      this.expiryTimeMillis = expiryTimeMillis;
+    }
+
+    private boolean isExpired(long now) {
+      return now >= expiryTimeMillis;
+    }
+  }
+
+  private static class CacheKey {
+    private final String tenantId;
+    private final ByteString queryRequest;
+
+    private CacheKey(String tenantId, ByteString queryRequest) {
+      this.tenantId = tenantId;
+      this.queryRequest = queryRequest;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      CacheKey cacheKey = (CacheKey) o;
+      return tenantId.equals(cacheKey.tenantId) && queryRequest.equals(cacheKey.queryRequest);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(tenantId, queryRequest);
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package org.hypertrace.gateway.service.common.cache;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.time.Clock;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.stream.Collectors;
+import org.hypertrace.core.query.service.api.Filter;
+import org.hypertrace.core.query.service.api.Operator;
+import org.hypertrace.core.query.service.api.QueryRequest;
+import org.hypertrace.gateway.service.common.sharding.QueryTimeRange;
+
+/**
+ * Decides how long the result of a query can be cached, based on how far the end of its time range
+ * is from now. Data of time ranges fully in the past doesn't change anymore, while the data of
+ * recent time ranges is still being ingested.
+ *
+ * <p>The end of the time range is the upper bound of the between times filters of the query. Other
+ * bounds on long attributes, like durations, aren't times. Queries without a time range are not
+ * cached.
+ */
+public class TimeRangeTtlPolicy {
+  private final long recentWindowMillis;
+  private final long recentTtlMillis;
+  private final long historicalTtlMillis;
+  private final Clock clock;
+
+  public TimeRangeTtlPolicy(QueryResultCacheConfig config) {
+    this(
+        config.getRecentWindowMillis(),
+        config.getRecentTtlMillis(),
+        config.getHistoricalTtlMillis(),
+        Clock.systemUTC());
+  }
+
+  @VisibleForTesting
+  TimeRangeTtlPolicy(
+      long recentWindowMillis, long recentTtlMillis, long historicalTtlMillis, Clock clock) {
+    this.recentWindowMillis = recentWindowMillis;
+    this.recentTtlMillis = recentTtlMillis;
+    this.historicalTtlMillis = historicalTtlMillis;
+    this.clock = clock;
+  }
+
+  /** @return ttl of the query result, 0 if it shouldn't be cached */
+  public long getTtlMillis(QueryRequest queryRequest) {
+    OptionalLong endTimeMillis = getEndTimeMillis(queryRequest.getFilter());
+    if (endTimeMillis.isEmpty()) {
+      return 0;
+    }
+    return clock.millis() - endTimeMillis.getAsLong() >= recentWindowMillis
+        ? historicalTtlMillis
+        : recentTtlMillis;
+  }
+
+  @VisibleForTesting
+  static OptionalLong getEndTimeMillis(Filter filter) {
+    Optional<QueryTimeRange> timeRange = QueryTimeRange.ofTimeRangeFilter(filter);
+    if (timeRange.isPresent()) {
+      return OptionalLong.of(timeRange.get().getEndTime());
+    }
+
+    Operator operator = filter.getOperator();
+    if (operator == Operator.AND || operator == Operator.OR) {
+      List<OptionalLong> childEndTimes =
+          filter.getChildFilterList().stream()
+              .map(TimeRangeTtlPolicy::getEndTimeMillis)
+              .collect(Collectors.toList());
+      if (operator == Operator.AND) {
+        // every condition has to hold, so the tightest bound applies
+        return childEndTimes.stream()
+            .filter(OptionalLong::isPresent)
+            .mapToLong(OptionalLong::getAsLong)
+            .min();
+      }
+      // any condition can hold, so every branch has to be bounded
+      if (childEndTimes.isEmpty() || childEndTimes.stream().anyMatch(OptionalLong::isEmpty)) {
+        return OptionalLong.empty();
+      }
+      return childEndTimes.stream().mapToLong(OptionalLong::getAsLong).max();
+    }
+    return OptionalLong.empty();
+  }
+}
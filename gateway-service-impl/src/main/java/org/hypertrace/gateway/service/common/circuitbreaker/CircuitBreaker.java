@@ -0,0 +1,179 @@
+package org.hypertrace.gateway.service.common.circuitbreaker;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
+import io.micrometer.core.instrument.Counter;
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+import org.hypertrace.core.serviceframework.metrics.PlatformMetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Circuit breaker of a downstream service. It trips open when the rate of failed or of slow calls
+ * among the most recent ones crosses its threshold, and then fails the calls fast instead of
+ * letting them wait on a service which is down. After a while a few trial calls are let through,
+ * which close the breaker again if they all succeed in time.
+ */
+public class CircuitBreaker {
+  private static final Logger LOG = LoggerFactory.getLogger(CircuitBreaker.class);
+
+  enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private final String name;
+  private final CircuitBreakerConfig config;
+  private final long slowCallDurationNanos;
+  private final Clock clock;
+
+  // ring buffers of the outcomes of the most recent calls
+  private final boolean[] failedCalls;
+  private final boolean[] slowCalls;
+  private int nextIndex;
+  private int calls;
+  private int failures;
+  private int slows;
+
+  private State state = State.CLOSED;
+  private long stateChangedMillis;
+  private int halfOpenPermits;
+  private int halfOpenSuccesses;
+
+  private Counter openedCounter;
+  private Counter rejectedCounter;
+
+  public CircuitBreaker(String name, CircuitBreakerConfig config) {
+    this(name, config, Clock.systemUTC());
+  }
+
+  @VisibleForTesting
+  CircuitBreaker(String name, CircuitBreakerConfig config, Clock clock) {
+    this.name = name;
+    this.config = config;
+    this.slowCallDurationNanos = TimeUnit.MILLISECONDS.toNanos(config.getSlowCallDurationMillis());
+    this.clock = clock;
+    this.failedCalls = new boolean[config.getWindowSize()];
+    this.slowCalls = new boolean[config.getWindowSize()];
+    initMetrics();
+  }
+
+  private void initMetrics() {
+    this.openedCounter =
+        PlatformMetricsRegistry.registerCounter(
+            "hypertrace.circuit.breaker.opened", ImmutableMap.of("downstream", name));
+    this.rejectedCounter =
+        PlatformMetricsRegistry.registerCounter(
+            "hypertrace.circuit.breaker.rejected", ImmutableMap.of("downstream", name));
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /** @return whether a call may go through, if not it should fail fast */
+  public synchronized boolean tryAcquirePermission() {
+    long now = clock.millis();
+    if (state != State.CLOSED && now - stateChangedMillis >= config.getOpenDurationMillis()) {
+      // also re-arms the trial calls, in case some of them were never heard back from
+      transitionTo(State.HALF_OPEN, now);
+      halfOpenPermits = config.getHalfOpenCalls();
+      halfOpenSuccesses = 0;
+    }
+    switch (state) {
+      case CLOSED:
+        return true;
+      case HALF_OPEN:
+        if (halfOpenPermits > 0) {
+          halfOpenPermits--;
+          return true;
+        }
+        break;
+      default:
+        break;
+    }
+    rejectedCounter.increment();
+    return false;
+  }
+
+  /** Same as {@link #tryAcquirePermission()}, but throws when the call may not go through */
+  public void acquirePermission() {
+    if (!tryAcquirePermission()) {
+      throw new CircuitBreakerOpenException(name);
+    }
+  }
+
+  public synchronized void onSuccess(long durationNanos) {
+    onResult(false, durationNanos > slowCallDurationNanos);
+  }
+
+  public synchronized void onError(long durationNanos) {
+    onResult(true, durationNanos > slowCallDurationNanos);
+  }
+
+  @VisibleForTesting
+  synchronized State getState() {
+    return state;
+  }
+
+  private void onResult(boolean failed, boolean slow) {
+    long now = clock.millis();
+    if (state == State.HALF_OPEN) {
+      if (failed || slow) {
+        trip(now);
+      } else if (++halfOpenSuccesses >= config.getHalfOpenCalls()) {
+        resetWindow();
+        transitionTo(State.CLOSED, now);
+      }
+      return;
+    }
+    if (state == State.OPEN) {
+      // a call let through before the breaker tripped
+      return;
+    }
+
+    if (calls == failedCalls.length) {
+      failures -= failedCalls[nextIndex] ? 1 : 0;
+      slows -= slowCalls[nextIndex] ? 1 : 0;
+    } else {
+      calls++;
+    }
+    failedCalls[nextIndex] = failed;
+    slowCalls[nextIndex] = slow;
+    failures += failed ? 1 : 0;
+    slows += slow ? 1 : 0;
+    nextIndex = (nextIndex + 1) % failedCalls.length;
+
+    if (calls >= config.getMinCalls()
+        && ((double) failures / calls >= config.getFailureRateThreshold()
+            || (double) slows / calls >= config.getSlowCallRateThreshold())) {
+      trip(now);
+    }
+  }
+
+  private void trip(long now) {
+    LOG.warn(
+        "Circuit breaker of {} opened, {} of the last {} calls failed and {} were slow",
+        name,
+        failures,
+        calls,
+        slows);
+    resetWindow();
+    transitionTo(State.OPEN, now);
+    openedCounter.increment();
+  }
+
+  private void resetWindow() {
+    nextIndex = 0;
+    calls = 0;
+    failures = 0;
+    slows = 0;
+  }
+
+  private void transitionTo(State state, long now) {
+    this.state = state;
+    this.stateChangedMillis = now;
+  }
+}
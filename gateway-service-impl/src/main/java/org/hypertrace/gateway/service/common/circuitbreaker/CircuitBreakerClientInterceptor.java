@@ -0,0 +1,78 @@
+package org.hypertrace.gateway.service.common.circuitbreaker;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall.SimpleForwardingClientCall;
+import io.grpc.ForwardingClientCallListener.SimpleForwardingClientCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+
+/**
+ * Guards the calls on a channel with a {@link CircuitBreaker}. While the breaker is open the calls
+ * fail right away with {@link Status#UNAVAILABLE}, caused by a {@link CircuitBreakerOpenException}.
+ */
+public class CircuitBreakerClientInterceptor implements ClientInterceptor {
+  private final CircuitBreaker circuitBreaker;
+
+  public CircuitBreakerClientInterceptor(CircuitBreaker circuitBreaker) {
+    this.circuitBreaker = circuitBreaker;
+  }
+
+  @Override
+  public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+      MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+    if (!circuitBreaker.tryAcquirePermission()) {
+      return new RejectedClientCall<>();
+    }
+    return new SimpleForwardingClientCall<>(next.newCall(method, callOptions)) {
+      @Override
+      public void start(Listener<RespT> responseListener, Metadata headers) {
+        long startTime = System.nanoTime();
+        super.start(
+            new SimpleForwardingClientCallListener<>(responseListener) {
+              @Override
+              public void onClose(Status status, Metadata trailers) {
+                long durationNanos = System.nanoTime() - startTime;
+                if (DownstreamFailures.isFailure(status.getCode())) {
+                  circuitBreaker.onError(durationNanos);
+                } else if (status.getCode() != Status.Code.CANCELLED) {
+                  circuitBreaker.onSuccess(durationNanos);
+                }
+                super.onClose(status, trailers);
+              }
+            },
+            headers);
+      }
+    };
+  }
+
+  /**
+   * Call rejected by the open breaker. It is never sent, it only closes with {@link
+   * Status#UNAVAILABLE} when started, and ignores everything else.
+   */
+  private class RejectedClientCall<ReqT, RespT> extends ClientCall<ReqT, RespT> {
+    @Override
+    public void start(Listener<RespT> responseListener, Metadata headers) {
+      responseListener.onClose(
+          Status.UNAVAILABLE
+              .withDescription("Circuit breaker is open")
+              .withCause(new CircuitBreakerOpenException(circuitBreaker.getName())),
+          new Metadata());
+    }
+
+    @Override
+    public void request(int numMessages) {}
+
+    @Override
+    public void cancel(String message, Throwable cause) {}
+
+    @Override
+    public void halfClose() {}
+
+    @Override
+    public void sendMessage(ReqT message) {}
+  }
+}
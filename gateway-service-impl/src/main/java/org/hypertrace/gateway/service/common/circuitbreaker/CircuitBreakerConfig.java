@@ -0,0 +1,107 @@
+package org.hypertrace.gateway.service.common.circuitbreaker;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+/** Configuration of the circuit breakers in front of the downstream services */
+public class CircuitBreakerConfig {
+  private static final String CIRCUIT_BREAKER_CONFIG = "circuit.breaker.config";
+  private static final String ENABLED = "enabled";
+  private static final String WINDOW_SIZE = "window.size";
+  private static final String MIN_CALLS = "min.calls";
+  private static final String FAILURE_RATE_THRESHOLD = "failure.rate.threshold";
+  private static final String SLOW_CALL_RATE_THRESHOLD = "slow.call.rate.threshold";
+  private static final String SLOW_CALL_DURATION_MILLIS = "slow.call.duration.millis";
+  private static final String OPEN_DURATION_MILLIS = "open.duration.millis";
+  private static final String HALF_OPEN_CALLS = "half.open.calls";
+
+  private static final boolean DEFAULT_ENABLED = false;
+  private static final int DEFAULT_WINDOW_SIZE = 100;
+  private static final int DEFAULT_MIN_CALLS = 20;
+  private static final double DEFAULT_FAILURE_RATE_THRESHOLD = 0.5;
+  private static final double DEFAULT_SLOW_CALL_RATE_THRESHOLD = 0.8;
+  private static final long DEFAULT_SLOW_CALL_DURATION_MILLIS = 5000L;
+  private static final long DEFAULT_OPEN_DURATION_MILLIS = 10000L;
+  private static final int DEFAULT_HALF_OPEN_CALLS = 5;
+
+  private final boolean enabled;
+  private final int windowSize;
+  private final int minCalls;
+  private final double failureRateThreshold;
+  private final double slowCallRateThreshold;
+  private final long slowCallDurationMillis;
+  private final long openDurationMillis;
+  private final int halfOpenCalls;
+
+  public CircuitBreakerConfig(Config appConfig) {
+    Config breakerConfig =
+        appConfig.hasPath(CIRCUIT_BREAKER_CONFIG)
+            ? appConfig.getConfig(CIRCUIT_BREAKER_CONFIG)
+            : ConfigFactory.empty();
+
+    this.enabled =
+        breakerConfig.hasPath(ENABLED) ? breakerConfig.getBoolean(ENABLED) : DEFAULT_ENABLED;
+    this.windowSize =
+        breakerConfig.hasPath(WINDOW_SIZE)
+            ? breakerConfig.getInt(WINDOW_SIZE)
+            : DEFAULT_WINDOW_SIZE;
+    this.minCalls =
+        breakerConfig.hasPath(MIN_CALLS) ? breakerConfig.getInt(MIN_CALLS) : DEFAULT_MIN_CALLS;
+    this.failureRateThreshold =
+        breakerConfig.hasPath(FAILURE_RATE_THRESHOLD)
+            ? breakerConfig.getDouble(FAILURE_RATE_THRESHOLD)
+            : DEFAULT_FAILURE_RATE_THRESHOLD;
+    this.slowCallRateThreshold =
+        breakerConfig.hasPath(SLOW_CALL_RATE_THRESHOLD)
+            ? breakerConfig.getDouble(SLOW_CALL_RATE_THRESHOLD)
+            : DEFAULT_SLOW_CALL_RATE_THRESHOLD;
+    this.slowCallDurationMillis =
+        breakerConfig.hasPath(SLOW_CALL_DURATION_MILLIS)
+            ? breakerConfig.getLong(SLOW_CALL_DURATION_MILLIS)
+            : DEFAULT_SLOW_CALL_DURATION_MILLIS;
+    this.openDurationMillis =
+        breakerConfig.hasPath(OPEN_DURATION_MILLIS)
+            ? breakerConfig.getLong(OPEN_DURATION_MILLIS)
+            : DEFAULT_OPEN_DURATION_MILLIS;
+    this.halfOpenCalls =
+        breakerConfig.hasPath(HALF_OPEN_CALLS)
+            ? breakerConfig.getInt(HALF_OPEN_CALLS)
+            : DEFAULT_HALF_OPEN_CALLS;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /** @return number of most recent calls the failure and slow call rates are computed over */
+  public int getWindowSize() {
+    return windowSize;
+  }
+
+  /** @return number of calls to observe before the breaker may trip */
+  public int getMinCalls() {
+    return minCalls;
+  }
+
+  public double getFailureRateThreshold() {
+    return failureRateThreshold;
+  }
+
+  public double getSlowCallRateThreshold() {
+    return slowCallRateThreshold;
+  }
+
+  public long getSlowCallDurationMillis() {
+    return slowCallDurationMillis;
+  }
+
+  /** @return how long a tripped breaker fails the calls fast before letting trial calls through */
+  public long getOpenDurationMillis() {
+    return openDurationMillis;
+  }
+
+  /** @return number of trial calls which have to succeed to close the breaker again */
+  public int getHalfOpenCalls() {
+    return halfOpenCalls;
+  }
+}
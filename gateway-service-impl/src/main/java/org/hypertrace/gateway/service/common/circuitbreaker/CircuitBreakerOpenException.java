@@ -0,0 +1,19 @@
+package org.hypertrace.gateway.service.common.circuitbreaker;
+
+/** Thrown instead of calling a downstream service while its circuit breaker is open */
+public class CircuitBreakerOpenException extends RuntimeException {
+
+  public CircuitBreakerOpenException(String downstream) {
+    super(String.format("Circuit breaker of %s is open", downstream));
+  }
+
+  /** @return whether the failure is, or is caused by, an open circuit breaker */
+  public static boolean isCause(Throwable throwable) {
+    for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+      if (cause instanceof CircuitBreakerOpenException) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
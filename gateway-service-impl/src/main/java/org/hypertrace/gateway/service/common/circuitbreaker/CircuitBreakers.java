@@ -0,0 +1,24 @@
+package org.hypertrace.gateway.service.common.circuitbreaker;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import org.hypertrace.gateway.service.common.grpc.GrpcChannelConfig.Downstream;
+
+/** The circuit breaker of each downstream service, none when they are disabled */
+public class CircuitBreakers {
+  private final Map<Downstream, CircuitBreaker> circuitBreakers = new EnumMap<>(Downstream.class);
+
+  public CircuitBreakers(CircuitBreakerConfig config) {
+    if (config.isEnabled()) {
+      for (Downstream downstream : Downstream.values()) {
+        circuitBreakers.put(
+            downstream, new CircuitBreaker(downstream.name().toLowerCase(), config));
+      }
+    }
+  }
+
+  public Optional<CircuitBreaker> get(Downstream downstream) {
+    return Optional.ofNullable(circuitBreakers.get(downstream));
+  }
+}
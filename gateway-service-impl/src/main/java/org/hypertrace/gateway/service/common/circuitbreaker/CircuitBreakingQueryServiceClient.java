@@ -0,0 +1,88 @@
+package org.hypertrace.gateway.service.common.circuitbreaker;
+
+import io.grpc.Status;
+import java.util.Iterator;
+import java.util.Map;
+import org.hypertrace.core.query.service.api.QueryRequest;
+import org.hypertrace.core.query.service.api.ResultSetChunk;
+import org.hypertrace.gateway.service.common.QueryServiceExecutor;
+
+/**
+ * {@link QueryServiceExecutor} guarded by a {@link CircuitBreaker}. While the breaker is open the
+ * queries fail right away with a {@link CircuitBreakerOpenException}. A query counts as done once
+ * its results have been read through or have failed.
+ */
+public class CircuitBreakingQueryServiceClient implements QueryServiceExecutor {
+  private final QueryServiceExecutor delegate;
+  private final CircuitBreaker circuitBreaker;
+
+  public CircuitBreakingQueryServiceClient(
+      QueryServiceExecutor delegate, CircuitBreaker circuitBreaker) {
+    this.delegate = delegate;
+    this.circuitBreaker = circuitBreaker;
+  }
+
+  @Override
+  public Iterator<ResultSetChunk> executeQuery(
+      QueryRequest request, Map<String, String> context, int timeoutMillis) {
+    circuitBreaker.acquirePermission();
+    long startTime = System.nanoTime();
+    try {
+      return new GuardedIterator(delegate.executeQuery(request, context, timeoutMillis), startTime);
+    } catch (RuntimeException e) {
+      onError(e, startTime);
+      throw e;
+    }
+  }
+
+  private void onError(RuntimeException e, long startTime) {
+    if (DownstreamFailures.isFailure(e)) {
+      circuitBreaker.onError(System.nanoTime() - startTime);
+    } else if (Status.fromThrowable(e).getCode() != Status.Code.CANCELLED) {
+      circuitBreaker.onSuccess(System.nanoTime() - startTime);
+    }
+  }
+
+  private class GuardedIterator implements Iterator<ResultSetChunk> {
+    private final Iterator<ResultSetChunk> delegate;
+    private final long startTime;
+    private boolean done;
+
+    private GuardedIterator(Iterator<ResultSetChunk> delegate, long startTime) {
+      this.delegate = delegate;
+      this.startTime = startTime;
+    }
+
+    @Override
+    public boolean hasNext() {
+      try {
+        boolean hasNext = delegate.hasNext();
+        if (!hasNext && !done) {
+          done = true;
+          circuitBreaker.onSuccess(System.nanoTime() - startTime);
+        }
+        return hasNext;
+      } catch (RuntimeException e) {
+        onFailure(e);
+        throw e;
+      }
+    }
+
+    @Override
+    public ResultSetChunk next() {
+      try {
+        return delegate.next();
+      } catch (RuntimeException e) {
+        onFailure(e);
+        throw e;
+      }
+    }
+
+    private void onFailure(RuntimeException e) {
+      if (!done) {
+        done = true;
+        onError(e, startTime);
+      }
+    }
+  }
+}
@@ -0,0 +1,26 @@
+package org.hypertrace.gateway.service.common.circuitbreaker;
+
+import io.grpc.Status;
+
+/** Tells failures of a downstream service apart from the ones caused by the request */
+final class DownstreamFailures {
+
+  private DownstreamFailures() {}
+
+  static boolean isFailure(Status.Code code) {
+    switch (code) {
+      case UNAVAILABLE:
+      case DEADLINE_EXCEEDED:
+      case RESOURCE_EXHAUSTED:
+      case INTERNAL:
+      case UNKNOWN:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  static boolean isFailure(Throwable throwable) {
+    return isFailure(Status.fromThrowable(throwable).getCode());
+  }
+}
@@ -88,68 +88,7 @@ public class QueryAndGatewayDtoConverter {
 
   public static org.hypertrace.gateway.service.v1.common.Value convertQueryValueToGatewayValue(
       Value value) {
-    org.hypertrace.gateway.service.v1.common.Value.Builder builder =
-        org.hypertrace.gateway.service.v1.common.Value.newBuilder();
-    switch (value.getValueType()) {
-      case UNRECOGNIZED:
-        break;
-      case BOOL:
-        builder.setValueType(org.hypertrace.gateway.service.v1.common.ValueType.BOOL);
-        builder.setBoolean(value.getBoolean());
-        break;
-      case STRING:
-        builder.setValueType(org.hypertrace.gateway.service.v1.common.ValueType.STRING);
-        builder.setString(value.getString());
-        break;
-      case INT:
-        builder.setValueType(org.hypertrace.gateway.service.v1.common.ValueType.LONG);
-        builder.setLong(value.getInt());
-        break;
-      case LONG:
-        builder.setValueType(org.hypertrace.gateway.service.v1.common.ValueType.LONG);
-        builder.setLong(value.getLong());
-        break;
-      case FLOAT:
-        builder.setValueType(org.hypertrace.gateway.service.v1.common.ValueType.DOUBLE);
-        builder.setDouble(value.getFloat());
-        break;
-      case DOUBLE:
-        builder.setValueType(org.hypertrace.gateway.service.v1.common.ValueType.DOUBLE);
-        builder.setDouble(value.getDouble());
-        break;
-      case TIMESTAMP:
-        builder.setValueType(org.hypertrace.gateway.service.v1.common.ValueType.TIMESTAMP);
-        builder.setTimestamp(value.getTimestamp());
-        break;
-      case BOOLEAN_ARRAY:
-        builder.setValueType(org.hypertrace.gateway.service.v1.common.ValueType.BOOLEAN_ARRAY);
-        builder.addAllBooleanArray(value.getBooleanArrayList());
-        break;
-      case STRING_ARRAY:
-        builder.setValueType(org.hypertrace.gateway.service.v1.common.ValueType.STRING_ARRAY);
-        builder.addAllStringArray(value.getStringArrayList());
-        break;
-      case INT_ARRAY:
-        builder.setValueType(org.hypertrace.gateway.service.v1.common.ValueType.LONG_ARRAY);
-        builder.addAllLongArray(
-            NumberListConverter.convertIntListToLongList(value.getIntArrayList()));
-        break;
-      case LONG_ARRAY:
-        builder.setValueType(org.hypertrace.gateway.service.v1.common.ValueType.LONG_ARRAY);
-        builder.addAllLongArray(value.getLongArrayList());
-        break;
-      case FLOAT_ARRAY:
-        builder.setValueType(org.hypertrace.gateway.service.v1.common.ValueType.DOUBLE_ARRAY);
-        builder.addAllDoubleArray(
-            NumberListConverter.convertFloatListToDoubleList(value.getFloatArrayList()));
-        break;
-      case DOUBLE_ARRAY:
-        builder.setValueType(org.hypertrace.gateway.service.v1.common.ValueType.DOUBLE_ARRAY);
-        builder.addAllDoubleArray(value.getDoubleArrayList());
-        break;
-    }
-
-    return builder.build();
+    return QueryToGatewayValueConverter.convert(value);
   }
 
   public static org.hypertrace.gateway.service.v1.common.Value convertQueryValueToGatewayValue(
@@ -163,6 +102,11 @@ public class QueryAndGatewayDtoConverter {
       return convertQueryValueToGatewayValue(value);
     }
 
+    retValue = QueryToGatewayValueConverter.convert(value, attributeMetadata.getValueKind());
+    if (null != retValue) {
+      return retValue;
+    }
+
     switch (value.getValueType()) {
       case STRING:
         converter = StringToAttributeKindConverter.INSTANCE;
@@ -348,7 +292,7 @@ public class QueryAndGatewayDtoConverter {
         .build();
   }
 
-  private static LiteralConstant convertToQueryLiteral(
+  static LiteralConstant convertToQueryLiteral(
       org.hypertrace.gateway.service.v1.common.LiteralConstant literal) {
     return LiteralConstant.newBuilder()
         .setValue(convertGatewayValueToQueryApiValue(literal.getValue()))
@@ -488,7 +432,7 @@ public class QueryAndGatewayDtoConverter {
         : compositeFilter.build();
   }
 
-  private static boolean hasTimeRangeFilter(Filter filter, String timestampAttributeId) {
+  static boolean hasTimeRangeFilter(Filter filter, String timestampAttributeId) {
     // Used to prevent duplicate time ranges added from different locations
     if (filter.getOperator() == Operator.AND || filter.getOperator() == Operator.OR) {
       return filter.getChildFilterList().stream()
@@ -0,0 +1,222 @@
+package org.hypertrace.gateway.service.common.converters;
+
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import org.hypertrace.core.query.service.api.Filter;
+import org.hypertrace.core.query.service.api.LiteralConstant;
+import org.hypertrace.core.query.service.api.QueryRequest;
+import org.hypertrace.gateway.service.v1.common.Expression;
+import org.hypertrace.gateway.service.v1.common.OrderByExpression;
+import org.hypertrace.gateway.service.v1.common.Value;
+
+/**
+ * Cache of converted query-service requests, keyed by the shape of the gateway request, i.e. the
+ * request without its time range, space id and filter literals. Dashboards keep sending the same
+ * request shapes, so the selections, order bys and filter tree are converted once into a template,
+ * and only the literals of each request are bound into a copy of it.
+ *
+ * <p>Binding relies on the literals of the converted filter being in the same order as they are
+ * added by {@link QueryAndGatewayDtoConverter#addTimeAndSpaceFiltersAndConvertToQueryFilter}: the
+ * time range first, then the literals of the provided filter depth first, then the space id.
+ */
+public class QueryRequestTemplateCache {
+  private static final int MAX_TEMPLATES = 1000;
+
+  private final Cache<TemplateKey, Template> templates;
+
+  public QueryRequestTemplateCache() {
+    this.templates = CacheBuilder.newBuilder().maximumSize(MAX_TEMPLATES).build();
+  }
+
+  /**
+   * @return a query request builder with the same filter, selections and order bys as converting
+   *     the arguments through {@link
+   *     QueryAndGatewayDtoConverter#addTimeAndSpaceFiltersAndConvertToQueryFilter}, {@link
+   *     QueryAndGatewayDtoConverter#convertToQueryExpression} and {@link
+   *     QueryAndGatewayDtoConverter#convertToQueryOrderByExpressions} would
+   */
+  public QueryRequest.Builder newQueryRequestBuilder(
+      long startTimeMillis,
+      long endTimeMillis,
+      String spaceId,
+      String timestampAttributeId,
+      String spacesAttributeId,
+      org.hypertrace.gateway.service.v1.common.Filter providedFilter,
+      List<Expression> selections,
+      List<OrderByExpression> orderBys) {
+    TemplateKey templateKey =
+        new TemplateKey(
+            timestampAttributeId,
+            spacesAttributeId,
+            !Strings.isNullOrEmpty(spaceId),
+            stripLiterals(providedFilter),
+            selections,
+            orderBys);
+    Template template = templates.getIfPresent(templateKey);
+    if (template == null) {
+      // built outside of the cache loader, so that conversion errors surface as is
+      template = buildTemplate(templateKey);
+      templates.put(templateKey, template);
+    }
+
+    List<LiteralConstant> literals = new ArrayList<>();
+    if (template.addsTimeRangeFilter) {
+      literals.add(QueryRequestUtil.createLongLiteralExpression(startTimeMillis).getLiteral());
+      literals.add(QueryRequestUtil.createLongLiteralExpression(endTimeMillis).getLiteral());
+    }
+    collectLiterals(providedFilter, literals);
+    if (templateKey.hasSpaceId) {
+      literals.add(QueryRequestUtil.createStringLiteralExpression(spaceId).getLiteral());
+    }
+
+    QueryRequest.Builder builder = template.queryRequest.toBuilder();
+    if (!literals.isEmpty()) {
+      builder.setFilter(bindLiterals(template.queryRequest.getFilter(), literals.iterator()));
+    }
+    return builder;
+  }
+
+  private Template buildTemplate(TemplateKey templateKey) {
+    Filter filter =
+        QueryAndGatewayDtoConverter.addTimeAndSpaceFiltersAndConvertToQueryFilter(
+            0,
+            0,
+            templateKey.hasSpaceId ? "space" : "",
+            templateKey.timestampAttributeId,
+            templateKey.spacesAttributeId,
+            templateKey.strippedFilter);
+    QueryRequest.Builder builder = QueryRequest.newBuilder().setFilter(filter);
+    templateKey.selections.forEach(
+        selection ->
+            builder.addSelection(QueryAndGatewayDtoConverter.convertToQueryExpression(selection)));
+    if (!templateKey.orderBys.isEmpty()) {
+      builder.addAllOrderBy(
+          QueryAndGatewayDtoConverter.convertToQueryOrderByExpressions(templateKey.orderBys));
+    }
+
+    Filter convertedProvidedFilter =
+        templateKey.strippedFilter.equals(
+                org.hypertrace.gateway.service.v1.common.Filter.getDefaultInstance())
+            ? Filter.getDefaultInstance()
+            : QueryAndGatewayDtoConverter.convertToQueryFilter(templateKey.strippedFilter);
+    boolean addsTimeRangeFilter =
+        !QueryAndGatewayDtoConverter.hasTimeRangeFilter(
+            convertedProvidedFilter, templateKey.timestampAttributeId);
+    return new Template(builder.build(), addsTimeRangeFilter);
+  }
+
+  /** Replaces the filter literals by values of the same type, which convert the same way */
+  private static org.hypertrace.gateway.service.v1.common.Filter stripLiterals(
+      org.hypertrace.gateway.service.v1.common.Filter filter) {
+    if (filter.getChildFilterCount() > 0) {
+      org.hypertrace.gateway.service.v1.common.Filter.Builder builder =
+          filter.toBuilder().clearChildFilter();
+      filter.getChildFilterList().forEach(child -> builder.addChildFilter(stripLiterals(child)));
+      return builder.build();
+    }
+    if (!filter.getRhs().hasLiteral()) {
+      return filter;
+    }
+    Value value = filter.getRhs().getLiteral().getValue();
+    return filter
+        .toBuilder()
+        .setRhs(
+            Expression.newBuilder()
+                .setLiteral(
+                    org.hypertrace.gateway.service.v1.common.LiteralConstant.newBuilder()
+                        .setValue(Value.newBuilder().setValueType(value.getValueType()))))
+        .build();
+  }
+
+  private static void collectLiterals(
+      org.hypertrace.gateway.service.v1.common.Filter filter, List<LiteralConstant> literals) {
+    if (filter.getChildFilterCount() > 0) {
+      filter.getChildFilterList().forEach(child -> collectLiterals(child, literals));
+    } else if (filter.getRhs().hasLiteral()) {
+      literals.add(QueryAndGatewayDtoConverter.convertToQueryLiteral(filter.getRhs().getLiteral()));
+    }
+  }
+
+  private static Filter bindLiterals(Filter filter, Iterator<LiteralConstant> literals) {
+    if (filter.getChildFilterCount() > 0) {
+      Filter.Builder builder = filter.toBuilder().clearChildFilter();
+      filter
+          .getChildFilterList()
+          .forEach(child -> builder.addChildFilter(bindLiterals(child, literals)));
+      return builder.build();
+    }
+    if (!filter.getRhs().hasLiteral()) {
+      return filter;
+    }
+    Filter.Builder builder = filter.toBuilder();
+    builder.getRhsBuilder().setLiteral(literals.next());
+    return builder.build();
+  }
+
+  private static class Template {
+    private final QueryRequest queryRequest;
+    private final boolean addsTimeRangeFilter;
+
+    private Template(QueryRequest queryRequest, boolean addsTimeRangeFilter) {
+      this.queryRequest = queryRequest;
+      this.addsTimeRangeFilter = addsTimeRangeFilter;
+    }
+  }
+
+  private static class TemplateKey {
+    private final String timestampAttributeId;
+    private final String spacesAttributeId;
+    private final boolean hasSpaceId;
+    private final org.hypertrace.gateway.service.v1.common.Filter strippedFilter;
+    private final List<Expression> selections;
+    private final List<OrderByExpression> orderBys;
+
+    private TemplateKey(
+        String timestampAttributeId,
+        String spacesAttributeId,
+        boolean hasSpaceId,
+        org.hypertrace.gateway.service.v1.common.Filter strippedFilter,
+        List<Expression> selections,
+        List<OrderByExpression> orderBys) {
+      this.timestampAttributeId = timestampAttributeId;
+      this.spacesAttributeId = spacesAttributeId;
+      this.hasSpaceId = hasSpaceId;
+      this.strippedFilter = strippedFilter;
+      this.selections = selections;
+      this.orderBys = orderBys;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      TemplateKey that = (TemplateKey) o;
+      return hasSpaceId == that.hasSpaceId
+          && Objects.equals(timestampAttributeId, that.timestampAttributeId)
+          && Objects.equals(spacesAttributeId, that.spacesAttributeId)
+          && strippedFilter.equals(that.strippedFilter)
+          && selections.equals(that.selections)
+          && orderBys.equals(that.orderBys);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(
+          timestampAttributeId,
+          spacesAttributeId,
+          hasSpaceId,
+          strippedFilter,
+          selections,
+          orderBys);
+    }
+  }
+}
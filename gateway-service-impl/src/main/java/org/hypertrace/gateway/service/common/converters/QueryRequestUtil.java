@@ -20,6 +20,7 @@ public class QueryRequestUtil {
 
   private static final String COUNT_FUNCTION_NAME = "COUNT";
   private static final String DISTINCTCOUNT_FUNCTION_NAME = "DISTINCTCOUNT";
+  private static final String DISTINCTCOUNTHLL_FUNCTION_NAME = "DISTINCTCOUNTHLL";
 
   public static Filter createBetweenTimesFilter(String columnName, long lower, long higher) {
     return Filter.newBuilder()
@@ -115,6 +116,16 @@ public class QueryRequestUtil {
         .build();
   }
 
+  /** Approximate distinct count, estimated with a HyperLogLog sketch of the column values */
+  public static Expression createDistinctCountHllByColumnSelection(String attributeId) {
+    return Expression.newBuilder()
+        .setFunction(
+            Function.newBuilder()
+                .setFunctionName(DISTINCTCOUNTHLL_FUNCTION_NAME)
+                .addArguments(createAttributeExpression(attributeId)))
+        .build();
+  }
+
   public static Expression createTimeColumnGroupByExpression(
       String timeAttributeId, long periodSecs) {
     return Expression.newBuilder()
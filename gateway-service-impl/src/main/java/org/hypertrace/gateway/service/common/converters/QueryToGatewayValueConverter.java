@@ -0,0 +1,259 @@
+package org.hypertrace.gateway.service.common.converters;
+
+import org.hypertrace.core.attribute.service.v1.AttributeKind;
+import org.hypertrace.core.query.service.api.Value;
+import org.hypertrace.gateway.service.v1.common.ValueType;
+
+/**
+ * Converts query-service values straight into the final gateway values, without going through the
+ * generic {@link ToAttributeKindConverter}s. Default values, e.g. empty strings, zeros and false,
+ * are shared immutable instances, and numeric arrays are widened element by element, without boxing
+ * into intermediate lists.
+ *
+ * <p>Only the common value type and attribute kind pairs are handled here, for the rest {@code
+ * null} is returned, so that the caller can fall back to the generic converters.
+ */
+public class QueryToGatewayValueConverter {
+  private static final org.hypertrace.gateway.service.v1.common.Value EMPTY_STRING =
+      newValueBuilder(ValueType.STRING).setString("").build();
+  private static final org.hypertrace.gateway.service.v1.common.Value LONG_ZERO =
+      newValueBuilder(ValueType.LONG).build();
+  private static final org.hypertrace.gateway.service.v1.common.Value DOUBLE_ZERO =
+      newValueBuilder(ValueType.DOUBLE).build();
+  private static final org.hypertrace.gateway.service.v1.common.Value TIMESTAMP_ZERO =
+      newValueBuilder(ValueType.TIMESTAMP).build();
+  private static final org.hypertrace.gateway.service.v1.common.Value FALSE =
+      newValueBuilder(ValueType.BOOL).build();
+  private static final org.hypertrace.gateway.service.v1.common.Value TRUE =
+      newValueBuilder(ValueType.BOOL).setBoolean(true).build();
+  private static final org.hypertrace.gateway.service.v1.common.Value EMPTY_STRING_ARRAY =
+      newValueBuilder(ValueType.STRING_ARRAY).build();
+  private static final org.hypertrace.gateway.service.v1.common.Value EMPTY_LONG_ARRAY =
+      newValueBuilder(ValueType.LONG_ARRAY).build();
+  private static final org.hypertrace.gateway.service.v1.common.Value EMPTY_DOUBLE_ARRAY =
+      newValueBuilder(ValueType.DOUBLE_ARRAY).build();
+  private static final org.hypertrace.gateway.service.v1.common.Value EMPTY_BOOLEAN_ARRAY =
+      newValueBuilder(ValueType.BOOLEAN_ARRAY).build();
+  private static final org.hypertrace.gateway.service.v1.common.Value EMPTY_STRING_MAP =
+      newValueBuilder(ValueType.STRING_MAP).build();
+
+  private QueryToGatewayValueConverter() {}
+
+  /** Converts the value as per its own type, used when there is no attribute metadata */
+  public static org.hypertrace.gateway.service.v1.common.Value convert(Value value) {
+    switch (value.getValueType()) {
+      case BOOL:
+        return ofBoolean(value.getBoolean());
+      case STRING:
+        return ofString(value.getString());
+      case INT:
+        return ofLong(value.getInt());
+      case LONG:
+        return ofLong(value.getLong());
+      case FLOAT:
+        return ofDouble(value.getFloat());
+      case DOUBLE:
+        return ofDouble(value.getDouble());
+      case TIMESTAMP:
+        return ofTimestamp(value.getTimestamp());
+      case BOOLEAN_ARRAY:
+        return toBooleanArray(value);
+      case STRING_ARRAY:
+        return toStringArray(value);
+      case INT_ARRAY:
+        return toLongArray(value);
+      case LONG_ARRAY:
+        return toLongArray(value);
+      case FLOAT_ARRAY:
+        return toDoubleArray(value);
+      case DOUBLE_ARRAY:
+        return toDoubleArray(value);
+      default:
+        return org.hypertrace.gateway.service.v1.common.Value.getDefaultInstance();
+    }
+  }
+
+  /**
+   * @return the value converted to the attribute kind, or null if the pair of value type and
+   *     attribute kind is not handled here
+   */
+  public static org.hypertrace.gateway.service.v1.common.Value convert(
+      Value value, AttributeKind attributeKind) {
+    switch (value.getValueType()) {
+      case STRING:
+        return convertString(value.getString(), attributeKind);
+      case INT:
+        return convertLong(value.getInt(), attributeKind);
+      case LONG:
+        return convertLong(value.getLong(), attributeKind);
+      case FLOAT:
+        return convertDouble(value.getFloat(), attributeKind);
+      case DOUBLE:
+        return convertDouble(value.getDouble(), attributeKind);
+      case BOOL:
+        return attributeKind == AttributeKind.TYPE_BOOL ? ofBoolean(value.getBoolean()) : null;
+      case TIMESTAMP:
+        switch (attributeKind) {
+          case TYPE_TIMESTAMP:
+            return ofTimestamp(value.getTimestamp());
+          case TYPE_INT64:
+            return ofLong(value.getTimestamp());
+          default:
+            return null;
+        }
+      case STRING_ARRAY:
+        return attributeKind == AttributeKind.TYPE_STRING_ARRAY ? toStringArray(value) : null;
+      case BOOLEAN_ARRAY:
+        return attributeKind == AttributeKind.TYPE_BOOL_ARRAY ? toBooleanArray(value) : null;
+      case INT_ARRAY:
+      case LONG_ARRAY:
+        return attributeKind == AttributeKind.TYPE_INT64_ARRAY ? toLongArray(value) : null;
+      case FLOAT_ARRAY:
+      case DOUBLE_ARRAY:
+        return attributeKind == AttributeKind.TYPE_DOUBLE_ARRAY ? toDoubleArray(value) : null;
+      case STRING_MAP:
+        if (attributeKind != AttributeKind.TYPE_STRING_MAP) {
+          return null;
+        }
+        return value.getStringMapCount() == 0
+            ? EMPTY_STRING_MAP
+            : newValueBuilder(ValueType.STRING_MAP)
+                .putAllStringMap(value.getStringMapMap())
+                .build();
+      default:
+        return null;
+    }
+  }
+
+  public static org.hypertrace.gateway.service.v1.common.Value ofString(String value) {
+    return value.isEmpty()
+        ? EMPTY_STRING
+        : newValueBuilder(ValueType.STRING).setString(value).build();
+  }
+
+  public static org.hypertrace.gateway.service.v1.common.Value ofLong(long value) {
+    return value == 0L ? LONG_ZERO : newValueBuilder(ValueType.LONG).setLong(value).build();
+  }
+
+  public static org.hypertrace.gateway.service.v1.common.Value ofDouble(double value) {
+    // -0.0 is kept as is
+    return Double.doubleToRawLongBits(value) == 0L
+        ? DOUBLE_ZERO
+        : newValueBuilder(ValueType.DOUBLE).setDouble(value).build();
+  }
+
+  public static org.hypertrace.gateway.service.v1.common.Value ofTimestamp(long value) {
+    return value == 0L
+        ? TIMESTAMP_ZERO
+        : newValueBuilder(ValueType.TIMESTAMP).setTimestamp(value).build();
+  }
+
+  public static org.hypertrace.gateway.service.v1.common.Value ofBoolean(boolean value) {
+    return value ? TRUE : FALSE;
+  }
+
+  private static org.hypertrace.gateway.service.v1.common.Value convertString(
+      String value, AttributeKind attributeKind) {
+    switch (attributeKind) {
+      case TYPE_STRING:
+        return ofString(value);
+      case TYPE_BOOL:
+        return ofBoolean(Boolean.parseBoolean(value));
+      case TYPE_INT64:
+        // missing values are returned as empty strings, which map to the proto default
+        return value.isEmpty()
+            ? LONG_ZERO
+            : ofLong(StringToAttributeKindConverter.parseLong(value));
+      case TYPE_DOUBLE:
+        return value.isEmpty() ? DOUBLE_ZERO : ofDouble(Double.parseDouble(value));
+      case TYPE_TIMESTAMP:
+        return ofTimestamp(Long.parseLong(value));
+      default:
+        // json strings are parsed by the StringToAttributeKindConverter
+        return null;
+    }
+  }
+
+  private static org.hypertrace.gateway.service.v1.common.Value convertLong(
+      long value, AttributeKind attributeKind) {
+    switch (attributeKind) {
+      case TYPE_INT64:
+        return ofLong(value);
+      case TYPE_DOUBLE:
+        return ofDouble(value);
+      case TYPE_STRING:
+        return ofString(Long.toString(value));
+      default:
+        return null;
+    }
+  }
+
+  private static org.hypertrace.gateway.service.v1.common.Value convertDouble(
+      double value, AttributeKind attributeKind) {
+    switch (attributeKind) {
+      case TYPE_INT64:
+        return ofLong((long) value);
+      case TYPE_DOUBLE:
+        return ofDouble(value);
+      default:
+        // string representations differ between floats and doubles
+        return null;
+    }
+  }
+
+  private static org.hypertrace.gateway.service.v1.common.Value toStringArray(Value value) {
+    return value.getStringArrayCount() == 0
+        ? EMPTY_STRING_ARRAY
+        : newValueBuilder(ValueType.STRING_ARRAY)
+            .addAllStringArray(value.getStringArrayList())
+            .build();
+  }
+
+  private static org.hypertrace.gateway.service.v1.common.Value toBooleanArray(Value value) {
+    int count = value.getBooleanArrayCount();
+    if (count == 0) {
+      return EMPTY_BOOLEAN_ARRAY;
+    }
+    org.hypertrace.gateway.service.v1.common.Value.Builder builder =
+        newValueBuilder(ValueType.BOOLEAN_ARRAY);
+    for (int i = 0; i < count; i++) {
+      builder.addBooleanArray(value.getBooleanArray(i));
+    }
+    return builder.build();
+  }
+
+  private static org.hypertrace.gateway.service.v1.common.Value toLongArray(Value value) {
+    org.hypertrace.gateway.service.v1.common.Value.Builder builder =
+        newValueBuilder(ValueType.LONG_ARRAY);
+    if (value.getValueType() == org.hypertrace.core.query.service.api.ValueType.INT_ARRAY) {
+      for (int i = 0; i < value.getIntArrayCount(); i++) {
+        builder.addLongArray(value.getIntArray(i));
+      }
+    } else {
+      for (int i = 0; i < value.getLongArrayCount(); i++) {
+        builder.addLongArray(value.getLongArray(i));
+      }
+    }
+    return builder.getLongArrayCount() == 0 ? EMPTY_LONG_ARRAY : builder.build();
+  }
+
+  private static org.hypertrace.gateway.service.v1.common.Value toDoubleArray(Value value) {
+    org.hypertrace.gateway.service.v1.common.Value.Builder builder =
+        newValueBuilder(ValueType.DOUBLE_ARRAY);
+    if (value.getValueType() == org.hypertrace.core.query.service.api.ValueType.FLOAT_ARRAY) {
+      for (int i = 0; i < value.getFloatArrayCount(); i++) {
+        builder.addDoubleArray(value.getFloatArray(i));
+      }
+    } else {
+      for (int i = 0; i < value.getDoubleArrayCount(); i++) {
+        builder.addDoubleArray(value.getDoubleArray(i));
+      }
+    }
+    return builder.getDoubleArrayCount() == 0 ? EMPTY_DOUBLE_ARRAY : builder.build();
+  }
+
+  private static org.hypertrace.gateway.service.v1.common.Value.Builder newValueBuilder(
+      ValueType valueType) {
+    return org.hypertrace.gateway.service.v1.common.Value.newBuilder().setValueType(valueType);
+  }
+}
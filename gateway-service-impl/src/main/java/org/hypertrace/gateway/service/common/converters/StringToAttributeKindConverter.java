@@ -1,14 +1,14 @@
 package org.hypertrace.gateway.service.common.converters;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import org.apache.commons.lang3.StringUtils;
 import org.hypertrace.core.attribute.service.v1.AttributeKind;
 import org.hypertrace.gateway.service.v1.common.Value;
@@ -19,12 +19,10 @@ import org.slf4j.LoggerFactory;
 public class StringToAttributeKindConverter extends ToAttributeKindConverter<String> {
   private static final Logger LOGGER =
       LoggerFactory.getLogger(StringToAttributeKindConverter.class);
-  private static final TypeReference<Map<String, String>> MAP_TYPE_REFERENCE =
-      new TypeReference<>() {};
-  private static final TypeReference<List<String>> LIST_TYPE_REFERENCE = new TypeReference<>() {};
+  private static final String JSON_NULL = "null";
   public static final StringToAttributeKindConverter INSTANCE =
       new StringToAttributeKindConverter();
-  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final JsonFactory jsonFactory = new JsonFactory();
 
   private StringToAttributeKindConverter() {}
 
@@ -57,9 +55,7 @@ public class StringToAttributeKindConverter extends ToAttributeKindConverter<Str
         if (value.isEmpty()) {
           valueBuilder.setLong(0L);
         } else {
-          // By default, aggregation is returned as String with Decimal-Value
-          // parse as double first before converting to Long
-          valueBuilder.setLong((long) Double.parseDouble(value));
+          valueBuilder.setLong(parseLong(value));
         }
         return valueBuilder.build();
 
@@ -87,33 +83,108 @@ public class StringToAttributeKindConverter extends ToAttributeKindConverter<Str
     return null;
   }
 
+  /**
+   * Aggregations are returned as Strings with decimal values, so these are parsed as double before
+   * converting to long. Plain integers are parsed directly, which is both cheaper and exact
+   */
+  static long parseLong(String value) {
+    return isPlainLong(value) ? Long.parseLong(value) : (long) Double.parseDouble(value);
+  }
+
+  private static boolean isPlainLong(String value) {
+    int start = value.charAt(0) == '-' || value.charAt(0) == '+' ? 1 : 0;
+    // 18 digits always fit in a long
+    if (value.length() == start || value.length() - start > 18) {
+      return false;
+    }
+    for (int i = start; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < '0' || c > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
   private List<String> convertToArray(String jsonString) {
     if (StringUtils.isEmpty(jsonString)) {
       return List.of();
     }
+    // Only strings in a list format are parsed, anything else is a single string, so return a list
+    // with one element.
+    char firstChar = getFirstNonWhitespaceChar(jsonString);
+    if (firstChar != '[') {
+      return isJsonNull(firstChar, jsonString) ? List.of() : List.of(jsonString);
+    }
 
-    // Check if the string is already in a list format.
-    try {
-      return Optional.ofNullable(objectMapper.readValue(jsonString, LIST_TYPE_REFERENCE))
-          .orElse(Collections.emptyList());
-    } catch (JsonProcessingException e) {
-      // If not, it might be a single string, so return a list with one element.
+    try (JsonParser parser = jsonFactory.createParser(jsonString)) {
+      parser.nextToken();
+      List<String> values = new ArrayList<>();
+      for (JsonToken token = parser.nextToken();
+          token != JsonToken.END_ARRAY;
+          token = parser.nextToken()) {
+        if (token == null || !token.isScalarValue()) {
+          return List.of(jsonString);
+        }
+        if (token != JsonToken.VALUE_NULL) {
+          values.add(parser.getText());
+        }
+      }
+      return Collections.unmodifiableList(values);
+    } catch (IOException e) {
       return List.of(jsonString);
     }
   }
 
   private Map<String, String> convertToMap(String jsonString) {
-    Map<String, String> mapData = new HashMap<>();
-    try {
-      if (!StringUtils.isEmpty(jsonString)) {
-        mapData = objectMapper.readValue(jsonString, MAP_TYPE_REFERENCE);
+    if (StringUtils.isEmpty(jsonString)) {
+      return Map.of();
+    }
+    char firstChar = getFirstNonWhitespaceChar(jsonString);
+    if (isJsonNull(firstChar, jsonString)) {
+      return Map.of();
+    }
+
+    try (JsonParser parser = jsonFactory.createParser(jsonString)) {
+      if (firstChar != '{' || parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new IOException("Not a JSON object");
+      }
+      Map<String, String> mapData = new LinkedHashMap<>();
+      for (JsonToken token = parser.nextToken();
+          token != JsonToken.END_OBJECT;
+          token = parser.nextToken()) {
+        if (token != JsonToken.FIELD_NAME) {
+          throw new IOException("Unexpected token: " + token);
+        }
+        String key = parser.getCurrentName();
+        JsonToken valueToken = parser.nextToken();
+        if (valueToken == null || !valueToken.isScalarValue()) {
+          throw new IOException("Non string value for key: " + key);
+        }
+        if (valueToken != JsonToken.VALUE_NULL) {
+          mapData.put(key, parser.getText());
+        }
       }
+      return Collections.unmodifiableMap(mapData);
     } catch (IOException e) {
       LOGGER.warn(
           "Unable to read Map JSON String data from: {}. Setting data as empty map instead. With error:",
           jsonString,
           e);
+      return Map.of();
     }
-    return mapData;
+  }
+
+  private static char getFirstNonWhitespaceChar(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      if (!Character.isWhitespace(value.charAt(i))) {
+        return value.charAt(i);
+      }
+    }
+    return ' ';
+  }
+
+  private static boolean isJsonNull(char firstChar, String value) {
+    return firstChar == 'n' && JSON_NULL.equals(value.strip());
   }
 }
@@ -0,0 +1,161 @@
+package org.hypertrace.gateway.service.common.converters;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+import org.hypertrace.core.attribute.service.v1.AttributeKind;
+import org.hypertrace.core.attribute.service.v1.AttributeMetadata;
+import org.hypertrace.core.query.service.api.Value;
+import org.hypertrace.core.query.service.api.ValueType;
+
+/**
+ * Pool of the gateway values decoded from a single query-service response. Attribute values like
+ * service names, entity types and status codes repeat across most of the rows of a response, so
+ * repeated scalar values can be converted once and share the same {@code Value} and {@code String}
+ * instances afterwards. The json of tag maps and arrays is always memoized, so that repeated tags
+ * are only parsed once per response, while the scalar values are only interned if enabled.
+ *
+ * <p>Not thread safe, meant to be used by a single response decoder and closed once done, which
+ * reports how many values were deduplicated.
+ */
+public class ValueInterner implements AutoCloseable {
+  // longer strings, e.g. stack traces or request bodies, are unlikely to repeat
+  private static final int MAX_INTERNED_STRING_LENGTH = 256;
+  // tags repeat across the rows as a whole, and are worth sparing the parsing of
+  private static final int MAX_INTERNED_JSON_LENGTH = 4096;
+
+  private final boolean internScalars;
+  private final int maxEntries;
+  private final StatsRecorder statsRecorder;
+  private final Map<InternKey, org.hypertrace.gateway.service.v1.common.Value> pool =
+      new HashMap<>();
+  private long interned;
+  private long deduplicated;
+
+  ValueInterner(boolean internScalars, int maxEntries, StatsRecorder statsRecorder) {
+    this.internScalars = internScalars;
+    this.maxEntries = maxEntries;
+    this.statsRecorder = statsRecorder;
+  }
+
+  /** Interning counterpart of {@link QueryAndGatewayDtoConverter#convertToGatewayValue} */
+  public org.hypertrace.gateway.service.v1.common.Value convertToGatewayValue(
+      String attributeName, Value value, Map<String, AttributeMetadata> attributeMetadataMap) {
+    AttributeMetadata attributeMetadata = attributeMetadataMap.get(attributeName);
+    if (!isInternable(value, attributeMetadata)) {
+      return QueryAndGatewayDtoConverter.convertToGatewayValue(
+          attributeName, value, attributeMetadataMap);
+    }
+    return intern(
+        attributeMetadata,
+        value,
+        () ->
+            QueryAndGatewayDtoConverter.convertToGatewayValue(
+                attributeName, value, attributeMetadataMap));
+  }
+
+  /**
+   * Interning counterpart of {@link QueryAndGatewayDtoConverter#convertQueryValueToGatewayValue}
+   */
+  public org.hypertrace.gateway.service.v1.common.Value convertQueryValueToGatewayValue(
+      Value value, AttributeMetadata attributeMetadata) {
+    if (!isInternable(value, attributeMetadata)) {
+      return QueryAndGatewayDtoConverter.convertQueryValueToGatewayValue(value, attributeMetadata);
+    }
+    return intern(
+        attributeMetadata,
+        value,
+        () ->
+            QueryAndGatewayDtoConverter.convertQueryValueToGatewayValue(value, attributeMetadata));
+  }
+
+  @Override
+  public void close() {
+    if (interned > 0) {
+      statsRecorder.record(interned, deduplicated);
+    }
+  }
+
+  private org.hypertrace.gateway.service.v1.common.Value intern(
+      AttributeMetadata attributeMetadata,
+      Value value,
+      Supplier<org.hypertrace.gateway.service.v1.common.Value> converter) {
+    InternKey internKey =
+        new InternKey(attributeMetadata == null ? null : attributeMetadata.getValueKind(), value);
+    interned++;
+    org.hypertrace.gateway.service.v1.common.Value gatewayValue = pool.get(internKey);
+    if (gatewayValue != null) {
+      deduplicated++;
+      return gatewayValue;
+    }
+    gatewayValue = converter.get();
+    if (pool.size() < maxEntries) {
+      pool.put(internKey, gatewayValue);
+    }
+    return gatewayValue;
+  }
+
+  private boolean isInternable(Value value, AttributeMetadata attributeMetadata) {
+    if (maxEntries <= 0) {
+      return false;
+    }
+    if (value.getValueType() == ValueType.STRING && isJson(attributeMetadata)) {
+      return value.getString().length() <= MAX_INTERNED_JSON_LENGTH;
+    }
+    if (!internScalars) {
+      return false;
+    }
+    switch (value.getValueType()) {
+      case STRING:
+        return value.getString().length() <= MAX_INTERNED_STRING_LENGTH;
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+      case BOOL:
+      case TIMESTAMP:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private boolean isJson(AttributeMetadata attributeMetadata) {
+    return attributeMetadata != null
+        && (attributeMetadata.getValueKind() == AttributeKind.TYPE_STRING_MAP
+            || attributeMetadata.getValueKind() == AttributeKind.TYPE_STRING_ARRAY);
+  }
+
+  @FunctionalInterface
+  interface StatsRecorder {
+    void record(long interned, long deduplicated);
+  }
+
+  private static class InternKey {
+    private final AttributeKind attributeKind;
+    private final Value value;
+
+    private InternKey(AttributeKind attributeKind, Value value) {
+      this.attributeKind = attributeKind;
+      this.value = value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      InternKey internKey = (InternKey) o;
+      return attributeKind == internKey.attributeKind && value.equals(internKey.value);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(attributeKind, value);
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package org.hypertrace.gateway.service.common.converters;
+
+import com.google.common.collect.ImmutableMap;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import io.micrometer.core.instrument.Counter;
+import org.hypertrace.core.serviceframework.metrics.PlatformMetricsRegistry;
+
+/**
+ * Creates the {@link ValueInterner} used while decoding a single response, and keeps track of how
+ * many of the decoded values were deduplicated. The dedup ratio is the ratio of the {@code
+ * hypertrace.response.values.deduplicated} and {@code hypertrace.response.values.interned}
+ * counters.
+ */
+public class ValueInternerFactory {
+  private static final String VALUE_INTERNING_CONFIG = "response.value.interning.config";
+  private static final String ENABLED = "enabled";
+  private static final String MAX_ENTRIES = "max.entries";
+  private static final boolean DEFAULT_ENABLED = false;
+  private static final int DEFAULT_MAX_ENTRIES = 4096;
+
+  private final boolean enabled;
+  private final int maxEntries;
+  private Counter internedCounter;
+  private Counter deduplicatedCounter;
+
+  public ValueInternerFactory(Config appConfig) {
+    Config config =
+        appConfig.hasPath(VALUE_INTERNING_CONFIG)
+            ? appConfig.getConfig(VALUE_INTERNING_CONFIG)
+            : ConfigFactory.empty();
+    this.enabled = config.hasPath(ENABLED) ? config.getBoolean(ENABLED) : DEFAULT_ENABLED;
+    this.maxEntries =
+        config.hasPath(MAX_ENTRIES) ? config.getInt(MAX_ENTRIES) : DEFAULT_MAX_ENTRIES;
+    initMetrics();
+  }
+
+  private void initMetrics() {
+    internedCounter =
+        PlatformMetricsRegistry.registerCounter(
+            "hypertrace.response.values.interned", ImmutableMap.of());
+    deduplicatedCounter =
+        PlatformMetricsRegistry.registerCounter(
+            "hypertrace.response.values.deduplicated", ImmutableMap.of());
+  }
+
+  /**
+   * @return a new interner, which memoizes the parsed tags, and interns the scalar values only if
+   *     interning is enabled
+   */
+  public ValueInterner newInterner() {
+    return new ValueInterner(enabled, maxEntries, this::recordStats);
+  }
+
+  private void recordStats(long interned, long deduplicated) {
+    internedCounter.increment(interned);
+    deduplicatedCounter.increment(deduplicated);
+  }
+}
@@ -32,6 +32,7 @@ import org.hypertrace.core.query.service.api.ResultSetChunk;
 import org.hypertrace.core.query.service.api.Row;
 import org.hypertrace.core.query.service.client.QueryServiceClient;
 import org.hypertrace.gateway.service.common.AttributeMetadataProvider;
+import org.hypertrace.gateway.service.common.QueryServiceExecutor;
 import org.hypertrace.gateway.service.common.RequestContext;
 import org.hypertrace.gateway.service.common.converters.QueryAndGatewayDtoConverter;
 import org.hypertrace.gateway.service.common.converters.QueryRequestUtil;
@@ -85,12 +86,12 @@ public class EntityInteractionsFetcher {
 
   private static final String COUNT_COLUMN_NAME = "COUNT";
 
-  private final QueryServiceClient queryServiceClient;
+  private final QueryServiceExecutor queryServiceClient;
   private final int queryServiceRequestTimeout;
   private final AttributeMetadataProvider metadataProvider;
 
   public EntityInteractionsFetcher(
-      QueryServiceClient queryServiceClient,
+      QueryServiceExecutor queryServiceClient,
       int qsRequestTimeout,
       AttributeMetadataProvider metadataProvider) {
     this.queryServiceClient = queryServiceClient;
@@ -43,4 +43,12 @@ public interface IEntityFetcher {
   }
 
   long getTotal(EntitiesRequestContext requestContext, EntitiesRequest entitiesRequest);
+
+  /**
+   * @return the relative standard error of the total returned for the request. 0 as long as the
+   *     total is counted exactly
+   */
+  default double getTotalRelativeError(EntitiesRequest entitiesRequest) {
+    return 0;
+  }
 }
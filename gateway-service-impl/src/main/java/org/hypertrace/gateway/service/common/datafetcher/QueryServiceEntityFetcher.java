@@ -4,6 +4,7 @@ import static java.util.Objects.isNull;
 import static org.hypertrace.gateway.service.common.converters.QueryAndGatewayDtoConverter.convertToQueryExpression;
 import static org.hypertrace.gateway.service.common.converters.QueryRequestUtil.createCountByColumnSelection;
 import static org.hypertrace.gateway.service.common.converters.QueryRequestUtil.createDistinctCountByColumnSelection;
+import static org.hypertrace.gateway.service.common.converters.QueryRequestUtil.createDistinctCountHllByColumnSelection;
 import static org.hypertrace.gateway.service.common.converters.QueryRequestUtil.createFilter;
 import static org.hypertrace.gateway.service.common.converters.QueryRequestUtil.createStringNullLiteralExpression;
 import static org.hypertrace.gateway.service.common.converters.QueryRequestUtil.createTimeColumnGroupByExpression;
@@ -11,14 +12,22 @@ import static org.hypertrace.gateway.service.common.util.ExpressionReader.getExp
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Streams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.grpc.Context;
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -34,12 +43,16 @@ import org.hypertrace.core.query.service.api.Row;
 import org.hypertrace.core.query.service.client.QueryServiceClient;
 import org.hypertrace.gateway.service.common.AttributeMetadataProvider;
 import org.hypertrace.gateway.service.common.QueryRequestContext;
+import org.hypertrace.gateway.service.common.QueryServiceExecutor;
 import org.hypertrace.gateway.service.common.converters.QueryAndGatewayDtoConverter;
 import org.hypertrace.gateway.service.common.converters.QueryRequestUtil;
+import org.hypertrace.gateway.service.common.converters.ValueInterner;
+import org.hypertrace.gateway.service.common.converters.ValueInternerFactory;
 import org.hypertrace.gateway.service.common.util.AttributeMetadataUtil;
 import org.hypertrace.gateway.service.common.util.ExpressionReader;
 import org.hypertrace.gateway.service.common.util.MetricAggregationFunctionUtil;
 import org.hypertrace.gateway.service.common.util.QueryExpressionUtil;
+import org.hypertrace.gateway.service.common.util.TimeSeriesDownsampler;
 import org.hypertrace.gateway.service.entity.EntitiesRequestContext;
 import org.hypertrace.gateway.service.entity.EntitiesRequestValidator;
 import org.hypertrace.gateway.service.entity.EntityKey;
@@ -65,22 +78,37 @@ public class QueryServiceEntityFetcher implements IEntityFetcher {
 
   private static final Logger LOG = LoggerFactory.getLogger(QueryServiceEntityFetcher.class);
   private static final String COUNT_COLUMN_NAME = "COUNT";
+  private static final int TIME_SERIES_THREAD_COUNT = 20;
+  // relative standard error of a HyperLogLog distinct count with the default 2^8 registers, i.e.
+  // 1.04 / sqrt(256)
+  private static final double HLL_RELATIVE_ERROR = 0.065;
+  // bounds the time series queries in flight across all the requests
+  private static final ExecutorService timeSeriesExecutor =
+      Executors.newFixedThreadPool(
+          TIME_SERIES_THREAD_COUNT,
+          new ThreadFactoryBuilder()
+              .setNameFormat("query-service-time-series-%d")
+              .setDaemon(true)
+              .build());
 
   private final EntitiesRequestValidator entitiesRequestValidator = new EntitiesRequestValidator();
-  private final QueryServiceClient queryServiceClient;
+  private final QueryServiceExecutor queryServiceClient;
   private final int requestTimeout;
   private final AttributeMetadataProvider attributeMetadataProvider;
   private final EntityIdColumnsConfigs entityIdColumnsConfigs;
+  private final ValueInternerFactory valueInternerFactory;
 
   public QueryServiceEntityFetcher(
-      QueryServiceClient queryServiceClient,
+      QueryServiceExecutor queryServiceClient,
       int qsRequestTimeout,
       AttributeMetadataProvider attributeMetadataProvider,
-      EntityIdColumnsConfigs entityIdColumnsConfigs) {
+      EntityIdColumnsConfigs entityIdColumnsConfigs,
+      ValueInternerFactory valueInternerFactory) {
     this.queryServiceClient = queryServiceClient;
     this.requestTimeout = qsRequestTimeout;
     this.attributeMetadataProvider = attributeMetadataProvider;
     this.entityIdColumnsConfigs = entityIdColumnsConfigs;
+    this.valueInternerFactory = valueInternerFactory;
   }
 
   @Override
@@ -129,55 +157,59 @@ public class QueryServiceEntityFetcher implements IEntityFetcher {
     // We want to retain the order as returned from the respective source. Hence using a
     // LinkedHashMap
     Map<EntityKey, Entity.Builder> entityBuilders = new LinkedHashMap<>();
-    while (resultSetChunkIterator.hasNext()) {
-      ResultSetChunk chunk = resultSetChunkIterator.next();
-      LOG.debug("Received chunk: {}", chunk);
-
-      if (chunk.getRowCount() < 1) {
-        break;
-      }
+    try (ValueInterner valueInterner = valueInternerFactory.newInterner()) {
+      while (resultSetChunkIterator.hasNext()) {
+        ResultSetChunk chunk = resultSetChunkIterator.next();
+        LOG.debug("Received chunk: {}", chunk);
 
-      for (Row row : chunk.getRowList()) {
-        // Construct the entity id from the entityIdAttributeIds columns
-        EntityKey entityKey =
-            EntityKey.of(
-                IntStream.range(0, entityIdAttributeIds.size())
-                    .mapToObj(value -> row.getColumn(value).getString())
-                    .toArray(String[]::new));
-        Builder entityBuilder = entityBuilders.computeIfAbsent(entityKey, k -> Entity.newBuilder());
-        entityBuilder.setEntityType(entitiesRequest.getEntityType());
-        entityBuilder.setId(entityKey.toString());
-        // Always include the id in entity since that's needed to make follow up queries in
-        // optimal fashion. If this wasn't really requested by the client, it should be removed
-        // as post processing.
-        for (int i = 0; i < entityIdAttributeIds.size(); i++) {
-          entityBuilder.putAttribute(
-              entityIdAttributeIds.get(i),
-              Value.newBuilder()
-                  .setString(entityKey.getAttributes().get(i))
-                  .setValueType(ValueType.STRING)
-                  .build());
+        if (chunk.getRowCount() < 1) {
+          break;
         }
 
-        requestedAliasesByEntityIdAttributeIds.forEach(
-            (attributeId, requestedAliasList) ->
-                requestedAliasList.forEach(
-                    requestedAlias ->
-                        entityBuilder.putAttribute(
-                            requestedAlias, entityBuilder.getAttributeOrThrow(attributeId))));
-
-        for (int i = entityIdAttributeIds.size();
-            i < chunk.getResultSetMetadata().getColumnMetadataCount();
-            i++) {
-          ColumnMetadata metadata = chunk.getResultSetMetadata().getColumnMetadata(i);
-          org.hypertrace.core.query.service.api.Value columnValue = row.getColumn(i);
-          buildEntity(
-              entityBuilder,
-              requestContext,
-              metadata,
-              columnValue,
-              resultKeyToAttributeMetadataMap,
-              aggregates.isEmpty());
+        for (Row row : chunk.getRowList()) {
+          // Construct the entity id from the entityIdAttributeIds columns
+          EntityKey entityKey =
+              EntityKey.of(
+                  IntStream.range(0, entityIdAttributeIds.size())
+                      .mapToObj(value -> row.getColumn(value).getString())
+                      .toArray(String[]::new));
+          Builder entityBuilder =
+              entityBuilders.computeIfAbsent(entityKey, k -> Entity.newBuilder());
+          entityBuilder.setEntityType(entitiesRequest.getEntityType());
+          entityBuilder.setId(entityKey.toString());
+          // Always include the id in entity since that's needed to make follow up queries in
+          // optimal fashion. If this wasn't really requested by the client, it should be removed
+          // as post processing.
+          for (int i = 0; i < entityIdAttributeIds.size(); i++) {
+            entityBuilder.putAttribute(
+                entityIdAttributeIds.get(i),
+                Value.newBuilder()
+                    .setString(entityKey.getAttributes().get(i))
+                    .setValueType(ValueType.STRING)
+                    .build());
+          }
+
+          requestedAliasesByEntityIdAttributeIds.forEach(
+              (attributeId, requestedAliasList) ->
+                  requestedAliasList.forEach(
+                      requestedAlias ->
+                          entityBuilder.putAttribute(
+                              requestedAlias, entityBuilder.getAttributeOrThrow(attributeId))));
+
+          for (int i = entityIdAttributeIds.size();
+              i < chunk.getResultSetMetadata().getColumnMetadataCount();
+              i++) {
+            ColumnMetadata metadata = chunk.getResultSetMetadata().getColumnMetadata(i);
+            org.hypertrace.core.query.service.api.Value columnValue = row.getColumn(i);
+            buildEntity(
+                entityBuilder,
+                requestContext,
+                metadata,
+                columnValue,
+                resultKeyToAttributeMetadataMap,
+                aggregates.isEmpty(),
+                valueInterner);
+          }
         }
       }
     }
@@ -269,7 +301,8 @@ public class QueryServiceEntityFetcher implements IEntityFetcher {
       ColumnMetadata metadata,
       org.hypertrace.core.query.service.api.Value columnValue,
       Map<String, AttributeMetadata> resultKeyToAttributeMetadataMap,
-      boolean isSkipCountColumn) {
+      boolean isSkipCountColumn,
+      ValueInterner valueInterner) {
 
     // Ignore the count column since we introduced that ourselves into the query
     if (isSkipCountColumn
@@ -283,7 +316,8 @@ public class QueryServiceEntityFetcher implements IEntityFetcher {
           entityBuilder, requestContext, metadata, columnValue, resultKeyToAttributeMetadataMap);
     } else {
       // attribute
-      addEntityAttribute(entityBuilder, metadata, columnValue, resultKeyToAttributeMetadataMap);
+      addEntityAttribute(
+          entityBuilder, metadata, columnValue, resultKeyToAttributeMetadataMap, valueInterner);
     }
   }
 
@@ -291,7 +325,8 @@ public class QueryServiceEntityFetcher implements IEntityFetcher {
       Entity.Builder entityBuilder,
       ColumnMetadata metadata,
       org.hypertrace.core.query.service.api.Value columnValue,
-      Map<String, AttributeMetadata> resultKeyToAttributeMetadataMap) {
+      Map<String, AttributeMetadata> resultKeyToAttributeMetadataMap,
+      ValueInterner valueInterner) {
 
     String resultKey = metadata.getColumnName();
     if (!resultKeyToAttributeMetadataMap.containsKey(resultKey)) {
@@ -300,7 +335,7 @@ public class QueryServiceEntityFetcher implements IEntityFetcher {
 
     entityBuilder.putAttribute(
         resultKey,
-        QueryAndGatewayDtoConverter.convertQueryValueToGatewayValue(
+        valueInterner.convertQueryValueToGatewayValue(
             columnValue, resultKeyToAttributeMetadataMap.get(resultKey)));
   }
 
@@ -387,109 +422,14 @@ public class QueryServiceEntityFetcher implements IEntityFetcher {
             .collect(Collectors.groupingBy(TimeAggregation::getPeriod))
             .values();
 
-    Map<EntityKey, Map<String, MetricSeries.Builder>> entityMetricSeriesMap = new LinkedHashMap<>();
-    for (List<TimeAggregation> batch : result) {
-      Period period = batch.get(0).getPeriod();
-      ChronoUnit unit = ChronoUnit.valueOf(period.getUnit());
-      long periodSecs = Duration.of(period.getValue(), unit).getSeconds();
-      QueryRequest request =
-          buildTimeSeriesQueryRequest(
-              entitiesRequest, requestContext, periodSecs, batch, idColumns, timeColumn);
-
-      if (LOG.isDebugEnabled()) {
-        LOG.debug(
-            "Sending time series queryRequest to query service: ======== \n {}",
-            request.toString());
-      }
-
-      Iterator<ResultSetChunk> resultSetChunkIterator =
-          queryServiceClient.executeQuery(request, requestContext.getHeaders(), requestTimeout);
-
-      while (resultSetChunkIterator.hasNext()) {
-        ResultSetChunk chunk = resultSetChunkIterator.next();
-        if (LOG.isDebugEnabled()) {
-          LOG.debug("Received chunk: " + chunk.toString());
-        }
-
-        if (chunk.getRowCount() < 1) {
-          break;
-        }
-
-        if (!chunk.hasResultSetMetadata()) {
-          LOG.warn("Chunk doesn't have result metadata so couldn't process the response.");
-          break;
-        }
-
-        for (Row row : chunk.getRowList()) {
-          // Construct the entity id from the entityIdAttributeIds columns
-          EntityKey entityKey =
-              EntityKey.of(
-                  IntStream.range(0, idColumns.size())
-                      .mapToObj(value -> row.getColumn(value).getString())
-                      .toArray(String[]::new));
-
-          Map<String, MetricSeries.Builder> metricSeriesMap =
-              entityMetricSeriesMap.computeIfAbsent(entityKey, k -> new LinkedHashMap<>());
-
-          Interval.Builder intervalBuilder = Interval.newBuilder();
-
-          // Second column is the time column
-          Value value =
-              QueryAndGatewayDtoConverter.convertQueryValueToGatewayValue(
-                  row.getColumn(idColumns.size()));
-          if (value.getValueType() == ValueType.STRING) {
-            long startTime = Long.parseLong(value.getString());
-            long endTime = startTime + TimeUnit.SECONDS.toMillis(periodSecs);
-            intervalBuilder.setStartTimeMillis(startTime);
-            intervalBuilder.setEndTimeMillis(endTime);
-
-            for (int i = idColumns.size() + 1;
-                i < chunk.getResultSetMetadata().getColumnMetadataCount();
-                i++) {
-              ColumnMetadata metadata = chunk.getResultSetMetadata().getColumnMetadata(i);
-              TimeAggregation timeAggregation =
-                  requestContext.getTimeAggregationByAlias(metadata.getColumnName());
-              if (timeAggregation == null) {
-                LOG.warn("Couldn't find an aggregate for column: {}", metadata.getColumnName());
-                continue;
-              }
-
-              FunctionType functionType =
-                  timeAggregation.getAggregation().getFunction().getFunction();
-              AttributeMetadata functionAttributeMetadata =
-                  resultKeyToAttributeMetadataMap.get(metadata.getColumnName());
-
-              Value convertedValue =
-                  QueryAndGatewayDtoConverter.convertToGatewayValueForMetricValue(
-                      MetricAggregationFunctionUtil.getValueTypeForFunctionType(
-                          functionType, functionAttributeMetadata),
-                      resultKeyToAttributeMetadataMap,
-                      metadata,
-                      row.getColumn(i));
-
-              List<org.hypertrace.gateway.service.v1.common.Expression> healthExpressions =
-                  timeAggregation.getAggregation().getFunction().getArgumentsList().stream()
-                      .filter(org.hypertrace.gateway.service.v1.common.Expression::hasHealth)
-                      .collect(Collectors.toList());
-              Preconditions.checkArgument(healthExpressions.size() <= 1);
-              Health health = Health.NOT_COMPUTED;
-
-              MetricSeries.Builder seriesBuilder =
-                  metricSeriesMap.computeIfAbsent(
-                      metadata.getColumnName(), k -> getMetricSeriesBuilder(timeAggregation));
-              seriesBuilder.addValue(
-                  Interval.newBuilder(intervalBuilder.build())
-                      .setValue(convertedValue)
-                      .setHealth(health));
-            }
-          } else {
-            LOG.warn(
-                "Was expecting STRING values only but received valueType: {}",
-                value.getValueType());
-          }
-        }
-      }
-    }
+    Map<EntityKey, Map<String, MetricSeries.Builder>> entityMetricSeriesMap =
+        getTimeSeriesBatches(
+            requestContext,
+            entitiesRequest,
+            result,
+            idColumns,
+            timeColumn,
+            resultKeyToAttributeMetadataMap);
 
     Map<EntityKey, Entity.Builder> resultMap = new LinkedHashMap<>();
     for (Map.Entry<EntityKey, Map<String, MetricSeries.Builder>> entry :
@@ -502,7 +442,11 @@ public class QueryServiceEntityFetcher implements IEntityFetcher {
                   entry.getValue().entrySet().stream()
                       .collect(
                           Collectors.toMap(
-                              Map.Entry::getKey, e -> getSortedMetricSeries(e.getValue()))));
+                              Map.Entry::getKey,
+                              e ->
+                                  TimeSeriesDownsampler.downsample(
+                                      getSortedMetricSeries(e.getValue()),
+                                      requestContext.getTimeAggregationByAlias(e.getKey())))));
       for (int i = 0; i < idColumns.size(); i++) {
         entityBuilder.putAttribute(
             idColumns.get(i),
@@ -516,6 +460,180 @@ public class QueryServiceEntityFetcher implements IEntityFetcher {
     return new EntityFetcherResponse(resultMap);
   }
 
+  /**
+   * Runs the query of each period batch concurrently, since each of them scans the same entities
+   * over a different granularity. Every batch collects its series separately, and they are merged
+   * in the order of the batches, so that the entity order doesn't depend on which query returns
+   * first
+   */
+  private Map<EntityKey, Map<String, MetricSeries.Builder>> getTimeSeriesBatches(
+      EntitiesRequestContext requestContext,
+      EntitiesRequest entitiesRequest,
+      Collection<List<TimeAggregation>> batches,
+      List<String> idColumns,
+      String timeColumn,
+      Map<String, AttributeMetadata> resultKeyToAttributeMetadataMap) {
+    if (batches.size() == 1) {
+      return getTimeSeriesBatch(
+          requestContext,
+          entitiesRequest,
+          batches.iterator().next(),
+          idColumns,
+          timeColumn,
+          resultKeyToAttributeMetadataMap);
+    }
+
+    List<Future<Map<EntityKey, Map<String, MetricSeries.Builder>>>> futures =
+        new ArrayList<>(batches.size());
+    Map<EntityKey, Map<String, MetricSeries.Builder>> entityMetricSeriesMap = new LinkedHashMap<>();
+    try {
+      // the alias mappings of the request context are only read from here on
+      for (List<TimeAggregation> batch : batches) {
+        Callable<Map<EntityKey, Map<String, MetricSeries.Builder>>> batchQuery =
+            Context.current()
+                .wrap(
+                    () ->
+                        getTimeSeriesBatch(
+                            requestContext,
+                            entitiesRequest,
+                            batch,
+                            idColumns,
+                            timeColumn,
+                            resultKeyToAttributeMetadataMap));
+        futures.add(timeSeriesExecutor.submit(batchQuery));
+      }
+      for (Future<Map<EntityKey, Map<String, MetricSeries.Builder>>> future : futures) {
+        // the series of different periods have different aliases, so they never collide
+        future
+            .get()
+            .forEach(
+                (entityKey, metricSeriesMap) ->
+                    entityMetricSeriesMap
+                        .computeIfAbsent(entityKey, k -> new LinkedHashMap<>())
+                        .putAll(metricSeriesMap));
+      }
+      return entityMetricSeriesMap;
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof RuntimeException
+          ? (RuntimeException) e.getCause()
+          : new RuntimeException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } finally {
+      futures.forEach(future -> future.cancel(true));
+    }
+  }
+
+  private Map<EntityKey, Map<String, MetricSeries.Builder>> getTimeSeriesBatch(
+      EntitiesRequestContext requestContext,
+      EntitiesRequest entitiesRequest,
+      List<TimeAggregation> batch,
+      List<String> idColumns,
+      String timeColumn,
+      Map<String, AttributeMetadata> resultKeyToAttributeMetadataMap) {
+    Map<EntityKey, Map<String, MetricSeries.Builder>> entityMetricSeriesMap = new LinkedHashMap<>();
+    Period period = batch.get(0).getPeriod();
+    ChronoUnit unit = ChronoUnit.valueOf(period.getUnit());
+    long periodSecs = Duration.of(period.getValue(), unit).getSeconds();
+    QueryRequest request =
+        buildTimeSeriesQueryRequest(
+            entitiesRequest, requestContext, periodSecs, batch, idColumns, timeColumn);
+
+    if (LOG.isDebugEnabled()) {
+      LOG.debug(
+          "Sending time series queryRequest to query service: ======== \n {}", request.toString());
+    }
+
+    Iterator<ResultSetChunk> resultSetChunkIterator =
+        queryServiceClient.executeQuery(request, requestContext.getHeaders(), requestTimeout);
+
+    while (resultSetChunkIterator.hasNext()) {
+      ResultSetChunk chunk = resultSetChunkIterator.next();
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Received chunk: " + chunk.toString());
+      }
+
+      if (chunk.getRowCount() < 1) {
+        break;
+      }
+
+      if (!chunk.hasResultSetMetadata()) {
+        LOG.warn("Chunk doesn't have result metadata so couldn't process the response.");
+        break;
+      }
+
+      for (Row row : chunk.getRowList()) {
+        // Construct the entity id from the entityIdAttributeIds columns
+        EntityKey entityKey =
+            EntityKey.of(
+                IntStream.range(0, idColumns.size())
+                    .mapToObj(value -> row.getColumn(value).getString())
+                    .toArray(String[]::new));
+
+        Map<String, MetricSeries.Builder> metricSeriesMap =
+            entityMetricSeriesMap.computeIfAbsent(entityKey, k -> new LinkedHashMap<>());
+
+        Interval.Builder intervalBuilder = Interval.newBuilder();
+
+        // Second column is the time column
+        Value value =
+            QueryAndGatewayDtoConverter.convertQueryValueToGatewayValue(
+                row.getColumn(idColumns.size()));
+        if (value.getValueType() == ValueType.STRING) {
+          long startTime = Long.parseLong(value.getString());
+          long endTime = startTime + TimeUnit.SECONDS.toMillis(periodSecs);
+          intervalBuilder.setStartTimeMillis(startTime);
+          intervalBuilder.setEndTimeMillis(endTime);
+
+          for (int i = idColumns.size() + 1;
+              i < chunk.getResultSetMetadata().getColumnMetadataCount();
+              i++) {
+            ColumnMetadata metadata = chunk.getResultSetMetadata().getColumnMetadata(i);
+            TimeAggregation timeAggregation =
+                requestContext.getTimeAggregationByAlias(metadata.getColumnName());
+            if (timeAggregation == null) {
+              LOG.warn("Couldn't find an aggregate for column: {}", metadata.getColumnName());
+              continue;
+            }
+
+            FunctionType functionType =
+                timeAggregation.getAggregation().getFunction().getFunction();
+            AttributeMetadata functionAttributeMetadata =
+                resultKeyToAttributeMetadataMap.get(metadata.getColumnName());
+
+            Value convertedValue =
+                QueryAndGatewayDtoConverter.convertToGatewayValueForMetricValue(
+                    MetricAggregationFunctionUtil.getValueTypeForFunctionType(
+                        functionType, functionAttributeMetadata),
+                    resultKeyToAttributeMetadataMap,
+                    metadata,
+                    row.getColumn(i));
+
+            List<org.hypertrace.gateway.service.v1.common.Expression> healthExpressions =
+                timeAggregation.getAggregation().getFunction().getArgumentsList().stream()
+                    .filter(org.hypertrace.gateway.service.v1.common.Expression::hasHealth)
+                    .collect(Collectors.toList());
+            Preconditions.checkArgument(healthExpressions.size() <= 1);
+            Health health = Health.NOT_COMPUTED;
+
+            MetricSeries.Builder seriesBuilder =
+                metricSeriesMap.computeIfAbsent(
+                    metadata.getColumnName(), k -> getMetricSeriesBuilder(timeAggregation));
+            seriesBuilder.addValue(
+                Interval.newBuilder(intervalBuilder.build())
+                    .setValue(convertedValue)
+                    .setHealth(health));
+          }
+        } else {
+          LOG.warn(
+              "Was expecting STRING values only but received valueType: {}", value.getValueType());
+        }
+      }
+    }
+    return entityMetricSeriesMap;
+  }
+
   @Override
   public long getTotal(EntitiesRequestContext requestContext, EntitiesRequest entitiesRequest) {
     Map<String, AttributeMetadata> attributeMetadataMap =
@@ -534,11 +652,13 @@ public class QueryServiceEntityFetcher implements IEntityFetcher {
     Filter.Builder filterBuilder =
         constructQueryServiceFilter(entitiesRequest, requestContext, entityIdAttributeIds);
 
+    String entityIdAttributeId = Optional.ofNullable(entityIdAttributeIds.get(0)).orElseThrow();
     QueryRequest queryRequest =
         QueryRequest.newBuilder()
             .addSelection(
-                createDistinctCountByColumnSelection(
-                    Optional.ofNullable(entityIdAttributeIds.get(0)).orElseThrow()))
+                entitiesRequest.getApproximateTotal()
+                    ? createDistinctCountHllByColumnSelection(entityIdAttributeId)
+                    : createDistinctCountByColumnSelection(entityIdAttributeId))
             .setFilter(filterBuilder)
             .build();
 
@@ -560,7 +680,7 @@ public class QueryServiceEntityFetcher implements IEntityFetcher {
       }
 
       for (Row row : chunk.getRowList()) {
-        // only DISTINCTCOUNT column is requested as a selection
+        // only the distinct count column is requested as a selection
         if (row.getColumnList().size() != 1) {
           break;
         }
@@ -575,6 +695,11 @@ public class QueryServiceEntityFetcher implements IEntityFetcher {
     return 0;
   }
 
+  @Override
+  public double getTotalRelativeError(EntitiesRequest entitiesRequest) {
+    return entitiesRequest.getApproximateTotal() ? HLL_RELATIVE_ERROR : 0;
+  }
+
   private QueryRequest buildTimeSeriesQueryRequest(
       EntitiesRequest entitiesRequest,
       EntitiesRequestContext context,
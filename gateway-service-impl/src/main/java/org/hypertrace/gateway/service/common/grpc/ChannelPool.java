@@ -0,0 +1,122 @@
+package org.hypertrace.gateway.service.common.grpc;
+
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ForwardingClientCall.SimpleForwardingClientCall;
+import io.grpc.ForwardingClientCallListener.SimpleForwardingClientCallListener;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * {@link ManagedChannel} spreading the calls over a pool of channels to the same service, and so
+ * over as many HTTP/2 connections and event loops. Each call goes to the channel with the fewest
+ * calls in flight, so that a connection held up by a large response gets fewer new calls.
+ */
+class ChannelPool extends ManagedChannel {
+  private final List<ManagedChannel> channels;
+  private final AtomicIntegerArray inFlightCalls;
+  // rotates the starting point of the search, so that ties are broken round robin
+  private final AtomicInteger nextIndex = new AtomicInteger();
+
+  ChannelPool(List<ManagedChannel> channels) {
+    this.channels = List.copyOf(channels);
+    this.inFlightCalls = new AtomicIntegerArray(channels.size());
+  }
+
+  @Override
+  public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(
+      MethodDescriptor<ReqT, RespT> methodDescriptor, CallOptions callOptions) {
+    int index = leastLoadedIndex();
+    return new CountedCall<>(channels.get(index).newCall(methodDescriptor, callOptions), index);
+  }
+
+  @Override
+  public String authority() {
+    return channels.get(0).authority();
+  }
+
+  @Override
+  public ManagedChannel shutdown() {
+    channels.forEach(ManagedChannel::shutdown);
+    return this;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return channels.stream().allMatch(ManagedChannel::isShutdown);
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return channels.stream().allMatch(ManagedChannel::isTerminated);
+  }
+
+  @Override
+  public ManagedChannel shutdownNow() {
+    channels.forEach(ManagedChannel::shutdownNow);
+    return this;
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    for (ManagedChannel channel : channels) {
+      if (!channel.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  int getInFlightCalls(int index) {
+    return inFlightCalls.get(index);
+  }
+
+  private int leastLoadedIndex() {
+    int size = channels.size();
+    int start = Math.floorMod(nextIndex.getAndIncrement(), size);
+    int leastLoadedIndex = start;
+    for (int i = 1; i < size; i++) {
+      int index = (start + i) % size;
+      if (inFlightCalls.get(index) < inFlightCalls.get(leastLoadedIndex)) {
+        leastLoadedIndex = index;
+      }
+    }
+    return leastLoadedIndex;
+  }
+
+  /** Call counted as in flight on its channel from its start until it's closed */
+  private class CountedCall<ReqT, RespT> extends SimpleForwardingClientCall<ReqT, RespT> {
+    private final int index;
+
+    private CountedCall(ClientCall<ReqT, RespT> delegate, int index) {
+      super(delegate);
+      this.index = index;
+    }
+
+    @Override
+    public void start(Listener<RespT> responseListener, Metadata headers) {
+      inFlightCalls.incrementAndGet(index);
+      try {
+        super.start(
+            new SimpleForwardingClientCallListener<>(responseListener) {
+              @Override
+              public void onClose(Status status, Metadata trailers) {
+                inFlightCalls.decrementAndGet(index);
+                super.onClose(status, trailers);
+              }
+            },
+            headers);
+      } catch (RuntimeException e) {
+        inFlightCalls.decrementAndGet(index);
+        throw e;
+      }
+    }
+  }
+}
@@ -0,0 +1,116 @@
+package org.hypertrace.gateway.service.common.grpc;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import java.util.EnumMap;
+import java.util.Map;
+
+/** Transport settings of the channels to the downstream services */
+public class GrpcChannelConfig {
+  private static final String GRPC_CLIENT_CONFIG = "grpc.client.config";
+  private static final String CHANNEL_COUNT = "channel.count";
+  private static final String DOWNSTREAM_CHANNEL_COUNT = "%s.channel.count";
+  private static final String EVENT_LOOP_THREADS = "event.loop.threads";
+  private static final String FLOW_CONTROL_WINDOW_BYTES = "flow.control.window.bytes";
+  private static final String MAX_INBOUND_MESSAGE_BYTES = "max.inbound.message.bytes";
+  private static final String KEEPALIVE_TIME_MILLIS = "keepalive.time.millis";
+  private static final String KEEPALIVE_TIMEOUT_MILLIS = "keepalive.timeout.millis";
+
+  private static final int DEFAULT_CHANNEL_COUNT = 1;
+  // 0 keeps the netty defaults
+  private static final int DEFAULT_EVENT_LOOP_THREADS = 0;
+  private static final int DEFAULT_FLOW_CONTROL_WINDOW_BYTES = 1024 * 1024;
+  private static final int DEFAULT_MAX_INBOUND_MESSAGE_BYTES = 4 * 1024 * 1024;
+  // 0 disables keepalive
+  private static final long DEFAULT_KEEPALIVE_TIME_MILLIS = 0L;
+  private static final long DEFAULT_KEEPALIVE_TIMEOUT_MILLIS = 20000L;
+
+  /** Downstream services the gateway opens channels to */
+  public enum Downstream {
+    QUERY_SERVICE("query.service"),
+    ENTITY_SERVICE("entity.service"),
+    ATTRIBUTE_SERVICE("attribute.service");
+
+    private final String configName;
+
+    Downstream(String configName) {
+      this.configName = configName;
+    }
+  }
+
+  private final Map<Downstream, Integer> channelCounts = new EnumMap<>(Downstream.class);
+  private final int eventLoopThreads;
+  private final int flowControlWindowBytes;
+  private final int maxInboundMessageBytes;
+  private final long keepaliveTimeMillis;
+  private final long keepaliveTimeoutMillis;
+
+  public GrpcChannelConfig(Config appConfig) {
+    Config clientConfig =
+        appConfig.hasPath(GRPC_CLIENT_CONFIG)
+            ? appConfig.getConfig(GRPC_CLIENT_CONFIG)
+            : ConfigFactory.empty();
+
+    int channelCount =
+        clientConfig.hasPath(CHANNEL_COUNT)
+            ? clientConfig.getInt(CHANNEL_COUNT)
+            : DEFAULT_CHANNEL_COUNT;
+    for (Downstream downstream : Downstream.values()) {
+      String downstreamChannelCount =
+          String.format(DOWNSTREAM_CHANNEL_COUNT, downstream.configName);
+      channelCounts.put(
+          downstream,
+          clientConfig.hasPath(downstreamChannelCount)
+              ? clientConfig.getInt(downstreamChannelCount)
+              : channelCount);
+    }
+    this.eventLoopThreads =
+        clientConfig.hasPath(EVENT_LOOP_THREADS)
+            ? clientConfig.getInt(EVENT_LOOP_THREADS)
+            : DEFAULT_EVENT_LOOP_THREADS;
+    this.flowControlWindowBytes =
+        clientConfig.hasPath(FLOW_CONTROL_WINDOW_BYTES)
+            ? clientConfig.getInt(FLOW_CONTROL_WINDOW_BYTES)
+            : DEFAULT_FLOW_CONTROL_WINDOW_BYTES;
+    this.maxInboundMessageBytes =
+        clientConfig.hasPath(MAX_INBOUND_MESSAGE_BYTES)
+            ? clientConfig.getInt(MAX_INBOUND_MESSAGE_BYTES)
+            : DEFAULT_MAX_INBOUND_MESSAGE_BYTES;
+    this.keepaliveTimeMillis =
+        clientConfig.hasPath(KEEPALIVE_TIME_MILLIS)
+            ? clientConfig.getLong(KEEPALIVE_TIME_MILLIS)
+            : DEFAULT_KEEPALIVE_TIME_MILLIS;
+    this.keepaliveTimeoutMillis =
+        clientConfig.hasPath(KEEPALIVE_TIMEOUT_MILLIS)
+            ? clientConfig.getLong(KEEPALIVE_TIMEOUT_MILLIS)
+            : DEFAULT_KEEPALIVE_TIMEOUT_MILLIS;
+  }
+
+  /**
+   * @return number of channels, and so of HTTP/2 connections, opened to the downstream service.
+   *     Defaults to the channel count shared by all downstream services
+   */
+  public int getChannelCount(Downstream downstream) {
+    return channelCounts.get(downstream);
+  }
+
+  public int getEventLoopThreads() {
+    return eventLoopThreads;
+  }
+
+  public int getFlowControlWindowBytes() {
+    return flowControlWindowBytes;
+  }
+
+  public int getMaxInboundMessageBytes() {
+    return maxInboundMessageBytes;
+  }
+
+  public long getKeepaliveTimeMillis() {
+    return keepaliveTimeMillis;
+  }
+
+  public long getKeepaliveTimeoutMillis() {
+    return keepaliveTimeoutMillis;
+  }
+}
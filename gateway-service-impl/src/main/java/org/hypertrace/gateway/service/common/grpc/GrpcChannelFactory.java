@@ -0,0 +1,94 @@
+package org.hypertrace.gateway.service.common.grpc;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.grpc.ManagedChannel;
+import io.grpc.netty.NettyChannelBuilder;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.hypertrace.core.query.service.client.QueryServiceClient;
+import org.hypertrace.core.query.service.client.QueryServiceConfig;
+import org.hypertrace.gateway.service.common.QueryServiceExecutor;
+import org.hypertrace.gateway.service.common.circuitbreaker.CircuitBreakerClientInterceptor;
+import org.hypertrace.gateway.service.common.circuitbreaker.CircuitBreakers;
+import org.hypertrace.gateway.service.common.grpc.GrpcChannelConfig.Downstream;
+
+/** Builds the channels to the downstream services, as tuned by the {@link GrpcChannelConfig} */
+public class GrpcChannelFactory {
+  private final GrpcChannelConfig config;
+  private final CircuitBreakers circuitBreakers;
+  // shared by all the channels, null to leave the event loops to grpc
+  private final EventLoopGroup eventLoopGroup;
+
+  public GrpcChannelFactory(GrpcChannelConfig config, CircuitBreakers circuitBreakers) {
+    this.config = config;
+    this.circuitBreakers = circuitBreakers;
+    this.eventLoopGroup =
+        config.getEventLoopThreads() > 0
+            ? new NioEventLoopGroup(
+                config.getEventLoopThreads(),
+                new ThreadFactoryBuilder()
+                    .setNameFormat("grpc-client-event-loop-%d")
+                    .setDaemon(true)
+                    .build())
+            : null;
+  }
+
+  /**
+   * @return channel to the downstream service, pooling {@link
+   *     GrpcChannelConfig#getChannelCount(Downstream)} channels
+   */
+  public ManagedChannel newChannel(Downstream downstream, String host, int port) {
+    int channelCount = config.getChannelCount(downstream);
+    if (channelCount <= 1) {
+      return newSingleChannel(downstream, host, port);
+    }
+    List<ManagedChannel> channels = new ArrayList<>(channelCount);
+    for (int i = 0; i < channelCount; i++) {
+      channels.add(newSingleChannel(downstream, host, port));
+    }
+    return new ChannelPool(channels);
+  }
+
+  /**
+   * The query-service client builds its own channel, so the query-service calls are spread over
+   * several clients instead. The transport settings and the circuit breaker don't apply to these
+   * channels.
+   */
+  public QueryServiceExecutor newQueryServiceExecutor(QueryServiceConfig queryServiceConfig) {
+    int channelCount = config.getChannelCount(Downstream.QUERY_SERVICE);
+    if (channelCount <= 1) {
+      return QueryServiceExecutor.of(new QueryServiceClient(queryServiceConfig));
+    }
+    List<QueryServiceExecutor> clients = new ArrayList<>(channelCount);
+    for (int i = 0; i < channelCount; i++) {
+      clients.add(QueryServiceExecutor.of(new QueryServiceClient(queryServiceConfig)));
+    }
+    return new QueryServiceClientPool(clients);
+  }
+
+  private ManagedChannel newSingleChannel(Downstream downstream, String host, int port) {
+    NettyChannelBuilder builder =
+        NettyChannelBuilder.forAddress(host, port)
+            .usePlaintext()
+            .flowControlWindow(config.getFlowControlWindowBytes())
+            .maxInboundMessageSize(config.getMaxInboundMessageBytes());
+    if (config.getKeepaliveTimeMillis() > 0) {
+      builder
+          .keepAliveTime(config.getKeepaliveTimeMillis(), TimeUnit.MILLISECONDS)
+          .keepAliveTimeout(config.getKeepaliveTimeoutMillis(), TimeUnit.MILLISECONDS);
+    }
+    if (eventLoopGroup != null) {
+      builder.eventLoopGroup(eventLoopGroup).channelType(NioSocketChannel.class);
+    }
+    circuitBreakers
+        .get(downstream)
+        .ifPresent(
+            circuitBreaker ->
+                builder.intercept(new CircuitBreakerClientInterceptor(circuitBreaker)));
+    return builder.build();
+  }
+}
@@ -0,0 +1,100 @@
+package org.hypertrace.gateway.service.common.grpc;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.hypertrace.core.query.service.api.QueryRequest;
+import org.hypertrace.core.query.service.api.ResultSetChunk;
+import org.hypertrace.gateway.service.common.QueryServiceExecutor;
+
+/**
+ * {@link QueryServiceExecutor} spreading the queries over a pool of clients, each with its channel.
+ * Each query goes to the client with the fewest queries in flight. A query is in flight until its
+ * results have been read through, which is how all the callers consume them.
+ */
+class QueryServiceClientPool implements QueryServiceExecutor {
+  private final List<QueryServiceExecutor> clients;
+  private final AtomicIntegerArray inFlightQueries;
+  private final AtomicInteger nextIndex = new AtomicInteger();
+
+  QueryServiceClientPool(List<QueryServiceExecutor> clients) {
+    this.clients = List.copyOf(clients);
+    this.inFlightQueries = new AtomicIntegerArray(clients.size());
+  }
+
+  @Override
+  public Iterator<ResultSetChunk> executeQuery(
+      QueryRequest request, Map<String, String> context, int timeoutMillis) {
+    int index = leastLoadedIndex();
+    inFlightQueries.incrementAndGet(index);
+    try {
+      return new CountedIterator(
+          clients.get(index).executeQuery(request, context, timeoutMillis), index);
+    } catch (RuntimeException e) {
+      inFlightQueries.decrementAndGet(index);
+      throw e;
+    }
+  }
+
+  int getInFlightQueries(int index) {
+    return inFlightQueries.get(index);
+  }
+
+  private int leastLoadedIndex() {
+    int size = clients.size();
+    int start = Math.floorMod(nextIndex.getAndIncrement(), size);
+    int leastLoadedIndex = start;
+    for (int i = 1; i < size; i++) {
+      int index = (start + i) % size;
+      if (inFlightQueries.get(index) < inFlightQueries.get(leastLoadedIndex)) {
+        leastLoadedIndex = index;
+      }
+    }
+    return leastLoadedIndex;
+  }
+
+  /** Results of a query, which is no longer in flight once they are read through or fail */
+  private class CountedIterator implements Iterator<ResultSetChunk> {
+    private final Iterator<ResultSetChunk> delegate;
+    private final int index;
+    private final AtomicBoolean done = new AtomicBoolean();
+
+    private CountedIterator(Iterator<ResultSetChunk> delegate, int index) {
+      this.delegate = delegate;
+      this.index = index;
+    }
+
+    @Override
+    public boolean hasNext() {
+      try {
+        boolean hasNext = delegate.hasNext();
+        if (!hasNext) {
+          done();
+        }
+        return hasNext;
+      } catch (RuntimeException e) {
+        done();
+        throw e;
+      }
+    }
+
+    @Override
+    public ResultSetChunk next() {
+      try {
+        return delegate.next();
+      } catch (RuntimeException e) {
+        done();
+        throw e;
+      }
+    }
+
+    private void done() {
+      if (done.compareAndSet(false, true)) {
+        inFlightQueries.decrementAndGet(index);
+      }
+    }
+  }
+}
@@ -0,0 +1,49 @@
+package org.hypertrace.gateway.service.common.hedging;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per tenant budget of hedged requests. Every query of a tenant earns it a fraction of a hedge, up
+ * to a cap, and every hedge spends a whole one. So hedging adds at most that fraction of extra
+ * load, even when query-service slows down for everybody.
+ */
+class HedgeBudget {
+  private final double ratio;
+  private final double maxTokens;
+  private final Map<String, TenantTokens> tenantTokens = new ConcurrentHashMap<>();
+
+  HedgeBudget(double ratio, double maxTokens) {
+    this.ratio = ratio;
+    this.maxTokens = maxTokens;
+  }
+
+  void onRequest(String tenantId) {
+    getTenantTokens(tenantId).deposit(ratio, maxTokens);
+  }
+
+  /** @return whether the tenant can afford a hedge, which is then paid for */
+  boolean tryAcquire(String tenantId) {
+    return getTenantTokens(tenantId).withdraw();
+  }
+
+  private TenantTokens getTenantTokens(String tenantId) {
+    return tenantTokens.computeIfAbsent(tenantId, unused -> new TenantTokens());
+  }
+
+  private static class TenantTokens {
+    private double tokens;
+
+    private synchronized void deposit(double amount, double maxTokens) {
+      tokens = Math.min(maxTokens, tokens + amount);
+    }
+
+    private synchronized boolean withdraw() {
+      if (tokens < 1) {
+        return false;
+      }
+      tokens -= 1;
+      return true;
+    }
+  }
+}
@@ -0,0 +1,224 @@
+package org.hypertrace.gateway.service.common.hedging;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.grpc.Context;
+import io.micrometer.core.instrument.Counter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.hypertrace.core.grpcutils.context.RequestContextConstants;
+import org.hypertrace.core.query.service.api.Filter;
+import org.hypertrace.core.query.service.api.QueryRequest;
+import org.hypertrace.core.query.service.api.ResultSetChunk;
+import org.hypertrace.core.serviceframework.metrics.PlatformMetricsRegistry;
+import org.hypertrace.gateway.service.common.QueryServiceExecutor;
+
+/**
+ * {@link QueryServiceExecutor} which hedges slow queries. Queries are read only, so a query still
+ * running after a percentile of the recent latencies of the queries of the same shape is sent once
+ * more, and whichever of the two answers first is used while the other one is cancelled. The shape
+ * of a query is all of it but its limit, offset and filter values, since a slow aggregation says
+ * little about how slow a lookup by id is. The hedges are limited by a per tenant {@link
+ * HedgeBudget}, so that hedging can't turn a slow query-service into an overloaded one.
+ */
+public class HedgingQueryServiceClient implements QueryServiceExecutor {
+  private static final int MAX_QUERY_SHAPES = 1000;
+  private static final long QUERY_SHAPE_EXPIRY_MINUTES = 60;
+
+  private final QueryServiceExecutor delegate;
+  private final long minDelayMillis;
+  private final LoadingCache<QueryRequest, LatencyPercentileTracker> latencyTrackers;
+  private final HedgeBudget hedgeBudget;
+  private final ExecutorService executorService;
+  private Counter hedgeCounter;
+  private Counter hedgeWonCounter;
+  private Counter budgetExhaustedCounter;
+  private Counter threadsExhaustedCounter;
+
+  public HedgingQueryServiceClient(
+      QueryServiceExecutor delegate, QueryHedgingConfig queryHedgingConfig) {
+    this.delegate = delegate;
+    this.minDelayMillis = queryHedgingConfig.getMinDelayMillis();
+    this.latencyTrackers =
+        CacheBuilder.newBuilder()
+            .maximumSize(MAX_QUERY_SHAPES)
+            .expireAfterAccess(QUERY_SHAPE_EXPIRY_MINUTES, TimeUnit.MINUTES)
+            .build(
+                CacheLoader.from(
+                    queryShape ->
+                        new LatencyPercentileTracker(
+                            queryHedgingConfig.getDelayPercentile(),
+                            queryHedgingConfig.getMinSamples(),
+                            queryHedgingConfig.getWindowSize())));
+    this.hedgeBudget =
+        new HedgeBudget(
+            queryHedgingConfig.getTenantBudgetRatio(),
+            queryHedgingConfig.getTenantBudgetMaxTokens());
+    // no queue, a query waiting for a thread would only get slower
+    ThreadPoolExecutor threadPoolExecutor =
+        new ThreadPoolExecutor(
+            queryHedgingConfig.getMaxThreads(),
+            queryHedgingConfig.getMaxThreads(),
+            60L,
+            TimeUnit.SECONDS,
+            new SynchronousQueue<>(),
+            new ThreadFactoryBuilder()
+                .setNameFormat("query-service-hedging-%d")
+                .setDaemon(true)
+                .build());
+    threadPoolExecutor.allowCoreThreadTimeOut(true);
+    this.executorService = threadPoolExecutor;
+    initMetrics();
+  }
+
+  private void initMetrics() {
+    this.hedgeCounter =
+        PlatformMetricsRegistry.registerCounter("hypertrace.query.hedge.sent", ImmutableMap.of());
+    this.hedgeWonCounter =
+        PlatformMetricsRegistry.registerCounter("hypertrace.query.hedge.won", ImmutableMap.of());
+    this.budgetExhaustedCounter =
+        PlatformMetricsRegistry.registerCounter(
+            "hypertrace.query.hedge.budget.exhausted", ImmutableMap.of());
+    this.threadsExhaustedCounter =
+        PlatformMetricsRegistry.registerCounter(
+            "hypertrace.query.hedge.threads.exhausted", ImmutableMap.of());
+  }
+
+  @Override
+  public Iterator<ResultSetChunk> executeQuery(
+      QueryRequest request, Map<String, String> context, int timeoutMillis) {
+    String tenantId = context.get(RequestContextConstants.TENANT_ID_HEADER_KEY);
+    if (tenantId == null) {
+      return delegate.executeQuery(request, context, timeoutMillis);
+    }
+    hedgeBudget.onRequest(tenantId);
+    LatencyPercentileTracker latencyTracker = latencyTrackers.getUnchecked(getQueryShape(request));
+    long hedgeDelayMillis = getHedgeDelayMillis(latencyTracker);
+    Callable<List<ResultSetChunk>> query =
+        Context.current()
+            .wrap(() -> executeAndCollect(request, context, timeoutMillis, latencyTracker));
+    if (hedgeDelayMillis < 0) {
+      // too few latencies observed to know what slow is, but this one counts towards them
+      return call(query).iterator();
+    }
+
+    CompletionService<List<ResultSetChunk>> completionService =
+        new ExecutorCompletionService<>(executorService);
+    List<Future<List<ResultSetChunk>>> attempts = new ArrayList<>(2);
+    try {
+      attempts.add(completionService.submit(query));
+    } catch (RejectedExecutionException e) {
+      threadsExhaustedCounter.increment();
+      return call(query).iterator();
+    }
+    try {
+      Future<List<ResultSetChunk>> completed =
+          completionService.poll(hedgeDelayMillis, TimeUnit.MILLISECONDS);
+      if (completed == null) {
+        if (!hedgeBudget.tryAcquire(tenantId)) {
+          budgetExhaustedCounter.increment();
+        } else {
+          try {
+            attempts.add(completionService.submit(query));
+            hedgeCounter.increment();
+          } catch (RejectedExecutionException e) {
+            threadsExhaustedCounter.increment();
+          }
+        }
+      }
+
+      // the first successful attempt wins, the query only fails if all the attempts do
+      RuntimeException failure = null;
+      for (int i = 0; i < attempts.size(); i++) {
+        if (completed == null) {
+          completed = completionService.take();
+        }
+        try {
+          List<ResultSetChunk> resultSetChunks = completed.get();
+          if (completed != attempts.get(0)) {
+            hedgeWonCounter.increment();
+          }
+          return resultSetChunks.iterator();
+        } catch (ExecutionException e) {
+          failure =
+              e.getCause() instanceof RuntimeException
+                  ? (RuntimeException) e.getCause()
+                  : new RuntimeException(e.getCause());
+        }
+        completed = null;
+      }
+      throw failure;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } finally {
+      attempts.forEach(attempt -> attempt.cancel(true));
+    }
+  }
+
+  @VisibleForTesting
+  long getHedgeDelayMillis(QueryRequest request) {
+    return getHedgeDelayMillis(latencyTrackers.getUnchecked(getQueryShape(request)));
+  }
+
+  private long getHedgeDelayMillis(LatencyPercentileTracker latencyTracker) {
+    long percentileMillis = latencyTracker.getPercentileMillis();
+    return percentileMillis < 0 ? -1 : Math.max(minDelayMillis, percentileMillis);
+  }
+
+  private static QueryRequest getQueryShape(QueryRequest request) {
+    QueryRequest.Builder builder = request.toBuilder().clearLimit().clearOffset();
+    if (request.hasFilter()) {
+      builder.setFilter(getFilterShape(request.getFilter()));
+    }
+    return builder.build();
+  }
+
+  private static Filter getFilterShape(Filter filter) {
+    Filter.Builder builder = filter.toBuilder();
+    if (filter.getRhs().hasLiteral()) {
+      builder.clearRhs();
+    }
+    builder.clearChildFilter();
+    filter.getChildFilterList().forEach(child -> builder.addChildFilter(getFilterShape(child)));
+    return builder.build();
+  }
+
+  private static List<ResultSetChunk> call(Callable<List<ResultSetChunk>> query) {
+    try {
+      return query.call();
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private List<ResultSetChunk> executeAndCollect(
+      QueryRequest request,
+      Map<String, String> context,
+      int timeoutMillis,
+      LatencyPercentileTracker latencyTracker) {
+    long startTime = System.nanoTime();
+    List<ResultSetChunk> resultSetChunks = new ArrayList<>();
+    delegate.executeQuery(request, context, timeoutMillis).forEachRemaining(resultSetChunks::add);
+    latencyTracker.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+    return resultSetChunks;
+  }
+}
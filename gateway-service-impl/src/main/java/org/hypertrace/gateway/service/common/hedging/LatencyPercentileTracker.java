@@ -0,0 +1,47 @@
+package org.hypertrace.gateway.service.common.hedging;
+
+import java.util.Arrays;
+
+/**
+ * Tracks a percentile of the most recent latencies. The percentile is recomputed every so many
+ * samples instead of on each lookup, since it's looked up by every query.
+ */
+class LatencyPercentileTracker {
+  private static final int RECOMPUTE_INTERVAL = 50;
+
+  private final double percentile;
+  private final int minSamples;
+  private final long[] window;
+  private int nextIndex;
+  private int samples;
+  private int samplesSinceRecompute;
+  private volatile long percentileMillis = -1;
+
+  LatencyPercentileTracker(double percentile, int minSamples, int windowSize) {
+    this.percentile = percentile;
+    this.minSamples = minSamples;
+    this.window = new long[windowSize];
+  }
+
+  synchronized void record(long latencyMillis) {
+    window[nextIndex] = latencyMillis;
+    nextIndex = (nextIndex + 1) % window.length;
+    samples = Math.min(samples + 1, window.length);
+    if (samples >= minSamples && ++samplesSinceRecompute >= RECOMPUTE_INTERVAL) {
+      recompute();
+    }
+  }
+
+  /** @return the latency percentile, or -1 while there are too few samples */
+  long getPercentileMillis() {
+    return percentileMillis;
+  }
+
+  private void recompute() {
+    samplesSinceRecompute = 0;
+    long[] sorted = Arrays.copyOf(window, samples);
+    Arrays.sort(sorted);
+    int rank = (int) Math.ceil(percentile / 100 * samples) - 1;
+    percentileMillis = sorted[Math.max(0, Math.min(rank, samples - 1))];
+  }
+}
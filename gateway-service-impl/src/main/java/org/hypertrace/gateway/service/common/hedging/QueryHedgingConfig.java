@@ -0,0 +1,117 @@
+package org.hypertrace.gateway.service.common.hedging;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+/** Configuration of the hedging of slow query-service requests */
+public class QueryHedgingConfig {
+  private static final String QUERY_HEDGING_CONFIG = "query.service.hedging.config";
+  private static final String ENABLED = "enabled";
+  private static final String DELAY_PERCENTILE = "delay.percentile";
+  private static final String MIN_DELAY_MILLIS = "min.delay.millis";
+  private static final String MIN_SAMPLES = "min.samples";
+  private static final String WINDOW_SIZE = "window.size";
+  private static final String TENANT_BUDGET_RATIO = "tenant.budget.ratio";
+  private static final String TENANT_BUDGET_MAX_TOKENS = "tenant.budget.max.tokens";
+  private static final String MAX_THREADS = "max.threads";
+
+  private static final boolean DEFAULT_ENABLED = false;
+  private static final double DEFAULT_DELAY_PERCENTILE = 95;
+  private static final long DEFAULT_MIN_DELAY_MILLIS = 20L;
+  private static final int DEFAULT_MIN_SAMPLES = 100;
+  private static final int DEFAULT_WINDOW_SIZE = 1000;
+  private static final double DEFAULT_TENANT_BUDGET_RATIO = 0.05;
+  private static final double DEFAULT_TENANT_BUDGET_MAX_TOKENS = 10;
+  private static final int DEFAULT_MAX_THREADS = 50;
+
+  private final boolean enabled;
+  private final double delayPercentile;
+  private final long minDelayMillis;
+  private final int minSamples;
+  private final int windowSize;
+  private final double tenantBudgetRatio;
+  private final double tenantBudgetMaxTokens;
+  private final int maxThreads;
+
+  public QueryHedgingConfig(Config appConfig) {
+    Config hedgingConfig =
+        appConfig.hasPath(QUERY_HEDGING_CONFIG)
+            ? appConfig.getConfig(QUERY_HEDGING_CONFIG)
+            : ConfigFactory.empty();
+
+    this.enabled =
+        hedgingConfig.hasPath(ENABLED) ? hedgingConfig.getBoolean(ENABLED) : DEFAULT_ENABLED;
+    this.delayPercentile =
+        hedgingConfig.hasPath(DELAY_PERCENTILE)
+            ? hedgingConfig.getDouble(DELAY_PERCENTILE)
+            : DEFAULT_DELAY_PERCENTILE;
+    this.minDelayMillis =
+        hedgingConfig.hasPath(MIN_DELAY_MILLIS)
+            ? hedgingConfig.getLong(MIN_DELAY_MILLIS)
+            : DEFAULT_MIN_DELAY_MILLIS;
+    this.minSamples =
+        hedgingConfig.hasPath(MIN_SAMPLES)
+            ? hedgingConfig.getInt(MIN_SAMPLES)
+            : DEFAULT_MIN_SAMPLES;
+    this.windowSize =
+        hedgingConfig.hasPath(WINDOW_SIZE)
+            ? hedgingConfig.getInt(WINDOW_SIZE)
+            : DEFAULT_WINDOW_SIZE;
+    this.tenantBudgetRatio =
+        hedgingConfig.hasPath(TENANT_BUDGET_RATIO)
+            ? hedgingConfig.getDouble(TENANT_BUDGET_RATIO)
+            : DEFAULT_TENANT_BUDGET_RATIO;
+    this.tenantBudgetMaxTokens =
+        hedgingConfig.hasPath(TENANT_BUDGET_MAX_TOKENS)
+            ? hedgingConfig.getDouble(TENANT_BUDGET_MAX_TOKENS)
+            : DEFAULT_TENANT_BUDGET_MAX_TOKENS;
+    this.maxThreads =
+        hedgingConfig.hasPath(MAX_THREADS)
+            ? hedgingConfig.getInt(MAX_THREADS)
+            : DEFAULT_MAX_THREADS;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @return percentile of the recent latencies of the queries of the same shape after which a query
+   *     is hedged
+   */
+  public double getDelayPercentile() {
+    return delayPercentile;
+  }
+
+  public long getMinDelayMillis() {
+    return minDelayMillis;
+  }
+
+  /** @return number of latencies of a query shape to observe before hedging its queries */
+  public int getMinSamples() {
+    return minSamples;
+  }
+
+  /** @return number of recent latencies the percentile is computed over */
+  public int getWindowSize() {
+    return windowSize;
+  }
+
+  /** @return hedges allowed per query of a tenant, e.g. 0.05 for one hedge every 20 queries */
+  public double getTenantBudgetRatio() {
+    return tenantBudgetRatio;
+  }
+
+  /** @return hedges a tenant can save up for bursts */
+  public double getTenantBudgetMaxTokens() {
+    return tenantBudgetMaxTokens;
+  }
+
+  /**
+   * @return threads running the hedged queries and their hedges. Queries are not hedged while they
+   *     are all busy
+   */
+  public int getMaxThreads() {
+    return maxThreads;
+  }
+}
@@ -0,0 +1,64 @@
+package org.hypertrace.gateway.service.common.sharding;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import java.util.concurrent.TimeUnit;
+
+/** Configuration of the scatter-gather of long time range explore aggregations */
+public class QueryScatterGatherConfig {
+  private static final String QUERY_SCATTER_GATHER_CONFIG = "explore.scatter.gather.config";
+  private static final String ENABLED = "enabled";
+  private static final String MIN_RANGE_MILLIS = "min.range.millis";
+  private static final String SUB_RANGE_MILLIS = "sub.range.millis";
+  private static final String MAX_SUB_RANGES = "max.sub.ranges";
+
+  private static final boolean DEFAULT_ENABLED = false;
+  private static final long DEFAULT_MIN_RANGE_MILLIS = TimeUnit.DAYS.toMillis(7);
+  private static final long DEFAULT_SUB_RANGE_MILLIS = TimeUnit.DAYS.toMillis(1);
+  private static final int DEFAULT_MAX_SUB_RANGES = 31;
+
+  private final boolean enabled;
+  private final long minRangeMillis;
+  private final long subRangeMillis;
+  private final int maxSubRanges;
+
+  public QueryScatterGatherConfig(Config appConfig) {
+    Config scatterGatherConfig =
+        appConfig.hasPath(QUERY_SCATTER_GATHER_CONFIG)
+            ? appConfig.getConfig(QUERY_SCATTER_GATHER_CONFIG)
+            : ConfigFactory.empty();
+
+    this.enabled =
+        scatterGatherConfig.hasPath(ENABLED)
+            ? scatterGatherConfig.getBoolean(ENABLED)
+            : DEFAULT_ENABLED;
+    this.minRangeMillis =
+        scatterGatherConfig.hasPath(MIN_RANGE_MILLIS)
+            ? scatterGatherConfig.getLong(MIN_RANGE_MILLIS)
+            : DEFAULT_MIN_RANGE_MILLIS;
+    this.subRangeMillis =
+        scatterGatherConfig.hasPath(SUB_RANGE_MILLIS)
+            ? scatterGatherConfig.getLong(SUB_RANGE_MILLIS)
+            : DEFAULT_SUB_RANGE_MILLIS;
+    this.maxSubRanges =
+        scatterGatherConfig.hasPath(MAX_SUB_RANGES)
+            ? scatterGatherConfig.getInt(MAX_SUB_RANGES)
+            : DEFAULT_MAX_SUB_RANGES;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public long getMinRangeMillis() {
+    return minRangeMillis;
+  }
+
+  public long getSubRangeMillis() {
+    return subRangeMillis;
+  }
+
+  public int getMaxSubRanges() {
+    return maxSubRanges;
+  }
+}
@@ -0,0 +1,103 @@
+package org.hypertrace.gateway.service.common.sharding;
+
+import java.util.Optional;
+import org.hypertrace.core.query.service.api.Filter;
+import org.hypertrace.core.query.service.api.Operator;
+import org.hypertrace.core.query.service.api.ValueType;
+import org.hypertrace.gateway.service.common.converters.QueryRequestUtil;
+
+/**
+ * Time range of a query-service query, as added by {@link
+ * QueryRequestUtil#createBetweenTimesFilter}, either as the filter of the query or as one of the
+ * children of its AND filter.
+ */
+public class QueryTimeRange {
+  private final String timeAttributeId;
+  private final long startTime;
+  private final long endTime;
+  // index of the time range in the child filters of the query filter, or -1 if it is the filter
+  private final int childFilterIndex;
+  private final Filter queryFilter;
+
+  private QueryTimeRange(
+      String timeAttributeId,
+      long startTime,
+      long endTime,
+      int childFilterIndex,
+      Filter queryFilter) {
+    this.timeAttributeId = timeAttributeId;
+    this.startTime = startTime;
+    this.endTime = endTime;
+    this.childFilterIndex = childFilterIndex;
+    this.queryFilter = queryFilter;
+  }
+
+  /**
+   * @param timeAttributeId the attribute of the time range, or null for the first time range found
+   * @return the time range of the query filter, or empty if it has none
+   */
+  static Optional<QueryTimeRange> of(Filter queryFilter, String timeAttributeId) {
+    Optional<QueryTimeRange> timeRange = of(queryFilter, timeAttributeId, -1, queryFilter);
+    if (timeRange.isEmpty() && queryFilter.getOperator() == Operator.AND) {
+      for (int i = 0; i < queryFilter.getChildFilterCount() && timeRange.isEmpty(); i++) {
+        timeRange = of(queryFilter.getChildFilter(i), timeAttributeId, i, queryFilter);
+      }
+    }
+    return timeRange;
+  }
+
+  /** @return the time range of the filter, or empty if it isn't a time range filter itself */
+  public static Optional<QueryTimeRange> ofTimeRangeFilter(Filter filter) {
+    return of(filter, null, -1, filter);
+  }
+
+  private static Optional<QueryTimeRange> of(
+      Filter filter, String timeAttributeId, int childFilterIndex, Filter queryFilter) {
+    if (filter.getOperator() != Operator.AND
+        || filter.getChildFilterCount() != 2
+        || !filter.getChildFilter(0).getLhs().hasAttributeExpression()) {
+      return Optional.empty();
+    }
+    String attributeId =
+        timeAttributeId != null
+            ? timeAttributeId
+            : filter.getChildFilter(0).getLhs().getAttributeExpression().getAttributeId();
+    Optional<Long> startTime = getTime(filter.getChildFilter(0), attributeId, Operator.GE);
+    Optional<Long> endTime = getTime(filter.getChildFilter(1), attributeId, Operator.LT);
+    if (startTime.isEmpty() || endTime.isEmpty() || startTime.get() >= endTime.get()) {
+      return Optional.empty();
+    }
+    return Optional.of(
+        new QueryTimeRange(
+            attributeId, startTime.get(), endTime.get(), childFilterIndex, queryFilter));
+  }
+
+  private static Optional<Long> getTime(Filter filter, String timeAttributeId, Operator operator) {
+    if (filter.getOperator() != operator
+        || !filter.getLhs().hasAttributeExpression()
+        || !timeAttributeId.equals(filter.getLhs().getAttributeExpression().getAttributeId())
+        || !filter.getRhs().hasLiteral()
+        || filter.getRhs().getLiteral().getValue().getValueType() != ValueType.LONG) {
+      return Optional.empty();
+    }
+    return Optional.of(filter.getRhs().getLiteral().getValue().getLong());
+  }
+
+  long getStartTime() {
+    return startTime;
+  }
+
+  public long getEndTime() {
+    return endTime;
+  }
+
+  /** @return the query filter, with this time range narrowed to the given one */
+  Filter withTimeRange(long startTime, long endTime) {
+    Filter timeFilter =
+        QueryRequestUtil.createBetweenTimesFilter(timeAttributeId, startTime, endTime);
+    if (childFilterIndex < 0) {
+      return timeFilter;
+    }
+    return Filter.newBuilder(queryFilter).setChildFilter(childFilterIndex, timeFilter).build();
+  }
+}
@@ -0,0 +1,37 @@
+package org.hypertrace.gateway.service.common.sharding;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+/** Configuration of the time sharding of "latest N" query-service requests */
+public class QueryTimeShardingConfig {
+  private static final String QUERY_TIME_SHARDING_CONFIG = "query.service.time.sharding.config";
+  private static final String ENABLED = "enabled";
+  private static final String MAX_SHARDS = "max.shards";
+
+  private static final boolean DEFAULT_ENABLED = false;
+  private static final int DEFAULT_MAX_SHARDS = 7;
+
+  private final boolean enabled;
+  private final int maxShards;
+
+  public QueryTimeShardingConfig(Config appConfig) {
+    Config shardingConfig =
+        appConfig.hasPath(QUERY_TIME_SHARDING_CONFIG)
+            ? appConfig.getConfig(QUERY_TIME_SHARDING_CONFIG)
+            : ConfigFactory.empty();
+
+    this.enabled =
+        shardingConfig.hasPath(ENABLED) ? shardingConfig.getBoolean(ENABLED) : DEFAULT_ENABLED;
+    this.maxShards =
+        shardingConfig.hasPath(MAX_SHARDS) ? shardingConfig.getInt(MAX_SHARDS) : DEFAULT_MAX_SHARDS;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public int getMaxShards() {
+    return maxShards;
+  }
+}
@@ -0,0 +1,418 @@
+package org.hypertrace.gateway.service.common.sharding;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.grpc.Context;
+import io.micrometer.core.instrument.Counter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.hypertrace.core.query.service.api.ColumnMetadata;
+import org.hypertrace.core.query.service.api.Expression;
+import org.hypertrace.core.query.service.api.Function;
+import org.hypertrace.core.query.service.api.QueryRequest;
+import org.hypertrace.core.query.service.api.ResultSetChunk;
+import org.hypertrace.core.query.service.api.ResultSetMetadata;
+import org.hypertrace.core.query.service.api.Row;
+import org.hypertrace.core.query.service.api.Value;
+import org.hypertrace.core.query.service.api.ValueType;
+import org.hypertrace.core.serviceframework.metrics.PlatformMetricsRegistry;
+import org.hypertrace.gateway.service.common.QueryServiceExecutor;
+
+/**
+ * {@link QueryServiceExecutor} which scatters the aggregations over a long time range into queries
+ * of aligned sub-ranges, run concurrently, and gathers their partial aggregates.
+ *
+ * <p>SUM, COUNT, MIN and MAX are combined directly, and AVG is queried as a SUM and a COUNT to be
+ * combined from. Queries with any other aggregation, like percentiles and distinct counts which
+ * can't be combined from their partial results, or with an order by, which would limit each sub
+ * range to different groups, are passed through as is. The sub-range queries keep the limit of the
+ * query, and if any of them reaches it, its groups may have been cut off differently than the
+ * others, so the query is then run unsplit instead. Since the sub-ranges are aligned, the ones in
+ * the past are repeated by the following requests, and can be served by the query result cache.
+ */
+public class ScatterGatherQueryServiceClient implements QueryServiceExecutor {
+  private static final int THREAD_COUNT = 20;
+  // bounds the sub-range queries in flight across all the requests
+  private static final ExecutorService executorService =
+      Executors.newFixedThreadPool(
+          THREAD_COUNT,
+          new ThreadFactoryBuilder()
+              .setNameFormat("query-service-scatter-gather-%d")
+              .setDaemon(true)
+              .build());
+  private static final String COUNT_ALIAS_PREFIX = "__scatter_gather_count_";
+
+  private final QueryServiceExecutor delegate;
+  private final long minRangeMillis;
+  private final long subRangeMillis;
+  private final int maxSubRanges;
+  private Counter scatteredQueryCounter;
+  private Counter subRangeCounter;
+  private Counter truncatedCounter;
+
+  private enum AggregationType {
+    SUM,
+    COUNT,
+    MIN,
+    MAX,
+    AVG
+  }
+
+  public ScatterGatherQueryServiceClient(
+      QueryServiceExecutor delegate, QueryScatterGatherConfig queryScatterGatherConfig) {
+    this.delegate = delegate;
+    this.minRangeMillis = queryScatterGatherConfig.getMinRangeMillis();
+    this.subRangeMillis = queryScatterGatherConfig.getSubRangeMillis();
+    this.maxSubRanges = queryScatterGatherConfig.getMaxSubRanges();
+    initMetrics();
+  }
+
+  private void initMetrics() {
+    this.scatteredQueryCounter =
+        PlatformMetricsRegistry.registerCounter(
+            "hypertrace.query.scatter.gather", ImmutableMap.of());
+    this.subRangeCounter =
+        PlatformMetricsRegistry.registerCounter(
+            "hypertrace.query.scatter.gather.sub.ranges", ImmutableMap.of());
+    this.truncatedCounter =
+        PlatformMetricsRegistry.registerCounter(
+            "hypertrace.query.scatter.gather.truncated", ImmutableMap.of());
+  }
+
+  @Override
+  public Iterator<ResultSetChunk> executeQuery(
+      QueryRequest request, Map<String, String> context, int timeoutMillis) {
+    Optional<Map<String, AggregationType>> aggregations = getCombinableAggregations(request);
+    Optional<QueryTimeRange> timeRange =
+        aggregations.flatMap(unused -> QueryTimeRange.of(request.getFilter(), null));
+    if (timeRange.isEmpty()
+        || timeRange.get().getEndTime() - timeRange.get().getStartTime() < minRangeMillis) {
+      return delegate.executeQuery(request, context, timeoutMillis);
+    }
+    List<long[]> subRanges =
+        getSubRanges(timeRange.get().getStartTime(), timeRange.get().getEndTime());
+    if (subRanges.size() < 2) {
+      return delegate.executeQuery(request, context, timeoutMillis);
+    }
+    scatteredQueryCounter.increment();
+
+    QueryRequest partialRequest = createPartialRequest(request, aggregations.get());
+    List<Future<List<ResultSetChunk>>> futures = new ArrayList<>(subRanges.size());
+    try {
+      for (long[] subRange : subRanges) {
+        QueryRequest subRangeRequest =
+            QueryRequest.newBuilder(partialRequest)
+                .setFilter(timeRange.get().withTimeRange(subRange[0], subRange[1]))
+                .build();
+        Callable<List<ResultSetChunk>> query =
+            () -> {
+              List<ResultSetChunk> resultSetChunks = new ArrayList<>();
+              delegate
+                  .executeQuery(subRangeRequest, context, timeoutMillis)
+                  .forEachRemaining(resultSetChunks::add);
+              return resultSetChunks;
+            };
+        futures.add(executorService.submit(Context.current().wrap(query)));
+        subRangeCounter.increment();
+      }
+
+      PartialAggregates partialAggregates = new PartialAggregates(aggregations.get());
+      for (Future<List<ResultSetChunk>> future : futures) {
+        List<ResultSetChunk> resultSetChunks = future.get();
+        if (isTruncated(resultSetChunks, partialRequest.getLimit())) {
+          truncatedCounter.increment();
+          futures.forEach(pending -> pending.cancel(true));
+          return delegate.executeQuery(request, context, timeoutMillis);
+        }
+        partialAggregates.add(resultSetChunks);
+      }
+      return partialAggregates.getResultSetChunks(request.getLimit());
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof RuntimeException
+          ? (RuntimeException) e.getCause()
+          : new RuntimeException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } finally {
+      futures.forEach(future -> future.cancel(true));
+    }
+  }
+
+  /**
+   * @return the aggregations of the query by their aliases, or empty if the query is not an
+   *     aggregation which can be combined from the ones of its sub-ranges
+   */
+  private Optional<Map<String, AggregationType>> getCombinableAggregations(QueryRequest request) {
+    if (request.getOrderByCount() > 0) {
+      return Optional.empty();
+    }
+    Map<String, AggregationType> aggregations = new HashMap<>();
+    for (Expression selection : request.getSelectionList()) {
+      if (request.getGroupByList().contains(selection)) {
+        continue;
+      }
+      if (!selection.hasFunction() || selection.getFunction().getAlias().isEmpty()) {
+        return Optional.empty();
+      }
+      Function function = selection.getFunction();
+      try {
+        aggregations.put(function.getAlias(), AggregationType.valueOf(function.getFunctionName()));
+      } catch (IllegalArgumentException e) {
+        return Optional.empty();
+      }
+    }
+    return aggregations.isEmpty() ? Optional.empty() : Optional.of(aggregations);
+  }
+
+  /** @return whether the results of a sub-range may miss groups, cut off by the limit */
+  private static boolean isTruncated(List<ResultSetChunk> resultSetChunks, int limit) {
+    return limit > 0
+        && resultSetChunks.stream().mapToInt(ResultSetChunk::getRowCount).sum() >= limit;
+  }
+
+  /** @return the sub-ranges of the time range, aligned to multiples of the sub-range length */
+  private List<long[]> getSubRanges(long startTime, long endTime) {
+    long length = subRangeMillis;
+    long count = (endTime - startTime) / length + 1;
+    if (count > maxSubRanges) {
+      length *= (count + maxSubRanges - 1) / maxSubRanges;
+    }
+    List<long[]> subRanges = new ArrayList<>();
+    for (long start = startTime; start < endTime; ) {
+      long end = Math.min(endTime, (Math.floorDiv(start, length) + 1) * length);
+      subRanges.add(new long[] {start, end});
+      start = end;
+    }
+    return subRanges;
+  }
+
+  /** @return the query of the partial aggregates, with each AVG replaced with a SUM and a COUNT */
+  private QueryRequest createPartialRequest(
+      QueryRequest request, Map<String, AggregationType> aggregations) {
+    QueryRequest.Builder builder = QueryRequest.newBuilder(request).clearSelection();
+    for (Expression selection : request.getSelectionList()) {
+      if (!selection.hasFunction()
+          || aggregations.get(selection.getFunction().getAlias()) != AggregationType.AVG) {
+        builder.addSelection(selection);
+        continue;
+      }
+      Function avg = selection.getFunction();
+      builder.addSelection(
+          Expression.newBuilder()
+              .setFunction(Function.newBuilder(avg).setFunctionName(AggregationType.SUM.name())));
+      builder.addSelection(
+          Expression.newBuilder()
+              .setFunction(
+                  Function.newBuilder(avg)
+                      .setFunctionName(AggregationType.COUNT.name())
+                      .setAlias(COUNT_ALIAS_PREFIX + avg.getAlias())));
+    }
+    return builder.build();
+  }
+
+  /** Partial aggregates of the sub-ranges, combined per group */
+  private static class PartialAggregates {
+    private final Map<String, AggregationType> aggregations;
+    private final Map<List<Value>, Map<String, PartialAggregate>> groups = new LinkedHashMap<>();
+    private ResultSetMetadata resultSetMetadata;
+
+    private PartialAggregates(Map<String, AggregationType> aggregations) {
+      this.aggregations = aggregations;
+    }
+
+    private void add(List<ResultSetChunk> resultSetChunks) {
+      ResultSetMetadata subRangeMetadata = null;
+      for (ResultSetChunk chunk : resultSetChunks) {
+        if (chunk.hasResultSetMetadata()) {
+          subRangeMetadata = chunk.getResultSetMetadata();
+          if (resultSetMetadata == null) {
+            resultSetMetadata = subRangeMetadata;
+          }
+        }
+        if (subRangeMetadata == null) {
+          continue;
+        }
+        for (Row row : chunk.getRowList()) {
+          add(row, subRangeMetadata);
+        }
+      }
+    }
+
+    private void add(Row row, ResultSetMetadata metadata) {
+      List<Value> groupKey = new ArrayList<>();
+      for (int i = 0; i < metadata.getColumnMetadataCount(); i++) {
+        if (!isAggregateColumn(metadata.getColumnMetadata(i).getColumnName())) {
+          groupKey.add(row.getColumn(i));
+        }
+      }
+      Map<String, PartialAggregate> partialAggregates =
+          groups.computeIfAbsent(groupKey, unused -> new HashMap<>());
+      for (int i = 0; i < metadata.getColumnMetadataCount(); i++) {
+        String columnName = metadata.getColumnMetadata(i).getColumnName();
+        if (columnName.startsWith(COUNT_ALIAS_PREFIX)) {
+          partialAggregates
+              .computeIfAbsent(
+                  columnName.substring(COUNT_ALIAS_PREFIX.length()),
+                  alias -> new PartialAggregate(aggregations.get(alias)))
+              .addCount(row.getColumn(i));
+        } else if (aggregations.containsKey(columnName)) {
+          partialAggregates
+              .computeIfAbsent(columnName, alias -> new PartialAggregate(aggregations.get(alias)))
+              .add(row.getColumn(i));
+        }
+      }
+    }
+
+    private boolean isAggregateColumn(String columnName) {
+      return columnName.startsWith(COUNT_ALIAS_PREFIX) || aggregations.containsKey(columnName);
+    }
+
+    private Iterator<ResultSetChunk> getResultSetChunks(int limit) {
+      if (resultSetMetadata == null) {
+        return Collections.emptyIterator();
+      }
+      ResultSetMetadata.Builder metadataBuilder =
+          ResultSetMetadata.newBuilder(resultSetMetadata).clearColumnMetadata();
+      for (ColumnMetadata columnMetadata : resultSetMetadata.getColumnMetadataList()) {
+        if (!columnMetadata.getColumnName().startsWith(COUNT_ALIAS_PREFIX)) {
+          metadataBuilder.addColumnMetadata(columnMetadata);
+        }
+      }
+
+      ResultSetChunk.Builder chunkBuilder =
+          ResultSetChunk.newBuilder().setResultSetMetadata(metadataBuilder);
+      for (Map.Entry<List<Value>, Map<String, PartialAggregate>> group : groups.entrySet()) {
+        if (limit > 0 && chunkBuilder.getRowCount() >= limit) {
+          break;
+        }
+        Iterator<Value> groupKey = group.getKey().iterator();
+        Row.Builder rowBuilder = Row.newBuilder();
+        for (ColumnMetadata columnMetadata : metadataBuilder.getColumnMetadataList()) {
+          String columnName = columnMetadata.getColumnName();
+          rowBuilder.addColumn(
+              aggregations.containsKey(columnName)
+                  ? group.getValue().get(columnName).getValue()
+                  : groupKey.next());
+        }
+        chunkBuilder.addRow(rowBuilder);
+      }
+      return List.of(chunkBuilder.build()).iterator();
+    }
+  }
+
+  /** Aggregate of a group, combined from the partial aggregates of the sub-ranges */
+  private static class PartialAggregate {
+    private final AggregationType aggregationType;
+    private double value = 0;
+    private double count = 0;
+    private boolean hasValue = false;
+    private boolean integral = true;
+    private Value firstValue;
+
+    private PartialAggregate(AggregationType aggregationType) {
+      this.aggregationType = aggregationType;
+    }
+
+    private void add(Value partialValue) {
+      if (firstValue == null) {
+        firstValue = partialValue;
+      }
+      double partial = toDouble(partialValue);
+      if ((aggregationType == AggregationType.MIN || aggregationType == AggregationType.MAX)
+          && !Double.isFinite(partial)) {
+        // the MIN and MAX of a sub-range without values
+        return;
+      }
+      integral &= isIntegral(partialValue);
+      switch (aggregationType) {
+        case MIN:
+          value = hasValue ? Math.min(value, partial) : partial;
+          break;
+        case MAX:
+          value = hasValue ? Math.max(value, partial) : partial;
+          break;
+        default:
+          value += partial;
+      }
+      hasValue = true;
+    }
+
+    private void addCount(Value partialCount) {
+      count += toDouble(partialCount);
+    }
+
+    private Value getValue() {
+      if (!hasValue) {
+        return firstValue;
+      }
+      double combined = value;
+      boolean combinedIntegral = integral;
+      if (aggregationType == AggregationType.AVG) {
+        combined = count == 0 ? 0 : value / count;
+        combinedIntegral = false;
+      }
+
+      switch (firstValue.getValueType()) {
+        case STRING:
+          return Value.newBuilder()
+              .setValueType(ValueType.STRING)
+              .setString(
+                  combinedIntegral ? Long.toString((long) combined) : Double.toString(combined))
+              .build();
+        case INT:
+        case LONG:
+          if (combinedIntegral) {
+            return Value.newBuilder().setValueType(ValueType.LONG).setLong((long) combined).build();
+          }
+          // fall through
+        default:
+          return Value.newBuilder().setValueType(ValueType.DOUBLE).setDouble(combined).build();
+      }
+    }
+
+    private static double toDouble(Value value) {
+      switch (value.getValueType()) {
+        case STRING:
+          try {
+            return Double.parseDouble(value.getString());
+          } catch (NumberFormatException e) {
+            return Double.NaN;
+          }
+        case INT:
+          return value.getInt();
+        case LONG:
+          return value.getLong();
+        case FLOAT:
+          return value.getFloat();
+        case DOUBLE:
+          return value.getDouble();
+        default:
+          return Double.NaN;
+      }
+    }
+
+    private static boolean isIntegral(Value value) {
+      switch (value.getValueType()) {
+        case STRING:
+          return value.getString().chars().allMatch(c -> Character.isDigit(c) || c == '-');
+        case INT:
+        case LONG:
+          return true;
+        default:
+          return false;
+      }
+    }
+  }
+}
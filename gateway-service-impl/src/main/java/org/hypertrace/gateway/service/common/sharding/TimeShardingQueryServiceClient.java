@@ -0,0 +1,136 @@
+package org.hypertrace.gateway.service.common.sharding;
+
+import com.google.common.collect.ImmutableMap;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Counter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.hypertrace.core.query.service.api.Expression;
+import org.hypertrace.core.query.service.api.OrderByExpression;
+import org.hypertrace.core.query.service.api.QueryRequest;
+import org.hypertrace.core.query.service.api.ResultSetChunk;
+import org.hypertrace.core.query.service.api.Row;
+import org.hypertrace.core.query.service.api.SortOrder;
+import org.hypertrace.core.serviceframework.metrics.PlatformMetricsRegistry;
+import org.hypertrace.gateway.service.common.QueryServiceExecutor;
+
+/**
+ * {@link QueryServiceExecutor} which fetches the latest N records of a time range newest first.
+ *
+ * <p>Records, like traces, spans and log events, are mostly requested ordered by their time
+ * descending, with a small limit, over a time range of hours or days. Only the end of the range is
+ * needed to fill the page then, yet the whole range is queried. Instead, such a query is split into
+ * time shards starting at the end of the range, each twice as long as the one before it, but the
+ * first two. The shards are queried one after the other, and the querying stops as soon as enough
+ * records are found for the offset and limit. Since the shards don't overlap, the records of a
+ * newer shard are all ordered before the ones of an older shard, so concatenating them keeps the
+ * order of the query.
+ *
+ * <p>The other queries, like aggregations, are passed through as is.
+ */
+public class TimeShardingQueryServiceClient implements QueryServiceExecutor {
+  private final QueryServiceExecutor delegate;
+  private final int maxShards;
+  private Counter shardedQueryCounter;
+  private Counter shardCounter;
+
+  public TimeShardingQueryServiceClient(
+      QueryServiceExecutor delegate, QueryTimeShardingConfig queryTimeShardingConfig) {
+    this.delegate = delegate;
+    this.maxShards = queryTimeShardingConfig.getMaxShards();
+    initMetrics();
+  }
+
+  private void initMetrics() {
+    this.shardedQueryCounter =
+        PlatformMetricsRegistry.registerCounter("hypertrace.query.time.sharded", ImmutableMap.of());
+    this.shardCounter =
+        PlatformMetricsRegistry.registerCounter("hypertrace.query.time.shards", ImmutableMap.of());
+  }
+
+  @Override
+  public Iterator<ResultSetChunk> executeQuery(
+      QueryRequest request, Map<String, String> context, int timeoutMillis) {
+    Optional<QueryTimeRange> timeRange = getShardableTimeRange(request);
+    if (timeRange.isEmpty()) {
+      return delegate.executeQuery(request, context, timeoutMillis);
+    }
+    QueryTimeRange range = timeRange.get();
+    long firstShardLength = (range.getEndTime() - range.getStartTime()) >> (maxShards - 1);
+    if (firstShardLength <= 0) {
+      return delegate.executeQuery(request, context, timeoutMillis);
+    }
+    shardedQueryCounter.increment();
+
+    long deadline = System.currentTimeMillis() + timeoutMillis;
+    int requiredRowCount = request.getOffset() + request.getLimit();
+    ResultSetChunk firstChunk = null;
+    List<Row> rows = new ArrayList<>();
+    long shardEndTime = range.getEndTime();
+    for (int i = 0; i < maxShards && rows.size() < requiredRowCount; i++) {
+      long shardStartTime =
+          i == maxShards - 1
+              ? range.getStartTime()
+              : Math.max(range.getStartTime(), range.getEndTime() - (firstShardLength << i));
+      QueryRequest shardRequest =
+          QueryRequest.newBuilder(request)
+              .setFilter(range.withTimeRange(shardStartTime, shardEndTime))
+              .setOffset(0)
+              .setLimit(requiredRowCount - rows.size())
+              .build();
+      long remainingMillis = deadline - System.currentTimeMillis();
+      if (remainingMillis <= 0) {
+        throw Status.DEADLINE_EXCEEDED
+            .withDescription("Time sharded query timed out after " + timeoutMillis + "ms")
+            .asRuntimeException();
+      }
+      shardCounter.increment();
+      Iterator<ResultSetChunk> resultSetChunks =
+          delegate.executeQuery(shardRequest, context, (int) remainingMillis);
+      while (resultSetChunks.hasNext()) {
+        ResultSetChunk chunk = resultSetChunks.next();
+        if (firstChunk == null
+            || (!firstChunk.hasResultSetMetadata() && chunk.hasResultSetMetadata())) {
+          firstChunk = chunk;
+        }
+        rows.addAll(chunk.getRowList());
+      }
+      if (shardStartTime == range.getStartTime()) {
+        break;
+      }
+      shardEndTime = shardStartTime;
+    }
+
+    if (firstChunk == null) {
+      return Collections.emptyIterator();
+    }
+    List<Row> pageRows =
+        rows.subList(
+            Math.min(request.getOffset(), rows.size()), Math.min(requiredRowCount, rows.size()));
+    return List.of(ResultSetChunk.newBuilder(firstChunk).clearRow().addAllRow(pageRows).build())
+        .iterator();
+  }
+
+  /**
+   * @return the time range of the query if it selects the latest records of the range, i.e. it has
+   *     a limit, no aggregations, and is ordered by the time of the range descending first
+   */
+  private Optional<QueryTimeRange> getShardableTimeRange(QueryRequest request) {
+    if (request.getLimit() <= 0
+        || request.getGroupByCount() > 0
+        || request.getSelectionList().stream().anyMatch(Expression::hasFunction)
+        || request.getOrderByCount() == 0) {
+      return Optional.empty();
+    }
+    OrderByExpression orderBy = request.getOrderBy(0);
+    if (orderBy.getOrder() != SortOrder.DESC || !orderBy.getExpression().hasAttributeExpression()) {
+      return Optional.empty();
+    }
+    String timeAttributeId = orderBy.getExpression().getAttributeExpression().getAttributeId();
+    return QueryTimeRange.of(request.getFilter(), timeAttributeId);
+  }
+}
@@ -0,0 +1,154 @@
+package org.hypertrace.gateway.service.common.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.hypertrace.gateway.service.v1.common.Column;
+import org.hypertrace.gateway.service.v1.common.ColumnarRows;
+import org.hypertrace.gateway.service.v1.common.Health;
+import org.hypertrace.gateway.service.v1.common.Interval;
+import org.hypertrace.gateway.service.v1.common.MetricSeries;
+import org.hypertrace.gateway.service.v1.common.RowOrBuilder;
+import org.hypertrace.gateway.service.v1.common.Value;
+import org.hypertrace.gateway.service.v1.common.ValueType;
+
+/**
+ * Encodes rows and metric series column by column. The column names and the value types are then
+ * only sent once per column, and the values themselves as primitive arrays, with the strings
+ * dictionary encoded.
+ */
+public class ColumnarEncoder {
+  private static final String START_TIME_MILLIS_COLUMN = "start_time_millis";
+  private static final String END_TIME_MILLIS_COLUMN = "end_time_millis";
+  private static final String VALUE_COLUMN = "value";
+  private static final String HEALTH_COLUMN = "health";
+
+  public static ColumnarRows encodeRows(List<? extends RowOrBuilder> rows) {
+    Map<String, ColumnBuilder> columnBuilders = new LinkedHashMap<>();
+    for (int i = 0; i < rows.size(); i++) {
+      for (Map.Entry<String, Value> column : rows.get(i).getColumnsMap().entrySet()) {
+        columnBuilders
+            .computeIfAbsent(column.getKey(), ColumnBuilder::new)
+            .add(i, column.getValue());
+      }
+    }
+    return build(rows.size(), columnBuilders);
+  }
+
+  /** @return the series, with its intervals encoded column by column */
+  public static MetricSeries encodeSeries(MetricSeries series) {
+    Map<String, ColumnBuilder> columnBuilders = new LinkedHashMap<>();
+    ColumnBuilder startTimes = new ColumnBuilder(START_TIME_MILLIS_COLUMN);
+    ColumnBuilder endTimes = new ColumnBuilder(END_TIME_MILLIS_COLUMN);
+    ColumnBuilder values = new ColumnBuilder(VALUE_COLUMN);
+    ColumnBuilder healths = new ColumnBuilder(HEALTH_COLUMN);
+    columnBuilders.put(START_TIME_MILLIS_COLUMN, startTimes);
+    columnBuilders.put(END_TIME_MILLIS_COLUMN, endTimes);
+    columnBuilders.put(VALUE_COLUMN, values);
+    for (int i = 0; i < series.getValueCount(); i++) {
+      Interval interval = series.getValue(i);
+      startTimes.add(i, longValue(interval.getStartTimeMillis()));
+      endTimes.add(i, longValue(interval.getEndTimeMillis()));
+      if (interval.hasValue()) {
+        values.add(i, interval.getValue());
+      }
+      if (interval.getHealth() != Health.NOT_COMPUTED) {
+        healths.add(i, stringValue(interval.getHealth().name()));
+        columnBuilders.putIfAbsent(HEALTH_COLUMN, healths);
+      }
+    }
+    return MetricSeries.newBuilder(series)
+        .clearValue()
+        .setColumnarValue(build(series.getValueCount(), columnBuilders))
+        .build();
+  }
+
+  private static ColumnarRows build(int rowCount, Map<String, ColumnBuilder> columnBuilders) {
+    ColumnarRows.Builder builder = ColumnarRows.newBuilder().setRowCount(rowCount);
+    columnBuilders
+        .values()
+        .forEach(columnBuilder -> builder.addColumn(columnBuilder.build(rowCount)));
+    return builder.build();
+  }
+
+  private static Value longValue(long value) {
+    return Value.newBuilder().setValueType(ValueType.LONG).setLong(value).build();
+  }
+
+  private static Value stringValue(String value) {
+    return Value.newBuilder().setValueType(ValueType.STRING).setString(value).build();
+  }
+
+  private static class ColumnBuilder {
+    private final Column.Builder builder;
+    private final List<Value> values = new ArrayList<>();
+    private int nextRow = 0;
+
+    private ColumnBuilder(String name) {
+      this.builder = Column.newBuilder().setName(name);
+    }
+
+    private void add(int row, Value value) {
+      addMissingRows(row);
+      values.add(value);
+      nextRow = row + 1;
+    }
+
+    private void addMissingRows(int row) {
+      for (; nextRow < row; nextRow++) {
+        builder.addMissingRow(nextRow);
+      }
+    }
+
+    private Column build(int rowCount) {
+      addMissingRows(rowCount);
+      ValueType valueType = getValueType();
+      builder.setValueType(valueType);
+      switch (valueType) {
+        case LONG:
+          values.forEach(value -> builder.addLongValue(value.getLong()));
+          break;
+        case TIMESTAMP:
+          values.forEach(value -> builder.addLongValue(value.getTimestamp()));
+          break;
+        case DOUBLE:
+          values.forEach(value -> builder.addDoubleValue(value.getDouble()));
+          break;
+        case BOOL:
+          values.forEach(value -> builder.addBooleanValue(value.getBoolean()));
+          break;
+        case STRING:
+          Map<String, Integer> dictionary = new HashMap<>();
+          for (Value value : values) {
+            Integer index = dictionary.get(value.getString());
+            if (index == null) {
+              index = dictionary.size();
+              dictionary.put(value.getString(), index);
+              builder.addDictionary(value.getString());
+            }
+            builder.addStringIndex(index);
+          }
+          break;
+        default:
+          builder.addAllValue(values);
+      }
+      return builder.build();
+    }
+
+    /** @return the value type of all the values, or UNSET if they are of different types */
+    private ValueType getValueType() {
+      if (values.isEmpty()) {
+        return ValueType.UNSET;
+      }
+      ValueType valueType = values.get(0).getValueType();
+      for (Value value : values) {
+        if (value.getValueType() != valueType) {
+          return ValueType.UNSET;
+        }
+      }
+      return valueType;
+    }
+  }
+}
@@ -0,0 +1,248 @@
+package org.hypertrace.gateway.service.common.util;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.hypertrace.gateway.service.v1.common.Expression;
+import org.hypertrace.gateway.service.v1.common.Filter;
+import org.hypertrace.gateway.service.v1.common.LiteralConstant;
+import org.hypertrace.gateway.service.v1.common.Operator;
+import org.hypertrace.gateway.service.v1.common.OrderByExpression;
+import org.hypertrace.gateway.service.v1.common.Row;
+import org.hypertrace.gateway.service.v1.common.SortOrder;
+import org.hypertrace.gateway.service.v1.common.Value;
+import org.hypertrace.gateway.service.v1.common.ValueType;
+
+/**
+ * Keyset (seek) pagination of records, like traces, spans and log events.
+ *
+ * <p>Paging with an offset makes the data store read and discard all the records before the page,
+ * so the deeper the page, the more expensive it is. Instead, the page token of the next page holds
+ * the values of the last record of the page for the attributes the records are ordered by, followed
+ * by the id attributes of the records as tie-breakers. The next page is then fetched with a range
+ * filter starting at these values, which costs the same no matter how deep the page is.
+ *
+ * <p>The range is inclusive of the last record's values, and the records having exactly these
+ * values, which were already returned, are skipped with an offset. This is only ever more than 1 if
+ * the records have no unique id to break the ties with.
+ *
+ * <p>One instance paginates a single request, and collects the values of the records fetched for it
+ * to create the token of the next page with.
+ */
+public class KeysetPagination {
+  private static final String KEYSET_ALIAS_PREFIX = "__keyset_";
+  private static final String PAGE_TOKEN_DELIMITER = ".";
+
+  private final List<String> keysetAttributeIds;
+  private final List<SortOrder> sortOrders;
+  private final Map<String, Value> pageTokenValues;
+  private final int pageTokenOffset;
+
+  private Map<String, Value> lastRowValues;
+  private int lastRowValuesCount;
+  private int rowCount = 0;
+
+  private KeysetPagination(
+      List<String> keysetAttributeIds,
+      List<SortOrder> sortOrders,
+      Map<String, Value> pageTokenValues,
+      int pageTokenOffset) {
+    this.keysetAttributeIds = keysetAttributeIds;
+    this.sortOrders = sortOrders;
+    this.pageTokenValues = pageTokenValues;
+    this.pageTokenOffset = pageTokenOffset;
+    this.lastRowValues = pageTokenValues;
+    this.lastRowValuesCount = pageTokenOffset;
+  }
+
+  /**
+   * @return the keyset pagination of the request, or empty if the records cannot be paginated by
+   *     keyset, since they are not ordered by attributes only
+   * @throws IllegalArgumentException if a page token is given, but it cannot be used
+   */
+  public static Optional<KeysetPagination> of(
+      List<OrderByExpression> orderByList, List<String> idAttributeIds, String pageToken) {
+    List<String> keysetAttributeIds = new ArrayList<>();
+    List<SortOrder> sortOrders = new ArrayList<>();
+    for (OrderByExpression orderByExpression : orderByList) {
+      if (!ExpressionReader.isAttributeSelection(orderByExpression.getExpression())) {
+        return empty(pageToken);
+      }
+      Optional<String> attributeId =
+          ExpressionReader.getAttributeIdFromAttributeSelection(orderByExpression.getExpression());
+      if (attributeId.isPresent() && !keysetAttributeIds.contains(attributeId.get())) {
+        keysetAttributeIds.add(attributeId.get());
+        sortOrders.add(orderByExpression.getOrder());
+      }
+    }
+    for (String idAttributeId : idAttributeIds) {
+      if (!keysetAttributeIds.contains(idAttributeId)) {
+        keysetAttributeIds.add(idAttributeId);
+        sortOrders.add(SortOrder.ASC);
+      }
+    }
+    if (keysetAttributeIds.isEmpty()) {
+      return empty(pageToken);
+    }
+
+    if (pageToken.isEmpty()) {
+      return Optional.of(new KeysetPagination(keysetAttributeIds, sortOrders, Map.of(), 0));
+    }
+    int delimiterIndex = pageToken.indexOf(PAGE_TOKEN_DELIMITER);
+    try {
+      int offset = Integer.parseInt(pageToken.substring(0, delimiterIndex));
+      Map<String, Value> values =
+          Row.parseFrom(Base64.getUrlDecoder().decode(pageToken.substring(delimiterIndex + 1)))
+              .getColumnsMap();
+      if (offset < 0 || !values.keySet().containsAll(keysetAttributeIds)) {
+        throw new IllegalArgumentException("Page token does not match the order of the request");
+      }
+      // an unset value can't be compared to, so it can't be the start of the range
+      if (keysetAttributeIds.stream()
+          .anyMatch(attributeId -> values.get(attributeId).getValueType() == ValueType.UNSET)) {
+        throw new IllegalArgumentException("Page token has no value to seek from");
+      }
+      return Optional.of(new KeysetPagination(keysetAttributeIds, sortOrders, values, offset));
+    } catch (IndexOutOfBoundsException | NumberFormatException | InvalidProtocolBufferException e) {
+      throw new IllegalArgumentException("Invalid page token: " + pageToken, e);
+    }
+  }
+
+  private static Optional<KeysetPagination> empty(String pageToken) {
+    if (!pageToken.isEmpty()) {
+      throw new IllegalArgumentException(
+          "Page token is only supported for requests ordered by attributes");
+    }
+    return Optional.empty();
+  }
+
+  /** @return the order by of the request, followed by the tie-breakers */
+  public List<OrderByExpression> getOrderByList() {
+    return IntStream.range(0, keysetAttributeIds.size())
+        .mapToObj(
+            i ->
+                OrderByExpression.newBuilder()
+                    .setExpression(
+                        QueryExpressionUtil.buildAttributeExpression(keysetAttributeIds.get(i)))
+                    .setOrder(sortOrders.get(i))
+                    .build())
+        .collect(Collectors.toUnmodifiableList());
+  }
+
+  /** @return the selections to read the values of the next page token from */
+  public List<Expression> getSelections() {
+    return IntStream.range(0, keysetAttributeIds.size())
+        .mapToObj(
+            i ->
+                QueryExpressionUtil.buildAttributeExpression(
+                        keysetAttributeIds.get(i), KEYSET_ALIAS_PREFIX + i)
+                    .build())
+        .collect(Collectors.toUnmodifiableList());
+  }
+
+  /** @return whether the result column is one of {@link #getSelections()} */
+  public boolean isKeysetColumn(String columnName) {
+    return columnName.startsWith(KEYSET_ALIAS_PREFIX);
+  }
+
+  /** @return the filter of the request, narrowed to the records from the page token on */
+  public Filter getFilter(Filter filter) {
+    if (pageTokenValues.isEmpty()) {
+      return filter;
+    }
+
+    // (k1 > v1) OR (k1 = v1 AND k2 > v2) OR ... OR (k1 = v1 AND ... AND kn >= vn)
+    Filter.Builder keysetFilterBuilder = Filter.newBuilder().setOperator(Operator.OR);
+    for (int i = 0; i < keysetAttributeIds.size(); i++) {
+      Filter.Builder rangeFilterBuilder = Filter.newBuilder().setOperator(Operator.AND);
+      for (int j = 0; j < i; j++) {
+        rangeFilterBuilder.addChildFilter(createKeysetFilter(j, Operator.EQ));
+      }
+      boolean last = i == keysetAttributeIds.size() - 1;
+      Operator operator =
+          sortOrders.get(i) == SortOrder.DESC
+              ? (last ? Operator.LE : Operator.LT)
+              : (last ? Operator.GE : Operator.GT);
+      keysetFilterBuilder.addChildFilter(
+          rangeFilterBuilder.addChildFilter(createKeysetFilter(i, operator)));
+    }
+
+    if (Filter.getDefaultInstance().equals(filter)) {
+      return keysetFilterBuilder.build();
+    }
+    return Filter.newBuilder()
+        .setOperator(Operator.AND)
+        .addChildFilter(filter)
+        .addChildFilter(keysetFilterBuilder)
+        .build();
+  }
+
+  private Filter createKeysetFilter(int i, Operator operator) {
+    String attributeId = keysetAttributeIds.get(i);
+    return Filter.newBuilder()
+        .setLhs(QueryExpressionUtil.buildAttributeExpression(attributeId))
+        .setOperator(operator)
+        .setRhs(
+            Expression.newBuilder()
+                .setLiteral(
+                    LiteralConstant.newBuilder().setValue(pageTokenValues.get(attributeId))))
+        .build();
+  }
+
+  /** @return the number of records to skip, which were returned with the previous pages */
+  public int getOffset() {
+    return pageTokenOffset;
+  }
+
+  /**
+   * @param requestedOffset offset of the request, which only applies to the first page
+   * @return the number of records to skip
+   */
+  public int getOffset(int requestedOffset) {
+    return pageTokenValues.isEmpty() ? requestedOffset : pageTokenOffset;
+  }
+
+  /**
+   * Collects the values of a fetched record for the next page token
+   *
+   * @param keysetValues values of the record, keyed by the names of the keyset columns
+   */
+  public void addRow(Map<String, Value> keysetValues) {
+    Map<String, Value> rowValues = new LinkedHashMap<>();
+    for (int i = 0; i < keysetAttributeIds.size(); i++) {
+      rowValues.put(
+          keysetAttributeIds.get(i),
+          keysetValues.getOrDefault(KEYSET_ALIAS_PREFIX + i, Value.getDefaultInstance()));
+    }
+    if (rowValues.equals(lastRowValues)) {
+      lastRowValuesCount++;
+    } else {
+      lastRowValues = rowValues;
+      lastRowValuesCount = 1;
+    }
+    rowCount++;
+  }
+
+  /**
+   * @return the token of the next page, or empty if the page was not full, hence there are no
+   *     records after it
+   */
+  public Optional<String> getNextPageToken(int limit) {
+    if (limit <= 0 || rowCount < limit) {
+      return Optional.empty();
+    }
+    return Optional.of(
+        lastRowValuesCount
+            + PAGE_TOKEN_DELIMITER
+            + Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(
+                    Row.newBuilder().putAllColumns(lastRowValues).build().toByteArray()));
+  }
+}
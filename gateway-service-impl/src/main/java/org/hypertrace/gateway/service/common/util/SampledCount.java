@@ -0,0 +1,80 @@
+package org.hypertrace.gateway.service.common.util;
+
+import static org.hypertrace.gateway.service.common.converters.QueryRequestUtil.createBetweenTimesFilter;
+import static org.hypertrace.gateway.service.common.converters.QueryRequestUtil.createCompositeFilter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.hypertrace.core.query.service.api.Filter;
+import org.hypertrace.core.query.service.api.Operator;
+
+/**
+ * Estimates a count over a time range from the count over a sample of it.
+ *
+ * <p>The time range is split into equal strata, and only a slice at the start of each stratum is
+ * counted. The count of the slices is then scaled up to the whole time range. Spreading the sample
+ * over the whole range keeps the estimate close for traffic that varies over time, while the sample
+ * is the same for the same time range, so repeated requests return the same estimate.
+ *
+ * <p>Short time ranges are cheap enough to be counted exactly, so they are not sampled.
+ */
+public class SampledCount {
+  static final int STRATA = 10;
+  static final double SAMPLE_FRACTION = 0.1;
+  static final long MIN_SAMPLED_RANGE_MILLIS = 60 * 60 * 1000L;
+
+  private final long startTimeMillis;
+  private final long endTimeMillis;
+  private final long sliceMillis;
+
+  private SampledCount(long startTimeMillis, long endTimeMillis) {
+    this.startTimeMillis = startTimeMillis;
+    this.endTimeMillis = endTimeMillis;
+    this.sliceMillis = (long) ((endTimeMillis - startTimeMillis) * SAMPLE_FRACTION / STRATA);
+  }
+
+  /** @return the sampled count of the time range, or empty if it should be counted exactly */
+  public static Optional<SampledCount> of(long startTimeMillis, long endTimeMillis) {
+    if (endTimeMillis - startTimeMillis < MIN_SAMPLED_RANGE_MILLIS) {
+      return Optional.empty();
+    }
+    return Optional.of(new SampledCount(startTimeMillis, endTimeMillis));
+  }
+
+  /** @return the filter on the timestamp attribute to apply to the count query */
+  public Filter createSampleFilter(String timestampAttributeId) {
+    List<Filter> sliceFilters = new ArrayList<>(STRATA);
+    long strataMillis = (endTimeMillis - startTimeMillis) / STRATA;
+    for (int i = 0; i < STRATA; i++) {
+      long sliceStartTimeMillis = startTimeMillis + i * strataMillis;
+      sliceFilters.add(
+          createBetweenTimesFilter(
+              timestampAttributeId, sliceStartTimeMillis, sliceStartTimeMillis + sliceMillis));
+    }
+    return createCompositeFilter(Operator.OR, sliceFilters);
+  }
+
+  /** @return the count of the whole time range, estimated from the count of the sample */
+  public long estimate(long sampledCount) {
+    return Math.round(
+        sampledCount * (double) (endTimeMillis - startTimeMillis) / getSampledMillis());
+  }
+
+  /**
+   * @return the relative standard error of the estimate. Every counted row is in the sample with
+   *     the sampled fraction of the time range as probability, so the error shrinks with the square
+   *     root of the sampled count. Nothing can be told from an empty sample, hence 1.
+   */
+  public double getRelativeError(long sampledCount) {
+    if (sampledCount <= 0) {
+      return 1.0;
+    }
+    double sampledFraction = (double) getSampledMillis() / (endTimeMillis - startTimeMillis);
+    return Math.sqrt((1 - sampledFraction) / sampledCount);
+  }
+
+  private long getSampledMillis() {
+    return sliceMillis * STRATA;
+  }
+}
@@ -0,0 +1,149 @@
+package org.hypertrace.gateway.service.common.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+import org.hypertrace.gateway.service.v1.common.Downsampling;
+import org.hypertrace.gateway.service.v1.common.Interval;
+import org.hypertrace.gateway.service.v1.common.MetricSeries;
+import org.hypertrace.gateway.service.v1.common.TimeAggregation;
+import org.hypertrace.gateway.service.v1.common.Value;
+
+/**
+ * Downsamples time series to the maximum number of points of their {@link TimeAggregation}, keeping
+ * their shape, since a chart can't draw more points than it has pixels anyway.
+ */
+public class TimeSeriesDownsampler {
+
+  /**
+   * @param series the series, with its intervals sorted by time
+   * @return the series, downsampled to the max points of its time aggregation
+   */
+  public static MetricSeries downsample(MetricSeries series, TimeAggregation timeAggregation) {
+    if (timeAggregation == null
+        || timeAggregation.getMaxPoints() <= 0
+        || series.getValueCount() <= timeAggregation.getMaxPoints()) {
+      return series;
+    }
+    List<Interval> intervals =
+        downsample(
+            series.getValueList(),
+            Interval::getStartTimeMillis,
+            interval -> toDouble(interval.getValue()),
+            timeAggregation.getMaxPoints(),
+            timeAggregation.getDownsampling());
+    return MetricSeries.newBuilder(series).clearValue().addAllValue(intervals).build();
+  }
+
+  /**
+   * @param points the points of the series, sorted by time
+   * @return at most maxPoints of the points, in the same order
+   */
+  public static <T> List<T> downsample(
+      List<T> points,
+      ToLongFunction<T> time,
+      ToDoubleFunction<T> value,
+      int maxPoints,
+      Downsampling downsampling) {
+    if (maxPoints <= 0 || points.size() <= maxPoints) {
+      return points;
+    }
+    if (maxPoints < 3) {
+      return maxPoints == 1
+          ? List.of(points.get(0))
+          : List.of(points.get(0), points.get(points.size() - 1));
+    }
+    return downsampling == Downsampling.MIN_MAX
+        ? downsampleMinMax(points, value, maxPoints)
+        : downsampleLttb(points, time, value, maxPoints);
+  }
+
+  /**
+   * Largest-Triangle-Three-Buckets. The first and the last points are kept, and the points in
+   * between are split into maxPoints - 2 buckets. Of each bucket, the point forming the largest
+   * triangle with the point kept of the previous bucket and the average point of the next bucket is
+   * kept.
+   */
+  private static <T> List<T> downsampleLttb(
+      List<T> points, ToLongFunction<T> time, ToDoubleFunction<T> value, int maxPoints) {
+    int size = points.size();
+    double bucketSize = (double) (size - 2) / (maxPoints - 2);
+    List<T> sampled = new ArrayList<>(maxPoints);
+    T previous = points.get(0);
+    sampled.add(previous);
+    for (int bucket = 0; bucket < maxPoints - 2; bucket++) {
+      int nextStart = (int) ((bucket + 1) * bucketSize) + 1;
+      int nextEnd = Math.min((int) ((bucket + 2) * bucketSize) + 1, size);
+      double averageTime = 0;
+      double averageValue = 0;
+      for (int i = nextStart; i < nextEnd; i++) {
+        averageTime += time.applyAsLong(points.get(i));
+        averageValue += value.applyAsDouble(points.get(i));
+      }
+      averageTime /= Math.max(1, nextEnd - nextStart);
+      averageValue /= Math.max(1, nextEnd - nextStart);
+
+      double previousTime = time.applyAsLong(previous);
+      double previousValue = value.applyAsDouble(previous);
+      double maxArea = -1;
+      T selected = null;
+      for (int i = (int) (bucket * bucketSize) + 1; i < nextStart; i++) {
+        T point = points.get(i);
+        double area =
+            Math.abs(
+                (previousTime - averageTime) * (value.applyAsDouble(point) - previousValue)
+                    - (previousTime - time.applyAsLong(point)) * (averageValue - previousValue));
+        if (area > maxArea) {
+          maxArea = area;
+          selected = point;
+        }
+      }
+      sampled.add(selected);
+      previous = selected;
+    }
+    sampled.add(points.get(size - 1));
+    return sampled;
+  }
+
+  /** Splits the points into maxPoints / 2 buckets, and keeps the min and max point of each */
+  private static <T> List<T> downsampleMinMax(
+      List<T> points, ToDoubleFunction<T> value, int maxPoints) {
+    int bucketCount = maxPoints / 2;
+    int bucketSize = (points.size() + bucketCount - 1) / bucketCount;
+    List<T> sampled = new ArrayList<>(maxPoints);
+    for (int start = 0; start < points.size(); start += bucketSize) {
+      int end = Math.min(start + bucketSize, points.size());
+      int min = start;
+      int max = start;
+      for (int i = start + 1; i < end; i++) {
+        double pointValue = value.applyAsDouble(points.get(i));
+        if (pointValue < value.applyAsDouble(points.get(min))) {
+          min = i;
+        }
+        if (pointValue > value.applyAsDouble(points.get(max))) {
+          max = i;
+        }
+      }
+      sampled.add(points.get(Math.min(min, max)));
+      if (min != max) {
+        sampled.add(points.get(Math.max(min, max)));
+      }
+    }
+    return sampled;
+  }
+
+  /** @return the numeric value, or 0 if the value is not a number */
+  public static double toDouble(Value value) {
+    switch (value.getValueType()) {
+      case LONG:
+        return value.getLong();
+      case DOUBLE:
+        return value.getDouble();
+      case TIMESTAMP:
+        return value.getTimestamp();
+      default:
+        return 0;
+    }
+  }
+}
@@ -7,35 +7,48 @@ import io.micrometer.core.instrument.Timer;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.apache.commons.lang3.StringUtils;
 import org.hypertrace.core.attribute.service.v1.AttributeMetadata;
 import org.hypertrace.core.attribute.service.v1.AttributeSource;
-import org.hypertrace.core.query.service.client.QueryServiceClient;
 import org.hypertrace.core.serviceframework.metrics.PlatformMetricsRegistry;
 import org.hypertrace.entity.query.service.client.EntityQueryServiceClient;
 import org.hypertrace.gateway.service.common.AttributeMetadataProvider;
 import org.hypertrace.gateway.service.common.OrderByPercentileSizeSetter;
+import org.hypertrace.gateway.service.common.QueryServiceExecutor;
 import org.hypertrace.gateway.service.common.RequestContext;
 import org.hypertrace.gateway.service.common.config.ScopeFilterConfigs;
+import org.hypertrace.gateway.service.common.converters.ValueInternerFactory;
 import org.hypertrace.gateway.service.common.datafetcher.EntityDataServiceEntityFetcher;
-import org.hypertrace.gateway.service.common.datafetcher.EntityFetcherResponse;
 import org.hypertrace.gateway.service.common.datafetcher.EntityInteractionsFetcher;
 import org.hypertrace.gateway.service.common.datafetcher.EntityResponse;
 import org.hypertrace.gateway.service.common.datafetcher.QueryServiceEntityFetcher;
 import org.hypertrace.gateway.service.common.transformer.RequestPreProcessor;
 import org.hypertrace.gateway.service.common.transformer.ResponsePostProcessor;
 import org.hypertrace.gateway.service.common.util.AttributeMetadataUtil;
+import org.hypertrace.gateway.service.common.util.ColumnarEncoder;
+import org.hypertrace.gateway.service.common.util.QueryExpressionUtil;
 import org.hypertrace.gateway.service.entity.config.EntityIdColumnsConfigs;
 import org.hypertrace.gateway.service.entity.config.LogConfig;
+import org.hypertrace.gateway.service.entity.query.EntitySnapshotStore;
+import org.hypertrace.gateway.service.entity.query.EntitySnapshotStore.EntitySnapshot;
+import org.hypertrace.gateway.service.entity.query.EntityTotalCache;
 import org.hypertrace.gateway.service.entity.query.ExecutionContext;
+import org.hypertrace.gateway.service.entity.query.ExecutionPlanCache;
 import org.hypertrace.gateway.service.entity.query.ExecutionTreeBuilder;
 import org.hypertrace.gateway.service.entity.query.QueryNode;
+import org.hypertrace.gateway.service.entity.query.planner.SourceStatisticsRegistry;
 import org.hypertrace.gateway.service.entity.query.visitor.ExecutionVisitor;
 import org.hypertrace.gateway.service.entity.update.EdsEntityUpdater;
 import org.hypertrace.gateway.service.entity.update.UpdateExecutionContext;
+import org.hypertrace.gateway.service.v1.common.Filter;
+import org.hypertrace.gateway.service.v1.common.MetricSeries;
+import org.hypertrace.gateway.service.v1.common.Operator;
 import org.hypertrace.gateway.service.v1.entity.BulkUpdateEntitiesRequest;
 import org.hypertrace.gateway.service.v1.entity.BulkUpdateEntitiesResponse;
 import org.hypertrace.gateway.service.v1.entity.EntitiesRequest;
@@ -68,18 +81,24 @@ public class EntityService {
   private final ResponsePostProcessor responsePostProcessor;
   private final EdsEntityUpdater edsEntityUpdater;
   private final LogConfig logConfig;
+  private final ExecutionPlanCache executionPlanCache = new ExecutionPlanCache();
+  private final EntityTotalCache entityTotalCache;
+  private final EntitySnapshotStore entitySnapshotStore;
   // Metrics
   private Timer queryBuildTimer;
   private Timer queryExecutionTimer;
 
   public EntityService(
-      QueryServiceClient qsClient,
+      QueryServiceExecutor qsClient,
       int qsRequestTimeout,
       EntityQueryServiceClient edsQueryServiceClient,
       AttributeMetadataProvider metadataProvider,
       EntityIdColumnsConfigs entityIdColumnsConfigs,
       ScopeFilterConfigs scopeFilterConfigs,
-      LogConfig logConfig) {
+      LogConfig logConfig,
+      ValueInternerFactory valueInternerFactory,
+      EntityTotalCache entityTotalCache,
+      EntitySnapshotStore entitySnapshotStore) {
     this.metadataProvider = metadataProvider;
     this.entityIdColumnsConfigs = entityIdColumnsConfigs;
     this.interactionsFetcher =
@@ -88,20 +107,27 @@ public class EntityService {
     this.responsePostProcessor = new ResponsePostProcessor();
     this.edsEntityUpdater = new EdsEntityUpdater(edsQueryServiceClient);
     this.logConfig = logConfig;
+    this.entityTotalCache = entityTotalCache;
+    this.entitySnapshotStore = entitySnapshotStore;
 
-    registerEntityFetchers(qsClient, qsRequestTimeout, edsQueryServiceClient);
+    registerEntityFetchers(qsClient, qsRequestTimeout, edsQueryServiceClient, valueInternerFactory);
     initMetrics();
   }
 
   private void registerEntityFetchers(
-      QueryServiceClient queryServiceClient,
+      QueryServiceExecutor queryServiceClient,
       int qsRequestTimeout,
-      EntityQueryServiceClient edsQueryServiceClient) {
+      EntityQueryServiceClient edsQueryServiceClient,
+      ValueInternerFactory valueInternerFactory) {
     EntityQueryHandlerRegistry registry = EntityQueryHandlerRegistry.get();
     registry.registerEntityFetcher(
         AttributeSource.QS.name(),
         new QueryServiceEntityFetcher(
-            queryServiceClient, qsRequestTimeout, metadataProvider, entityIdColumnsConfigs));
+            queryServiceClient,
+            qsRequestTimeout,
+            metadataProvider,
+            entityIdColumnsConfigs,
+            valueInternerFactory));
     registry.registerEntityFetcher(
         AttributeSource.EDS.name(),
         new EntityDataServiceEntityFetcher(
@@ -123,10 +149,14 @@ public class EntityService {
    * <ul>
    *   <li>1) Construct the filter tree from the filter condition in the query
    *   <li>2) Optimize the filter tree by merging nodes corresponding to the same data source
-   *   <li>3) Constructs the complete execution tree
+   *   <li>3) Constructs the complete execution tree, fusing the selection steps made for the same
+   *       entities
    *   <li>4) Passes the execution tree through the ExecutionVisitor to get the result
    *   <li>5) Adds entity interaction data if requested for
    * </ul>
+   *
+   * <p>In cursor mode, the steps are run once for the sorted keys of all the entities, which are
+   * kept in a snapshot, and then for the entities on the requested page of the snapshot only.
    */
   public EntitiesResponse getEntities(
       String tenantId, EntitiesRequest originalRequest, Map<String, String> requestHeaders) {
@@ -151,9 +181,147 @@ public class EntityService {
     EntitiesRequest preProcessedRequest =
         requestPreProcessor.process(originalRequest, entitiesRequestContext);
 
+    EntitiesResponse.Builder responseBuilder =
+        preProcessedRequest.getUseCursor()
+            ? getEntitiesPage(start, entitiesRequestContext, preProcessedRequest)
+            : fetchEntities(start, entitiesRequestContext, preProcessedRequest);
+
+    long queryExecutionTime = Duration.between(start, Instant.now()).toMillis();
+    if (queryExecutionTime > logConfig.getQueryThresholdInMillis()) {
+      LOG.info(
+          "Total query execution took: {}(ms) for request: {}",
+          queryExecutionTime,
+          originalRequest);
+    }
+
+    queryExecutionTimer.record(queryExecutionTime, TimeUnit.MILLISECONDS);
+    return responseBuilder.build();
+  }
+
+  private EntitiesResponse.Builder fetchEntities(
+      Instant start, EntitiesRequestContext entitiesRequestContext, EntitiesRequest request) {
+    ExecutionContext executionContext = createExecutionContext(entitiesRequestContext, request);
+    EntityResponse response = execute(start, executionContext);
+    return buildResponse(
+            entitiesRequestContext,
+            request,
+            executionContext,
+            response.getEntityFetcherResponse().getEntityKeyBuilderMap())
+        .setTotal(Long.valueOf(response.getTotal()).intValue())
+        .setTotalRelativeError(executionContext.getTotalRelativeError());
+  }
+
+  /**
+   * Gets the requested page from the snapshot identified by the cursor of the request. The snapshot
+   * is taken if there is no cursor, or the snapshot expired in the meantime. The entities of the
+   * page are then fetched by their keys, without sorting them again. Entities that no longer match
+   * the request are left out of the page.
+   */
+  private EntitiesResponse.Builder getEntitiesPage(
+      Instant start, EntitiesRequestContext entitiesRequestContext, EntitiesRequest request) {
+    EntitySnapshot snapshot =
+        entitySnapshotStore
+            .get(entitiesRequestContext.getTenantId(), request)
+            .orElseGet(() -> takeSnapshot(start, entitiesRequestContext, request));
+
+    List<EntityKey> pageEntityKeys = snapshot.getPage(request.getOffset(), request.getLimit());
+    Map<EntityKey, Builder> entityKeyBuilderMap = new LinkedHashMap<>();
+    EntitiesResponse.Builder responseBuilder = EntitiesResponse.newBuilder();
+    if (!pageEntityKeys.isEmpty()) {
+      EntitiesRequest pageRequest =
+          createPageRequest(entitiesRequestContext, request, pageEntityKeys);
+      ExecutionContext executionContext =
+          createExecutionContext(entitiesRequestContext, pageRequest);
+      Map<EntityKey, Builder> pageEntityKeyBuilderMap =
+          execute(start, executionContext).getEntityFetcherResponse().getEntityKeyBuilderMap();
+      // keep the order of the snapshot
+      pageEntityKeys.stream()
+          .filter(pageEntityKeyBuilderMap::containsKey)
+          .forEach(
+              entityKey ->
+                  entityKeyBuilderMap.put(entityKey, pageEntityKeyBuilderMap.get(entityKey)));
+      responseBuilder =
+          buildResponse(entitiesRequestContext, request, executionContext, entityKeyBuilderMap);
+    }
+
+    return responseBuilder
+        .setTotal(Long.valueOf(snapshot.getTotal()).intValue())
+        .setTotalRelativeError(snapshot.getTotalRelativeError())
+        .setCursor(snapshot.getCursor());
+  }
+
+  private EntitySnapshot takeSnapshot(
+      Instant start, EntitiesRequestContext entitiesRequestContext, EntitiesRequest request) {
+    // only the entity keys are needed, in the requested order
+    EntitiesRequest entityKeysRequest =
+        EntitiesRequest.newBuilder(request)
+            .clearSelection()
+            .clearTimeAggregation()
+            .clearIncomingInteractions()
+            .clearOutgoingInteractions()
+            .setLimit(entitySnapshotStore.getMaxEntities())
+            .setOffset(0)
+            .build();
     ExecutionContext executionContext =
-        ExecutionContext.from(
-            metadataProvider, entityIdColumnsConfigs, preProcessedRequest, entitiesRequestContext);
+        createExecutionContext(entitiesRequestContext, entityKeysRequest);
+    EntityResponse response = execute(start, executionContext);
+    return entitySnapshotStore.put(
+        entitiesRequestContext.getTenantId(),
+        request,
+        new ArrayList<>(response.getEntityFetcherResponse().getEntityKeyBuilderMap().keySet()),
+        response.getTotal(),
+        executionContext.getTotalRelativeError());
+  }
+
+  private EntitiesRequest createPageRequest(
+      EntitiesRequestContext entitiesRequestContext,
+      EntitiesRequest request,
+      List<EntityKey> pageEntityKeys) {
+    List<String> entityIdAttributeIds =
+        AttributeMetadataUtil.getIdAttributeIds(
+            metadataProvider,
+            entityIdColumnsConfigs,
+            entitiesRequestContext,
+            request.getEntityType());
+    Filter entityKeysFilter =
+        ExecutionVisitor.createEntityKeysFilter(
+            IntStream.range(0, entityIdAttributeIds.size())
+                .mapToObj(
+                    value ->
+                        QueryExpressionUtil.buildAttributeExpression(
+                                entityIdAttributeIds.get(value), "entityId" + value)
+                            .build())
+                .collect(Collectors.toList()),
+            pageEntityKeys);
+    return EntitiesRequest.newBuilder(request)
+        .setFilter(
+            Filter.getDefaultInstance().equals(request.getFilter())
+                ? entityKeysFilter
+                : Filter.newBuilder()
+                    .setOperator(Operator.AND)
+                    .addChildFilter(request.getFilter())
+                    .addChildFilter(entityKeysFilter)
+                    .build())
+        .clearOrderBy()
+        .setLimit(pageEntityKeys.size())
+        .setOffset(0)
+        .setFetchTotal(false)
+        .clearUseCursor()
+        .clearCursor()
+        .build();
+  }
+
+  private ExecutionContext createExecutionContext(
+      EntitiesRequestContext entitiesRequestContext, EntitiesRequest request) {
+    return ExecutionContext.from(
+        metadataProvider,
+        entityIdColumnsConfigs,
+        request,
+        entitiesRequestContext,
+        executionPlanCache);
+  }
+
+  private EntityResponse execute(Instant start, ExecutionContext executionContext) {
     ExecutionTreeBuilder executionTreeBuilder = new ExecutionTreeBuilder(executionContext);
     QueryNode executionTree = executionTreeBuilder.build();
     queryBuildTimer.record(
@@ -163,41 +331,48 @@ public class EntityService {
      * EntityQueryHandlerRegistry.get() returns Singleton object, so, it's guaranteed that
      * it won't create new object for each request.
      */
-    EntityResponse response =
-        executionTree.acceptVisitor(
-            new ExecutionVisitor(executionContext, EntityQueryHandlerRegistry.get()));
-
-    EntityFetcherResponse entityFetcherResponse = response.getEntityFetcherResponse();
+    return executionTree.acceptVisitor(
+        new ExecutionVisitor(
+            executionContext,
+            EntityQueryHandlerRegistry.get(),
+            SourceStatisticsRegistry.get(),
+            entityTotalCache));
+  }
 
+  private EntitiesResponse.Builder buildResponse(
+      EntitiesRequestContext entitiesRequestContext,
+      EntitiesRequest request,
+      ExecutionContext executionContext,
+      Map<EntityKey, Builder> entityKeyBuilderMap) {
     List<Entity.Builder> results =
         this.responsePostProcessor.transform(
-            executionContext,
-            new ArrayList<>(entityFetcherResponse.getEntityKeyBuilderMap().values()));
+            executionContext, new ArrayList<>(entityKeyBuilderMap.values()));
 
     // Add interactions.
     if (!results.isEmpty()) {
       addEntityInteractions(
-          tenantId,
-          preProcessedRequest,
-          entityFetcherResponse.getEntityKeyBuilderMap(),
-          requestHeaders);
+          entitiesRequestContext.getTenantId(),
+          request,
+          entityKeyBuilderMap,
+          entitiesRequestContext.getHeaders());
     }
 
-    EntitiesResponse.Builder responseBuilder =
-        EntitiesResponse.newBuilder().setTotal(Long.valueOf(response.getTotal()).intValue());
+    if (request.getColumnarSeries()) {
+      results.forEach(EntityService::encodeMetricSeries);
+    }
 
+    EntitiesResponse.Builder responseBuilder =
+        EntitiesResponse.newBuilder().setPartial(executionContext.isPartialResult());
     results.forEach(e -> responseBuilder.addEntity(e.build()));
+    return responseBuilder;
+  }
 
-    long queryExecutionTime = Duration.between(start, Instant.now()).toMillis();
-    if (queryExecutionTime > logConfig.getQueryThresholdInMillis()) {
-      LOG.info(
-          "Total query execution took: {}(ms) for request: {}",
-          queryExecutionTime,
-          originalRequest);
-    }
-
-    queryExecutionTimer.record(queryExecutionTime, TimeUnit.MILLISECONDS);
-    return responseBuilder.build();
+  private static void encodeMetricSeries(Entity.Builder entityBuilder) {
+    Map<String, MetricSeries> metricSeriesMap =
+        new LinkedHashMap<>(entityBuilder.getMetricSeriesMap());
+    metricSeriesMap.forEach(
+        (name, metricSeries) ->
+            entityBuilder.putMetricSeries(name, ColumnarEncoder.encodeSeries(metricSeries)));
   }
 
   public UpdateEntityResponse updateEntity(
@@ -0,0 +1,155 @@
+package org.hypertrace.gateway.service.entity.query;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.hypertrace.gateway.service.entity.EntityKey;
+import org.hypertrace.gateway.service.v1.entity.EntitiesRequest;
+
+/**
+ * Store of the sorted entity keys matching a request, to page through them with a cursor.
+ *
+ * <p>Without a snapshot every page turn fetches, sorts and merges all the entities again, only to
+ * return another offset of them. With a snapshot, the entities are sorted once for the first page,
+ * and the later pages only select the attributes and metrics of the entities on that page.
+ *
+ * <p>Snapshots are only kept for a while, and are bounded in number as well as in the number of
+ * entities each of them holds.
+ */
+public class EntitySnapshotStore {
+  private static final String ENTITY_SNAPSHOT_STORE_CONFIG = "entity.snapshot.store.config";
+  private static final String MAX_SNAPSHOTS = "max.snapshots";
+  private static final String MAX_ENTITIES = "max.entities";
+  private static final String TTL_MILLIS = "ttl.millis";
+
+  private static final long DEFAULT_MAX_SNAPSHOTS = 1000;
+  private static final int DEFAULT_MAX_ENTITIES = 10000;
+  private static final long DEFAULT_TTL_MILLIS = 5 * 60 * 1000L;
+
+  private final int maxEntities;
+  private final Cache<String, EntitySnapshot> snapshots;
+
+  public EntitySnapshotStore(Config appConfig) {
+    Config storeConfig =
+        appConfig.hasPath(ENTITY_SNAPSHOT_STORE_CONFIG)
+            ? appConfig.getConfig(ENTITY_SNAPSHOT_STORE_CONFIG)
+            : ConfigFactory.empty();
+
+    long maxSnapshots =
+        storeConfig.hasPath(MAX_SNAPSHOTS)
+            ? storeConfig.getLong(MAX_SNAPSHOTS)
+            : DEFAULT_MAX_SNAPSHOTS;
+    this.maxEntities =
+        storeConfig.hasPath(MAX_ENTITIES) ? storeConfig.getInt(MAX_ENTITIES) : DEFAULT_MAX_ENTITIES;
+    long ttlMillis =
+        storeConfig.hasPath(TTL_MILLIS) ? storeConfig.getLong(TTL_MILLIS) : DEFAULT_TTL_MILLIS;
+    this.snapshots =
+        CacheBuilder.newBuilder()
+            .maximumSize(maxSnapshots)
+            .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+            .build();
+  }
+
+  /** @return the maximum number of entities a snapshot holds */
+  public int getMaxEntities() {
+    return maxEntities;
+  }
+
+  /**
+   * @return the snapshot identified by the cursor of the request, if it is still kept and was taken
+   *     for the same tenant and the same entities, i.e. the same entity type, filter, time range
+   *     and order
+   */
+  public Optional<EntitySnapshot> get(String tenantId, EntitiesRequest entitiesRequest) {
+    if (entitiesRequest.getCursor().isEmpty()) {
+      return Optional.empty();
+    }
+    return Optional.ofNullable(snapshots.getIfPresent(entitiesRequest.getCursor()))
+        .filter(
+            snapshot ->
+                snapshot.tenantId.equals(tenantId)
+                    && snapshot.entitiesRequest.equals(toSnapshotRequest(entitiesRequest)));
+  }
+
+  /** Takes a snapshot of the sorted entity keys matching the request */
+  public EntitySnapshot put(
+      String tenantId,
+      EntitiesRequest entitiesRequest,
+      List<EntityKey> entityKeys,
+      long total,
+      double totalRelativeError) {
+    EntitySnapshot snapshot =
+        new EntitySnapshot(
+            UUID.randomUUID().toString(),
+            tenantId,
+            toSnapshotRequest(entitiesRequest),
+            List.copyOf(entityKeys.subList(0, Math.min(entityKeys.size(), maxEntities))),
+            total,
+            totalRelativeError);
+    snapshots.put(snapshot.cursor, snapshot);
+    return snapshot;
+  }
+
+  private static EntitiesRequest toSnapshotRequest(EntitiesRequest entitiesRequest) {
+    return EntitiesRequest.newBuilder(entitiesRequest)
+        .clearSelection()
+        .clearTimeAggregation()
+        .clearIncomingInteractions()
+        .clearOutgoingInteractions()
+        .clearLimit()
+        .clearOffset()
+        .clearFetchTotal()
+        .clearCursor()
+        .build();
+  }
+
+  public static class EntitySnapshot {
+    private final String cursor;
+    private final String tenantId;
+    private final EntitiesRequest entitiesRequest;
+    private final List<EntityKey> entityKeys;
+    private final long total;
+    private final double totalRelativeError;
+
+    private EntitySnapshot(
+        String cursor,
+        String tenantId,
+        EntitiesRequest entitiesRequest,
+        List<EntityKey> entityKeys,
+        long total,
+        double totalRelativeError) {
+      this.cursor = cursor;
+      this.tenantId = tenantId;
+      this.entitiesRequest = entitiesRequest;
+      this.entityKeys = entityKeys;
+      this.total = total;
+      this.totalRelativeError = totalRelativeError;
+    }
+
+    public String getCursor() {
+      return cursor;
+    }
+
+    public long getTotal() {
+      return total;
+    }
+
+    public double getTotalRelativeError() {
+      return totalRelativeError;
+    }
+
+    /** @return the keys of the entities on the page. A limit of 0 returns all of the rest */
+    public List<EntityKey> getPage(int offset, int limit) {
+      if (offset >= entityKeys.size()) {
+        return List.of();
+      }
+      int end = limit > 0 ? Math.min(entityKeys.size(), offset + limit) : entityKeys.size();
+      return entityKeys.subList(offset, end);
+    }
+  }
+}
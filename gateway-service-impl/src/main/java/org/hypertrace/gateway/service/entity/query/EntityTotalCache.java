@@ -0,0 +1,104 @@
+package org.hypertrace.gateway.service.entity.query;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.hypertrace.gateway.service.v1.entity.EntitiesRequest;
+
+/**
+ * Cache of the total number of entities matching a request, per tenant and source.
+ *
+ * <p>Paging through the entities re-requests the same total for every page, although only the
+ * selections, order by, limit and offset change between the pages. So the total is keyed by the
+ * rest of the request, i.e. the entity type, filter and time range. The totals are only kept for a
+ * short while, since the entities matching a time range ending now keep changing.
+ */
+public class EntityTotalCache {
+  private static final String ENTITY_TOTAL_CACHE_CONFIG = "entity.total.cache.config";
+  private static final String ENABLED = "enabled";
+  private static final String MAX_ENTRIES = "max.entries";
+  private static final String TTL_MILLIS = "ttl.millis";
+
+  private static final boolean DEFAULT_ENABLED = false;
+  private static final long DEFAULT_MAX_ENTRIES = 10000;
+  private static final long DEFAULT_TTL_MILLIS = 60 * 1000L;
+
+  private final boolean enabled;
+  private final Cache<TotalKey, Long> totals;
+
+  public EntityTotalCache(Config appConfig) {
+    Config cacheConfig =
+        appConfig.hasPath(ENTITY_TOTAL_CACHE_CONFIG)
+            ? appConfig.getConfig(ENTITY_TOTAL_CACHE_CONFIG)
+            : ConfigFactory.empty();
+
+    this.enabled = cacheConfig.hasPath(ENABLED) ? cacheConfig.getBoolean(ENABLED) : DEFAULT_ENABLED;
+    long maxEntries =
+        cacheConfig.hasPath(MAX_ENTRIES) ? cacheConfig.getLong(MAX_ENTRIES) : DEFAULT_MAX_ENTRIES;
+    long ttlMillis =
+        cacheConfig.hasPath(TTL_MILLIS) ? cacheConfig.getLong(TTL_MILLIS) : DEFAULT_TTL_MILLIS;
+    this.totals =
+        CacheBuilder.newBuilder()
+            .maximumSize(maxEntries)
+            .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+            .build();
+  }
+
+  /** @return the cached total of the request, or the total fetched by the loader otherwise */
+  public long getTotal(
+      String tenantId, String source, EntitiesRequest entitiesRequest, LongSupplier loader) {
+    if (!enabled) {
+      return loader.getAsLong();
+    }
+
+    TotalKey totalKey = new TotalKey(tenantId, source, entitiesRequest);
+    Long total = totals.getIfPresent(totalKey);
+    if (total == null) {
+      total = loader.getAsLong();
+      totals.put(totalKey, total);
+    }
+    return total;
+  }
+
+  private static class TotalKey {
+    private final String tenantId;
+    private final String source;
+    private final EntitiesRequest entitiesRequest;
+
+    private TotalKey(String tenantId, String source, EntitiesRequest entitiesRequest) {
+      this.tenantId = tenantId;
+      this.source = source;
+      this.entitiesRequest =
+          EntitiesRequest.newBuilder(entitiesRequest)
+              .clearSelection()
+              .clearTimeAggregation()
+              .clearOrderBy()
+              .clearLimit()
+              .clearOffset()
+              .build();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      TotalKey totalKey = (TotalKey) o;
+      return tenantId.equals(totalKey.tenantId)
+          && source.equals(totalKey.source)
+          && entitiesRequest.equals(totalKey.entitiesRequest);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(tenantId, source, entitiesRequest);
+    }
+  }
+}
@@ -74,6 +74,9 @@ public class ExecutionContext {
   private final Set<String> pendingSelectionSourcesForOrderBy = new HashSet<>();
   private final Set<String> pendingMetricAggregationSourcesForOrderBy = new HashSet<>();
   private boolean sortAndPaginationNodeAdded = false;
+  // set from the threads fetching the selections in parallel
+  private volatile boolean partialResult = false;
+  private volatile double totalRelativeError = 0;
 
   // map of filter, selections (attribute, metrics, aggregations), order by attributes to source map
   private final Map<String, Set<String>> allAttributesToSourcesMap = new HashMap<>();
@@ -82,14 +85,30 @@ public class ExecutionContext {
       AttributeMetadataProvider attributeMetadataProvider,
       EntityIdColumnsConfigs entityIdColumnsConfigs,
       EntitiesRequest entitiesRequest,
-      EntitiesRequestContext entitiesRequestContext) {
+      EntitiesRequestContext entitiesRequestContext,
+      ExecutionPlanCache executionPlanCache) {
     this.attributeMetadataProvider = attributeMetadataProvider;
     this.entityIdColumnsConfigs = entityIdColumnsConfigs;
     this.entitiesRequest = entitiesRequest;
     this.entitiesRequestContext = entitiesRequestContext;
-    buildSourceToExpressionMaps();
-    buildSourceToFilterExpressionMaps();
-    buildSourceToOrderByExpressionMaps();
+    if (executionPlanCache == null) {
+      buildSourceToExpressionMaps();
+      buildSourceToFilterExpressionMaps();
+      buildSourceToOrderByExpressionMaps();
+    } else {
+      restore(
+          executionPlanCache.getOrCompile(
+              entitiesRequestContext.getTenantId(),
+              attributeMetadataProvider.getAttributesMetadata(
+                  entitiesRequestContext, entitiesRequest.getEntityType()),
+              entitiesRequest,
+              this::compile));
+    }
+    pendingSelectionSources.addAll(sourceToSelectionExpressionMap.keySet());
+    pendingMetricAggregationSources.addAll(sourceToMetricExpressionMap.keySet());
+    pendingTimeAggregationSources.addAll(sourceToTimeAggregationMap.keySet());
+    pendingSelectionSourcesForOrderBy.addAll(sourceToSelectionOrderByExpressionMap.keySet());
+    pendingMetricAggregationSourcesForOrderBy.addAll(sourceToMetricOrderByExpressionMap.keySet());
   }
 
   public static ExecutionContext from(
@@ -98,7 +117,26 @@ public class ExecutionContext {
       EntitiesRequest entitiesRequest,
       EntitiesRequestContext entitiesRequestContext) {
     return new ExecutionContext(
-        metadataProvider, entityIdColumnsConfigs, entitiesRequest, entitiesRequestContext);
+        metadataProvider, entityIdColumnsConfigs, entitiesRequest, entitiesRequestContext, null);
+  }
+
+  /**
+   * Same as {@link #from(AttributeMetadataProvider, EntityIdColumnsConfigs, EntitiesRequest,
+   * EntitiesRequestContext)}, but reuses the source maps compiled for earlier requests of the same
+   * shape
+   */
+  public static ExecutionContext from(
+      AttributeMetadataProvider metadataProvider,
+      EntityIdColumnsConfigs entityIdColumnsConfigs,
+      EntitiesRequest entitiesRequest,
+      EntitiesRequestContext entitiesRequestContext,
+      ExecutionPlanCache executionPlanCache) {
+    return new ExecutionContext(
+        metadataProvider,
+        entityIdColumnsConfigs,
+        entitiesRequest,
+        entitiesRequestContext,
+        executionPlanCache);
   }
 
   public String getTenantId() {
@@ -149,6 +187,20 @@ public class ExecutionContext {
     return sourceToMetricOrderByAttributeMap;
   }
 
+  /**
+   * @return the selected metric expressions of the source which are also part of the order by.
+   *     These are the only metrics needed to sort the entities before pagination
+   */
+  public List<Expression> getSelectedMetricOrderByExpressions(String source) {
+    Set<Expression> orderByExpressions =
+        sourceToMetricOrderByExpressionMap.getOrDefault(source, Collections.emptyList()).stream()
+            .map(OrderByExpression::getExpression)
+            .collect(Collectors.toSet());
+    return sourceToMetricExpressionMap.getOrDefault(source, Collections.emptyList()).stream()
+        .filter(orderByExpressions::contains)
+        .collect(Collectors.toList());
+  }
+
   public Map<String, String> getRequestHeaders() {
     return entitiesRequestContext.getHeaders();
   }
@@ -185,6 +237,24 @@ public class ExecutionContext {
     this.sortAndPaginationNodeAdded = sortAndPaginationNodeAdded;
   }
 
+  /** @return whether some selections were left out because their source was unavailable */
+  public boolean isPartialResult() {
+    return partialResult;
+  }
+
+  public void markPartialResult() {
+    this.partialResult = true;
+  }
+
+  /** @return the relative standard error of the total, if it was estimated */
+  public double getTotalRelativeError() {
+    return totalRelativeError;
+  }
+
+  public void setTotalRelativeError(double totalRelativeError) {
+    this.totalRelativeError = totalRelativeError;
+  }
+
   public List<Expression> getEntityIdExpressions() {
     List<String> entityIdAttributeNames =
         AttributeMetadataUtil.getIdAttributeIds(
@@ -272,9 +342,6 @@ public class ExecutionContext {
     sourceToMetricExpressionMap = getDataSourceToExpressionMap(functionSelections);
     sourceToTimeAggregationMap =
         getDataSourceToTimeAggregation(entitiesRequest.getTimeAggregationList());
-    pendingSelectionSources.addAll(sourceToSelectionExpressionMap.keySet());
-    pendingMetricAggregationSources.addAll(sourceToMetricExpressionMap.keySet());
-    pendingTimeAggregationSources.addAll(sourceToTimeAggregationMap.keySet());
   }
 
   private void buildSourceToFilterExpressionMaps() {
@@ -319,8 +386,44 @@ public class ExecutionContext {
     sourceToMetricOrderByAttributeMap =
         buildSourceToAttributesMap(
             convertOrderByExpressionToExpression(sourceToMetricOrderByExpressionMap));
-    pendingSelectionSourcesForOrderBy.addAll(sourceToSelectionOrderByExpressionMap.keySet());
-    pendingMetricAggregationSourcesForOrderBy.addAll(sourceToMetricOrderByExpressionMap.keySet());
+  }
+
+  private ExecutionPlanCache.CompiledSourceMaps compile() {
+    buildSourceToExpressionMaps();
+    buildSourceToFilterExpressionMaps();
+    buildSourceToOrderByExpressionMaps();
+    return new ExecutionPlanCache.CompiledSourceMaps(
+        sourceToSelectionExpressionMap,
+        sourceToSelectionAttributeMap,
+        sourceToMetricExpressionMap,
+        sourceToTimeAggregationMap,
+        sourceToSelectionOrderByExpressionMap,
+        sourceToSelectionOrderByAttributeMap,
+        sourceToMetricOrderByExpressionMap,
+        sourceToMetricOrderByAttributeMap,
+        sourceToFilterExpressionMap,
+        sourceToFilterAttributeMap,
+        filterAttributeToSourceMap,
+        allAttributesToSourcesMap);
+  }
+
+  private void restore(ExecutionPlanCache.CompiledSourceMaps compiledSourceMaps) {
+    sourceToSelectionExpressionMap = compiledSourceMaps.sourceToSelectionExpressionMap;
+    sourceToSelectionAttributeMap = compiledSourceMaps.sourceToSelectionAttributeMap;
+    sourceToMetricExpressionMap = compiledSourceMaps.sourceToMetricExpressionMap;
+    sourceToTimeAggregationMap = compiledSourceMaps.sourceToTimeAggregationMap;
+    sourceToSelectionOrderByExpressionMap =
+        compiledSourceMaps.sourceToSelectionOrderByExpressionMap;
+    sourceToSelectionOrderByAttributeMap = compiledSourceMaps.sourceToSelectionOrderByAttributeMap;
+    sourceToMetricOrderByExpressionMap = compiledSourceMaps.sourceToMetricOrderByExpressionMap;
+    sourceToMetricOrderByAttributeMap = compiledSourceMaps.sourceToMetricOrderByAttributeMap;
+    sourceToFilterExpressionMap = compiledSourceMaps.sourceToFilterExpressionMap;
+    sourceToFilterAttributeMap = compiledSourceMaps.sourceToFilterAttributeMap;
+    filterAttributeToSourceMap = compiledSourceMaps.filterAttributeToSourceMap;
+    // unlike the source maps, this one is handed out mutable
+    compiledSourceMaps.allAttributesToSourcesMap.forEach(
+        (attributeId, sources) ->
+            allAttributesToSourcesMap.put(attributeId, new HashSet<>(sources)));
   }
 
   private ImmutableMap<String, List<OrderByExpression>> getDataSourceToOrderByExpressionMap(
@@ -0,0 +1,174 @@
+package org.hypertrace.gateway.service.entity.query;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.hypertrace.core.attribute.service.v1.AttributeMetadata;
+import org.hypertrace.gateway.service.v1.common.Expression;
+import org.hypertrace.gateway.service.v1.common.Filter;
+import org.hypertrace.gateway.service.v1.common.OrderByExpression;
+import org.hypertrace.gateway.service.v1.common.TimeAggregation;
+import org.hypertrace.gateway.service.v1.entity.EntitiesRequest;
+
+/**
+ * Cache of the source maps compiled by the {@link ExecutionContext}, keyed by the tenant, the
+ * version of the attribute metadata and the shape of the {@link EntitiesRequest}.
+ *
+ * <p>The source maps only depend on the attributes referenced by the request and on where these
+ * attributes come from. So the shape leaves out the time range, limit, offset and the right hand
+ * side of the filters. The attribute metadata is versioned by the instance of the metadata map,
+ * which the {@link org.hypertrace.gateway.service.common.AttributeMetadataProvider} replaces
+ * whenever the metadata is reloaded.
+ */
+public class ExecutionPlanCache {
+  private static final int MAX_PLANS = 1000;
+  private static final long EXPIRE_AFTER_ACCESS_MINUTES = 10;
+
+  private final Cache<PlanKey, CompiledSourceMaps> plans =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_PLANS)
+          .expireAfterAccess(EXPIRE_AFTER_ACCESS_MINUTES, TimeUnit.MINUTES)
+          .build();
+
+  CompiledSourceMaps getOrCompile(
+      String tenantId,
+      Map<String, AttributeMetadata> attributeMetadataMap,
+      EntitiesRequest entitiesRequest,
+      Supplier<CompiledSourceMaps> compiler) {
+    PlanKey planKey = new PlanKey(tenantId, attributeMetadataMap, entitiesRequest);
+    CompiledSourceMaps compiledSourceMaps = plans.getIfPresent(planKey);
+    if (compiledSourceMaps == null) {
+      compiledSourceMaps = compiler.get();
+      plans.put(planKey, compiledSourceMaps);
+    }
+    return compiledSourceMaps;
+  }
+
+  /** Immutable snapshot of the source maps of an {@link ExecutionContext} */
+  static class CompiledSourceMaps {
+    final ImmutableMap<String, List<Expression>> sourceToSelectionExpressionMap;
+    final ImmutableMap<String, Set<String>> sourceToSelectionAttributeMap;
+    final ImmutableMap<String, List<Expression>> sourceToMetricExpressionMap;
+    final ImmutableMap<String, List<TimeAggregation>> sourceToTimeAggregationMap;
+    final ImmutableMap<String, List<OrderByExpression>> sourceToSelectionOrderByExpressionMap;
+    final ImmutableMap<String, Set<String>> sourceToSelectionOrderByAttributeMap;
+    final ImmutableMap<String, List<OrderByExpression>> sourceToMetricOrderByExpressionMap;
+    final ImmutableMap<String, Set<String>> sourceToMetricOrderByAttributeMap;
+    final ImmutableMap<String, List<Expression>> sourceToFilterExpressionMap;
+    final ImmutableMap<String, Set<String>> sourceToFilterAttributeMap;
+    final ImmutableMap<String, Set<String>> filterAttributeToSourceMap;
+    final ImmutableMap<String, Set<String>> allAttributesToSourcesMap;
+
+    CompiledSourceMaps(
+        Map<String, List<Expression>> sourceToSelectionExpressionMap,
+        Map<String, Set<String>> sourceToSelectionAttributeMap,
+        Map<String, List<Expression>> sourceToMetricExpressionMap,
+        Map<String, List<TimeAggregation>> sourceToTimeAggregationMap,
+        Map<String, List<OrderByExpression>> sourceToSelectionOrderByExpressionMap,
+        Map<String, Set<String>> sourceToSelectionOrderByAttributeMap,
+        Map<String, List<OrderByExpression>> sourceToMetricOrderByExpressionMap,
+        Map<String, Set<String>> sourceToMetricOrderByAttributeMap,
+        Map<String, List<Expression>> sourceToFilterExpressionMap,
+        Map<String, Set<String>> sourceToFilterAttributeMap,
+        Map<String, Set<String>> filterAttributeToSourceMap,
+        Map<String, Set<String>> allAttributesToSourcesMap) {
+      // the maps are shared between requests, so none of the values may be mutable
+      this.sourceToSelectionExpressionMap = copyOf(sourceToSelectionExpressionMap, List::copyOf);
+      this.sourceToSelectionAttributeMap = copyOf(sourceToSelectionAttributeMap, Set::copyOf);
+      this.sourceToMetricExpressionMap = copyOf(sourceToMetricExpressionMap, List::copyOf);
+      this.sourceToTimeAggregationMap = copyOf(sourceToTimeAggregationMap, List::copyOf);
+      this.sourceToSelectionOrderByExpressionMap =
+          copyOf(sourceToSelectionOrderByExpressionMap, List::copyOf);
+      this.sourceToSelectionOrderByAttributeMap =
+          copyOf(sourceToSelectionOrderByAttributeMap, Set::copyOf);
+      this.sourceToMetricOrderByExpressionMap =
+          copyOf(sourceToMetricOrderByExpressionMap, List::copyOf);
+      this.sourceToMetricOrderByAttributeMap =
+          copyOf(sourceToMetricOrderByAttributeMap, Set::copyOf);
+      this.sourceToFilterExpressionMap = copyOf(sourceToFilterExpressionMap, List::copyOf);
+      this.sourceToFilterAttributeMap = copyOf(sourceToFilterAttributeMap, Set::copyOf);
+      this.filterAttributeToSourceMap = copyOf(filterAttributeToSourceMap, Set::copyOf);
+      this.allAttributesToSourcesMap = copyOf(allAttributesToSourcesMap, Set::copyOf);
+    }
+
+    private static <V> ImmutableMap<String, V> copyOf(
+        Map<String, V> map, Function<V, V> valueCopier) {
+      return ImmutableMap.copyOf(
+          map.entrySet().stream()
+              .collect(
+                  Collectors.toMap(
+                      Map.Entry::getKey, entry -> valueCopier.apply(entry.getValue()))));
+    }
+  }
+
+  private static class PlanKey {
+    private final String tenantId;
+    private final Map<String, AttributeMetadata> attributeMetadataMap;
+    private final String entityType;
+    private final List<Expression> selections;
+    private final List<TimeAggregation> timeAggregations;
+    private final List<OrderByExpression> orderBys;
+    private final Filter filter;
+
+    private PlanKey(
+        String tenantId,
+        Map<String, AttributeMetadata> attributeMetadataMap,
+        EntitiesRequest entitiesRequest) {
+      this.tenantId = tenantId;
+      this.attributeMetadataMap = attributeMetadataMap;
+      this.entityType = entitiesRequest.getEntityType();
+      this.selections = entitiesRequest.getSelectionList();
+      this.timeAggregations = entitiesRequest.getTimeAggregationList();
+      this.orderBys = entitiesRequest.getOrderByList();
+      this.filter = stripRhs(entitiesRequest.getFilter());
+    }
+
+    private static Filter stripRhs(Filter filter) {
+      if (filter.getChildFilterCount() == 0) {
+        return filter.hasRhs() ? filter.toBuilder().clearRhs().build() : filter;
+      }
+      Filter.Builder builder = filter.toBuilder().clearRhs().clearChildFilter();
+      filter.getChildFilterList().forEach(child -> builder.addChildFilter(stripRhs(child)));
+      return builder.build();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      PlanKey planKey = (PlanKey) o;
+      // the metadata map is compared by identity, each reload is a new version
+      return attributeMetadataMap == planKey.attributeMetadataMap
+          && Objects.equals(tenantId, planKey.tenantId)
+          && entityType.equals(planKey.entityType)
+          && selections.equals(planKey.selections)
+          && timeAggregations.equals(planKey.timeAggregations)
+          && orderBys.equals(planKey.orderBys)
+          && filter.equals(planKey.filter);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(
+          tenantId,
+          System.identityHashCode(attributeMetadataMap),
+          entityType,
+          selections,
+          timeAggregations,
+          orderBys,
+          filter);
+    }
+  }
+}
@@ -5,6 +5,9 @@ import static org.hypertrace.core.attribute.service.v1.AttributeSource.QS;
 
 import com.google.common.annotations.VisibleForTesting;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -14,10 +17,16 @@ import java.util.stream.Stream;
 import org.hypertrace.core.attribute.service.v1.AttributeMetadata;
 import org.hypertrace.core.attribute.service.v1.AttributeSource;
 import org.hypertrace.gateway.service.common.util.ExpressionReader;
+import org.hypertrace.gateway.service.common.util.OrderByUtil;
 import org.hypertrace.gateway.service.common.util.TimeRangeFilterUtil;
+import org.hypertrace.gateway.service.entity.query.planner.CostBasedPlanner;
+import org.hypertrace.gateway.service.entity.query.planner.SourceStatisticsRegistry;
 import org.hypertrace.gateway.service.entity.query.visitor.ExecutionContextBuilderVisitor;
 import org.hypertrace.gateway.service.entity.query.visitor.FilterOptimizingVisitor;
+import org.hypertrace.gateway.service.entity.query.visitor.PaginationValidatingVisitor;
 import org.hypertrace.gateway.service.entity.query.visitor.PrintVisitor;
+import org.hypertrace.gateway.service.entity.query.visitor.SelectionFusingVisitor;
+import org.hypertrace.gateway.service.v1.common.Expression;
 import org.hypertrace.gateway.service.v1.common.Filter;
 import org.hypertrace.gateway.service.v1.common.Operator;
 import org.hypertrace.gateway.service.v1.common.OrderByExpression;
@@ -33,9 +42,16 @@ public class ExecutionTreeBuilder {
   private final Map<String, AttributeMetadata> attributeMetadataMap;
   private final ExecutionContext executionContext;
   private final Set<String> sourceSetsIfFilterAndOrderByAreFromSameSourceSets;
+  private final CostBasedPlanner costBasedPlanner;
 
   public ExecutionTreeBuilder(ExecutionContext executionContext) {
+    this(executionContext, new CostBasedPlanner(SourceStatisticsRegistry.get()));
+  }
+
+  public ExecutionTreeBuilder(
+      ExecutionContext executionContext, CostBasedPlanner costBasedPlanner) {
     this.executionContext = executionContext;
+    this.costBasedPlanner = costBasedPlanner;
     this.attributeMetadataMap =
         executionContext
             .getAttributeMetadataProvider()
@@ -99,6 +115,7 @@ public class ExecutionTreeBuilder {
         LOG.debug("Execution Tree:{}", executionTree.acceptVisitor(new PrintVisitor()));
       }
 
+      validateExecutionTree(executionTree);
       return executionTree;
     }
 
@@ -117,6 +134,7 @@ public class ExecutionTreeBuilder {
         LOG.debug("Execution Tree:{}", executionTree.acceptVisitor(new PrintVisitor()));
       }
 
+      validateExecutionTree(executionTree);
       return executionTree;
     }
 
@@ -151,14 +169,32 @@ public class ExecutionTreeBuilder {
       LOG.debug("Optimized Filter Tree:{}", optimizedFilterTree.acceptVisitor(new PrintVisitor()));
     }
 
+    // Based on the statistics of past executions, the most selective source could be fetched first
+    // so that its entity ids narrow down the queries to the other sources
+    optimizedFilterTree =
+        costBasedPlanner.plan(
+            executionContext.getTenantId(), entitiesRequest.getEntityType(), optimizedFilterTree);
+
     QueryNode executionTree = buildExecutionTree(executionContext, optimizedFilterTree);
     if (LOG.isDebugEnabled()) {
       LOG.debug("Execution Tree:{}", executionTree.acceptVisitor(new PrintVisitor()));
     }
 
+    validateExecutionTree(executionTree);
     return executionTree;
   }
 
+  private void validateExecutionTree(QueryNode executionTree) {
+    List<String> violations =
+        executionTree.acceptVisitor(new PaginationValidatingVisitor(executionContext));
+    if (!violations.isEmpty()) {
+      LOG.warn(
+          "Execution tree fetches data before pagination: {}, tree: {}",
+          violations,
+          executionTree.acceptVisitor(new PrintVisitor()));
+    }
+  }
+
   private QueryNode buildExecutionTreeForSameSourceFilterAndSelection(String source) {
     if (source.equals(QS.name())) {
       return buildExecutionTreeForQsFilterAndSelection();
@@ -197,25 +233,30 @@ public class ExecutionTreeBuilder {
   @VisibleForTesting
   QueryNode buildExecutionTree(ExecutionContext executionContext, QueryNode filterTree) {
     QueryNode rootNode = filterTree;
-    // Select attributes from sources in order by but not part of the filter tree
-    Set<String> attrSourcesForOrderBy = executionContext.getPendingSelectionSourcesForOrderBy();
-    if (!attrSourcesForOrderBy.isEmpty()) {
-      rootNode =
-          new SelectionNode.Builder(filterTree)
-              .setAttrSelectionSources(attrSourcesForOrderBy)
-              .build();
-      attrSourcesForOrderBy.forEach(executionContext::removePendingSelectionSource);
-    }
+    Optional<String> paginationSource =
+        getSourceForPaginationPushDown(executionContext, filterTree);
+    if (paginationSource.isPresent()) {
+      // Order by and limit are pushed down to the source owning all the order by expressions.
+      // The remaining selections are then made only for the entities of the requested page
+      rootNode = createPaginatedSelectionNode(executionContext, filterTree, paginationSource.get());
+    } else {
+      // Select attributes from sources in order by but not part of the filter tree
+      Set<String> attrSourcesForOrderBy = executionContext.getPendingSelectionSourcesForOrderBy();
+      if (!attrSourcesForOrderBy.isEmpty()) {
+        rootNode =
+            new SelectionNode.Builder(filterTree)
+                .setAttrSelectionSources(attrSourcesForOrderBy)
+                .build();
+        attrSourcesForOrderBy.forEach(executionContext::removePendingSelectionSource);
+      }
 
-    // Select agg attributes from sources in order by
-    Set<String> metricSourcesForOrderBy =
-        executionContext.getPendingMetricAggregationSourcesForOrderBy();
-    if (!metricSourcesForOrderBy.isEmpty()) {
-      rootNode =
-          new SelectionNode.Builder(rootNode)
-              .setAggMetricSelectionSources(metricSourcesForOrderBy)
-              .build();
-      metricSourcesForOrderBy.forEach(executionContext::removePendingMetricAggregationSources);
+      // Select agg attributes from sources in order by
+      Set<String> metricSourcesForOrderBy =
+          executionContext.getPendingMetricAggregationSourcesForOrderBy();
+      if (!metricSourcesForOrderBy.isEmpty()) {
+        rootNode =
+            createOrderByMetricSelectionNode(executionContext, rootNode, metricSourcesForOrderBy);
+      }
     }
 
     // Try adding SortAndPaginateNode
@@ -247,7 +288,165 @@ public class ExecutionTreeBuilder {
       rootNode = checkAndAddSortAndPaginationNode(rootNode, executionContext);
     }
 
-    return rootNode;
+    // selections made for the same entities are fused, so that each source is queried once for
+    // its attributes and aggregated metrics
+    return rootNode.acceptVisitor(new SelectionFusingVisitor());
+  }
+
+  /**
+   * Sorting the entities only needs the metrics that are part of the order by. If a source has
+   * other metrics to be selected as well, only the order by metrics are selected here, and the
+   * source is left pending so that the rest are fetched after pagination, for the entities of the
+   * requested page alone
+   */
+  private QueryNode createOrderByMetricSelectionNode(
+      ExecutionContext executionContext, QueryNode childNode, Set<String> metricSourcesForOrderBy) {
+    Set<String> aggMetricSources = new HashSet<>();
+    Set<String> aggMetricOrderBySources = new HashSet<>();
+    for (String source : metricSourcesForOrderBy) {
+      List<Expression> orderByMetrics =
+          executionContext.getSelectedMetricOrderByExpressions(source);
+      if (orderByMetrics.isEmpty()) {
+        // the order by metrics aren't selected, so there is nothing to fetch for sorting
+        continue;
+      }
+      if (orderByMetrics.size()
+          == executionContext.getSourceToMetricExpressionMap().get(source).size()) {
+        aggMetricSources.add(source);
+      } else {
+        aggMetricOrderBySources.add(source);
+      }
+    }
+    aggMetricSources.forEach(executionContext::removePendingMetricAggregationSources);
+
+    if (aggMetricSources.isEmpty() && aggMetricOrderBySources.isEmpty()) {
+      return childNode;
+    }
+    return new SelectionNode.Builder(childNode)
+        .setAggMetricSelectionSources(aggMetricSources)
+        .setAggMetricOrderBySelectionSources(aggMetricOrderBySources)
+        .build();
+  }
+
+  /**
+   * Order by and limit can be pushed down to a selection source, if
+   *
+   * <ul>
+   *   <li>pagination hasn't been handled already and a limit has been requested
+   *   <li>a single source owns all the order by expressions, and the order by attributes are also
+   *       selected from that source
+   *   <li>every entity returned by the filter tree is known to the source, i.e. the filter tree is
+   *       bounded by a {@link DataFetcherNode} of the same source. Otherwise, entities unknown to
+   *       the source would be dropped instead of being sorted last
+   * </ul>
+   */
+  private Optional<String> getSourceForPaginationPushDown(
+      ExecutionContext executionContext, QueryNode filterTree) {
+    EntitiesRequest entitiesRequest = executionContext.getEntitiesRequest();
+    if (executionContext.isSortAndPaginationNodeAdded()
+        || filterTree instanceof NoOpNode
+        || entitiesRequest.getLimit() <= 0
+        || entitiesRequest.getOrderByCount() == 0) {
+      return Optional.empty();
+    }
+
+    Map<String, List<OrderByExpression>> selectionOrderByMap =
+        executionContext.getSourceToSelectionOrderByExpressionMap();
+    Map<String, List<OrderByExpression>> metricOrderByMap =
+        executionContext.getSourceToMetricOrderByExpressionMap();
+    List<OrderByExpression> orderByExpressions = getOrderByExpressions(executionContext);
+
+    return Stream.concat(selectionOrderByMap.keySet().stream(), metricOrderByMap.keySet().stream())
+        .distinct()
+        // prefer QS, since the filter tree is always bounded by the time range filter on QS
+        .sorted(Comparator.comparing((String source) -> !QS.name().equals(source)))
+        .filter(
+            source ->
+                orderByExpressions.stream()
+                    .allMatch(
+                        orderByExpression ->
+                            selectionOrderByMap
+                                    .getOrDefault(source, Collections.emptyList())
+                                    .contains(orderByExpression)
+                                || metricOrderByMap
+                                    .getOrDefault(source, Collections.emptyList())
+                                    .contains(orderByExpression)))
+        .filter(source -> areOrderByExpressionsSelected(executionContext, source))
+        .filter(source -> isBoundedBySource(filterTree, source))
+        .findFirst();
+  }
+
+  private boolean areOrderByExpressionsSelected(ExecutionContext executionContext, String source) {
+    Set<String> selectedAttributes =
+        executionContext
+            .getSourceToSelectionAttributeMap()
+            .getOrDefault(source, Collections.emptySet());
+    Set<String> orderByAttributes =
+        executionContext
+            .getSourceToSelectionOrderByAttributeMap()
+            .getOrDefault(source, Collections.emptySet());
+    List<Expression> selectedMetrics =
+        executionContext
+            .getSourceToMetricExpressionMap()
+            .getOrDefault(source, Collections.emptyList());
+    List<OrderByExpression> metricOrderByExpressions =
+        executionContext
+            .getSourceToMetricOrderByExpressionMap()
+            .getOrDefault(source, Collections.emptyList());
+    return selectedAttributes.containsAll(orderByAttributes)
+        && metricOrderByExpressions.stream()
+            .map(OrderByExpression::getExpression)
+            .allMatch(selectedMetrics::contains);
+  }
+
+  private boolean isBoundedBySource(QueryNode queryNode, String source) {
+    if (queryNode instanceof DataFetcherNode) {
+      return source.equals(((DataFetcherNode) queryNode).getSource());
+    } else if (queryNode instanceof AndNode) {
+      return ((AndNode) queryNode)
+          .getChildNodes().stream().anyMatch(childNode -> isBoundedBySource(childNode, source));
+    } else if (queryNode instanceof OrNode) {
+      return ((OrNode) queryNode)
+          .getChildNodes().stream().allMatch(childNode -> isBoundedBySource(childNode, source));
+    } else if (queryNode instanceof SemiJoinNode) {
+      SemiJoinNode semiJoinNode = (SemiJoinNode) queryNode;
+      return isBoundedBySource(semiJoinNode.getDrivingNode(), source)
+          || semiJoinNode.getNarrowedNodes().stream()
+              .anyMatch(childNode -> isBoundedBySource(childNode, source));
+    }
+    return false;
+  }
+
+  private QueryNode createPaginatedSelectionNode(
+      ExecutionContext executionContext, QueryNode filterTree, String source) {
+    EntitiesRequest entitiesRequest = executionContext.getEntitiesRequest();
+    SelectionNode.Builder builder = new SelectionNode.Builder(filterTree);
+    if (executionContext.getSourceToSelectionOrderByExpressionMap().containsKey(source)) {
+      builder.setAttrSelectionSources(Set.of(source));
+      executionContext.removePendingSelectionSource(source);
+    }
+    if (executionContext.getSourceToMetricOrderByExpressionMap().containsKey(source)) {
+      builder.setAggMetricSelectionSources(Set.of(source));
+      executionContext.removePendingMetricAggregationSources(source);
+    }
+
+    // query-service/Pinot does not support offset along with group by, so offset + limit entities
+    // are requested and the offset is applied in memory
+    QueryNode rootNode =
+        builder
+            .setLimit(entitiesRequest.getOffset() + entitiesRequest.getLimit())
+            .setOrderByExpressionList(getOrderByExpressions(executionContext))
+            .build();
+    executionContext.setSortAndPaginationNodeAdded(true);
+    return createPaginateOnlyNode(rootNode, entitiesRequest);
+  }
+
+  private List<OrderByExpression> getOrderByExpressions(ExecutionContext executionContext) {
+    EntitiesRequest entitiesRequest = executionContext.getEntitiesRequest();
+    return OrderByUtil.matchOrderByExpressionsAliasToSelectionAlias(
+        entitiesRequest.getOrderByList(),
+        entitiesRequest.getSelectionList(),
+        entitiesRequest.getTimeAggregationList());
   }
 
   @VisibleForTesting
@@ -1,20 +1,28 @@
 package org.hypertrace.gateway.service.entity.query;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import org.hypertrace.gateway.service.entity.query.visitor.Visitor;
+import org.hypertrace.gateway.service.v1.common.OrderByExpression;
 
 /**
  * A generic selection node that fetches attributes, aggregated metrics and timeseries data from
  * their respective sources.
  *
  * <p>The output of the childNode is used to construct the filter criteria for the selection
+ *
+ * <p>If order by and limit are set, the selection is made from a single source which owns all the
+ * order by expressions, and only the entities of the requested page are retained
  */
 public class SelectionNode implements QueryNode {
 
   private final Set<String> attrSelectionSources;
   private final Set<String> aggMetricSelectionSources;
+  private final Set<String> aggMetricOrderBySelectionSources;
   private final Set<String> timeSeriesSelectionSources;
+  private final Integer limit;
+  private final List<OrderByExpression> orderByExpressionList;
 
   private final QueryNode childNode;
 
@@ -22,10 +30,16 @@ public class SelectionNode implements QueryNode {
       QueryNode childNode,
       Set<String> attrSelectionSources,
       Set<String> aggMetricSelectionSources,
-      Set<String> timeSeriesSelectionSources) {
+      Set<String> aggMetricOrderBySelectionSources,
+      Set<String> timeSeriesSelectionSources,
+      Integer limit,
+      List<OrderByExpression> orderByExpressionList) {
     this.attrSelectionSources = attrSelectionSources;
     this.aggMetricSelectionSources = aggMetricSelectionSources;
+    this.aggMetricOrderBySelectionSources = aggMetricOrderBySelectionSources;
     this.timeSeriesSelectionSources = timeSeriesSelectionSources;
+    this.limit = limit;
+    this.orderByExpressionList = orderByExpressionList;
     this.childNode = childNode;
   }
 
@@ -37,10 +51,31 @@ public class SelectionNode implements QueryNode {
     return aggMetricSelectionSources;
   }
 
+  /**
+   * @return sources from which only the aggregated metrics that are part of the order by are
+   *     selected. The remaining metrics of these sources are selected after pagination
+   */
+  public Set<String> getAggMetricOrderBySelectionSources() {
+    return aggMetricOrderBySelectionSources;
+  }
+
   public Set<String> getTimeSeriesSelectionSources() {
     return timeSeriesSelectionSources;
   }
 
+  public Integer getLimit() {
+    return limit;
+  }
+
+  public List<OrderByExpression> getOrderByExpressionList() {
+    return orderByExpressionList;
+  }
+
+  /** @return true, if the order by and limit are pushed down to the selection source */
+  public boolean isPaginated() {
+    return limit != null && !orderByExpressionList.isEmpty();
+  }
+
   public QueryNode getChildNode() {
     return childNode;
   }
@@ -57,8 +92,14 @@ public class SelectionNode implements QueryNode {
         + attrSelectionSources
         + ", aggMetricSelectionSources="
         + aggMetricSelectionSources
+        + ", aggMetricOrderBySelectionSources="
+        + aggMetricOrderBySelectionSources
         + ", timeSeriesSelectionSources="
         + timeSeriesSelectionSources
+        + ", limit="
+        + limit
+        + ", orderByExpressionList="
+        + orderByExpressionList
         + ", childNode="
         + childNode
         + '}';
@@ -68,7 +109,10 @@ public class SelectionNode implements QueryNode {
     private final QueryNode childNode;
     private Set<String> attrSelectionSources = Collections.emptySet();
     private Set<String> aggMetricSelectionSources = Collections.emptySet();
+    private Set<String> aggMetricOrderBySelectionSources = Collections.emptySet();
     private Set<String> timeSeriesSelectionSources = Collections.emptySet();
+    private Integer limit;
+    private List<OrderByExpression> orderByExpressionList = Collections.emptyList();
 
     public Builder(QueryNode childNode) {
       this.childNode = childNode;
@@ -84,14 +128,36 @@ public class SelectionNode implements QueryNode {
       return this;
     }
 
+    public Builder setAggMetricOrderBySelectionSources(
+        Set<String> aggMetricOrderBySelectionSources) {
+      this.aggMetricOrderBySelectionSources = aggMetricOrderBySelectionSources;
+      return this;
+    }
+
     public Builder setTimeSeriesSelectionSources(Set<String> timeSeriesSelectionSources) {
       this.timeSeriesSelectionSources = timeSeriesSelectionSources;
       return this;
     }
 
+    public Builder setLimit(Integer limit) {
+      this.limit = limit;
+      return this;
+    }
+
+    public Builder setOrderByExpressionList(List<OrderByExpression> orderByExpressionList) {
+      this.orderByExpressionList = orderByExpressionList;
+      return this;
+    }
+
     public SelectionNode build() {
       return new SelectionNode(
-          childNode, attrSelectionSources, aggMetricSelectionSources, timeSeriesSelectionSources);
+          childNode,
+          attrSelectionSources,
+          aggMetricSelectionSources,
+          aggMetricOrderBySelectionSources,
+          timeSeriesSelectionSources,
+          limit,
+          orderByExpressionList);
     }
   }
 }
@@ -0,0 +1,45 @@
+package org.hypertrace.gateway.service.entity.query;
+
+import java.util.List;
+import org.hypertrace.gateway.service.entity.query.visitor.Visitor;
+
+/**
+ * Node corresponding to an AND condition where one of the children is expected to be much more
+ * selective than the others.
+ *
+ * <p>The driving node is executed first and the entity ids it returns are added as a filter to each
+ * of the narrowed {@link DataFetcherNode}s, instead of fetching all of them independently and
+ * intersecting the results in memory
+ */
+public class SemiJoinNode implements QueryNode {
+  private final QueryNode drivingNode;
+  private final List<DataFetcherNode> narrowedNodes;
+
+  public SemiJoinNode(QueryNode drivingNode, List<DataFetcherNode> narrowedNodes) {
+    this.drivingNode = drivingNode;
+    this.narrowedNodes = narrowedNodes;
+  }
+
+  public QueryNode getDrivingNode() {
+    return drivingNode;
+  }
+
+  public List<DataFetcherNode> getNarrowedNodes() {
+    return narrowedNodes;
+  }
+
+  @Override
+  public <R> R acceptVisitor(Visitor<R> v) {
+    return v.visit(this);
+  }
+
+  @Override
+  public String toString() {
+    return "SemiJoinNode{"
+        + "drivingNode="
+        + drivingNode
+        + ", narrowedNodes="
+        + narrowedNodes
+        + '}';
+  }
+}
@@ -0,0 +1,129 @@
+package org.hypertrace.gateway.service.entity.query.planner;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.hypertrace.gateway.service.entity.query.AndNode;
+import org.hypertrace.gateway.service.entity.query.DataFetcherNode;
+import org.hypertrace.gateway.service.entity.query.QueryNode;
+import org.hypertrace.gateway.service.entity.query.SemiJoinNode;
+import org.hypertrace.gateway.service.v1.common.Filter;
+
+/**
+ * Uses the {@link SourceStatistics} of past executions to decide how the filter tree should be
+ * executed.
+ *
+ * <p>By default, all the children of an {@link AndNode} are fetched in parallel and the results are
+ * intersected in memory. When the statistics show that one of the sources returns only a handful of
+ * entities while the others return a lot more, it is cheaper to fetch the selective source first
+ * and use its entity ids to narrow down the queries to the other sources. In such cases, the {@link
+ * AndNode} is replaced with a {@link SemiJoinNode}.
+ *
+ * <p>Without enough statistics the filter tree is returned as is.
+ */
+public class CostBasedPlanner {
+  // minimum number of past executions before the estimates are trusted
+  private static final long MIN_SAMPLES = 3;
+  // upper bound on the number of entity ids that are sent down as an IN filter
+  private static final double MAX_DRIVING_SOURCE_ROWS = 1000;
+  // approximate cost of transferring and merging a single row, expressed in millis
+  private static final double ROW_COST_MILLIS = 0.05;
+
+  private final SourceStatisticsRegistry sourceStatisticsRegistry;
+
+  public CostBasedPlanner(SourceStatisticsRegistry sourceStatisticsRegistry) {
+    this.sourceStatisticsRegistry = sourceStatisticsRegistry;
+  }
+
+  public QueryNode plan(String tenantId, String entityType, QueryNode filterTree) {
+    if (!(filterTree instanceof AndNode)) {
+      return filterTree;
+    }
+
+    List<QueryNode> childNodes = ((AndNode) filterTree).getChildNodes();
+    if (childNodes.size() < 2) {
+      return filterTree;
+    }
+
+    List<Estimate> estimates = new ArrayList<>();
+    for (QueryNode childNode : childNodes) {
+      Optional<Estimate> estimate = estimate(tenantId, entityType, childNode);
+      if (estimate.isEmpty()) {
+        return filterTree;
+      }
+      estimates.add(estimate.get());
+    }
+
+    Estimate driver =
+        estimates.stream().min(Comparator.comparingDouble(Estimate::getRows)).orElseThrow();
+    if (driver.getRows() > MAX_DRIVING_SOURCE_ROWS) {
+      return filterTree;
+    }
+
+    List<Estimate> others =
+        estimates.stream().filter(estimate -> estimate != driver).collect(Collectors.toList());
+
+    // all the sources are queried in parallel and every row is transferred
+    double parallelCost =
+        estimates.stream().mapToDouble(Estimate::getLatencyMillis).max().orElse(0)
+            + ROW_COST_MILLIS * estimates.stream().mapToDouble(Estimate::getRows).sum();
+    // the driving source is queried first and the others return at most as many rows as it did
+    double semiJoinCost =
+        driver.getLatencyMillis()
+            + others.stream().mapToDouble(Estimate::getLatencyMillis).max().orElse(0)
+            + ROW_COST_MILLIS * driver.getRows() * estimates.size();
+
+    if (semiJoinCost >= parallelCost) {
+      return filterTree;
+    }
+
+    return new SemiJoinNode(
+        driver.getNode(),
+        others.stream().map(Estimate::getNode).collect(Collectors.toUnmodifiableList()));
+  }
+
+  private Optional<Estimate> estimate(String tenantId, String entityType, QueryNode queryNode) {
+    if (!(queryNode instanceof DataFetcherNode)) {
+      return Optional.empty();
+    }
+    DataFetcherNode dataFetcherNode = (DataFetcherNode) queryNode;
+    // paginated fetches are already bounded and unfiltered fetches can't be narrowed any further
+    if (dataFetcherNode.getLimit() != null
+        || dataFetcherNode.getFilter() == null
+        || Filter.getDefaultInstance().equals(dataFetcherNode.getFilter())) {
+      return Optional.empty();
+    }
+
+    return sourceStatisticsRegistry
+        .getStatistics(
+            tenantId, entityType, dataFetcherNode.getSource(), dataFetcherNode.getFilter())
+        .filter(statistics -> statistics.getSamples() >= MIN_SAMPLES)
+        .map(statistics -> new Estimate(dataFetcherNode, statistics));
+  }
+
+  private static class Estimate {
+    private final DataFetcherNode node;
+    private final double rows;
+    private final double latencyMillis;
+
+    private Estimate(DataFetcherNode node, SourceStatistics statistics) {
+      this.node = node;
+      this.rows = statistics.getAverageRows();
+      this.latencyMillis = statistics.getAverageLatencyMillis();
+    }
+
+    DataFetcherNode getNode() {
+      return node;
+    }
+
+    double getRows() {
+      return rows;
+    }
+
+    double getLatencyMillis() {
+      return latencyMillis;
+    }
+  }
+}
@@ -0,0 +1,49 @@
+package org.hypertrace.gateway.service.entity.query.planner;
+
+/**
+ * Running statistics of the fetches made to a single source for a given filter shape. Both the
+ * number of rows and the latency are tracked as exponentially weighted moving averages, so that the
+ * estimates follow the recent behaviour of the tenant's data
+ */
+public class SourceStatistics {
+  private static final double SMOOTHING_FACTOR = 0.3;
+
+  private double averageRows;
+  private double averageLatencyMillis;
+  private long samples;
+
+  synchronized void record(long rows, long latencyMillis) {
+    if (samples == 0) {
+      averageRows = rows;
+      averageLatencyMillis = latencyMillis;
+    } else {
+      averageRows += SMOOTHING_FACTOR * (rows - averageRows);
+      averageLatencyMillis += SMOOTHING_FACTOR * (latencyMillis - averageLatencyMillis);
+    }
+    samples++;
+  }
+
+  public synchronized double getAverageRows() {
+    return averageRows;
+  }
+
+  public synchronized double getAverageLatencyMillis() {
+    return averageLatencyMillis;
+  }
+
+  public synchronized long getSamples() {
+    return samples;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "SourceStatistics{"
+        + "averageRows="
+        + averageRows
+        + ", averageLatencyMillis="
+        + averageLatencyMillis
+        + ", samples="
+        + samples
+        + '}';
+  }
+}
@@ -0,0 +1,146 @@
+package org.hypertrace.gateway.service.entity.query.planner;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.hypertrace.gateway.service.common.util.ExpressionReader;
+import org.hypertrace.gateway.service.v1.common.Filter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of the {@link SourceStatistics} gathered from past executions, keyed by tenant, entity
+ * type, source and the shape of the filter sent to the source.
+ *
+ * <p>The shape of a filter only retains the operators and the attributes being filtered on, so that
+ * requests which differ only by their literal values share the same statistics.
+ *
+ * <p>Statistics expire a fixed time after they were first recorded, however often they are read.
+ * The planner then falls back to fetching every source in parallel, which samples all the sources
+ * afresh, so a plan doesn't outlive the selectivity it was chosen from.
+ */
+public class SourceStatisticsRegistry {
+  private static final Logger LOG = LoggerFactory.getLogger(SourceStatisticsRegistry.class);
+
+  private static final int MAX_ENTRIES = 10000;
+  private static final long EXPIRY_MINUTES = 10;
+  private static final SourceStatisticsRegistry INSTANCE = new SourceStatisticsRegistry();
+
+  private final Cache<StatisticsKey, SourceStatistics> statisticsCache;
+
+  @VisibleForTesting
+  SourceStatisticsRegistry() {
+    this(Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  SourceStatisticsRegistry(Ticker ticker) {
+    this.statisticsCache =
+        CacheBuilder.newBuilder()
+            .maximumSize(MAX_ENTRIES)
+            .expireAfterWrite(EXPIRY_MINUTES, TimeUnit.MINUTES)
+            .ticker(ticker)
+            .build();
+  }
+
+  public static SourceStatisticsRegistry get() {
+    return INSTANCE;
+  }
+
+  public void record(
+      String tenantId,
+      String entityType,
+      String source,
+      Filter filter,
+      long rows,
+      long latencyMillis) {
+    StatisticsKey key = new StatisticsKey(tenantId, entityType, source, getFilterShape(filter));
+    try {
+      statisticsCache.get(key, SourceStatistics::new).record(rows, latencyMillis);
+    } catch (ExecutionException e) {
+      LOG.warn("Unable to record source statistics for {}", key, e);
+    }
+  }
+
+  public Optional<SourceStatistics> getStatistics(
+      String tenantId, String entityType, String source, Filter filter) {
+    return Optional.ofNullable(
+        statisticsCache.getIfPresent(
+            new StatisticsKey(tenantId, entityType, source, getFilterShape(filter))));
+  }
+
+  @VisibleForTesting
+  static String getFilterShape(Filter filter) {
+    if (filter == null || Filter.getDefaultInstance().equals(filter)) {
+      return "";
+    }
+    if (filter.getChildFilterCount() > 0) {
+      return filter.getOperator()
+          + filter.getChildFilterList().stream()
+              .map(SourceStatisticsRegistry::getFilterShape)
+              .sorted()
+              .collect(Collectors.joining(",", "(", ")"));
+    }
+    return ExpressionReader.getAttributeIdFromAttributeSelection(filter.getLhs()).orElse("")
+        + " "
+        + filter.getOperator();
+  }
+
+  private static class StatisticsKey {
+    private final String tenantId;
+    private final String entityType;
+    private final String source;
+    private final String filterShape;
+
+    private StatisticsKey(String tenantId, String entityType, String source, String filterShape) {
+      this.tenantId = tenantId;
+      this.entityType = entityType;
+      this.source = source;
+      this.filterShape = filterShape;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      StatisticsKey that = (StatisticsKey) o;
+      return Objects.equals(tenantId, that.tenantId)
+          && Objects.equals(entityType, that.entityType)
+          && Objects.equals(source, that.source)
+          && Objects.equals(filterShape, that.filterShape);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(tenantId, entityType, source, filterShape);
+    }
+
+    @Override
+    public String toString() {
+      return "StatisticsKey{"
+          + "tenantId='"
+          + tenantId
+          + '\''
+          + ", entityType='"
+          + entityType
+          + '\''
+          + ", source='"
+          + source
+          + '\''
+          + ", filterShape='"
+          + filterShape
+          + '\''
+          + '}';
+    }
+  }
+}
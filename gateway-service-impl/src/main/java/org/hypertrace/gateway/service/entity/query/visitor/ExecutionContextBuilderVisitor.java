@@ -11,6 +11,7 @@ import org.hypertrace.gateway.service.entity.query.NoOpNode;
 import org.hypertrace.gateway.service.entity.query.OrNode;
 import org.hypertrace.gateway.service.entity.query.PaginateOnlyNode;
 import org.hypertrace.gateway.service.entity.query.SelectionNode;
+import org.hypertrace.gateway.service.entity.query.SemiJoinNode;
 import org.hypertrace.gateway.service.entity.query.SortAndPaginateNode;
 
 /**
@@ -119,6 +120,13 @@ public class ExecutionContextBuilderVisitor implements Visitor<Void> {
     return paginateOnlyNode.getChildNode().acceptVisitor(this);
   }
 
+  @Override
+  public Void visit(SemiJoinNode semiJoinNode) {
+    semiJoinNode.getDrivingNode().acceptVisitor(this);
+    semiJoinNode.getNarrowedNodes().forEach(n -> n.acceptVisitor(this));
+    return null;
+  }
+
   private Set<String> getRedundantPendingSelectionSources(
       Set<String> fetchedAttributes,
       Set<String> pendingAttributeSelectionSources,
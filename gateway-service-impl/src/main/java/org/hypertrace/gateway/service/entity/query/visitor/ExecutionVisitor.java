@@ -3,18 +3,29 @@ package org.hypertrace.gateway.service.entity.query.visitor;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.MapDifference;
 import com.google.common.collect.Maps;
+import com.typesafe.config.ConfigFactory;
+import io.grpc.Context;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.hypertrace.gateway.service.common.circuitbreaker.CircuitBreakerOpenException;
 import org.hypertrace.gateway.service.common.datafetcher.EntityFetcherResponse;
 import org.hypertrace.gateway.service.common.datafetcher.EntityResponse;
 import org.hypertrace.gateway.service.common.datafetcher.IEntityFetcher;
@@ -26,12 +37,16 @@ import org.hypertrace.gateway.service.entity.EntityKeyEntityBuilderEntryComparat
 import org.hypertrace.gateway.service.entity.EntityQueryHandlerRegistry;
 import org.hypertrace.gateway.service.entity.query.AndNode;
 import org.hypertrace.gateway.service.entity.query.DataFetcherNode;
+import org.hypertrace.gateway.service.entity.query.EntityTotalCache;
 import org.hypertrace.gateway.service.entity.query.ExecutionContext;
 import org.hypertrace.gateway.service.entity.query.NoOpNode;
 import org.hypertrace.gateway.service.entity.query.OrNode;
 import org.hypertrace.gateway.service.entity.query.PaginateOnlyNode;
+import org.hypertrace.gateway.service.entity.query.QueryNode;
 import org.hypertrace.gateway.service.entity.query.SelectionNode;
+import org.hypertrace.gateway.service.entity.query.SemiJoinNode;
 import org.hypertrace.gateway.service.entity.query.SortAndPaginateNode;
+import org.hypertrace.gateway.service.entity.query.planner.SourceStatisticsRegistry;
 import org.hypertrace.gateway.service.v1.common.Expression;
 import org.hypertrace.gateway.service.v1.common.Filter;
 import org.hypertrace.gateway.service.v1.common.LiteralConstant;
@@ -52,12 +67,40 @@ public class ExecutionVisitor implements Visitor<EntityResponse> {
 
   private final EntityQueryHandlerRegistry queryHandlerRegistry;
   private final ExecutionContext executionContext;
+  private final SourceStatisticsRegistry sourceStatisticsRegistry;
+  private final EntityTotalCache entityTotalCache;
+  private final FetchMemo fetchMemo = new FetchMemo();
   private static final Logger LOG = LoggerFactory.getLogger(ExecutionVisitor.class);
 
   public ExecutionVisitor(
       ExecutionContext executionContext, EntityQueryHandlerRegistry queryHandlerRegistry) {
+    this(
+        executionContext,
+        queryHandlerRegistry,
+        SourceStatisticsRegistry.get(),
+        new EntityTotalCache(ConfigFactory.empty()));
+  }
+
+  public ExecutionVisitor(
+      ExecutionContext executionContext,
+      EntityQueryHandlerRegistry queryHandlerRegistry,
+      SourceStatisticsRegistry sourceStatisticsRegistry) {
+    this(
+        executionContext,
+        queryHandlerRegistry,
+        sourceStatisticsRegistry,
+        new EntityTotalCache(ConfigFactory.empty()));
+  }
+
+  public ExecutionVisitor(
+      ExecutionContext executionContext,
+      EntityQueryHandlerRegistry queryHandlerRegistry,
+      SourceStatisticsRegistry sourceStatisticsRegistry,
+      EntityTotalCache entityTotalCache) {
     this.executionContext = executionContext;
     this.queryHandlerRegistry = queryHandlerRegistry;
+    this.sourceStatisticsRegistry = sourceStatisticsRegistry;
+    this.entityTotalCache = entityTotalCache;
   }
 
   private static EntityFetcherResponse intersectEntities(List<EntityFetcherResponse> builders) {
@@ -117,6 +160,14 @@ public class ExecutionVisitor implements Visitor<EntityResponse> {
 
   @Override
   public EntityResponse visit(DataFetcherNode dataFetcherNode) {
+    return fetch(dataFetcherNode, dataFetcherNode.getFilter());
+  }
+
+  /**
+   * @param statisticsFilter filter under whose shape the statistics of an unbounded fetch are
+   *     recorded
+   */
+  private EntityResponse fetch(DataFetcherNode dataFetcherNode, Filter statisticsFilter) {
     String source = dataFetcherNode.getSource();
     EntitiesRequest entitiesRequest = executionContext.getEntitiesRequest();
     EntitiesRequestContext context =
@@ -161,18 +212,59 @@ public class ExecutionVisitor implements Visitor<EntityResponse> {
     // total, the total number of entities has to be fetched separately
     if (dataFetcherNode.canFetchTotal()) {
       // since, the pagination is pushed down to the data store, total can be requested directly
-      // from the data store
-      return new EntityResponse(
-          entityFetcher.getEntities(context, request),
-          entityFetcher.getTotal(context, entitiesRequest));
+      // from the data store, while the page is being fetched
+      Callable<Long> totalQuery =
+          () ->
+              entityTotalCache.getTotal(
+                  executionContext.getTenantId(),
+                  source,
+                  entitiesRequest,
+                  () -> entityFetcher.getTotal(context, entitiesRequest));
+      // submitted as a plain future, so that cancelling it interrupts the thread fetching the total
+      Future<Long> total = executorService.submit(Context.current().wrap(totalQuery));
+      EntityFetcherResponse response;
+      try {
+        response = fetchMemo.getEntities(source, entityFetcher, context, request);
+      } catch (RuntimeException e) {
+        total.cancel(true);
+        throw e;
+      }
+      executionContext.setTotalRelativeError(entityFetcher.getTotalRelativeError(entitiesRequest));
+      return new EntityResponse(response, joinTotal(total));
     } else {
       // if the data fetcher node is not paginating, the total number of entities is equal to number
       // of records fetched
-      EntityFetcherResponse response = entityFetcher.getEntities(context, request);
+      long startTime = System.currentTimeMillis();
+      EntityFetcherResponse response =
+          fetchMemo.getEntities(source, entityFetcher, context, request);
+      // only unbounded fetches tell how selective the filter is on this source
+      if (dataFetcherNode.getLimit() == null) {
+        sourceStatisticsRegistry.record(
+            executionContext.getTenantId(),
+            entitiesRequest.getEntityType(),
+            source,
+            statisticsFilter,
+            response.size(),
+            System.currentTimeMillis() - startTime);
+      }
       return new EntityResponse(response, response.getEntityKeyBuilderMap().size());
     }
   }
 
+  private static long joinTotal(Future<Long> total) {
+    try {
+      return total.get();
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof RuntimeException
+          ? (RuntimeException) e.getCause()
+          : new RuntimeException(e.getCause());
+    } catch (InterruptedException e) {
+      total.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+  }
+
   @Override
   public EntityResponse visit(AndNode andNode) {
     return intersect(
@@ -189,8 +281,41 @@ public class ExecutionVisitor implements Visitor<EntityResponse> {
             .collect(Collectors.toList()));
   }
 
+  @Override
+  public EntityResponse visit(SemiJoinNode semiJoinNode) {
+    EntityResponse drivingNodeResponse = semiJoinNode.getDrivingNode().acceptVisitor(this);
+    // nothing can match the AND condition, if the driving node didn't match any entity
+    if (drivingNodeResponse.getEntityFetcherResponse().isEmpty()) {
+      return new EntityResponse();
+    }
+
+    Filter entityIdFilter =
+        constructFilterFromChildNodesResult(drivingNodeResponse.getEntityFetcherResponse());
+    List<EntityResponse> entityResponses = new ArrayList<>();
+    entityResponses.add(drivingNodeResponse);
+    // the narrowed fetches are recorded under the filter the planner estimates them by, so that the
+    // plan is revisited when a narrowed source gets as selective as the driving one
+    entityResponses.addAll(
+        semiJoinNode.getNarrowedNodes().parallelStream()
+            .map(
+                n ->
+                    fetch(
+                        new DataFetcherNode(
+                            n.getSource(),
+                            Filter.newBuilder()
+                                .setOperator(Operator.AND)
+                                .addChildFilter(n.getFilter())
+                                .addChildFilter(entityIdFilter)
+                                .build()),
+                        n.getFilter()))
+            .collect(Collectors.toList()));
+    return intersect(entityResponses);
+  }
+
   @Override
   public EntityResponse visit(SelectionNode selectionNode) {
+    // planned before executing the child, so that the child's fetch includes these selections
+    Optional<DataFetcherNode> collapsedSelection = planCollapsedSelections(selectionNode);
     EntityResponse childNodeResponse = selectionNode.getChildNode().acceptVisitor(this);
 
     EntityFetcherResponse childEntityFetcherResponse = childNodeResponse.getEntityFetcherResponse();
@@ -206,12 +331,19 @@ public class ExecutionVisitor implements Visitor<EntityResponse> {
     // Construct the filter from the child nodes result
     final Filter filter = constructFilterFromChildNodesResult(childEntityFetcherResponse);
 
+    if (selectionNode.isPaginated()) {
+      EntityFetcherResponse response =
+          fetchPaginatedSelection(selectionNode, filter, childEntityFetcherResponse);
+      return new EntityResponse(
+          response,
+          childEntityFetcherResponse.isEmpty() ? response.size() : childNodeResponse.getTotal());
+    }
+
     // Select attributes, metric aggregations and time-series data from corresponding sources
     List<EntityFetcherResponse> resultMapList = new ArrayList<>();
-    // if data are coming from multiple sources, then, get entities and aggregated metrics
-    // needs to be separated
+    // the attributes and aggregated metrics of the same source are selected with a single query
     resultMapList.addAll(
-        selectionNode.getAttrSelectionSources().parallelStream()
+        getSelectionSources(selectionNode).parallelStream()
             .map(
                 source -> {
                   EntitiesRequest request =
@@ -219,44 +351,13 @@ public class ExecutionVisitor implements Visitor<EntityResponse> {
                           .clearSelection()
                           .clearTimeAggregation()
                           .clearFilter()
-                          // TODO: Should we push order by, limit and offet down to the data source?
-                          // If we want to push the order by down, we would also have to divide
-                          // order by into sourceToOrderBySelectionExpressionMap,
-                          // sourceToOrderByMetricExpressionMap, sourceToOrderByTimeAggregationMap
+                          // order by, limit and offset are pushed down only to the source owning
+                          // all the order by expressions. See fetchPaginatedSelection
                           .clearOrderBy()
                           .clearLimit()
                           .clearOffset()
-                          .addAllSelection(
-                              executionContext.getSourceToSelectionExpressionMap().get(source))
-                          .setFilter(filter)
-                          .build();
-                  IEntityFetcher entityFetcher = queryHandlerRegistry.getEntityFetcher(source);
-                  EntitiesRequestContext context =
-                      new EntitiesRequestContext(
-                          executionContext.getTenantId(),
-                          request.getStartTimeMillis(),
-                          request.getEndTimeMillis(),
-                          request.getEntityType(),
-                          executionContext.getTimestampAttributeId(),
-                          executionContext.getRequestHeaders());
-                  return entityFetcher.getEntities(context, request);
-                })
-            .collect(Collectors.toList()));
-    resultMapList.addAll(
-        selectionNode.getAggMetricSelectionSources().parallelStream()
-            .map(
-                source -> {
-                  EntitiesRequest request =
-                      EntitiesRequest.newBuilder(executionContext.getEntitiesRequest())
-                          .clearSelection()
-                          .clearTimeAggregation()
-                          .clearFilter()
-                          .clearOrderBy()
-                          .clearOffset()
-                          .clearLimit()
-                          .addAllSelection(
-                              executionContext.getSourceToMetricExpressionMap().get(source))
-                          .setFilter(filter)
+                          .addAllSelection(getSelections(selectionNode, source))
+                          .setFilter(getSelectionFilter(source, filter, collapsedSelection))
                           .build();
                   IEntityFetcher entityFetcher = queryHandlerRegistry.getEntityFetcher(source);
                   EntitiesRequestContext context =
@@ -267,7 +368,8 @@ public class ExecutionVisitor implements Visitor<EntityResponse> {
                           request.getEntityType(),
                           executionContext.getTimestampAttributeId(),
                           executionContext.getRequestHeaders());
-                  return entityFetcher.getEntities(context, request);
+                  return fetchOrSkipIfUnavailable(
+                      source, () -> fetchMemo.getEntities(source, entityFetcher, context, request));
                 })
             .collect(Collectors.toList()));
     resultMapList.addAll(
@@ -295,7 +397,9 @@ public class ExecutionVisitor implements Visitor<EntityResponse> {
                           request.getEntityType(),
                           executionContext.getTimestampAttributeId(),
                           executionContext.getRequestHeaders());
-                  return entityFetcher.getTimeAggregatedMetrics(requestContext, request);
+                  return fetchOrSkipIfUnavailable(
+                      source,
+                      () -> entityFetcher.getTimeAggregatedMetrics(requestContext, request));
                 })
             .collect(Collectors.toList()));
 
@@ -315,16 +419,196 @@ public class ExecutionVisitor implements Visitor<EntityResponse> {
     }
   }
 
+  /**
+   * The entities are already known by the time their selections are fetched, so the selections of a
+   * source which is unavailable are left out and the result is marked as partial, rather than
+   * failing the whole request
+   */
+  private EntityFetcherResponse fetchOrSkipIfUnavailable(
+      String source, Supplier<EntityFetcherResponse> fetcher) {
+    try {
+      return fetcher.get();
+    } catch (RuntimeException e) {
+      if (!CircuitBreakerOpenException.isCause(e)) {
+        throw e;
+      }
+      LOG.warn("Leaving out the selections from {}, which is unavailable", source);
+      executionContext.markPartialResult();
+      return new EntityFetcherResponse();
+    }
+  }
+
+  /**
+   * If the entities of the selection come straight from an unpaginated {@link DataFetcherNode}, the
+   * selections from the same source are made with the filter of that node instead of the entity ids
+   * it returns. Both match the same entities, but the former lets the {@link FetchMemo} select them
+   * along with the {@link DataFetcherNode}'s own fetch, saving a round trip to the source
+   */
+  private Optional<DataFetcherNode> planCollapsedSelections(SelectionNode selectionNode) {
+    if (selectionNode.isPaginated()) {
+      return Optional.empty();
+    }
+
+    QueryNode childNode = selectionNode.getChildNode();
+    while (childNode instanceof SelectionNode && !((SelectionNode) childNode).isPaginated()) {
+      childNode = ((SelectionNode) childNode).getChildNode();
+    }
+    if (!(childNode instanceof DataFetcherNode)) {
+      return Optional.empty();
+    }
+    DataFetcherNode dataFetcherNode = (DataFetcherNode) childNode;
+    if (dataFetcherNode.getLimit() != null
+        || dataFetcherNode.getOffset() != null
+        || !dataFetcherNode.getOrderByExpressionList().isEmpty()) {
+      return Optional.empty();
+    }
+
+    String source = dataFetcherNode.getSource();
+    List<Expression> selections = getSelections(selectionNode, source);
+    if (selections.isEmpty()) {
+      return Optional.empty();
+    }
+
+    fetchMemo.planSelections(
+        source,
+        EntitiesRequest.newBuilder(executionContext.getEntitiesRequest())
+            .clearSelection()
+            .clearTimeAggregation()
+            .clearFilter()
+            .clearOrderBy()
+            .clearLimit()
+            .clearOffset()
+            .addAllSelection(selections)
+            .setFilter(dataFetcherNode.getFilter())
+            .build());
+    return Optional.of(dataFetcherNode);
+  }
+
+  /** @return sources of the attributes and aggregated metrics selected by the node */
+  private Set<String> getSelectionSources(SelectionNode selectionNode) {
+    Set<String> sources = new LinkedHashSet<>(selectionNode.getAttrSelectionSources());
+    sources.addAll(selectionNode.getAggMetricSelectionSources());
+    sources.addAll(selectionNode.getAggMetricOrderBySelectionSources());
+    return sources;
+  }
+
+  /**
+   * @return the attributes and aggregated metrics selected by the node from the source. The order
+   *     by metrics are part of all the metrics, if the node selects both from the same source
+   */
+  private List<Expression> getSelections(SelectionNode selectionNode, String source) {
+    Set<Expression> selections = new LinkedHashSet<>();
+    if (selectionNode.getAttrSelectionSources().contains(source)) {
+      selections.addAll(
+          executionContext
+              .getSourceToSelectionExpressionMap()
+              .getOrDefault(source, Collections.emptyList()));
+    }
+    if (selectionNode.getAggMetricSelectionSources().contains(source)) {
+      selections.addAll(
+          executionContext
+              .getSourceToMetricExpressionMap()
+              .getOrDefault(source, Collections.emptyList()));
+    }
+    if (selectionNode.getAggMetricOrderBySelectionSources().contains(source)) {
+      selections.addAll(executionContext.getSelectedMetricOrderByExpressions(source));
+    }
+    return new ArrayList<>(selections);
+  }
+
+  private Filter getSelectionFilter(
+      String source, Filter entityIdFilter, Optional<DataFetcherNode> collapsedSelection) {
+    return collapsedSelection
+        .filter(dataFetcherNode -> dataFetcherNode.getSource().equals(source))
+        .map(DataFetcherNode::getFilter)
+        .orElse(entityIdFilter);
+  }
+
+  /**
+   * Fetches the selections of the single source which owns all the order by expressions, with the
+   * order by and limit pushed down to it. Only the entities of the resulting page are retained, in
+   * the order returned by the source, so that the follow up selections are made for them alone
+   */
+  private EntityFetcherResponse fetchPaginatedSelection(
+      SelectionNode selectionNode,
+      Filter filter,
+      EntityFetcherResponse childEntityFetcherResponse) {
+    String source =
+        Stream.concat(
+                selectionNode.getAttrSelectionSources().stream(),
+                selectionNode.getAggMetricSelectionSources().stream())
+            .findFirst()
+            .orElseThrow();
+
+    List<Expression> selections = new ArrayList<>();
+    if (selectionNode.getAttrSelectionSources().contains(source)) {
+      selections.addAll(
+          executionContext
+              .getSourceToSelectionExpressionMap()
+              .getOrDefault(source, executionContext.getEntityIdExpressions()));
+    }
+    if (selectionNode.getAggMetricSelectionSources().contains(source)) {
+      selections.addAll(executionContext.getSourceToMetricExpressionMap().get(source));
+    }
+
+    EntitiesRequest request =
+        EntitiesRequest.newBuilder(executionContext.getEntitiesRequest())
+            .clearSelection()
+            .clearTimeAggregation()
+            .clearFilter()
+            .clearOrderBy()
+            .clearLimit()
+            .clearOffset()
+            .addAllSelection(selections)
+            .setFilter(filter)
+            .addAllOrderBy(selectionNode.getOrderByExpressionList())
+            .setLimit(selectionNode.getLimit())
+            .build();
+    IEntityFetcher entityFetcher = queryHandlerRegistry.getEntityFetcher(source);
+    EntitiesRequestContext context =
+        new EntitiesRequestContext(
+            executionContext.getTenantId(),
+            request.getStartTimeMillis(),
+            request.getEndTimeMillis(),
+            request.getEntityType(),
+            executionContext.getTimestampAttributeId(),
+            executionContext.getRequestHeaders());
+    EntityFetcherResponse pageResponse =
+        fetchMemo.getEntities(source, entityFetcher, context, request);
+
+    Map<EntityKey, Builder> childEntityKeyBuilderMap =
+        childEntityFetcherResponse.getEntityKeyBuilderMap();
+    Map<EntityKey, Builder> entityKeyBuilderMap = new LinkedHashMap<>();
+    pageResponse
+        .getEntityKeyBuilderMap()
+        .forEach(
+            (entityKey, builder) -> {
+              Builder childBuilder = childEntityKeyBuilderMap.get(entityKey);
+              if (childBuilder != null) {
+                entityKeyBuilderMap.put(entityKey, childBuilder.mergeFrom(builder.build()));
+              } else if (childEntityKeyBuilderMap.isEmpty()) {
+                entityKeyBuilderMap.put(entityKey, builder);
+              }
+            });
+    return new EntityFetcherResponse(entityKeyBuilderMap);
+  }
+
   Filter constructFilterFromChildNodesResult(EntityFetcherResponse result) {
     if (result.isEmpty()) {
       return Filter.getDefaultInstance();
     }
 
-    List<Expression> entityIdExpressionList = executionContext.getEntityIdExpressions();
+    return createEntityKeysFilter(
+        executionContext.getEntityIdExpressions(), result.getEntityKeyBuilderMap().keySet());
+  }
+
+  /** @return the filter matching only the entities of the given keys */
+  public static Filter createEntityKeysFilter(
+      List<Expression> entityIdExpressionList, Collection<EntityKey> entityKeys) {
     if (entityIdExpressionList.size() == 1) {
       Expression entityIdExpression = entityIdExpressionList.get(0);
       Set<String> entityIdValues =
-          result.getEntityKeyBuilderMap().keySet().stream()
+          entityKeys.stream()
               .map(entityKey -> entityKey.getAttributes().get(0))
               .collect(Collectors.toSet());
       return Filter.newBuilder()
@@ -343,7 +627,7 @@ public class ExecutionVisitor implements Visitor<EntityResponse> {
       return Filter.newBuilder()
           .setOperator(Operator.OR)
           .addAllChildFilter(
-              result.getEntityKeyBuilderMap().keySet().stream()
+              entityKeys.stream()
                   .map(
                       entityKey ->
                           Filter.newBuilder()
@@ -0,0 +1,155 @@
+package org.hypertrace.gateway.service.entity.query.visitor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.hypertrace.gateway.service.common.datafetcher.EntityFetcherResponse;
+import org.hypertrace.gateway.service.common.datafetcher.IEntityFetcher;
+import org.hypertrace.gateway.service.entity.EntitiesRequestContext;
+import org.hypertrace.gateway.service.entity.EntityKey;
+import org.hypertrace.gateway.service.v1.common.Expression;
+import org.hypertrace.gateway.service.v1.entity.EntitiesRequest;
+import org.hypertrace.gateway.service.v1.entity.Entity.Builder;
+
+/**
+ * Memo of the entity fetches made while executing a single execution tree.
+ *
+ * <p>Fetches are keyed by the source and the request without its selections, i.e. the filter, order
+ * by, limit and offset. A fetch is served from the memo if an earlier fetch with the same key
+ * selected all the requested expressions. Since all the selections of an execution are part of the
+ * same entities request, the extra columns returned by such a fetch are requested by the client
+ * anyway.
+ *
+ * <p>Selections can also be planned ahead for a key, so that the first fetch with that key selects
+ * them too, and the later fetches are served from its result instead of making another round trip
+ * to the source.
+ *
+ * <p>A memo must not be shared across requests.
+ */
+public class FetchMemo {
+  private final Map<FetchKey, Set<Expression>> plannedSelections = new HashMap<>();
+  private final Map<FetchKey, List<MemoEntry>> entries = new HashMap<>();
+
+  /** Selects the expressions along with the first fetch made for the same source and request */
+  public synchronized void planSelections(String source, EntitiesRequest entitiesRequest) {
+    plannedSelections
+        .computeIfAbsent(new FetchKey(source, entitiesRequest), key -> new LinkedHashSet<>())
+        .addAll(entitiesRequest.getSelectionList());
+  }
+
+  public EntityFetcherResponse getEntities(
+      String source,
+      IEntityFetcher entityFetcher,
+      EntitiesRequestContext requestContext,
+      EntitiesRequest entitiesRequest) {
+    FetchKey fetchKey = new FetchKey(source, entitiesRequest);
+    Set<Expression> requestedSelections = new LinkedHashSet<>(entitiesRequest.getSelectionList());
+
+    MemoEntry memoEntry;
+    boolean memoized;
+    synchronized (this) {
+      List<MemoEntry> memoEntries = entries.computeIfAbsent(fetchKey, key -> new ArrayList<>());
+      Optional<MemoEntry> existingEntry =
+          memoEntries.stream()
+              .filter(entry -> entry.selections.containsAll(requestedSelections))
+              .findFirst();
+      memoized = existingEntry.isPresent();
+      if (memoized) {
+        memoEntry = existingEntry.get();
+      } else {
+        Set<Expression> selections = new LinkedHashSet<>(requestedSelections);
+        selections.addAll(plannedSelections.getOrDefault(fetchKey, Set.of()));
+        memoEntry = new MemoEntry(selections);
+        memoEntries.add(memoEntry);
+      }
+    }
+
+    if (memoized) {
+      return copyOf(join(memoEntry.response));
+    }
+
+    EntitiesRequest request =
+        memoEntry.selections.size() == requestedSelections.size()
+            ? entitiesRequest
+            : EntitiesRequest.newBuilder(entitiesRequest)
+                .clearSelection()
+                .addAllSelection(memoEntry.selections)
+                .build();
+    try {
+      EntityFetcherResponse response = entityFetcher.getEntities(requestContext, request);
+      memoEntry.response.complete(copyOf(response));
+      return response;
+    } catch (RuntimeException e) {
+      // failed fetches are not memoized, so that they can be retried
+      synchronized (this) {
+        entries.get(fetchKey).remove(memoEntry);
+      }
+      memoEntry.response.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  private EntityFetcherResponse join(CompletableFuture<EntityFetcherResponse> response) {
+    try {
+      return response.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /** The entity builders are merged into by the callers, hence every caller gets its own copy */
+  private static EntityFetcherResponse copyOf(EntityFetcherResponse response) {
+    Map<EntityKey, Builder> entityKeyBuilderMap = new LinkedHashMap<>();
+    response
+        .getEntityKeyBuilderMap()
+        .forEach((entityKey, builder) -> entityKeyBuilderMap.put(entityKey, builder.clone()));
+    return new EntityFetcherResponse(entityKeyBuilderMap);
+  }
+
+  private static class MemoEntry {
+    private final Set<Expression> selections;
+    private final CompletableFuture<EntityFetcherResponse> response = new CompletableFuture<>();
+
+    private MemoEntry(Set<Expression> selections) {
+      this.selections = selections;
+    }
+  }
+
+  private static class FetchKey {
+    private final String source;
+    private final EntitiesRequest entitiesRequest;
+
+    private FetchKey(String source, EntitiesRequest entitiesRequest) {
+      this.source = source;
+      this.entitiesRequest = EntitiesRequest.newBuilder(entitiesRequest).clearSelection().build();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      FetchKey fetchKey = (FetchKey) o;
+      return source.equals(fetchKey.source) && entitiesRequest.equals(fetchKey.entitiesRequest);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(source, entitiesRequest);
+    }
+  }
+}
@@ -13,6 +13,7 @@ import org.hypertrace.gateway.service.entity.query.OrNode;
 import org.hypertrace.gateway.service.entity.query.PaginateOnlyNode;
 import org.hypertrace.gateway.service.entity.query.QueryNode;
 import org.hypertrace.gateway.service.entity.query.SelectionNode;
+import org.hypertrace.gateway.service.entity.query.SemiJoinNode;
 import org.hypertrace.gateway.service.entity.query.SortAndPaginateNode;
 import org.hypertrace.gateway.service.v1.common.Filter;
 import org.hypertrace.gateway.service.v1.common.Operator;
@@ -114,7 +115,10 @@ public class FilterOptimizingVisitor implements Visitor<QueryNode> {
     return new SelectionNode.Builder(childNode)
         .setTimeSeriesSelectionSources(selectionNode.getTimeSeriesSelectionSources())
         .setAggMetricSelectionSources(selectionNode.getAggMetricSelectionSources())
+        .setAggMetricOrderBySelectionSources(selectionNode.getAggMetricOrderBySelectionSources())
         .setAttrSelectionSources(selectionNode.getAttrSelectionSources())
+        .setLimit(selectionNode.getLimit())
+        .setOrderByExpressionList(selectionNode.getOrderByExpressionList())
         .build();
   }
 
@@ -194,4 +198,11 @@ public class FilterOptimizingVisitor implements Visitor<QueryNode> {
     return new PaginateOnlyNode(
         childNode, paginateOnlyNode.getLimit(), paginateOnlyNode.getOffset());
   }
+
+  @Override
+  public QueryNode visit(SemiJoinNode semiJoinNode) {
+    // the narrowed nodes are already one per source, so there is nothing left to merge
+    return new SemiJoinNode(
+        semiJoinNode.getDrivingNode().acceptVisitor(this), semiJoinNode.getNarrowedNodes());
+  }
 }
@@ -0,0 +1,122 @@
+package org.hypertrace.gateway.service.entity.query.visitor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.hypertrace.gateway.service.entity.query.AndNode;
+import org.hypertrace.gateway.service.entity.query.DataFetcherNode;
+import org.hypertrace.gateway.service.entity.query.ExecutionContext;
+import org.hypertrace.gateway.service.entity.query.NoOpNode;
+import org.hypertrace.gateway.service.entity.query.OrNode;
+import org.hypertrace.gateway.service.entity.query.PaginateOnlyNode;
+import org.hypertrace.gateway.service.entity.query.QueryNode;
+import org.hypertrace.gateway.service.entity.query.SelectionNode;
+import org.hypertrace.gateway.service.entity.query.SemiJoinNode;
+import org.hypertrace.gateway.service.entity.query.SortAndPaginateNode;
+
+/**
+ * Visitor that validates an execution tree, by listing the selections which are made before the
+ * entities are paginated, i.e. the ones below a pagination node.
+ *
+ * <p>Time series and the aggregated metrics which are not part of the order by are only needed for
+ * the entities of the requested page. Selecting them below a pagination node fetches the data for
+ * every entity matching the filter instead.
+ */
+public class PaginationValidatingVisitor implements Visitor<List<String>> {
+  private final ExecutionContext executionContext;
+  private final boolean belowPagination;
+
+  public PaginationValidatingVisitor(ExecutionContext executionContext) {
+    this(executionContext, false);
+  }
+
+  private PaginationValidatingVisitor(ExecutionContext executionContext, boolean belowPagination) {
+    this.executionContext = executionContext;
+    this.belowPagination = belowPagination;
+  }
+
+  @Override
+  public List<String> visit(DataFetcherNode dataFetcherNode) {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public List<String> visit(AndNode andNode) {
+    return visitChildren(andNode.getChildNodes());
+  }
+
+  @Override
+  public List<String> visit(OrNode orNode) {
+    return visitChildren(orNode.getChildNodes());
+  }
+
+  @Override
+  public List<String> visit(SelectionNode selectionNode) {
+    if (selectionNode.isPaginated()) {
+      return selectionNode
+          .getChildNode()
+          .acceptVisitor(new PaginationValidatingVisitor(executionContext, true));
+    }
+
+    List<String> violations = new ArrayList<>();
+    if (belowPagination) {
+      if (!selectionNode.getTimeSeriesSelectionSources().isEmpty()) {
+        violations.add(
+            "Time series selected before pagination from "
+                + selectionNode.getTimeSeriesSelectionSources());
+      }
+      List<String> aggMetricSources =
+          selectionNode.getAggMetricSelectionSources().stream()
+              .filter(this::hasMetricsOutsideOrderBy)
+              .collect(Collectors.toList());
+      if (!aggMetricSources.isEmpty()) {
+        violations.add(
+            "Aggregated metrics not part of the order by selected before pagination from "
+                + aggMetricSources);
+      }
+    }
+    violations.addAll(selectionNode.getChildNode().acceptVisitor(this));
+    return violations;
+  }
+
+  @Override
+  public List<String> visit(SortAndPaginateNode sortAndPaginateNode) {
+    return sortAndPaginateNode
+        .getChildNode()
+        .acceptVisitor(new PaginationValidatingVisitor(executionContext, true));
+  }
+
+  @Override
+  public List<String> visit(NoOpNode noOpNode) {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public List<String> visit(PaginateOnlyNode paginateOnlyNode) {
+    return paginateOnlyNode
+        .getChildNode()
+        .acceptVisitor(new PaginationValidatingVisitor(executionContext, true));
+  }
+
+  @Override
+  public List<String> visit(SemiJoinNode semiJoinNode) {
+    List<String> violations = new ArrayList<>(semiJoinNode.getDrivingNode().acceptVisitor(this));
+    violations.addAll(visitChildren(semiJoinNode.getNarrowedNodes()));
+    return violations;
+  }
+
+  private List<String> visitChildren(List<? extends QueryNode> childNodes) {
+    return childNodes.stream()
+        .flatMap(childNode -> childNode.acceptVisitor(this).stream())
+        .collect(Collectors.toList());
+  }
+
+  private boolean hasMetricsOutsideOrderBy(String source) {
+    return executionContext.getSelectedMetricOrderByExpressions(source).size()
+        < executionContext
+            .getSourceToMetricExpressionMap()
+            .getOrDefault(source, Collections.emptyList())
+            .size();
+  }
+}
@@ -7,6 +7,7 @@ import org.hypertrace.gateway.service.entity.query.NoOpNode;
 import org.hypertrace.gateway.service.entity.query.OrNode;
 import org.hypertrace.gateway.service.entity.query.PaginateOnlyNode;
 import org.hypertrace.gateway.service.entity.query.SelectionNode;
+import org.hypertrace.gateway.service.entity.query.SemiJoinNode;
 import org.hypertrace.gateway.service.entity.query.SortAndPaginateNode;
 
 /**
@@ -66,4 +67,15 @@ public class PrintVisitor implements Visitor<String> {
         + ") --> \n"
         + paginateOnlyNode.getChildNode().acceptVisitor(this);
   }
+
+  @Override
+  public String visit(SemiJoinNode semiJoinNode) {
+    return "SEMI_JOIN("
+        + semiJoinNode.getDrivingNode().acceptVisitor(this)
+        + " --> "
+        + semiJoinNode.getNarrowedNodes().stream()
+            .map(n -> n.acceptVisitor(this))
+            .collect(Collectors.joining(" AND "))
+        + ")\n";
+  }
 }
@@ -0,0 +1,115 @@
+package org.hypertrace.gateway.service.entity.query.visitor;
+
+import com.google.common.collect.Sets;
+import java.util.Set;
+import org.hypertrace.gateway.service.entity.query.AndNode;
+import org.hypertrace.gateway.service.entity.query.DataFetcherNode;
+import org.hypertrace.gateway.service.entity.query.NoOpNode;
+import org.hypertrace.gateway.service.entity.query.OrNode;
+import org.hypertrace.gateway.service.entity.query.PaginateOnlyNode;
+import org.hypertrace.gateway.service.entity.query.QueryNode;
+import org.hypertrace.gateway.service.entity.query.SelectionNode;
+import org.hypertrace.gateway.service.entity.query.SemiJoinNode;
+import org.hypertrace.gateway.service.entity.query.SortAndPaginateNode;
+
+/**
+ * Visitor that fuses the {@link SelectionNode}s stacked directly on top of each other into a single
+ * {@link SelectionNode}.
+ *
+ * <p>The execution tree selects attributes, aggregated metrics and time series in separate steps,
+ * each of which waits for the one below it, although all of them are made for the same entities
+ * whenever no sorting or pagination happens in between. Once fused, the selections are made in
+ * parallel, and the attributes and aggregated metrics of the same source are selected with a single
+ * query instead of one per step. See {@link ExecutionVisitor#visit(SelectionNode)}
+ *
+ * <p>Paginated selection nodes select the page from a single source, hence they are left as is. A
+ * selection node on top of a {@link NoOpNode} selects the entities themselves, which the selections
+ * above it are then restricted to, hence it isn't fused either. Only the selection nodes are
+ * rewritten, the filter tree below them is returned unchanged.
+ */
+public class SelectionFusingVisitor implements Visitor<QueryNode> {
+
+  @Override
+  public QueryNode visit(DataFetcherNode dataFetcherNode) {
+    return dataFetcherNode;
+  }
+
+  @Override
+  public QueryNode visit(AndNode andNode) {
+    return andNode;
+  }
+
+  @Override
+  public QueryNode visit(OrNode orNode) {
+    return orNode;
+  }
+
+  @Override
+  public QueryNode visit(SelectionNode selectionNode) {
+    QueryNode childNode = selectionNode.getChildNode().acceptVisitor(this);
+    if (selectionNode.isPaginated()
+        || !(childNode instanceof SelectionNode)
+        || ((SelectionNode) childNode).isPaginated()
+        || ((SelectionNode) childNode).getChildNode() instanceof NoOpNode) {
+      return new SelectionNode.Builder(childNode)
+          .setAttrSelectionSources(selectionNode.getAttrSelectionSources())
+          .setAggMetricSelectionSources(selectionNode.getAggMetricSelectionSources())
+          .setAggMetricOrderBySelectionSources(selectionNode.getAggMetricOrderBySelectionSources())
+          .setTimeSeriesSelectionSources(selectionNode.getTimeSeriesSelectionSources())
+          .setLimit(selectionNode.getLimit())
+          .setOrderByExpressionList(selectionNode.getOrderByExpressionList())
+          .build();
+    }
+
+    SelectionNode childSelectionNode = (SelectionNode) childNode;
+    return new SelectionNode.Builder(childSelectionNode.getChildNode())
+        .setAttrSelectionSources(
+            union(
+                childSelectionNode.getAttrSelectionSources(),
+                selectionNode.getAttrSelectionSources()))
+        .setAggMetricSelectionSources(
+            union(
+                childSelectionNode.getAggMetricSelectionSources(),
+                selectionNode.getAggMetricSelectionSources()))
+        .setAggMetricOrderBySelectionSources(
+            union(
+                childSelectionNode.getAggMetricOrderBySelectionSources(),
+                selectionNode.getAggMetricOrderBySelectionSources()))
+        .setTimeSeriesSelectionSources(
+            union(
+                childSelectionNode.getTimeSeriesSelectionSources(),
+                selectionNode.getTimeSeriesSelectionSources()))
+        .build();
+  }
+
+  @Override
+  public QueryNode visit(SortAndPaginateNode sortAndPaginateNode) {
+    return new SortAndPaginateNode(
+        sortAndPaginateNode.getChildNode().acceptVisitor(this),
+        sortAndPaginateNode.getLimit(),
+        sortAndPaginateNode.getOffset(),
+        sortAndPaginateNode.getOrderByExpressionList());
+  }
+
+  @Override
+  public QueryNode visit(NoOpNode noOpNode) {
+    return noOpNode;
+  }
+
+  @Override
+  public QueryNode visit(PaginateOnlyNode paginateOnlyNode) {
+    return new PaginateOnlyNode(
+        paginateOnlyNode.getChildNode().acceptVisitor(this),
+        paginateOnlyNode.getLimit(),
+        paginateOnlyNode.getOffset());
+  }
+
+  @Override
+  public QueryNode visit(SemiJoinNode semiJoinNode) {
+    return semiJoinNode;
+  }
+
+  private static Set<String> union(Set<String> first, Set<String> second) {
+    return Sets.newLinkedHashSet(Sets.union(first, second));
+  }
+}
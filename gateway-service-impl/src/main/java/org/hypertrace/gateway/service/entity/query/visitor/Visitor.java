@@ -7,6 +7,7 @@ import org.hypertrace.gateway.service.entity.query.OrNode;
 import org.hypertrace.gateway.service.entity.query.PaginateOnlyNode;
 import org.hypertrace.gateway.service.entity.query.QueryNode;
 import org.hypertrace.gateway.service.entity.query.SelectionNode;
+import org.hypertrace.gateway.service.entity.query.SemiJoinNode;
 import org.hypertrace.gateway.service.entity.query.SortAndPaginateNode;
 
 /**
@@ -28,4 +29,6 @@ public interface Visitor<R> {
   R visit(NoOpNode noOpNode);
 
   R visit(PaginateOnlyNode paginateOnlyNode);
+
+  R visit(SemiJoinNode semiJoinNode);
 }
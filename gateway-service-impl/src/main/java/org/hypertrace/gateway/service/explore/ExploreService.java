@@ -7,10 +7,11 @@ import java.time.Instant;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import org.hypertrace.core.attribute.service.v1.AttributeMetadata;
-import org.hypertrace.core.query.service.client.QueryServiceClient;
 import org.hypertrace.core.serviceframework.metrics.PlatformMetricsRegistry;
 import org.hypertrace.gateway.service.common.AttributeMetadataProvider;
+import org.hypertrace.gateway.service.common.QueryServiceExecutor;
 import org.hypertrace.gateway.service.common.config.ScopeFilterConfigs;
+import org.hypertrace.gateway.service.common.util.ColumnarEncoder;
 import org.hypertrace.gateway.service.v1.explore.ExploreRequest;
 import org.hypertrace.gateway.service.v1.explore.ExploreResponse;
 
@@ -27,7 +28,7 @@ public class ExploreService {
   private Timer queryExecutionTimer;
 
   public ExploreService(
-      QueryServiceClient queryServiceClient,
+      QueryServiceExecutor queryServiceClient,
       int requestTimeout,
       AttributeMetadataProvider attributeMetadataProvider,
       ScopeFilterConfigs scopeFiltersConfig) {
@@ -80,6 +81,14 @@ public class ExploreService {
 
       ExploreResponse.Builder responseBuilder =
           requestHandler.handleRequest(newExploreRequestContext, request);
+      if (hasTimeAggregations(request)) {
+        TimeAggregationsRequestHandler.downsample(responseBuilder, request);
+      }
+      if (request.getColumnar()) {
+        responseBuilder =
+            ExploreResponse.newBuilder()
+                .setColumnarRows(ColumnarEncoder.encodeRows(responseBuilder.getRowList()));
+      }
 
       return responseBuilder.build();
     } finally {
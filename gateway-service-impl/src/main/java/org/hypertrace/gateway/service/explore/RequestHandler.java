@@ -15,6 +15,7 @@ import org.hypertrace.core.query.service.api.Row;
 import org.hypertrace.core.query.service.api.Value;
 import org.hypertrace.core.query.service.client.QueryServiceClient;
 import org.hypertrace.gateway.service.common.AttributeMetadataProvider;
+import org.hypertrace.gateway.service.common.QueryServiceExecutor;
 import org.hypertrace.gateway.service.common.converters.QueryAndGatewayDtoConverter;
 import org.hypertrace.gateway.service.common.util.AttributeMetadataUtil;
 import org.hypertrace.gateway.service.common.util.DataCollectionUtil;
@@ -31,13 +32,13 @@ import org.slf4j.LoggerFactory;
 
 public class RequestHandler implements RequestHandlerWithSorting {
   private static final Logger LOG = LoggerFactory.getLogger(RequestHandler.class);
-  private final QueryServiceClient queryServiceClient;
+  private final QueryServiceExecutor queryServiceClient;
   private final int requestTimeout;
   private final AttributeMetadataProvider attributeMetadataProvider;
   private final TheRestGroupRequestHandler theRestGroupRequestHandler;
 
   RequestHandler(
-      QueryServiceClient queryServiceClient,
+      QueryServiceExecutor queryServiceClient,
       int qsRequestTimeout,
       AttributeMetadataProvider attributeMetadataProvider) {
     this.queryServiceClient = queryServiceClient;
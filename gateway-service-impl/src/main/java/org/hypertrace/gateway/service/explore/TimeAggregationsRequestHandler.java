@@ -5,8 +5,17 @@ import static org.hypertrace.gateway.service.common.converters.QueryRequestUtil.
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.ToLongFunction;
 import org.hypertrace.core.query.service.api.ColumnMetadata;
 import org.hypertrace.core.query.service.api.QueryRequest;
 import org.hypertrace.core.query.service.api.ResultSetMetadata;
@@ -14,10 +23,12 @@ import org.hypertrace.core.query.service.api.Row;
 import org.hypertrace.core.query.service.api.Value;
 import org.hypertrace.core.query.service.client.QueryServiceClient;
 import org.hypertrace.gateway.service.common.AttributeMetadataProvider;
+import org.hypertrace.gateway.service.common.QueryServiceExecutor;
 import org.hypertrace.gateway.service.common.converters.QueryAndGatewayDtoConverter;
 import org.hypertrace.gateway.service.common.util.AttributeMetadataUtil;
 import org.hypertrace.gateway.service.common.util.ExpressionReader;
 import org.hypertrace.gateway.service.common.util.QueryExpressionUtil;
+import org.hypertrace.gateway.service.common.util.TimeSeriesDownsampler;
 import org.hypertrace.gateway.service.v1.common.OrderByExpression;
 import org.hypertrace.gateway.service.v1.common.Period;
 import org.hypertrace.gateway.service.v1.common.SortOrder;
@@ -33,7 +44,7 @@ public class TimeAggregationsRequestHandler extends RequestHandler {
   private static final Logger LOG = LoggerFactory.getLogger(TimeAggregationsRequestHandler.class);
 
   TimeAggregationsRequestHandler(
-      QueryServiceClient queryServiceClient,
+      QueryServiceExecutor queryServiceClient,
       int qsRequestTimeout,
       AttributeMetadataProvider attributeMetadataProvider) {
     super(queryServiceClient, qsRequestTimeout, attributeMetadataProvider);
@@ -231,6 +242,67 @@ public class TimeAggregationsRequestHandler extends RequestHandler {
     }
   }
 
+  /**
+   * Downsamples the series of each group of the response to the max points of the first time
+   * aggregation having one. The rows of a group are kept or left out whole, so the other time
+   * aggregations of the request are downsampled at the same points.
+   */
+  static void downsample(ExploreResponse.Builder builder, ExploreRequest request) {
+    Optional<TimeAggregation> downsampledTimeAggregation =
+        request.getTimeAggregationList().stream()
+            .filter(timeAggregation -> timeAggregation.getMaxPoints() > 0)
+            .findFirst();
+    if (downsampledTimeAggregation.isEmpty()) {
+      return;
+    }
+    String intervalStartTimeColumn = ColumnName.INTERVAL_START_TIME.name();
+    String valueColumn = downsampledTimeAggregation.get().getAggregation().getFunction().getAlias();
+    Set<String> seriesColumns = new HashSet<>();
+    seriesColumns.add(intervalStartTimeColumn);
+    request
+        .getTimeAggregationList()
+        .forEach(
+            timeAggregation ->
+                seriesColumns.add(timeAggregation.getAggregation().getFunction().getAlias()));
+
+    List<org.hypertrace.gateway.service.v1.common.Row> rows = new ArrayList<>(builder.getRowList());
+    Map<
+            Map<String, org.hypertrace.gateway.service.v1.common.Value>,
+            List<org.hypertrace.gateway.service.v1.common.Row>>
+        groups = new LinkedHashMap<>();
+    for (org.hypertrace.gateway.service.v1.common.Row row : rows) {
+      Map<String, org.hypertrace.gateway.service.v1.common.Value> groupKey =
+          new HashMap<>(row.getColumnsMap());
+      groupKey.keySet().removeAll(seriesColumns);
+      groups.computeIfAbsent(groupKey, unused -> new ArrayList<>()).add(row);
+    }
+
+    ToLongFunction<org.hypertrace.gateway.service.v1.common.Row> time =
+        row ->
+            row.getColumnsOrDefault(
+                    intervalStartTimeColumn,
+                    org.hypertrace.gateway.service.v1.common.Value.getDefaultInstance())
+                .getLong();
+    Set<org.hypertrace.gateway.service.v1.common.Row> keptRows =
+        Collections.newSetFromMap(new IdentityHashMap<>());
+    for (List<org.hypertrace.gateway.service.v1.common.Row> groupRows : groups.values()) {
+      groupRows.sort(Comparator.comparingLong(time));
+      keptRows.addAll(
+          TimeSeriesDownsampler.downsample(
+              groupRows,
+              time,
+              row ->
+                  TimeSeriesDownsampler.toDouble(
+                      row.getColumnsOrDefault(
+                          valueColumn,
+                          org.hypertrace.gateway.service.v1.common.Value.getDefaultInstance())),
+              downsampledTimeAggregation.get().getMaxPoints(),
+              downsampledTimeAggregation.get().getDownsampling()));
+    }
+    builder.clearRow();
+    rows.stream().filter(keptRows::contains).forEach(builder::addRow);
+  }
+
   protected Logger getLogger() {
     return LOG;
   }
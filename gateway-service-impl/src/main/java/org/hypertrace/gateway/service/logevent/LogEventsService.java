@@ -7,9 +7,11 @@ import io.micrometer.core.instrument.Timer;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import org.hypertrace.core.attribute.service.v1.AttributeMetadata;
 import org.hypertrace.core.query.service.api.ColumnMetadata;
@@ -17,13 +19,18 @@ import org.hypertrace.core.query.service.api.QueryRequest;
 import org.hypertrace.core.query.service.api.ResultSetChunk;
 import org.hypertrace.core.query.service.api.ResultSetMetadata;
 import org.hypertrace.core.query.service.api.Row;
-import org.hypertrace.core.query.service.client.QueryServiceClient;
 import org.hypertrace.core.serviceframework.metrics.PlatformMetricsRegistry;
 import org.hypertrace.gateway.service.common.AttributeMetadataProvider;
+import org.hypertrace.gateway.service.common.QueryServiceExecutor;
 import org.hypertrace.gateway.service.common.RequestContext;
-import org.hypertrace.gateway.service.common.converters.QueryAndGatewayDtoConverter;
+import org.hypertrace.gateway.service.common.converters.QueryRequestTemplateCache;
+import org.hypertrace.gateway.service.common.converters.ValueInterner;
+import org.hypertrace.gateway.service.common.converters.ValueInternerFactory;
 import org.hypertrace.gateway.service.common.util.AttributeMetadataUtil;
-import org.hypertrace.gateway.service.v1.common.OrderByExpression;
+import org.hypertrace.gateway.service.common.util.KeysetPagination;
+import org.hypertrace.gateway.service.entity.config.EntityIdColumnsConfigs;
+import org.hypertrace.gateway.service.v1.common.Expression;
+import org.hypertrace.gateway.service.v1.common.Value;
 import org.hypertrace.gateway.service.v1.log.events.LogEvent;
 import org.hypertrace.gateway.service.v1.log.events.LogEventsRequest;
 import org.hypertrace.gateway.service.v1.log.events.LogEventsResponse;
@@ -35,19 +42,27 @@ public class LogEventsService {
   private static final Logger LOG = LoggerFactory.getLogger(LogEventsService.class);
 
   private static final String LOG_EVENT_SCOPE = "LOG_EVENT";
-  private final QueryServiceClient queryServiceClient;
+  private final QueryServiceExecutor queryServiceClient;
   private final int requestTimeout;
   private final AttributeMetadataProvider attributeMetadataProvider;
+  private final ValueInternerFactory valueInternerFactory;
+  private final EntityIdColumnsConfigs entityIdColumnsConfigs;
+  private final QueryRequestTemplateCache queryRequestTemplateCache =
+      new QueryRequestTemplateCache();
 
   private Timer queryExecutionTimer;
 
   public LogEventsService(
-      QueryServiceClient queryServiceClient,
+      QueryServiceExecutor queryServiceClient,
       int requestTimeout,
-      AttributeMetadataProvider attributeMetadataProvider) {
+      AttributeMetadataProvider attributeMetadataProvider,
+      ValueInternerFactory valueInternerFactory,
+      EntityIdColumnsConfigs entityIdColumnsConfigs) {
     this.queryServiceClient = queryServiceClient;
     this.requestTimeout = requestTimeout;
     this.attributeMetadataProvider = attributeMetadataProvider;
+    this.valueInternerFactory = valueInternerFactory;
+    this.entityIdColumnsConfigs = entityIdColumnsConfigs;
     initMetrics();
   }
 
@@ -64,9 +79,13 @@ public class LogEventsService {
           attributeMetadataProvider.getAttributesMetadata(context, LOG_EVENT_SCOPE);
       LogEventsResponse.Builder logEventResponseBuilder = LogEventsResponse.newBuilder();
 
-      List<LogEvent> logEvents = fetchLogEvents(context, request, attributeMap);
+      Optional<KeysetPagination> keysetPagination = getKeysetPagination(context, request);
+      List<LogEvent> logEvents = fetchLogEvents(context, request, attributeMap, keysetPagination);
 
       logEventResponseBuilder.addAllLogEvents(logEvents);
+      keysetPagination
+          .flatMap(pagination -> pagination.getNextPageToken(request.getLimit()))
+          .ifPresent(logEventResponseBuilder::setNextPageToken);
 
       LogEventsResponse response = logEventResponseBuilder.build();
       LOG.debug("Log Event Service Response: {}", response);
@@ -80,37 +99,34 @@ public class LogEventsService {
   private List<LogEvent> fetchLogEvents(
       RequestContext context,
       LogEventsRequest request,
-      Map<String, AttributeMetadata> attributeMetadataMap) {
+      Map<String, AttributeMetadata> attributeMetadataMap,
+      Optional<KeysetPagination> keysetPagination) {
 
+    // the values of the last log event for the next page token are selected along with the
+    // attributes
+    List<Expression> selections = new ArrayList<>(request.getSelectionList());
+    keysetPagination.ifPresent(pagination -> selections.addAll(pagination.getSelections()));
     Map<String, AttributeMetadata> resultKeyToAttributeMetadataMap =
-        AttributeMetadataUtil.remapAttributeMetadataByResultKey(
-            request.getSelectionList(), attributeMetadataMap);
+        AttributeMetadataUtil.remapAttributeMetadataByResultKey(selections, attributeMetadataMap);
 
     AttributeMetadata timestampAttributeMetadata =
         getTimestampAttributeMetadata(attributeMetadataProvider, context, LOG_EVENT_SCOPE);
     QueryRequest.Builder queryBuilder =
-        QueryRequest.newBuilder()
-            .setFilter(
-                QueryAndGatewayDtoConverter.addTimeAndSpaceFiltersAndConvertToQueryFilter(
-                    convertFromMillis(
-                        request.getStartTimeMillis(), timestampAttributeMetadata.getUnit()),
-                    convertFromMillis(
-                        request.getEndTimeMillis(), timestampAttributeMetadata.getUnit()),
-                    "",
-                    timestampAttributeMetadata.getId(),
-                    "",
-                    request.getFilter()));
-
-    if (!request.getSelectionList().isEmpty()) {
-      request
-          .getSelectionList()
-          .forEach(
-              exp ->
-                  queryBuilder.addSelection(
-                      QueryAndGatewayDtoConverter.convertToQueryExpression(exp)));
-    }
-
-    addSortLimitAndOffset(request, queryBuilder);
+        queryRequestTemplateCache.newQueryRequestBuilder(
+            convertFromMillis(request.getStartTimeMillis(), timestampAttributeMetadata.getUnit()),
+            convertFromMillis(request.getEndTimeMillis(), timestampAttributeMetadata.getUnit()),
+            "",
+            timestampAttributeMetadata.getId(),
+            "",
+            keysetPagination
+                .map(pagination -> pagination.getFilter(request.getFilter()))
+                .orElse(request.getFilter()),
+            selections,
+            keysetPagination
+                .map(KeysetPagination::getOrderByList)
+                .orElse(request.getOrderByList()));
+
+    addLimitAndOffset(request, queryBuilder, keysetPagination);
 
     List<LogEvent> logEventResult = new ArrayList<>();
     QueryRequest queryRequest = queryBuilder.build();
@@ -119,46 +135,67 @@ public class LogEventsService {
         queryServiceClient.executeQuery(queryRequest, context.getHeaders(), requestTimeout);
 
     ResultSetMetadata resultSetMetadata = null;
-    while (resultSetChunkIterator.hasNext()) {
-      ResultSetChunk chunk = resultSetChunkIterator.next();
+    try (ValueInterner valueInterner = valueInternerFactory.newInterner()) {
+      while (resultSetChunkIterator.hasNext()) {
+        ResultSetChunk chunk = resultSetChunkIterator.next();
 
-      LOG.debug("Received chunk: {}", chunk);
-
-      if (null == resultSetMetadata && chunk.hasResultSetMetadata()) {
-        resultSetMetadata = chunk.getResultSetMetadata();
-      }
+        LOG.debug("Received chunk: {}", chunk);
 
-      for (Row row : chunk.getRowList()) {
-        LogEvent.Builder logEventBuilder = LogEvent.newBuilder();
-        for (int i = 0; i < resultSetMetadata.getColumnMetadataCount(); i++) {
-          ColumnMetadata metadata = resultSetMetadata.getColumnMetadata(i);
-          String attrName = metadata.getColumnName();
-          logEventBuilder.putAttributes(
-              metadata.getColumnName(),
-              QueryAndGatewayDtoConverter.convertToGatewayValue(
-                  attrName, row.getColumn(i), resultKeyToAttributeMetadataMap));
+        if (null == resultSetMetadata && chunk.hasResultSetMetadata()) {
+          resultSetMetadata = chunk.getResultSetMetadata();
         }
 
-        logEventResult.add(logEventBuilder.build());
+        for (Row row : chunk.getRowList()) {
+          LogEvent.Builder logEventBuilder = LogEvent.newBuilder();
+          Map<String, Value> keysetValues = new HashMap<>();
+          for (int i = 0; i < resultSetMetadata.getColumnMetadataCount(); i++) {
+            ColumnMetadata metadata = resultSetMetadata.getColumnMetadata(i);
+            String attrName = metadata.getColumnName();
+            Value value =
+                valueInterner.convertToGatewayValue(
+                    attrName, row.getColumn(i), resultKeyToAttributeMetadataMap);
+            if (keysetPagination.isPresent() && keysetPagination.get().isKeysetColumn(attrName)) {
+              keysetValues.put(attrName, value);
+            } else {
+              logEventBuilder.putAttributes(metadata.getColumnName(), value);
+            }
+          }
+
+          keysetPagination.ifPresent(pagination -> pagination.addRow(keysetValues));
+          logEventResult.add(logEventBuilder.build());
+        }
       }
     }
     return logEventResult;
   }
 
-  // Adds the sort, limit and offset information to the QueryService if it is requested
-  private void addSortLimitAndOffset(LogEventsRequest request, QueryRequest.Builder queryBuilder) {
-    if (request.getOrderByCount() > 0) {
-      List<OrderByExpression> orderByExpressions = request.getOrderByList();
-      queryBuilder.addAllOrderBy(
-          QueryAndGatewayDtoConverter.convertToQueryOrderByExpressions(orderByExpressions));
+  private Optional<KeysetPagination> getKeysetPagination(
+      RequestContext context, LogEventsRequest request) {
+    if (!request.getUsePageToken() && request.getPageToken().isEmpty()) {
+      return Optional.empty();
     }
+    return KeysetPagination.of(
+        request.getOrderByList(),
+        AttributeMetadataUtil.getIdAttributeIds(
+            attributeMetadataProvider, entityIdColumnsConfigs, context, LOG_EVENT_SCOPE),
+        request.getPageToken());
+  }
 
+  // Adds the limit and offset information to the QueryService if it is requested. The offset of a
+  // page token replaces the requested one, which only applies to the first page
+  private void addLimitAndOffset(
+      LogEventsRequest request,
+      QueryRequest.Builder queryBuilder,
+      Optional<KeysetPagination> keysetPagination) {
     int limit = request.getLimit();
     if (limit > 0) {
       queryBuilder.setLimit(limit);
     }
 
-    int offset = request.getOffset();
+    int offset =
+        keysetPagination
+            .map(pagination -> pagination.getOffset(request.getOffset()))
+            .orElse(request.getOffset());
     if (offset > 0) {
       queryBuilder.setOffset(offset);
     }
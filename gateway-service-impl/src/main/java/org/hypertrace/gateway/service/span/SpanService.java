@@ -1,5 +1,6 @@
 package org.hypertrace.gateway.service.span;
 
+import static org.hypertrace.gateway.service.common.converters.QueryRequestUtil.createCompositeFilter;
 import static org.hypertrace.gateway.service.common.converters.QueryRequestUtil.createCountByColumnSelection;
 import static org.hypertrace.gateway.service.common.util.AttributeMetadataUtil.getSpaceAttributeId;
 import static org.hypertrace.gateway.service.common.util.AttributeMetadataUtil.getTimestampAttributeId;
@@ -11,24 +12,34 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import org.hypertrace.core.attribute.service.v1.AttributeMetadata;
 import org.hypertrace.core.attribute.service.v1.AttributeScope;
 import org.hypertrace.core.query.service.api.ColumnMetadata;
 import org.hypertrace.core.query.service.api.Filter;
+import org.hypertrace.core.query.service.api.Operator;
 import org.hypertrace.core.query.service.api.QueryRequest;
 import org.hypertrace.core.query.service.api.ResultSetChunk;
 import org.hypertrace.core.query.service.api.Row;
-import org.hypertrace.core.query.service.client.QueryServiceClient;
 import org.hypertrace.core.serviceframework.metrics.PlatformMetricsRegistry;
 import org.hypertrace.gateway.service.common.AttributeMetadataProvider;
+import org.hypertrace.gateway.service.common.QueryServiceExecutor;
 import org.hypertrace.gateway.service.common.RequestContext;
 import org.hypertrace.gateway.service.common.converters.QueryAndGatewayDtoConverter;
+import org.hypertrace.gateway.service.common.converters.QueryRequestTemplateCache;
+import org.hypertrace.gateway.service.common.converters.ValueInterner;
+import org.hypertrace.gateway.service.common.converters.ValueInternerFactory;
 import org.hypertrace.gateway.service.common.util.AttributeMetadataUtil;
-import org.hypertrace.gateway.service.v1.common.OrderByExpression;
+import org.hypertrace.gateway.service.common.util.KeysetPagination;
+import org.hypertrace.gateway.service.common.util.SampledCount;
+import org.hypertrace.gateway.service.entity.config.EntityIdColumnsConfigs;
+import org.hypertrace.gateway.service.v1.common.Expression;
+import org.hypertrace.gateway.service.v1.common.Value;
 import org.hypertrace.gateway.service.v1.span.SpanEvent;
 import org.hypertrace.gateway.service.v1.span.SpansRequest;
 import org.hypertrace.gateway.service.v1.span.SpansResponse;
@@ -42,19 +53,27 @@ import org.slf4j.LoggerFactory;
 public class SpanService {
 
   private static final Logger LOG = LoggerFactory.getLogger(SpanService.class);
-  private final QueryServiceClient queryServiceClient;
+  private final QueryServiceExecutor queryServiceClient;
   private final int requestTimeout;
   private final AttributeMetadataProvider attributeMetadataProvider;
+  private final ValueInternerFactory valueInternerFactory;
+  private final EntityIdColumnsConfigs entityIdColumnsConfigs;
+  private final QueryRequestTemplateCache queryRequestTemplateCache =
+      new QueryRequestTemplateCache();
 
   private Timer queryExecutionTimer;
 
   public SpanService(
-      QueryServiceClient queryServiceClient,
+      QueryServiceExecutor queryServiceClient,
       int requestTimeout,
-      AttributeMetadataProvider attributeMetadataProvider) {
+      AttributeMetadataProvider attributeMetadataProvider,
+      ValueInternerFactory valueInternerFactory,
+      EntityIdColumnsConfigs entityIdColumnsConfigs) {
     this.queryServiceClient = queryServiceClient;
     this.requestTimeout = requestTimeout;
     this.attributeMetadataProvider = attributeMetadataProvider;
+    this.valueInternerFactory = valueInternerFactory;
+    this.entityIdColumnsConfigs = entityIdColumnsConfigs;
     initMetrics();
   }
 
@@ -70,10 +89,27 @@ public class SpanService {
           attributeMetadataProvider.getAttributesMetadata(context, AttributeScope.EVENT.name());
       SpansResponse.Builder spanResponseBuilder = SpansResponse.newBuilder();
 
-      Collection<SpanEvent> filteredSpanEvents = filterSpans(context, request, attributeMap);
+      Optional<KeysetPagination> keysetPagination = getKeysetPagination(context, request);
+      Collection<SpanEvent> filteredSpanEvents =
+          filterSpanEvents(context, request, attributeMap, keysetPagination);
 
       spanResponseBuilder.addAllSpans(filteredSpanEvents);
-      spanResponseBuilder.setTotal(getTotalFilteredSpans(context, request));
+      keysetPagination
+          .flatMap(pagination -> pagination.getNextPageToken(request.getLimit()))
+          .ifPresent(spanResponseBuilder::setNextPageToken);
+      // If an approximate total is fine, only a sample of the time range is counted
+      Optional<SampledCount> sampledCount =
+          request.getApproximateTotal()
+              ? SampledCount.of(request.getStartTimeMillis(), request.getEndTimeMillis())
+              : Optional.empty();
+      int total = getTotalFilteredSpans(context, request, sampledCount);
+      if (sampledCount.isPresent()) {
+        spanResponseBuilder
+            .setTotal((int) sampledCount.get().estimate(total))
+            .setTotalRelativeError(sampledCount.get().getRelativeError(total));
+      } else {
+        spanResponseBuilder.setTotal(total);
+      }
 
       SpansResponse response = spanResponseBuilder.build();
       LOG.debug("Span Service Response: {}", response);
@@ -98,23 +134,39 @@ public class SpanService {
       RequestContext context,
       SpansRequest request,
       Map<String, AttributeMetadata> attributeMetadataMap) {
+    return filterSpanEvents(context, request, attributeMetadataMap, Optional.empty());
+  }
+
+  private List<SpanEvent> filterSpanEvents(
+      RequestContext context,
+      SpansRequest request,
+      Map<String, AttributeMetadata> attributeMetadataMap,
+      Optional<KeysetPagination> keysetPagination) {
 
+    // the values of the last span for the next page token are selected along with the attributes
+    List<Expression> selections = new ArrayList<>(request.getSelectionList());
+    keysetPagination.ifPresent(pagination -> selections.addAll(pagination.getSelections()));
     Map<String, AttributeMetadata> resultKeyToAttributeMetadataMap =
-        AttributeMetadataUtil.remapAttributeMetadataByResultKey(
-            request.getSelectionList(), attributeMetadataMap);
-
-    QueryRequest.Builder queryBuilder = createQueryWithFilter(request, context);
-
-    if (!request.getSelectionList().isEmpty()) {
-      request
-          .getSelectionList()
-          .forEach(
-              exp ->
-                  queryBuilder.addSelection(
-                      QueryAndGatewayDtoConverter.convertToQueryExpression(exp)));
-    }
+        AttributeMetadataUtil.remapAttributeMetadataByResultKey(selections, attributeMetadataMap);
+
+    QueryRequest.Builder queryBuilder =
+        queryRequestTemplateCache.newQueryRequestBuilder(
+            request.getStartTimeMillis(),
+            request.getEndTimeMillis(),
+            request.getSpaceId(),
+            getTimestampAttributeId(
+                this.attributeMetadataProvider, context, AttributeScope.EVENT.name()),
+            getSpaceAttributeId(
+                this.attributeMetadataProvider, context, AttributeScope.EVENT.name()),
+            keysetPagination
+                .map(pagination -> pagination.getFilter(request.getFilter()))
+                .orElse(request.getFilter()),
+            selections,
+            keysetPagination
+                .map(KeysetPagination::getOrderByList)
+                .orElse(request.getOrderByList()));
 
-    addSortLimitAndOffset(request, queryBuilder);
+    addLimitAndOffset(request, queryBuilder, keysetPagination);
 
     List<SpanEvent> spanEventsResult = new ArrayList<>();
     QueryRequest queryRequest = queryBuilder.build();
@@ -122,45 +174,69 @@ public class SpanService {
     Iterator<ResultSetChunk> resultSetChunkIterator =
         queryServiceClient.executeQuery(queryRequest, context.getHeaders(), requestTimeout);
 
-    while (resultSetChunkIterator.hasNext()) {
-      ResultSetChunk chunk = resultSetChunkIterator.next();
-      LOG.debug("Received chunk: {}", chunk);
-
-      if (chunk.getRowCount() < 1) {
-        break;
-      }
+    try (ValueInterner valueInterner = valueInternerFactory.newInterner()) {
+      while (resultSetChunkIterator.hasNext()) {
+        ResultSetChunk chunk = resultSetChunkIterator.next();
+        LOG.debug("Received chunk: {}", chunk);
 
-      for (Row row : chunk.getRowList()) {
-        SpanEvent.Builder spanEventBuilder = SpanEvent.newBuilder();
-        for (int i = 0; i < chunk.getResultSetMetadata().getColumnMetadataCount(); i++) {
-          ColumnMetadata metadata = chunk.getResultSetMetadata().getColumnMetadata(i);
-          String attrName = metadata.getColumnName();
-          spanEventBuilder.putAttributes(
-              metadata.getColumnName(),
-              QueryAndGatewayDtoConverter.convertToGatewayValue(
-                  attrName, row.getColumn(i), resultKeyToAttributeMetadataMap));
+        if (chunk.getRowCount() < 1) {
+          break;
         }
 
-        spanEventsResult.add(spanEventBuilder.build());
+        for (Row row : chunk.getRowList()) {
+          SpanEvent.Builder spanEventBuilder = SpanEvent.newBuilder();
+          Map<String, Value> keysetValues = new HashMap<>();
+          for (int i = 0; i < chunk.getResultSetMetadata().getColumnMetadataCount(); i++) {
+            ColumnMetadata metadata = chunk.getResultSetMetadata().getColumnMetadata(i);
+            String attrName = metadata.getColumnName();
+            Value value =
+                valueInterner.convertToGatewayValue(
+                    attrName, row.getColumn(i), resultKeyToAttributeMetadataMap);
+            if (keysetPagination.isPresent() && keysetPagination.get().isKeysetColumn(attrName)) {
+              keysetValues.put(attrName, value);
+            } else {
+              spanEventBuilder.putAttributes(metadata.getColumnName(), value);
+            }
+          }
+
+          keysetPagination.ifPresent(pagination -> pagination.addRow(keysetValues));
+          spanEventsResult.add(spanEventBuilder.build());
+        }
       }
     }
     return spanEventsResult;
   }
 
-  // Adds the sort, limit and offset information to the QueryService if it is requested
-  private void addSortLimitAndOffset(SpansRequest request, QueryRequest.Builder queryBuilder) {
-    if (request.getOrderByCount() > 0) {
-      List<OrderByExpression> orderByExpressions = request.getOrderByList();
-      queryBuilder.addAllOrderBy(
-          QueryAndGatewayDtoConverter.convertToQueryOrderByExpressions(orderByExpressions));
+  private Optional<KeysetPagination> getKeysetPagination(
+      RequestContext context, SpansRequest request) {
+    if (!request.getUsePageToken() && request.getPageToken().isEmpty()) {
+      return Optional.empty();
     }
+    return KeysetPagination.of(
+        request.getOrderByList(),
+        AttributeMetadataUtil.getIdAttributeIds(
+            attributeMetadataProvider,
+            entityIdColumnsConfigs,
+            context,
+            AttributeScope.EVENT.name()),
+        request.getPageToken());
+  }
 
+  // Adds the limit and offset information to the QueryService if it is requested. The offset of a
+  // page token replaces the requested one, which only applies to the first page
+  private void addLimitAndOffset(
+      SpansRequest request,
+      QueryRequest.Builder queryBuilder,
+      Optional<KeysetPagination> keysetPagination) {
     int limit = request.getLimit();
     if (limit > 0) {
       queryBuilder.setLimit(limit);
     }
 
-    int offset = request.getOffset();
+    int offset =
+        keysetPagination
+            .map(pagination -> pagination.getOffset(request.getOffset()))
+            .orElse(request.getOffset());
     if (offset > 0) {
       queryBuilder.setOffset(offset);
     }
@@ -181,16 +257,25 @@ public class SpanService {
     return QueryRequest.newBuilder().setFilter(filter);
   }
 
-  private int getTotalFilteredSpans(RequestContext context, SpansRequest request) {
+  private int getTotalFilteredSpans(
+      RequestContext context, SpansRequest request, Optional<SampledCount> sampledCount) {
     int total = 0;
     String timestampAttributeId =
         getTimestampAttributeId(
             this.attributeMetadataProvider, context, AttributeScope.EVENT.name());
 
-    QueryRequest queryRequest =
+    QueryRequest.Builder queryBuilder =
         createQueryWithFilter(request, context)
-            .addSelection(createCountByColumnSelection(timestampAttributeId))
-            .build();
+            .addSelection(createCountByColumnSelection(timestampAttributeId));
+    if (sampledCount.isPresent()) {
+      queryBuilder.setFilter(
+          createCompositeFilter(
+              Operator.AND,
+              List.of(
+                  queryBuilder.getFilter(),
+                  sampledCount.get().createSampleFilter(timestampAttributeId))));
+    }
+    QueryRequest queryRequest = queryBuilder.build();
 
     Iterator<ResultSetChunk> resultSetChunkIterator =
         queryServiceClient.executeQuery(queryRequest, context.getHeaders(), requestTimeout);
@@ -1,5 +1,6 @@
 package org.hypertrace.gateway.service.trace;
 
+import static org.hypertrace.gateway.service.common.converters.QueryRequestUtil.createCompositeFilter;
 import static org.hypertrace.gateway.service.common.converters.QueryRequestUtil.createCountByColumnSelection;
 import static org.hypertrace.gateway.service.common.util.AttributeMetadataUtil.getSpaceAttributeId;
 import static org.hypertrace.gateway.service.common.util.AttributeMetadataUtil.getTimestampAttributeId;
@@ -11,27 +12,37 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import org.hypertrace.core.attribute.service.v1.AttributeMetadata;
 import org.hypertrace.core.query.service.api.ColumnMetadata;
 import org.hypertrace.core.query.service.api.Filter;
+import org.hypertrace.core.query.service.api.Operator;
 import org.hypertrace.core.query.service.api.QueryRequest;
 import org.hypertrace.core.query.service.api.QueryRequest.Builder;
 import org.hypertrace.core.query.service.api.ResultSetChunk;
 import org.hypertrace.core.query.service.api.Row;
-import org.hypertrace.core.query.service.client.QueryServiceClient;
 import org.hypertrace.core.serviceframework.metrics.PlatformMetricsRegistry;
 import org.hypertrace.gateway.service.common.AttributeMetadataProvider;
+import org.hypertrace.gateway.service.common.QueryServiceExecutor;
 import org.hypertrace.gateway.service.common.RequestContext;
 import org.hypertrace.gateway.service.common.config.ScopeFilterConfigs;
 import org.hypertrace.gateway.service.common.converters.QueryAndGatewayDtoConverter;
+import org.hypertrace.gateway.service.common.converters.QueryRequestTemplateCache;
+import org.hypertrace.gateway.service.common.converters.ValueInterner;
+import org.hypertrace.gateway.service.common.converters.ValueInternerFactory;
 import org.hypertrace.gateway.service.common.transformer.RequestPreProcessor;
 import org.hypertrace.gateway.service.common.util.AttributeMetadataUtil;
 import org.hypertrace.gateway.service.common.util.ExpressionReader;
-import org.hypertrace.gateway.service.v1.common.OrderByExpression;
+import org.hypertrace.gateway.service.common.util.KeysetPagination;
+import org.hypertrace.gateway.service.common.util.SampledCount;
+import org.hypertrace.gateway.service.entity.config.EntityIdColumnsConfigs;
+import org.hypertrace.gateway.service.v1.common.Expression;
+import org.hypertrace.gateway.service.v1.common.Value;
 import org.hypertrace.gateway.service.v1.trace.Trace;
 import org.hypertrace.gateway.service.v1.trace.TracesRequest;
 import org.hypertrace.gateway.service.v1.trace.TracesResponse;
@@ -53,25 +64,33 @@ public class TracesService {
 
   private static final Logger LOG = LoggerFactory.getLogger(TracesService.class);
 
-  private final QueryServiceClient queryServiceClient;
+  private final QueryServiceExecutor queryServiceClient;
   private final int queryServiceReqTimeout;
   private final AttributeMetadataProvider attributeMetadataProvider;
   private final TracesRequestValidator requestValidator;
   private final RequestPreProcessor requestPreProcessor;
+  private final ValueInternerFactory valueInternerFactory;
+  private final EntityIdColumnsConfigs entityIdColumnsConfigs;
+  private final QueryRequestTemplateCache queryRequestTemplateCache =
+      new QueryRequestTemplateCache();
 
   private Timer queryExecutionTimer;
 
   public TracesService(
-      QueryServiceClient queryServiceClient,
+      QueryServiceExecutor queryServiceClient,
       int qsRequestTimeout,
       AttributeMetadataProvider attributeMetadataProvider,
-      ScopeFilterConfigs scopeFilterConfigs) {
+      ScopeFilterConfigs scopeFilterConfigs,
+      ValueInternerFactory valueInternerFactory,
+      EntityIdColumnsConfigs entityIdColumnsConfigs) {
     this.queryServiceClient = queryServiceClient;
     this.queryServiceReqTimeout = qsRequestTimeout;
     this.attributeMetadataProvider = attributeMetadataProvider;
     this.requestValidator = new TracesRequestValidator();
     this.requestPreProcessor =
         new RequestPreProcessor(attributeMetadataProvider, scopeFilterConfigs);
+    this.valueInternerFactory = valueInternerFactory;
+    this.entityIdColumnsConfigs = entityIdColumnsConfigs;
     initMetrics();
   }
 
@@ -97,12 +116,30 @@ public class TracesService {
       TracesResponse.Builder tracesResponseBuilder = TracesResponse.newBuilder();
       // filter traces
 
+      Optional<KeysetPagination> keysetPagination =
+          getKeysetPagination(context, preProcessedRequest, scope);
       Collection<Trace> filteredTraces =
-          filterTraces(context, preProcessedRequest, attributeMap, scope);
+          filterTraces(context, preProcessedRequest, attributeMap, scope, keysetPagination);
       tracesResponseBuilder.addAllTraces(filteredTraces);
+      keysetPagination
+          .flatMap(pagination -> pagination.getNextPageToken(preProcessedRequest.getLimit()))
+          .ifPresent(tracesResponseBuilder::setNextPageToken);
       // Get the total API Traces in a separate query because this will scale better
-      // for large data-set
-      tracesResponseBuilder.setTotal(getTotalFilteredTraces(context, preProcessedRequest, scope));
+      // for large data-set. If an approximate total is fine, only a sample of the time range is
+      // counted
+      Optional<SampledCount> sampledCount =
+          preProcessedRequest.getApproximateTotal()
+              ? SampledCount.of(
+                  preProcessedRequest.getStartTimeMillis(), preProcessedRequest.getEndTimeMillis())
+              : Optional.empty();
+      int total = getTotalFilteredTraces(context, preProcessedRequest, scope, sampledCount);
+      if (sampledCount.isPresent()) {
+        tracesResponseBuilder
+            .setTotal((int) sampledCount.get().estimate(total))
+            .setTotalRelativeError(sampledCount.get().getRelativeError(total));
+      } else {
+        tracesResponseBuilder.setTotal(total);
+      }
 
       TracesResponse response = tracesResponseBuilder.build();
       if (LOG.isDebugEnabled()) {
@@ -121,23 +158,38 @@ public class TracesService {
       TracesRequest request,
       Map<String, AttributeMetadata> attributeMetadataMap,
       TraceScope scope) {
+    return filterTraces(context, request, attributeMetadataMap, scope, Optional.empty());
+  }
 
-    Map<String, AttributeMetadata> resultKeyToAttributeMetadataMap =
-        AttributeMetadataUtil.remapAttributeMetadataByResultKey(
-            request.getSelectionList(), attributeMetadataMap);
-
-    QueryRequest.Builder builder = createQueryWithFilter(request, scope, context);
+  private List<Trace> filterTraces(
+      RequestContext context,
+      TracesRequest request,
+      Map<String, AttributeMetadata> attributeMetadataMap,
+      TraceScope scope,
+      Optional<KeysetPagination> keysetPagination) {
 
-    if (!request.getSelectionList().isEmpty()) {
-      request
-          .getSelectionList()
-          .forEach(
-              exp ->
-                  builder.addSelection(QueryAndGatewayDtoConverter.convertToQueryExpression(exp)));
-    }
+    // the values of the last trace for the next page token are selected along with the attributes
+    List<Expression> selections = new ArrayList<>(request.getSelectionList());
+    keysetPagination.ifPresent(pagination -> selections.addAll(pagination.getSelections()));
+    Map<String, AttributeMetadata> resultKeyToAttributeMetadataMap =
+        AttributeMetadataUtil.remapAttributeMetadataByResultKey(selections, attributeMetadataMap);
 
-    // Adds the parent span id selection to the query builder for the span event
-    addSortLimitAndOffset(request, builder);
+    QueryRequest.Builder builder =
+        queryRequestTemplateCache.newQueryRequestBuilder(
+            request.getStartTimeMillis(),
+            request.getEndTimeMillis(),
+            request.getSpaceId(),
+            getTimestampAttributeId(this.attributeMetadataProvider, context, scope.name()),
+            getSpaceAttributeId(this.attributeMetadataProvider, context, scope.name()),
+            keysetPagination
+                .map(pagination -> pagination.getFilter(request.getFilter()))
+                .orElse(request.getFilter()),
+            selections,
+            keysetPagination
+                .map(KeysetPagination::getOrderByList)
+                .orElse(request.getOrderByList()));
+
+    addLimitAndOffset(request, builder, keysetPagination);
 
     List<Trace> tracesResult = new ArrayList<>();
     QueryRequest queryRequest = builder.build();
@@ -145,36 +197,61 @@ public class TracesService {
         queryServiceClient.executeQuery(queryRequest, context.getHeaders(), queryServiceReqTimeout);
 
     // form the result
-    while (resultSetChunkIterator.hasNext()) {
-      ResultSetChunk chunk = resultSetChunkIterator.next();
-      if (LOG.isDebugEnabled()) {
-        LOG.debug("Received chunk: " + chunk.toString());
-      }
-
-      if (chunk.getRowCount() < 1) {
-        break;
-      }
+    try (ValueInterner valueInterner = valueInternerFactory.newInterner()) {
+      while (resultSetChunkIterator.hasNext()) {
+        ResultSetChunk chunk = resultSetChunkIterator.next();
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("Received chunk: " + chunk.toString());
+        }
 
-      for (Row row : chunk.getRowList()) {
-        Trace.Builder traceBuilder = Trace.newBuilder();
-        for (int i = 0; i < chunk.getResultSetMetadata().getColumnMetadataCount(); i++) {
-          ColumnMetadata metadata = chunk.getResultSetMetadata().getColumnMetadata(i);
-          String attrName = metadata.getColumnName();
-          traceBuilder.putAttributes(
-              metadata.getColumnName(),
-              QueryAndGatewayDtoConverter.convertToGatewayValue(
-                  attrName, row.getColumn(i), resultKeyToAttributeMetadataMap));
+        if (chunk.getRowCount() < 1) {
+          break;
         }
 
-        tracesResult.add(traceBuilder.build());
+        for (Row row : chunk.getRowList()) {
+          Trace.Builder traceBuilder = Trace.newBuilder();
+          Map<String, Value> keysetValues = new HashMap<>();
+          for (int i = 0; i < chunk.getResultSetMetadata().getColumnMetadataCount(); i++) {
+            ColumnMetadata metadata = chunk.getResultSetMetadata().getColumnMetadata(i);
+            String attrName = metadata.getColumnName();
+            Value value =
+                valueInterner.convertToGatewayValue(
+                    attrName, row.getColumn(i), resultKeyToAttributeMetadataMap);
+            if (keysetPagination.isPresent() && keysetPagination.get().isKeysetColumn(attrName)) {
+              keysetValues.put(attrName, value);
+            } else {
+              traceBuilder.putAttributes(metadata.getColumnName(), value);
+            }
+          }
+
+          keysetPagination.ifPresent(pagination -> pagination.addRow(keysetValues));
+          tracesResult.add(traceBuilder.build());
+        }
       }
     }
     return tracesResult;
   }
 
-  int getTotalFilteredTraces(RequestContext context, TracesRequest request, TraceScope scope) {
+  /** @return the count of the filtered traces, within the sample of the time range if given */
+  int getTotalFilteredTraces(
+      RequestContext context,
+      TracesRequest request,
+      TraceScope scope,
+      Optional<SampledCount> sampledCount) {
     int total = 0;
     Builder queryBuilder = createQueryWithFilter(request, scope, context);
+    if (sampledCount.isPresent()) {
+      queryBuilder.setFilter(
+          createCompositeFilter(
+              Operator.AND,
+              List.of(
+                  queryBuilder.getFilter(),
+                  sampledCount
+                      .get()
+                      .createSampleFilter(
+                          getTimestampAttributeId(
+                              this.attributeMetadataProvider, context, scope.name())))));
+    }
     // validated that the selection is not empty
     if (request.getSelectionCount() < 1) {
       throw new IllegalArgumentException("Query request does not have any selection");
@@ -234,20 +311,31 @@ public class TracesService {
     return QueryRequest.newBuilder().setFilter(filter);
   }
 
-  // Adds the sort, limit and offset information to the QueryService if it is requested
-  private void addSortLimitAndOffset(TracesRequest request, Builder queryBuilder) {
-    if (request.getOrderByCount() > 0) {
-      List<OrderByExpression> orderByExpressions = request.getOrderByList();
-      queryBuilder.addAllOrderBy(
-          QueryAndGatewayDtoConverter.convertToQueryOrderByExpressions(orderByExpressions));
+  private Optional<KeysetPagination> getKeysetPagination(
+      RequestContext context, TracesRequest request, TraceScope scope) {
+    if (!request.getUsePageToken() && request.getPageToken().isEmpty()) {
+      return Optional.empty();
     }
+    return KeysetPagination.of(
+        request.getOrderByList(),
+        AttributeMetadataUtil.getIdAttributeIds(
+            attributeMetadataProvider, entityIdColumnsConfigs, context, scope.name()),
+        request.getPageToken());
+  }
 
+  // Adds the limit and offset information to the QueryService if it is requested. The offset of a
+  // page token replaces the requested one, which only applies to the first page
+  private void addLimitAndOffset(
+      TracesRequest request, Builder queryBuilder, Optional<KeysetPagination> keysetPagination) {
     int limit = request.getLimit();
     if (limit > 0) {
       queryBuilder.setLimit(limit);
     }
 
-    int offset = request.getOffset();
+    int offset =
+        keysetPagination
+            .map(pagination -> pagination.getOffset(request.getOffset()))
+            .orElse(request.getOffset());
     if (offset > 0) {
       queryBuilder.setOffset(offset);
     }
@@ -32,7 +32,6 @@ import org.hypertrace.core.attribute.service.v1.AttributeMetadata;
 import org.hypertrace.core.attribute.service.v1.AttributeMetadataFilter;
 import org.hypertrace.core.query.service.api.QueryRequest;
 import org.hypertrace.core.query.service.api.ResultSetChunk;
-import org.hypertrace.core.query.service.client.QueryServiceClient;
 import org.hypertrace.gateway.service.common.config.ScopeFilterConfigs;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
@@ -154,7 +153,7 @@ public abstract class AbstractServiceTest<
   @ParameterizedTest
   @MethodSource("data")
   public void runTest(String fileName) throws IOException {
-    QueryServiceClient queryServiceClient = createMockQueryServiceClient(fileName);
+    QueryServiceExecutor queryServiceClient = createMockQueryServiceClient(fileName);
     TGatewayServiceRequestType testRequest = readGatewayServiceRequest(fileName);
     TGatewayServiceResponseType actualResponse =
         executeApi(testRequest, queryServiceClient, attributeMetadataProvider, scopeFilterConfigs);
@@ -238,8 +237,8 @@ public abstract class AbstractServiceTest<
     return ((BufferedReader) readResourceFile(fileName)).lines().collect(Collectors.joining());
   }
 
-  private QueryServiceClient createMockQueryServiceClient(String fileName) throws IOException {
-    QueryServiceClient queryServiceClient = mock(QueryServiceClient.class);
+  private QueryServiceExecutor createMockQueryServiceClient(String fileName) throws IOException {
+    QueryServiceExecutor queryServiceClient = mock(QueryServiceExecutor.class);
 
     Map<QueryRequest, ResultSetChunk> queryRequestResultSetChunkMap =
         readExpectedQueryServiceRequestAndResponse(fileName);
@@ -276,7 +275,7 @@ public abstract class AbstractServiceTest<
 
   protected abstract TGatewayServiceResponseType executeApi(
       TGatewayServiceRequestType request,
-      QueryServiceClient queryServiceClient,
+      QueryServiceExecutor queryServiceClient,
       AttributeMetadataProvider attributeMetadataProvider,
       ScopeFilterConfigs scopeFilterConfigs);
 }
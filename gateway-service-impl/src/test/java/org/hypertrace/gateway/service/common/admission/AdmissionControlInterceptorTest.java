@@ -0,0 +1,189 @@
+package org.hypertrace.gateway.service.common.admission;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.typesafe.config.ConfigFactory;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.Status;
+import java.util.Map;
+import org.hypertrace.core.grpcutils.context.RequestContextConstants;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatcher;
+
+public class AdmissionControlInterceptorTest {
+  private ServerCallHandler<Object, Object> next;
+  private ServerCall.Listener<Object> listener;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  public void setup() {
+    next = mock(ServerCallHandler.class);
+    listener = mock(ServerCall.Listener.class);
+    when(next.startCall(any(), any())).thenReturn(listener);
+  }
+
+  @Test
+  public void test_interceptCall_tenantOverLimit_shouldRejectOnlyThatTenant() {
+    AdmissionControlInterceptor interceptor = newInterceptor(1, 10);
+
+    ServerCall<Object, Object> firstCall = newCall();
+    interceptor.interceptCall(firstCall, headers("tenant1"), next);
+    ServerCall<Object, Object> secondCall = newCall();
+    interceptor.interceptCall(secondCall, headers("tenant1"), next);
+    ServerCall<Object, Object> otherTenantCall = newCall();
+    interceptor.interceptCall(otherTenantCall, headers("tenant2"), next);
+
+    verify(secondCall).close(argThat(isResourceExhausted()), any(Metadata.class));
+    verify(otherTenantCall, never()).close(any(), any());
+    verify(next, times(2)).startCall(any(), any());
+  }
+
+  @Test
+  public void test_interceptCall_completedCall_shouldFreeItsSlot() {
+    AdmissionControlInterceptor interceptor = newInterceptor(1, 10);
+
+    ServerCall<Object, Object> firstCall = newCall();
+    interceptor.interceptCall(firstCall, headers("tenant1"), next);
+    getAdmittedCall().close(Status.OK, new Metadata());
+
+    ServerCall<Object, Object> secondCall = newCall();
+    interceptor.interceptCall(secondCall, headers("tenant1"), next);
+    verify(secondCall, never()).close(any(), any());
+    verify(next, times(2)).startCall(any(), any());
+  }
+
+  @Test
+  public void test_interceptCall_globalOverLimit_shouldReject() {
+    AdmissionControlInterceptor interceptor = newInterceptor(10, 1);
+
+    interceptor.interceptCall(newCall(), headers("tenant1"), next);
+    ServerCall<Object, Object> secondCall = newCall();
+    interceptor.interceptCall(secondCall, headers("tenant2"), next);
+
+    verify(secondCall).close(argThat(isResourceExhausted()), any(Metadata.class));
+  }
+
+  @Test
+  public void test_interceptCall_overloadedCall_shouldDecreaseGlobalLimit() {
+    AdmissionControlInterceptor interceptor = newInterceptor(10, 8);
+
+    interceptor.interceptCall(newCall(), headers("tenant1"), next);
+    getAdmittedCall().close(Status.DEADLINE_EXCEEDED, new Metadata());
+
+    assertEquals(4, interceptor.getGlobalLimit());
+  }
+
+  @Test
+  public void test_interceptCall_queuedCall_shouldStartOnceASlotIsFreed() {
+    AdmissionControlInterceptor interceptor = newInterceptor(1, 10, 60_000);
+
+    interceptor.interceptCall(newCall(), headers("tenant1"), next);
+    ServerCall<Object, Object> firstAdmittedCall = getAdmittedCall();
+    ServerCall<Object, Object> secondCall = newCall();
+    ServerCall.Listener<Object> secondListener =
+        interceptor.interceptCall(secondCall, headers("tenant1"), next);
+    verify(next, times(1)).startCall(any(), any());
+
+    firstAdmittedCall.close(Status.OK, new Metadata());
+    verify(next, times(2)).startCall(any(), any());
+    verify(secondCall, never()).close(any(), any());
+
+    // the events of the started call get to the service listener
+    secondListener.onHalfClose();
+    verify(listener).onHalfClose();
+  }
+
+  @Test
+  public void test_interceptCall_queuedTooLong_shouldReject() {
+    AdmissionControlInterceptor interceptor = newInterceptor(1, 10, 10);
+
+    interceptor.interceptCall(newCall(), headers("tenant1"), next);
+    ServerCall<Object, Object> secondCall = newCall();
+    interceptor.interceptCall(secondCall, headers("tenant1"), next);
+
+    verify(secondCall, timeout(5000)).close(argThat(isResourceExhausted()), any(Metadata.class));
+    verify(next, times(1)).startCall(any(), any());
+  }
+
+  @Test
+  public void test_interceptCall_cancelledWhileQueued_shouldNotStart() {
+    AdmissionControlInterceptor interceptor = newInterceptor(1, 10, 60_000);
+
+    interceptor.interceptCall(newCall(), headers("tenant1"), next);
+    ServerCall<Object, Object> firstAdmittedCall = getAdmittedCall();
+    interceptor.interceptCall(newCall(), headers("tenant1"), next).onCancel();
+
+    firstAdmittedCall.close(Status.OK, new Metadata());
+    verify(next, times(1)).startCall(any(), any());
+  }
+
+  private AdmissionControlInterceptor newInterceptor(int tenantLimit, int globalLimit) {
+    return newInterceptor(tenantLimit, globalLimit, 0);
+  }
+
+  private AdmissionControlInterceptor newInterceptor(
+      int tenantLimit, int globalLimit, long maxQueueWaitMillis) {
+    return new AdmissionControlInterceptor(
+        new AdmissionControlConfig(
+            ConfigFactory.parseMap(
+                Map.of(
+                    "admission.control.config.enabled",
+                    true,
+                    "admission.control.config.max.queue.wait.millis",
+                    maxQueueWaitMillis,
+                    "admission.control.config.backoff.ratio",
+                    0.5,
+                    "admission.control.config.global.initial.limit",
+                    globalLimit,
+                    "admission.control.config.global.min.limit",
+                    1,
+                    "admission.control.config.tenant.initial.limit",
+                    tenantLimit,
+                    "admission.control.config.tenant.min.limit",
+                    1))));
+  }
+
+  @SuppressWarnings("unchecked")
+  private ServerCall<Object, Object> newCall() {
+    ServerCall<Object, Object> call = mock(ServerCall.class);
+    MethodDescriptor<Object, Object> methodDescriptor = mock(MethodDescriptor.class);
+    when(methodDescriptor.getFullMethodName()).thenReturn("GatewayService/getEntities");
+    when(call.getMethodDescriptor()).thenReturn(methodDescriptor);
+    return call;
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private ServerCall<Object, Object> getAdmittedCall() {
+    ArgumentCaptor<ServerCall<Object, Object>> captor =
+        ArgumentCaptor.forClass((Class) ServerCall.class);
+    verify(next, atLeastOnce()).startCall(captor.capture(), any());
+    return captor.getValue();
+  }
+
+  private static Metadata headers(String tenantId) {
+    Metadata headers = new Metadata();
+    headers.put(
+        Metadata.Key.of(
+            RequestContextConstants.TENANT_ID_HEADER_KEY, Metadata.ASCII_STRING_MARSHALLER),
+        tenantId);
+    return headers;
+  }
+
+  private static ArgumentMatcher<Status> isResourceExhausted() {
+    return status -> status.getCode() == Status.Code.RESOURCE_EXHAUSTED;
+  }
+}
@@ -0,0 +1,74 @@
+package org.hypertrace.gateway.service.common.admission;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class AimdConcurrencyLimitTest {
+  private static final long FAST_CALL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+  private static final long SLOW_CALL_NANOS = TimeUnit.MILLISECONDS.toNanos(2000);
+
+  @Test
+  public void test_tryAcquire_overLimit_shouldReject() {
+    AimdConcurrencyLimit limit = new AimdConcurrencyLimit(2, 1, 10, 0.5, 1000);
+
+    assertTrue(limit.tryAcquire());
+    assertTrue(limit.tryAcquire());
+    assertFalse(limit.tryAcquire());
+
+    limit.release();
+    assertTrue(limit.tryAcquire());
+    assertEquals(2, limit.getInFlight());
+  }
+
+  @Test
+  public void test_onComplete_slowOrOverloadedCalls_shouldDecreaseLimit() {
+    AimdConcurrencyLimit limit = new AimdConcurrencyLimit(8, 1, 10, 0.5, 1000);
+
+    limit.tryAcquire();
+    limit.onComplete(SLOW_CALL_NANOS, false);
+    assertEquals(4, limit.getLimit());
+
+    limit.tryAcquire();
+    limit.onComplete(FAST_CALL_NANOS, true);
+    assertEquals(2, limit.getLimit());
+
+    for (int i = 0; i < 5; i++) {
+      limit.tryAcquire();
+      limit.onComplete(SLOW_CALL_NANOS, false);
+    }
+    assertEquals(1, limit.getLimit());
+    assertEquals(0, limit.getInFlight());
+  }
+
+  @Test
+  public void test_onComplete_fastCallsAtTheLimit_shouldIncreaseLimit() {
+    AimdConcurrencyLimit limit = new AimdConcurrencyLimit(2, 1, 3, 0.5, 1000);
+
+    // a round of requests at the limit grows it by one
+    for (int round = 0; round < 4; round++) {
+      int currentLimit = limit.getLimit();
+      for (int i = 0; i < currentLimit; i++) {
+        assertTrue(limit.tryAcquire());
+      }
+      for (int i = 0; i < currentLimit; i++) {
+        limit.onComplete(FAST_CALL_NANOS, false);
+      }
+    }
+    assertEquals(3, limit.getLimit());
+  }
+
+  @Test
+  public void test_onComplete_fastCallsFarBelowTheLimit_shouldKeepLimit() {
+    AimdConcurrencyLimit limit = new AimdConcurrencyLimit(10, 1, 100, 0.5, 1000);
+
+    for (int i = 0; i < 100; i++) {
+      limit.tryAcquire();
+      limit.onComplete(FAST_CALL_NANOS, false);
+    }
+    assertEquals(10, limit.getLimit());
+  }
+}
@@ -0,0 +1,138 @@
+package org.hypertrace.gateway.service.common.cache;
+
+import static org.hypertrace.gateway.service.common.QueryServiceRequestAndResponseUtils.getResultSetChunk;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+import org.hypertrace.core.query.service.api.QueryRequest;
+import org.hypertrace.core.query.service.api.ResultSetChunk;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TenantAwareQueryResultCacheTest {
+  private static final String TENANT_1 = "tenant1";
+  private static final String TENANT_2 = "tenant2";
+  private static final long TTL_MILLIS = 60_000L;
+
+  private final List<ResultSetChunk> resultSetChunks =
+      List.of(getResultSetChunk(List.of("API.name"), new String[][] {{"checkout"}}));
+
+  private MutableClock clock;
+
+  @BeforeEach
+  public void setup() {
+    clock = new MutableClock();
+  }
+
+  @Test
+  public void test_get_cachedResult_shouldBeReturnedForSameTenantOnly() {
+    TenantAwareQueryResultCache cache = new TenantAwareQueryResultCache(100_000, 50_000, clock);
+    cache.put(TENANT_1, queryRequest(1), resultSetChunks, TTL_MILLIS);
+
+    assertEquals(resultSetChunks, cache.get(TENANT_1, queryRequest(1)).orElseThrow());
+    assertTrue(cache.get(TENANT_2, queryRequest(1)).isEmpty());
+    assertTrue(cache.get(TENANT_1, queryRequest(2)).isEmpty());
+  }
+
+  @Test
+  public void test_get_expiredResult_shouldBeEvicted() {
+    TenantAwareQueryResultCache cache = new TenantAwareQueryResultCache(100_000, 50_000, clock);
+    cache.put(TENANT_1, queryRequest(1), resultSetChunks, TTL_MILLIS);
+
+    clock.advance(TTL_MILLIS);
+
+    assertTrue(cache.get(TENANT_1, queryRequest(1)).isEmpty());
+    assertEquals(0, cache.getBytes());
+  }
+
+  @Test
+  public void test_put_tenantOverItsShare_shouldEvictOnlyItsOwnResults() {
+    long entryBytes = entryBytes();
+    TenantAwareQueryResultCache cache =
+        new TenantAwareQueryResultCache(100 * entryBytes, 3 * entryBytes, clock);
+    cache.put(TENANT_2, queryRequest(0), resultSetChunks, TTL_MILLIS);
+    for (int i = 1; i <= 5; i++) {
+      cache.put(TENANT_1, queryRequest(i), resultSetChunks, TTL_MILLIS);
+    }
+
+    assertTrue(cache.getTenantBytes(TENANT_1) <= 3 * entryBytes);
+    assertTrue(cache.get(TENANT_1, queryRequest(1)).isEmpty());
+    assertTrue(cache.get(TENANT_1, queryRequest(5)).isPresent());
+    assertTrue(cache.get(TENANT_2, queryRequest(0)).isPresent());
+  }
+
+  @Test
+  public void test_put_fullCache_shouldOnlyAdmitResultsRequestedMoreOften() {
+    long entryBytes = entryBytes();
+    // room for a single result
+    TenantAwareQueryResultCache cache =
+        new TenantAwareQueryResultCache(3 * entryBytes / 2, 2 * entryBytes, clock);
+    cache.put(TENANT_1, queryRequest(1), resultSetChunks, TTL_MILLIS);
+    // popular result
+    for (int i = 0; i < 5; i++) {
+      cache.get(TENANT_1, queryRequest(1));
+    }
+
+    // one off result, requested once before being cached
+    cache.get(TENANT_1, queryRequest(2));
+    cache.put(TENANT_1, queryRequest(2), resultSetChunks, TTL_MILLIS);
+
+    assertTrue(cache.get(TENANT_1, queryRequest(1)).isPresent());
+    assertTrue(cache.get(TENANT_1, queryRequest(2)).isEmpty());
+
+    // once requested more often than the cached result, it replaces it
+    for (int i = 0; i < 10; i++) {
+      cache.get(TENANT_1, queryRequest(2));
+    }
+    cache.put(TENANT_1, queryRequest(2), resultSetChunks, TTL_MILLIS);
+    assertTrue(cache.get(TENANT_1, queryRequest(2)).isPresent());
+  }
+
+  @Test
+  public void test_put_zeroTtl_shouldNotCache() {
+    TenantAwareQueryResultCache cache = new TenantAwareQueryResultCache(100_000, 50_000, clock);
+    cache.put(TENANT_1, queryRequest(1), resultSetChunks, 0);
+
+    assertTrue(cache.get(TENANT_1, queryRequest(1)).isEmpty());
+  }
+
+  private long entryBytes() {
+    return queryRequest(1).toByteString().size() + resultSetChunks.get(0).getSerializedSize();
+  }
+
+  private QueryRequest queryRequest(int limit) {
+    return QueryRequest.newBuilder().setLimit(limit).build();
+  }
+
+  private static class MutableClock extends Clock {
+    private long millis = 1_600_000_000_000L;
+
+    void advance(long deltaMillis) {
+      millis += deltaMillis;
+    }
+
+    @Override
+    public long millis() {
+      return millis;
+    }
+
+    @Override
+    public Instant instant() {
+      return Instant.ofEpochMilli(millis);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneId.of("UTC");
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package org.hypertrace.gateway.service.common.cache;
+
+import static org.hypertrace.gateway.service.common.QueryServiceRequestAndResponseUtils.createQsDefaultRequestFilter;
+import static org.hypertrace.gateway.service.common.converters.QueryRequestUtil.createBetweenTimesFilter;
+import static org.hypertrace.gateway.service.common.converters.QueryRequestUtil.createCompositeFilter;
+import static org.hypertrace.gateway.service.common.converters.QueryRequestUtil.createLongFilter;
+import static org.hypertrace.gateway.service.common.converters.QueryRequestUtil.createStringFilter;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.OptionalLong;
+import org.hypertrace.core.query.service.api.Filter;
+import org.hypertrace.core.query.service.api.Operator;
+import org.hypertrace.core.query.service.api.QueryRequest;
+import org.junit.jupiter.api.Test;
+
+public class TimeRangeTtlPolicyTest {
+  private static final long NOW = 1_600_000_000_000L;
+  private static final long RECENT_WINDOW_MILLIS = 300_000L;
+  private static final long RECENT_TTL_MILLIS = 10_000L;
+  private static final long HISTORICAL_TTL_MILLIS = 600_000L;
+
+  private final TimeRangeTtlPolicy timeRangeTtlPolicy =
+      new TimeRangeTtlPolicy(
+          RECENT_WINDOW_MILLIS,
+          RECENT_TTL_MILLIS,
+          HISTORICAL_TTL_MILLIS,
+          Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC));
+
+  @Test
+  public void test_getTtlMillis_timeRangeInThePast_shouldUseHistoricalTtl() {
+    assertEquals(
+        HISTORICAL_TTL_MILLIS,
+        timeRangeTtlPolicy.getTtlMillis(
+            queryRequest(
+                createQsDefaultRequestFilter(
+                    "API.startTime", "API.id", NOW - 7_200_000L, NOW - 3_600_000L))));
+  }
+
+  @Test
+  public void test_getTtlMillis_timeRangeEndingNow_shouldUseRecentTtl() {
+    assertEquals(
+        RECENT_TTL_MILLIS,
+        timeRangeTtlPolicy.getTtlMillis(
+            queryRequest(
+                createQsDefaultRequestFilter("API.startTime", "API.id", NOW - 3_600_000L, NOW))));
+  }
+
+  @Test
+  public void test_getTtlMillis_timeRangeEndingNowAndLongBound_shouldUseRecentTtl() {
+    Filter filter =
+        createCompositeFilter(
+            Operator.AND,
+            List.of(
+                createBetweenTimesFilter("API.startTime", NOW - 3_600_000L, NOW),
+                createLongFilter("API.duration", Operator.LT, 500)));
+    assertEquals(RECENT_TTL_MILLIS, timeRangeTtlPolicy.getTtlMillis(queryRequest(filter)));
+  }
+
+  @Test
+  public void test_getTtlMillis_onlyLongBound_shouldNotBeCached() {
+    assertEquals(
+        0,
+        timeRangeTtlPolicy.getTtlMillis(
+            queryRequest(createLongFilter("API.duration", Operator.LT, 500))));
+  }
+
+  @Test
+  public void test_getTtlMillis_noTimeRange_shouldNotBeCached() {
+    assertEquals(
+        0,
+        timeRangeTtlPolicy.getTtlMillis(
+            queryRequest(createStringFilter("API.name", Operator.EQ, "checkout"))));
+  }
+
+  @Test
+  public void test_getEndTimeMillis_orWithUnboundedBranch_shouldBeUnbounded() {
+    Filter filter =
+        createCompositeFilter(
+            Operator.OR,
+            List.of(
+                createBetweenTimesFilter("API.startTime", 0, 10),
+                createStringFilter("API.name", Operator.EQ, "checkout")));
+    assertEquals(OptionalLong.empty(), TimeRangeTtlPolicy.getEndTimeMillis(filter));
+  }
+
+  @Test
+  public void test_getEndTimeMillis_andOfTimeRanges_shouldUseTightestBound() {
+    Filter filter =
+        createCompositeFilter(
+            Operator.AND,
+            List.of(
+                createBetweenTimesFilter("API.startTime", 0, 10),
+                createBetweenTimesFilter("API.endTime", 0, 20)));
+    assertEquals(OptionalLong.of(10), TimeRangeTtlPolicy.getEndTimeMillis(filter));
+  }
+
+  private QueryRequest queryRequest(Filter filter) {
+    return QueryRequest.newBuilder().setFilter(filter).build();
+  }
+}
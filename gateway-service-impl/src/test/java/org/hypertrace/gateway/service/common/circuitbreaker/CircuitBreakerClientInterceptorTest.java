@@ -0,0 +1,153 @@
+package org.hypertrace.gateway.service.common.circuitbreaker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptors;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Server;
+import io.grpc.ServerCall;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class CircuitBreakerClientInterceptorTest {
+  private static final MethodDescriptor<String, String> ECHO_METHOD =
+      MethodDescriptor.<String, String>newBuilder()
+          .setType(MethodDescriptor.MethodType.UNARY)
+          .setFullMethodName("EchoService/echo")
+          .setRequestMarshaller(new StringMarshaller())
+          .setResponseMarshaller(new StringMarshaller())
+          .build();
+
+  private final CircuitBreaker circuitBreaker = mock(CircuitBreaker.class);
+  private final AtomicInteger serverCalls = new AtomicInteger();
+  private Server server;
+  private ManagedChannel channel;
+
+  @BeforeEach
+  public void setup() throws IOException {
+    String serverName = InProcessServerBuilder.generateName();
+    server =
+        InProcessServerBuilder.forName(serverName)
+            .directExecutor()
+            .addService(
+                ServerServiceDefinition.builder("EchoService")
+                    .addMethod(
+                        ECHO_METHOD,
+                        (call, headers) -> {
+                          serverCalls.incrementAndGet();
+                          call.request(1);
+                          return new ServerCall.Listener<>() {
+                            @Override
+                            public void onMessage(String message) {
+                              call.sendHeaders(new Metadata());
+                              call.sendMessage(message);
+                              call.close(Status.OK, new Metadata());
+                            }
+                          };
+                        })
+                    .build())
+            .build()
+            .start();
+    channel = InProcessChannelBuilder.forName(serverName).directExecutor().build();
+    when(circuitBreaker.getName()).thenReturn("query_service");
+  }
+
+  @AfterEach
+  public void tearDown() {
+    channel.shutdownNow();
+    server.shutdownNow();
+  }
+
+  @Test
+  public void test_interceptCall_openBreaker_shouldCloseWithUnavailable() throws Exception {
+    when(circuitBreaker.tryAcquirePermission()).thenReturn(false);
+
+    CallResult result = call("hello");
+
+    Status status = result.status.get(10, TimeUnit.SECONDS);
+    assertEquals(Status.Code.UNAVAILABLE, status.getCode());
+    assertTrue(CircuitBreakerOpenException.isCause(status.asRuntimeException()));
+    assertEquals(0, serverCalls.get());
+    verify(circuitBreaker, never()).onError(anyLong());
+  }
+
+  @Test
+  public void test_interceptCall_closedBreaker_shouldCallAndRecordTheSuccess() throws Exception {
+    when(circuitBreaker.tryAcquirePermission()).thenReturn(true);
+
+    CallResult result = call("hello");
+
+    assertEquals(Status.Code.OK, result.status.get(10, TimeUnit.SECONDS).getCode());
+    assertEquals("hello", result.message.get(10, TimeUnit.SECONDS));
+    assertEquals(1, serverCalls.get());
+    verify(circuitBreaker).onSuccess(anyLong());
+  }
+
+  private CallResult call(String message) {
+    CallResult result = new CallResult();
+    ClientCall<String, String> call =
+        ClientInterceptors.intercept(channel, new CircuitBreakerClientInterceptor(circuitBreaker))
+            .newCall(ECHO_METHOD, CallOptions.DEFAULT);
+    call.start(
+        new ClientCall.Listener<>() {
+          @Override
+          public void onMessage(String response) {
+            result.message.complete(response);
+          }
+
+          @Override
+          public void onClose(Status status, Metadata trailers) {
+            result.status.complete(status);
+          }
+        },
+        new Metadata());
+    call.request(1);
+    call.sendMessage(message);
+    call.halfClose();
+    return result;
+  }
+
+  private static class CallResult {
+    private final CompletableFuture<String> message = new CompletableFuture<>();
+    private final CompletableFuture<Status> status = new CompletableFuture<>();
+  }
+
+  private static class StringMarshaller implements MethodDescriptor.Marshaller<String> {
+    @Override
+    public InputStream stream(String value) {
+      return new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String parse(InputStream stream) {
+      try {
+        return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+}
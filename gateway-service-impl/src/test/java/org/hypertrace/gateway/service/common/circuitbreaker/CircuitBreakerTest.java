@@ -0,0 +1,118 @@
+package org.hypertrace.gateway.service.common.circuitbreaker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.typesafe.config.ConfigFactory;
+import java.time.Clock;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.hypertrace.gateway.service.common.circuitbreaker.CircuitBreaker.State;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class CircuitBreakerTest {
+  private static final long FAST_CALL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+  private static final long SLOW_CALL_NANOS = TimeUnit.MILLISECONDS.toNanos(2000);
+  private static final long OPEN_DURATION_MILLIS = 10_000L;
+
+  private final Clock clock = mock(Clock.class);
+  private CircuitBreaker circuitBreaker;
+
+  @BeforeEach
+  public void setup() {
+    when(clock.millis()).thenReturn(0L);
+    circuitBreaker =
+        new CircuitBreaker(
+            "query_service",
+            new CircuitBreakerConfig(
+                ConfigFactory.parseMap(
+                    Map.of(
+                        "circuit.breaker.config.enabled",
+                        true,
+                        "circuit.breaker.config.window.size",
+                        10,
+                        "circuit.breaker.config.min.calls",
+                        4,
+                        "circuit.breaker.config.failure.rate.threshold",
+                        0.5,
+                        "circuit.breaker.config.slow.call.rate.threshold",
+                        0.75,
+                        "circuit.breaker.config.slow.call.duration.millis",
+                        1000,
+                        "circuit.breaker.config.open.duration.millis",
+                        OPEN_DURATION_MILLIS,
+                        "circuit.breaker.config.half.open.calls",
+                        2))),
+            clock);
+  }
+
+  @Test
+  public void test_onError_failureRateOverThreshold_shouldOpen() {
+    circuitBreaker.onSuccess(FAST_CALL_NANOS);
+    circuitBreaker.onError(FAST_CALL_NANOS);
+    circuitBreaker.onSuccess(FAST_CALL_NANOS);
+    assertEquals(State.CLOSED, circuitBreaker.getState());
+
+    circuitBreaker.onError(FAST_CALL_NANOS);
+    assertEquals(State.OPEN, circuitBreaker.getState());
+    assertFalse(circuitBreaker.tryAcquirePermission());
+    assertThrows(CircuitBreakerOpenException.class, circuitBreaker::acquirePermission);
+  }
+
+  @Test
+  public void test_onSuccess_slowCallRateOverThreshold_shouldOpen() {
+    circuitBreaker.onSuccess(SLOW_CALL_NANOS);
+    circuitBreaker.onSuccess(SLOW_CALL_NANOS);
+    circuitBreaker.onSuccess(FAST_CALL_NANOS);
+    circuitBreaker.onSuccess(SLOW_CALL_NANOS);
+    assertEquals(State.OPEN, circuitBreaker.getState());
+  }
+
+  @Test
+  public void test_onError_tooFewCalls_shouldStayClosed() {
+    circuitBreaker.onError(FAST_CALL_NANOS);
+    circuitBreaker.onError(FAST_CALL_NANOS);
+    circuitBreaker.onError(FAST_CALL_NANOS);
+    assertEquals(State.CLOSED, circuitBreaker.getState());
+    assertTrue(circuitBreaker.tryAcquirePermission());
+  }
+
+  @Test
+  public void test_tryAcquirePermission_afterOpenDuration_shouldLetTrialCallsThrough() {
+    open();
+    when(clock.millis()).thenReturn(OPEN_DURATION_MILLIS);
+
+    assertTrue(circuitBreaker.tryAcquirePermission());
+    assertTrue(circuitBreaker.tryAcquirePermission());
+    assertFalse(circuitBreaker.tryAcquirePermission());
+    assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+
+    circuitBreaker.onSuccess(FAST_CALL_NANOS);
+    circuitBreaker.onSuccess(FAST_CALL_NANOS);
+    assertEquals(State.CLOSED, circuitBreaker.getState());
+    assertTrue(circuitBreaker.tryAcquirePermission());
+  }
+
+  @Test
+  public void test_onError_failedTrialCall_shouldOpenAgain() {
+    open();
+    when(clock.millis()).thenReturn(OPEN_DURATION_MILLIS);
+    assertTrue(circuitBreaker.tryAcquirePermission());
+
+    circuitBreaker.onError(FAST_CALL_NANOS);
+    assertEquals(State.OPEN, circuitBreaker.getState());
+    assertFalse(circuitBreaker.tryAcquirePermission());
+  }
+
+  private void open() {
+    for (int i = 0; i < 4; i++) {
+      circuitBreaker.onError(FAST_CALL_NANOS);
+    }
+    assertEquals(State.OPEN, circuitBreaker.getState());
+  }
+}
@@ -0,0 +1,151 @@
+package org.hypertrace.gateway.service.common.converter;
+
+import static org.hypertrace.gateway.service.common.EntitiesRequestAndResponseUtils.buildAggregateExpression;
+import static org.hypertrace.gateway.service.common.EntitiesRequestAndResponseUtils.buildExpression;
+import static org.hypertrace.gateway.service.common.EntitiesRequestAndResponseUtils.buildOrderByExpression;
+import static org.hypertrace.gateway.service.common.EntitiesRequestAndResponseUtils.generateAndOrNotFilter;
+import static org.hypertrace.gateway.service.common.EntitiesRequestAndResponseUtils.generateEQFilter;
+import static org.hypertrace.gateway.service.common.EntitiesRequestAndResponseUtils.getTimeRangeFilter;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import org.hypertrace.core.query.service.api.QueryRequest;
+import org.hypertrace.gateway.service.common.converters.QueryAndGatewayDtoConverter;
+import org.hypertrace.gateway.service.common.converters.QueryRequestTemplateCache;
+import org.hypertrace.gateway.service.v1.common.Expression;
+import org.hypertrace.gateway.service.v1.common.Filter;
+import org.hypertrace.gateway.service.v1.common.FunctionType;
+import org.hypertrace.gateway.service.v1.common.Operator;
+import org.hypertrace.gateway.service.v1.common.OrderByExpression;
+import org.junit.jupiter.api.Test;
+
+public class QueryRequestTemplateCacheTest {
+  private static final String TIMESTAMP_ATTR = "EVENT.startTime";
+  private static final String SPACES_ATTR = "EVENT.spaceIds";
+
+  private final QueryRequestTemplateCache queryRequestTemplateCache =
+      new QueryRequestTemplateCache();
+
+  @Test
+  public void testRequestsOfTheSameShapeBindTheirOwnLiterals() {
+    List<Expression> selections =
+        List.of(
+            buildExpression("EVENT.name"),
+            buildAggregateExpression(
+                "EVENT.duration", FunctionType.AVG, "AVG_duration", List.of()));
+    List<OrderByExpression> orderBys = List.of(buildOrderByExpression("EVENT.name"));
+
+    assertSameAsConversion(
+        10L,
+        20L,
+        "space1",
+        generateAndOrNotFilter(
+            Operator.AND,
+            generateEQFilter("EVENT.serviceName", "frontend"),
+            generateAndOrNotFilter(
+                Operator.OR,
+                generateEQFilter("EVENT.statusCode", "500"),
+                generateEQFilter("EVENT.statusCode", "503"))),
+        selections,
+        orderBys);
+    // same shape, other literals
+    assertSameAsConversion(
+        30L,
+        40L,
+        "space2",
+        generateAndOrNotFilter(
+            Operator.AND,
+            generateEQFilter("EVENT.serviceName", "checkout"),
+            generateAndOrNotFilter(
+                Operator.OR,
+                generateEQFilter("EVENT.statusCode", "404"),
+                generateEQFilter("EVENT.statusCode", "401"))),
+        selections,
+        orderBys);
+    // same shape without a space id
+    assertSameAsConversion(
+        30L,
+        40L,
+        "",
+        generateAndOrNotFilter(
+            Operator.AND,
+            generateEQFilter("EVENT.serviceName", "checkout"),
+            generateAndOrNotFilter(
+                Operator.OR,
+                generateEQFilter("EVENT.statusCode", "404"),
+                generateEQFilter("EVENT.statusCode", "401"))),
+        selections,
+        orderBys);
+  }
+
+  @Test
+  public void testProvidedTimeRangeIsNotDuplicated() {
+    assertSameAsConversion(
+        10L,
+        20L,
+        "",
+        getTimeRangeFilter(TIMESTAMP_ATTR, 15L, 18L),
+        List.of(buildExpression("EVENT.name")),
+        List.of());
+    assertSameAsConversion(
+        10L,
+        20L,
+        "",
+        getTimeRangeFilter(TIMESTAMP_ATTR, 12L, 14L),
+        List.of(buildExpression("EVENT.name")),
+        List.of());
+  }
+
+  @Test
+  public void testNoProvidedFilter() {
+    assertSameAsConversion(
+        10L,
+        20L,
+        "",
+        Filter.getDefaultInstance(),
+        List.of(buildExpression("EVENT.name")),
+        List.of());
+    assertSameAsConversion(
+        50L,
+        60L,
+        "space1",
+        Filter.getDefaultInstance(),
+        List.of(buildExpression("EVENT.name")),
+        List.of());
+  }
+
+  private void assertSameAsConversion(
+      long startTimeMillis,
+      long endTimeMillis,
+      String spaceId,
+      Filter filter,
+      List<Expression> selections,
+      List<OrderByExpression> orderBys) {
+    QueryRequest.Builder expected =
+        QueryRequest.newBuilder()
+            .setFilter(
+                QueryAndGatewayDtoConverter.addTimeAndSpaceFiltersAndConvertToQueryFilter(
+                    startTimeMillis, endTimeMillis, spaceId, TIMESTAMP_ATTR, SPACES_ATTR, filter))
+            .addAllSelection(
+                selections.stream()
+                    .map(QueryAndGatewayDtoConverter::convertToQueryExpression)
+                    .map(org.hypertrace.core.query.service.api.Expression.Builder::build)
+                    .collect(Collectors.toList()))
+            .addAllOrderBy(QueryAndGatewayDtoConverter.convertToQueryOrderByExpressions(orderBys));
+
+    assertEquals(
+        expected.build(),
+        queryRequestTemplateCache
+            .newQueryRequestBuilder(
+                startTimeMillis,
+                endTimeMillis,
+                spaceId,
+                TIMESTAMP_ATTR,
+                SPACES_ATTR,
+                filter,
+                selections,
+                orderBys)
+            .build());
+  }
+}
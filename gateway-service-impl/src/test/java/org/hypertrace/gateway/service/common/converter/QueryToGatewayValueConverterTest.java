@@ -0,0 +1,80 @@
+package org.hypertrace.gateway.service.common.converter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+import org.hypertrace.core.attribute.service.v1.AttributeKind;
+import org.hypertrace.core.query.service.api.Value;
+import org.hypertrace.core.query.service.api.ValueType;
+import org.hypertrace.gateway.service.common.converters.QueryToGatewayValueConverter;
+import org.junit.jupiter.api.Test;
+
+public class QueryToGatewayValueConverterTest {
+
+  @Test
+  public void testDefaultValuesAreShared() {
+    Value emptyString = Value.newBuilder().setValueType(ValueType.STRING).setString("").build();
+    assertSame(
+        QueryToGatewayValueConverter.convert(emptyString, AttributeKind.TYPE_INT64),
+        QueryToGatewayValueConverter.convert(emptyString, AttributeKind.TYPE_INT64));
+    assertSame(
+        QueryToGatewayValueConverter.convert(emptyString, AttributeKind.TYPE_STRING),
+        QueryToGatewayValueConverter.convert(emptyString));
+    assertSame(QueryToGatewayValueConverter.ofLong(0L), QueryToGatewayValueConverter.ofLong(0L));
+    assertSame(
+        QueryToGatewayValueConverter.ofBoolean(false),
+        QueryToGatewayValueConverter.convert(
+            Value.newBuilder().setValueType(ValueType.STRING).setString("false").build(),
+            AttributeKind.TYPE_BOOL));
+
+    org.hypertrace.gateway.service.v1.common.Value zero =
+        QueryToGatewayValueConverter.convert(emptyString, AttributeKind.TYPE_DOUBLE);
+    assertEquals(org.hypertrace.gateway.service.v1.common.ValueType.DOUBLE, zero.getValueType());
+    assertEquals(0.0d, zero.getDouble());
+  }
+
+  @Test
+  public void testNumericArraysAreWidened() {
+    Value intArray =
+        Value.newBuilder()
+            .setValueType(ValueType.INT_ARRAY)
+            .addAllIntArray(List.of(1, -2, 3))
+            .build();
+    org.hypertrace.gateway.service.v1.common.Value longArray =
+        QueryToGatewayValueConverter.convert(intArray, AttributeKind.TYPE_INT64_ARRAY);
+    assertEquals(
+        org.hypertrace.gateway.service.v1.common.ValueType.LONG_ARRAY, longArray.getValueType());
+    assertEquals(List.of(1L, -2L, 3L), longArray.getLongArrayList());
+    assertEquals(longArray, QueryToGatewayValueConverter.convert(intArray));
+
+    Value floatArray =
+        Value.newBuilder()
+            .setValueType(ValueType.FLOAT_ARRAY)
+            .addAllFloatArray(List.of(1.5f, 0.25f))
+            .build();
+    org.hypertrace.gateway.service.v1.common.Value doubleArray =
+        QueryToGatewayValueConverter.convert(floatArray, AttributeKind.TYPE_DOUBLE_ARRAY);
+    assertEquals(
+        org.hypertrace.gateway.service.v1.common.ValueType.DOUBLE_ARRAY,
+        doubleArray.getValueType());
+    assertEquals(List.of(1.5d, 0.25d), doubleArray.getDoubleArrayList());
+  }
+
+  @Test
+  public void testUnhandledPairsAreLeftToTheGenericConverters() {
+    assertNull(
+        QueryToGatewayValueConverter.convert(
+            Value.newBuilder().setValueType(ValueType.STRING).setString("[\"a\"]").build(),
+            AttributeKind.TYPE_STRING_ARRAY));
+    assertNull(
+        QueryToGatewayValueConverter.convert(
+            Value.newBuilder().setValueType(ValueType.DOUBLE).setDouble(1.5d).build(),
+            AttributeKind.TYPE_STRING));
+    assertNull(
+        QueryToGatewayValueConverter.convert(
+            Value.newBuilder().setValueType(ValueType.LONG).setLong(1L).build(),
+            AttributeKind.KIND_UNDEFINED));
+  }
+}
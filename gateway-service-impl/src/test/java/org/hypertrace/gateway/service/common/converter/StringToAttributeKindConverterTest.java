@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.util.List;
+import java.util.Map;
 import org.hypertrace.core.attribute.service.v1.AttributeKind;
 import org.hypertrace.gateway.service.common.converters.StringToAttributeKindConverter;
 import org.hypertrace.gateway.service.v1.common.Value;
@@ -64,4 +65,74 @@ public class StringToAttributeKindConverterTest {
             .doConvert("null", AttributeKind.TYPE_STRING_ARRAY, Value.newBuilder())
             .getStringArrayList());
   }
+
+  @Test
+  public void test_stringToArray_nonStringJsonArrayIsSingleElement() {
+    StringToAttributeKindConverter converter = StringToAttributeKindConverter.INSTANCE;
+    assertEquals(
+        List.of("[{\"a\": \"b\"}]"),
+        converter
+            .doConvert("[{\"a\": \"b\"}]", AttributeKind.TYPE_STRING_ARRAY, Value.newBuilder())
+            .getStringArrayList());
+    assertEquals(
+        List.of("[\"label1\""),
+        converter
+            .doConvert("[\"label1\"", AttributeKind.TYPE_STRING_ARRAY, Value.newBuilder())
+            .getStringArrayList());
+    assertEquals(
+        List.of("1", "true"),
+        converter
+            .doConvert(" [1, true]", AttributeKind.TYPE_STRING_ARRAY, Value.newBuilder())
+            .getStringArrayList());
+  }
+
+  @Test
+  public void test_stringToMap() {
+    StringToAttributeKindConverter converter = StringToAttributeKindConverter.INSTANCE;
+    String tags = "{\"http.method\": \"GET\", \"http.status_code\": 200}";
+    Map<String, String> expected = Map.of("http.method", "GET", "http.status_code", "200");
+    assertEquals(
+        expected,
+        converter
+            .doConvert(tags, AttributeKind.TYPE_STRING_MAP, Value.newBuilder())
+            .getStringMapMap());
+    // served from the memo the second time around
+    assertEquals(
+        expected,
+        converter
+            .doConvert(tags, AttributeKind.TYPE_STRING_MAP, Value.newBuilder())
+            .getStringMapMap());
+
+    assertEquals(
+        Map.of(),
+        converter
+            .doConvert("not json", AttributeKind.TYPE_STRING_MAP, Value.newBuilder())
+            .getStringMapMap());
+    assertEquals(
+        Map.of(),
+        converter
+            .doConvert("{\"a\": {\"b\": \"c\"}}", AttributeKind.TYPE_STRING_MAP, Value.newBuilder())
+            .getStringMapMap());
+    assertEquals(
+        Map.of(),
+        converter
+            .doConvert("null", AttributeKind.TYPE_STRING_MAP, Value.newBuilder())
+            .getStringMapMap());
+  }
+
+  @Test
+  public void test_stringToLong() {
+    StringToAttributeKindConverter converter = StringToAttributeKindConverter.INSTANCE;
+    assertEquals(
+        9007199254740993L,
+        converter
+            .doConvert("9007199254740993", AttributeKind.TYPE_INT64, Value.newBuilder())
+            .getLong());
+    assertEquals(
+        -42L, converter.doConvert("-42", AttributeKind.TYPE_INT64, Value.newBuilder()).getLong());
+    assertEquals(
+        12L, converter.doConvert("12.7", AttributeKind.TYPE_INT64, Value.newBuilder()).getLong());
+    assertEquals(
+        100L, converter.doConvert("1e2", AttributeKind.TYPE_INT64, Value.newBuilder()).getLong());
+  }
 }
@@ -0,0 +1,111 @@
+package org.hypertrace.gateway.service.common.converter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.typesafe.config.ConfigFactory;
+import org.hypertrace.core.attribute.service.v1.AttributeKind;
+import org.hypertrace.core.attribute.service.v1.AttributeMetadata;
+import org.hypertrace.core.query.service.api.Value;
+import org.hypertrace.core.query.service.api.ValueType;
+import org.hypertrace.gateway.service.common.converters.ValueInterner;
+import org.hypertrace.gateway.service.common.converters.ValueInternerFactory;
+import org.junit.jupiter.api.Test;
+
+public class ValueInternerTest {
+  private static final AttributeMetadata STRING_METADATA =
+      AttributeMetadata.newBuilder().setFqn("name").setValueKind(AttributeKind.TYPE_STRING).build();
+  private static final AttributeMetadata STRING_MAP_METADATA =
+      AttributeMetadata.newBuilder()
+          .setFqn("tags")
+          .setValueKind(AttributeKind.TYPE_STRING_MAP)
+          .build();
+  private static final AttributeMetadata LONG_METADATA =
+      AttributeMetadata.newBuilder().setFqn("count").setValueKind(AttributeKind.TYPE_INT64).build();
+
+  @Test
+  public void testRepeatedValuesShareInstances() {
+    ValueInternerFactory valueInternerFactory =
+        new ValueInternerFactory(
+            ConfigFactory.parseString("response.value.interning.config.enabled = true"));
+    try (ValueInterner valueInterner = valueInternerFactory.newInterner()) {
+      org.hypertrace.gateway.service.v1.common.Value first =
+          valueInterner.convertQueryValueToGatewayValue(stringValue("frontend"), STRING_METADATA);
+      org.hypertrace.gateway.service.v1.common.Value second =
+          valueInterner.convertQueryValueToGatewayValue(stringValue("frontend"), STRING_METADATA);
+      assertEquals("frontend", first.getString());
+      assertSame(first, second);
+
+      // the same string converted to another attribute kind is a different value
+      org.hypertrace.gateway.service.v1.common.Value asLong =
+          valueInterner.convertQueryValueToGatewayValue(stringValue("42"), LONG_METADATA);
+      assertEquals(42L, asLong.getLong());
+      assertEquals(
+          "42",
+          valueInterner
+              .convertQueryValueToGatewayValue(stringValue("42"), STRING_METADATA)
+              .getString());
+    }
+  }
+
+  @Test
+  public void testLongStringsAreNotInterned() {
+    ValueInternerFactory valueInternerFactory =
+        new ValueInternerFactory(
+            ConfigFactory.parseString("response.value.interning.config.enabled = true"));
+    String longString = "a".repeat(1000);
+    try (ValueInterner valueInterner = valueInternerFactory.newInterner()) {
+      org.hypertrace.gateway.service.v1.common.Value first =
+          valueInterner.convertQueryValueToGatewayValue(stringValue(longString), STRING_METADATA);
+      org.hypertrace.gateway.service.v1.common.Value second =
+          valueInterner.convertQueryValueToGatewayValue(stringValue(longString), STRING_METADATA);
+      assertEquals(first, second);
+      assertNotSame(first, second);
+    }
+  }
+
+  @Test
+  public void testRepeatedTagsAreParsedOnce() {
+    ValueInternerFactory valueInternerFactory =
+        new ValueInternerFactory(
+            ConfigFactory.parseString("response.value.interning.config.enabled = true"));
+    String tags = "{\"http.method\":\"GET\",\"body\":\"" + "a".repeat(300) + "\"}";
+    try (ValueInterner valueInterner = valueInternerFactory.newInterner()) {
+      org.hypertrace.gateway.service.v1.common.Value first =
+          valueInterner.convertQueryValueToGatewayValue(stringValue(tags), STRING_MAP_METADATA);
+      assertEquals("GET", first.getStringMapMap().get("http.method"));
+      assertSame(
+          first,
+          valueInterner.convertQueryValueToGatewayValue(stringValue(tags), STRING_MAP_METADATA));
+    }
+  }
+
+  @Test
+  public void testRepeatedTagsAreParsedOnceWhenInterningIsDisabled() {
+    ValueInternerFactory valueInternerFactory = new ValueInternerFactory(ConfigFactory.empty());
+    String tags = "{\"http.method\":\"GET\"}";
+    try (ValueInterner valueInterner = valueInternerFactory.newInterner()) {
+      org.hypertrace.gateway.service.v1.common.Value first =
+          valueInterner.convertQueryValueToGatewayValue(stringValue(tags), STRING_MAP_METADATA);
+      assertEquals("GET", first.getStringMapMap().get("http.method"));
+      assertSame(
+          first,
+          valueInterner.convertQueryValueToGatewayValue(stringValue(tags), STRING_MAP_METADATA));
+    }
+  }
+
+  @Test
+  public void testInterningIsDisabledByDefault() {
+    ValueInternerFactory valueInternerFactory = new ValueInternerFactory(ConfigFactory.empty());
+    try (ValueInterner valueInterner = valueInternerFactory.newInterner()) {
+      assertNotSame(
+          valueInterner.convertQueryValueToGatewayValue(stringValue("frontend"), STRING_METADATA),
+          valueInterner.convertQueryValueToGatewayValue(stringValue("frontend"), STRING_METADATA));
+    }
+  }
+
+  private Value stringValue(String value) {
+    return Value.newBuilder().setValueType(ValueType.STRING).setString(value).build();
+  }
+}
@@ -17,15 +17,20 @@ import static org.hypertrace.gateway.service.common.converters.QueryRequestUtil.
 import static org.hypertrace.gateway.service.v1.common.Operator.AND;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.typesafe.config.ConfigFactory;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 import org.hypertrace.core.attribute.service.v1.AttributeKind;
 import org.hypertrace.core.attribute.service.v1.AttributeMetadata;
@@ -36,9 +41,11 @@ import org.hypertrace.core.query.service.api.ResultSetChunk;
 import org.hypertrace.core.query.service.client.QueryServiceClient;
 import org.hypertrace.gateway.service.common.AttributeMetadataProvider;
 import org.hypertrace.gateway.service.common.EntitiesRequestAndResponseUtils;
+import org.hypertrace.gateway.service.common.QueryServiceExecutor;
 import org.hypertrace.gateway.service.common.RequestContext;
 import org.hypertrace.gateway.service.common.converters.QueryAndGatewayDtoConverter;
 import org.hypertrace.gateway.service.common.converters.QueryRequestUtil;
+import org.hypertrace.gateway.service.common.converters.ValueInternerFactory;
 import org.hypertrace.gateway.service.entity.EntitiesRequestContext;
 import org.hypertrace.gateway.service.entity.EntityKey;
 import org.hypertrace.gateway.service.entity.config.EntityIdColumnsConfigs;
@@ -72,14 +79,14 @@ public class QueryServiceEntityFetcherTests {
   private static final String API_DISCOVERY_STATE_ATTR = "API.apiDiscoveryState";
   private static final String SPACE_IDS_ATTR = "EVENT.spaceIds";
 
-  private QueryServiceClient queryServiceClient;
+  private QueryServiceExecutor queryServiceClient;
   private AttributeMetadataProvider attributeMetadataProvider;
   private EntityIdColumnsConfigs entityIdColumnsConfigs;
   private QueryServiceEntityFetcher queryServiceEntityFetcher;
 
   @BeforeEach
   public void setup() {
-    queryServiceClient = mock(QueryServiceClient.class);
+    queryServiceClient = mock(QueryServiceExecutor.class);
     attributeMetadataProvider = mock(AttributeMetadataProvider.class);
     mockAttributeMetadataProvider(AttributeScope.API.name());
 
@@ -88,7 +95,11 @@ public class QueryServiceEntityFetcherTests {
 
     queryServiceEntityFetcher =
         new QueryServiceEntityFetcher(
-            queryServiceClient, 500, attributeMetadataProvider, entityIdColumnsConfigs);
+            queryServiceClient,
+            500,
+            attributeMetadataProvider,
+            entityIdColumnsConfigs,
+            new ValueInternerFactory(ConfigFactory.empty()));
   }
 
   @Test
@@ -252,6 +263,79 @@ public class QueryServiceEntityFetcherTests {
         new EntityFetcherResponse(expectedEntityKeyBuilderResponseMap), response);
   }
 
+  @Test
+  public void testGetTimeAggregatedMetrics_multiplePeriods_shouldMergeSeriesOfAllPeriods() {
+    String tenantId = "TENANT_ID";
+    Map<String, String> requestHeaders = Map.of("x-tenant-id", tenantId);
+    TimeAggregation minuteAggregation =
+        buildTimeAggregation(
+            60, API_NUM_CALLS_ATTR, FunctionType.SUM, "SUM_API.numCalls_1m", List.of());
+    TimeAggregation hourAggregation =
+        buildTimeAggregation(
+            3600, API_NUM_CALLS_ATTR, FunctionType.SUM, "SUM_API.numCalls_1h", List.of());
+    EntitiesRequest entitiesRequest =
+        EntitiesRequest.newBuilder()
+            .setEntityType(AttributeScope.API.name())
+            .setStartTimeMillis(0)
+            .setEndTimeMillis(3600000)
+            .addTimeAggregation(minuteAggregation)
+            .addTimeAggregation(hourAggregation)
+            .build();
+    EntitiesRequestContext entitiesRequestContext =
+        new EntitiesRequestContext(
+            tenantId, 0, 3600000, AttributeScope.API.name(), "API.startTime", requestHeaders);
+
+    when(queryServiceClient.executeQuery(
+            argThat(
+                request ->
+                    request
+                        .getSelection(0)
+                        .equals(
+                            QueryAndGatewayDtoConverter.convertToQueryExpression(
+                                minuteAggregation.getAggregation()))),
+            eq(requestHeaders),
+            eq(500)))
+        .thenReturn(
+            List.of(
+                    getResultSetChunk(
+                        List.of("API.apiId", "timeColumn", "SUM_API.numCalls_1m"),
+                        new String[][] {{"apiId1", "60000", "5"}, {"apiId1", "0", "4"}}))
+                .iterator());
+    when(queryServiceClient.executeQuery(
+            argThat(
+                request ->
+                    request
+                        .getSelection(0)
+                        .equals(
+                            QueryAndGatewayDtoConverter.convertToQueryExpression(
+                                hourAggregation.getAggregation()))),
+            eq(requestHeaders),
+            eq(500)))
+        .thenReturn(
+            List.of(
+                    getResultSetChunk(
+                        List.of("API.apiId", "timeColumn", "SUM_API.numCalls_1h"),
+                        new String[][] {{"apiId1", "0", "9"}, {"apiId2", "0", "3"}}))
+                .iterator());
+
+    EntityFetcherResponse response =
+        queryServiceEntityFetcher.getTimeAggregatedMetrics(entitiesRequestContext, entitiesRequest);
+
+    verify(queryServiceClient, times(2)).executeQuery(any(), eq(requestHeaders), eq(500));
+    assertEquals(
+        List.of(EntityKey.of("apiId1"), EntityKey.of("apiId2")),
+        List.copyOf(response.getEntityKeyBuilderMap().keySet()));
+    Entity.Builder entity1 = response.getEntityKeyBuilderMap().get(EntityKey.of("apiId1"));
+    MetricSeries minuteSeries = entity1.getMetricSeriesOrThrow("SUM_API.numCalls_1m");
+    assertEquals(2, minuteSeries.getValueCount());
+    // sorted by time, although returned out of order
+    assertEquals(0, minuteSeries.getValue(0).getStartTimeMillis());
+    assertEquals(60000, minuteSeries.getValue(1).getStartTimeMillis());
+    assertEquals(1, entity1.getMetricSeriesOrThrow("SUM_API.numCalls_1h").getValueCount());
+    Entity.Builder entity2 = response.getEntityKeyBuilderMap().get(EntityKey.of("apiId2"));
+    assertEquals(Set.of("SUM_API.numCalls_1h"), entity2.getMetricSeriesMap().keySet());
+  }
+
   @Test
   public void testGetTimeAggregatedMetricsForAvgRateInIsoFormat() {
 
@@ -717,6 +801,59 @@ public class QueryServiceEntityFetcherTests {
       assertEquals(
           100, queryServiceEntityFetcher.getTotal(entitiesRequestContext, entitiesRequest));
     }
+
+    @Test
+    public void approximateTotal_shouldBeEstimatedWithHll() {
+      long startTime = 1L;
+      long endTime = 10L;
+      String tenantId = "TENANT_ID";
+      Map<String, String> requestHeaders = Map.of("x-tenant-id", tenantId);
+      AttributeScope entityType = AttributeScope.API;
+      EntitiesRequest entitiesRequest =
+          EntitiesRequest.newBuilder()
+              .setEntityType(entityType.name())
+              .setStartTimeMillis(startTime)
+              .setEndTimeMillis(endTime)
+              .setFilter(
+                  Filter.newBuilder()
+                      .setOperator(AND)
+                      .addChildFilter(
+                          EntitiesRequestAndResponseUtils.getTimeRangeFilter(
+                              "API.startTime", startTime, endTime))
+                      .addChildFilter(generateEQFilter(API_DISCOVERY_STATE_ATTR, "DISCOVERED")))
+              .setLimit(10)
+              .setApproximateTotal(true)
+              .build();
+      EntitiesRequestContext entitiesRequestContext =
+          new EntitiesRequestContext(
+              tenantId, startTime, endTime, entityType.name(), "API.startTime", requestHeaders);
+
+      QueryRequest expectedQueryRequest =
+          QueryRequest.newBuilder()
+              .addSelection(createQsAggregationExpression("DISTINCTCOUNTHLL", API_ID_ATTR))
+              .setFilter(
+                  createQsRequestFilter(
+                      API_START_TIME_ATTR,
+                      API_ID_ATTR,
+                      startTime,
+                      endTime,
+                      createStringFilter(API_DISCOVERY_STATE_ATTR, Operator.EQ, "DISCOVERED")))
+              .build();
+
+      List<ResultSetChunk> resultSetChunks =
+          List.of(getResultSetChunk(List.of("DISTINCTCOUNTHLL"), new String[][] {{"12345"}}));
+
+      when(queryServiceClient.executeQuery(eq(expectedQueryRequest), eq(requestHeaders), eq(500)))
+          .thenReturn(resultSetChunks.iterator());
+
+      assertEquals(
+          12345, queryServiceEntityFetcher.getTotal(entitiesRequestContext, entitiesRequest));
+      assertEquals(0.065, queryServiceEntityFetcher.getTotalRelativeError(entitiesRequest));
+      assertEquals(
+          0,
+          queryServiceEntityFetcher.getTotalRelativeError(
+              EntitiesRequest.newBuilder(entitiesRequest).setApproximateTotal(false).build()));
+    }
   }
 
   private void mockAttributeMetadataProvider(String attributeScope) {
@@ -0,0 +1,86 @@
+package org.hypertrace.gateway.service.common.grpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+public class ChannelPoolTest {
+
+  @Test
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public void test_newCall_shouldPickTheChannelWithFewestCallsInFlight() {
+    ClientCall<Object, Object> firstChannelCall = mock(ClientCall.class);
+    ClientCall<Object, Object> secondChannelCall = mock(ClientCall.class);
+    ManagedChannel firstChannel = newChannel(firstChannelCall);
+    ManagedChannel secondChannel = newChannel(secondChannelCall);
+    ChannelPool channelPool = new ChannelPool(List.of(firstChannel, secondChannel));
+    MethodDescriptor<Object, Object> methodDescriptor = mock(MethodDescriptor.class);
+
+    // a call on each channel, then one more on the first channel
+    channelPool
+        .newCall(methodDescriptor, CallOptions.DEFAULT)
+        .start(new ClientCall.Listener<>() {}, new Metadata());
+    channelPool
+        .newCall(methodDescriptor, CallOptions.DEFAULT)
+        .start(new ClientCall.Listener<>() {}, new Metadata());
+    channelPool
+        .newCall(methodDescriptor, CallOptions.DEFAULT)
+        .start(new ClientCall.Listener<>() {}, new Metadata());
+    assertEquals(2, channelPool.getInFlightCalls(0));
+    assertEquals(1, channelPool.getInFlightCalls(1));
+
+    ArgumentCaptor<ClientCall.Listener<Object>> listenerCaptor =
+        ArgumentCaptor.forClass((Class) ClientCall.Listener.class);
+    verify(secondChannelCall).start(listenerCaptor.capture(), any(Metadata.class));
+    listenerCaptor.getValue().onClose(Status.OK, new Metadata());
+    assertEquals(0, channelPool.getInFlightCalls(1));
+
+    // both of the next calls go to the second channel, which has fewer calls in flight
+    channelPool
+        .newCall(methodDescriptor, CallOptions.DEFAULT)
+        .start(new ClientCall.Listener<>() {}, new Metadata());
+    channelPool
+        .newCall(methodDescriptor, CallOptions.DEFAULT)
+        .start(new ClientCall.Listener<>() {}, new Metadata());
+    assertEquals(2, channelPool.getInFlightCalls(0));
+    assertEquals(2, channelPool.getInFlightCalls(1));
+  }
+
+  @Test
+  public void test_shutdown_shouldShutdownAllChannels() {
+    ManagedChannel firstChannel = mock(ManagedChannel.class);
+    ManagedChannel secondChannel = mock(ManagedChannel.class);
+    ChannelPool channelPool = new ChannelPool(List.of(firstChannel, secondChannel));
+    when(firstChannel.isShutdown()).thenReturn(true);
+
+    channelPool.shutdown();
+
+    verify(firstChannel).shutdown();
+    verify(secondChannel).shutdown();
+    assertFalse(channelPool.isShutdown());
+    when(secondChannel.isShutdown()).thenReturn(true);
+    assertTrue(channelPool.isShutdown());
+  }
+
+  @SuppressWarnings("unchecked")
+  private static ManagedChannel newChannel(ClientCall<Object, Object> clientCall) {
+    ManagedChannel channel = mock(ManagedChannel.class);
+    when(channel.newCall(any(MethodDescriptor.class), any(CallOptions.class)))
+        .thenReturn(clientCall);
+    return channel;
+  }
+}
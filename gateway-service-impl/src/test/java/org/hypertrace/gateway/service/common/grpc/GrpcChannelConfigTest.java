@@ -0,0 +1,34 @@
+package org.hypertrace.gateway.service.common.grpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.typesafe.config.ConfigFactory;
+import java.util.Map;
+import org.hypertrace.gateway.service.common.grpc.GrpcChannelConfig.Downstream;
+import org.junit.jupiter.api.Test;
+
+public class GrpcChannelConfigTest {
+
+  @Test
+  public void test_getChannelCount_shouldFallBackToSharedCount() {
+    GrpcChannelConfig config =
+        new GrpcChannelConfig(
+            ConfigFactory.parseMap(
+                Map.of(
+                    "grpc.client.config.channel.count", 2,
+                    "grpc.client.config.query.service.channel.count", 8)));
+
+    assertEquals(8, config.getChannelCount(Downstream.QUERY_SERVICE));
+    assertEquals(2, config.getChannelCount(Downstream.ENTITY_SERVICE));
+    assertEquals(2, config.getChannelCount(Downstream.ATTRIBUTE_SERVICE));
+  }
+
+  @Test
+  public void test_getChannelCount_noConfig_shouldUseSingleChannel() {
+    GrpcChannelConfig config = new GrpcChannelConfig(ConfigFactory.empty());
+
+    for (Downstream downstream : Downstream.values()) {
+      assertEquals(1, config.getChannelCount(downstream));
+    }
+  }
+}
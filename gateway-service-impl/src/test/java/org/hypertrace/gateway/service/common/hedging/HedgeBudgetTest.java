@@ -0,0 +1,46 @@
+package org.hypertrace.gateway.service.common.hedging;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class HedgeBudgetTest {
+
+  @Test
+  public void test_tryAcquire_shouldAllowHedgesInProportionToRequests() {
+    HedgeBudget hedgeBudget = new HedgeBudget(0.25, 10);
+
+    for (int i = 0; i < 3; i++) {
+      hedgeBudget.onRequest("tenant1");
+    }
+    assertFalse(hedgeBudget.tryAcquire("tenant1"));
+
+    hedgeBudget.onRequest("tenant1");
+    assertTrue(hedgeBudget.tryAcquire("tenant1"));
+    assertFalse(hedgeBudget.tryAcquire("tenant1"));
+  }
+
+  @Test
+  public void test_tryAcquire_shouldKeepTenantsApart() {
+    HedgeBudget hedgeBudget = new HedgeBudget(1, 10);
+
+    hedgeBudget.onRequest("tenant1");
+
+    assertFalse(hedgeBudget.tryAcquire("tenant2"));
+    assertTrue(hedgeBudget.tryAcquire("tenant1"));
+  }
+
+  @Test
+  public void test_tryAcquire_shouldCapSavedUpHedges() {
+    HedgeBudget hedgeBudget = new HedgeBudget(1, 2);
+
+    for (int i = 0; i < 10; i++) {
+      hedgeBudget.onRequest("tenant1");
+    }
+
+    assertTrue(hedgeBudget.tryAcquire("tenant1"));
+    assertTrue(hedgeBudget.tryAcquire("tenant1"));
+    assertFalse(hedgeBudget.tryAcquire("tenant1"));
+  }
+}
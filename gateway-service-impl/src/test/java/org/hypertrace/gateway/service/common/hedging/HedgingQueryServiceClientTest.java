@@ -0,0 +1,147 @@
+package org.hypertrace.gateway.service.common.hedging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.typesafe.config.ConfigFactory;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import org.hypertrace.core.grpcutils.context.RequestContextConstants;
+import org.hypertrace.core.query.service.api.ColumnIdentifier;
+import org.hypertrace.core.query.service.api.Expression;
+import org.hypertrace.core.query.service.api.Filter;
+import org.hypertrace.core.query.service.api.LiteralConstant;
+import org.hypertrace.core.query.service.api.Operator;
+import org.hypertrace.core.query.service.api.QueryRequest;
+import org.hypertrace.core.query.service.api.ResultSetChunk;
+import org.hypertrace.core.query.service.api.Value;
+import org.hypertrace.core.query.service.api.ValueType;
+import org.hypertrace.gateway.service.common.QueryServiceExecutor;
+import org.junit.jupiter.api.Test;
+
+public class HedgingQueryServiceClientTest {
+  private static final Map<String, String> CONTEXT =
+      Map.of(RequestContextConstants.TENANT_ID_HEADER_KEY, "tenant1");
+  private static final ResultSetChunk RESULT = ResultSetChunk.newBuilder().setChunkId(1).build();
+
+  private final QueryServiceExecutor delegate = mock(QueryServiceExecutor.class);
+
+  @Test
+  public void test_executeQuery_slowQuery_shouldBeAnsweredByTheHedge() throws Exception {
+    HedgingQueryServiceClient client = newClient(1.0);
+    when(delegate.executeQuery(any(), any(), anyInt()))
+        .thenAnswer(invocation -> List.of(RESULT).iterator());
+    warmUp(client);
+
+    CountDownLatch slowQueryCancelled = new CountDownLatch(1);
+    when(delegate.executeQuery(any(), any(), anyInt()))
+        .thenAnswer(
+            invocation -> {
+              try {
+                Thread.sleep(60_000);
+              } catch (InterruptedException e) {
+                slowQueryCancelled.countDown();
+                throw e;
+              }
+              return List.<ResultSetChunk>of().iterator();
+            })
+        .thenAnswer(invocation -> List.of(RESULT).iterator());
+
+    Iterator<ResultSetChunk> resultSetChunks =
+        client.executeQuery(QueryRequest.getDefaultInstance(), CONTEXT, 60_000);
+
+    assertSame(RESULT, resultSetChunks.next());
+    slowQueryCancelled.await();
+  }
+
+  @Test
+  public void test_executeQuery_exhaustedBudget_shouldWaitForTheQuery() {
+    HedgingQueryServiceClient client = newClient(0);
+    when(delegate.executeQuery(any(), any(), anyInt()))
+        .thenAnswer(invocation -> List.of(RESULT).iterator());
+    warmUp(client);
+
+    when(delegate.executeQuery(any(), any(), anyInt()))
+        .thenAnswer(
+            invocation -> {
+              Thread.sleep(100);
+              return List.of(RESULT).iterator();
+            });
+
+    assertSame(
+        RESULT, client.executeQuery(QueryRequest.getDefaultInstance(), CONTEXT, 60_000).next());
+    verify(delegate, times(101)).executeQuery(any(), any(), anyInt());
+  }
+
+  @Test
+  public void test_getHedgeDelayMillis_shouldTrackTheLatenciesPerQueryShape() {
+    HedgingQueryServiceClient client = newClient(1.0);
+    when(delegate.executeQuery(any(), any(), anyInt()))
+        .thenAnswer(invocation -> List.of(RESULT).iterator());
+    QueryRequest lookup = newLookup("span1", 10);
+    for (int i = 0; i < 100; i++) {
+      client.executeQuery(lookup, CONTEXT, 60_000).next();
+    }
+
+    // only the filter values and the limit differ
+    assertEquals(10, client.getHedgeDelayMillis(newLookup("span2", 20)));
+    assertEquals(-1, client.getHedgeDelayMillis(QueryRequest.getDefaultInstance()));
+  }
+
+  private static QueryRequest newLookup(String spanId, int limit) {
+    return QueryRequest.newBuilder()
+        .addSelection(
+            Expression.newBuilder()
+                .setColumnIdentifier(ColumnIdentifier.newBuilder().setColumnName("EVENT.name")))
+        .setFilter(
+            Filter.newBuilder()
+                .setLhs(
+                    Expression.newBuilder()
+                        .setColumnIdentifier(
+                            ColumnIdentifier.newBuilder().setColumnName("EVENT.id")))
+                .setOperator(Operator.EQ)
+                .setRhs(
+                    Expression.newBuilder()
+                        .setLiteral(
+                            LiteralConstant.newBuilder()
+                                .setValue(
+                                    Value.newBuilder()
+                                        .setValueType(ValueType.STRING)
+                                        .setString(spanId)))))
+        .setLimit(limit)
+        .build();
+  }
+
+  private HedgingQueryServiceClient newClient(double tenantBudgetRatio) {
+    return new HedgingQueryServiceClient(
+        delegate,
+        new QueryHedgingConfig(
+            ConfigFactory.parseMap(
+                Map.of(
+                    "query.service.hedging.config.enabled",
+                    true,
+                    "query.service.hedging.config.min.delay.millis",
+                    10,
+                    "query.service.hedging.config.min.samples",
+                    50,
+                    "query.service.hedging.config.tenant.budget.ratio",
+                    tenantBudgetRatio))));
+  }
+
+  /** Runs enough fast queries for the hedge delay to be known */
+  private void warmUp(HedgingQueryServiceClient client) {
+    assertEquals(-1, client.getHedgeDelayMillis(QueryRequest.getDefaultInstance()));
+    for (int i = 0; i < 100; i++) {
+      client.executeQuery(QueryRequest.getDefaultInstance(), CONTEXT, 60_000).next();
+    }
+    assertEquals(10, client.getHedgeDelayMillis(QueryRequest.getDefaultInstance()));
+  }
+}
@@ -0,0 +1,29 @@
+package org.hypertrace.gateway.service.common.hedging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class LatencyPercentileTrackerTest {
+
+  @Test
+  public void test_getPercentileMillis_shouldTrackRecentLatencies() {
+    LatencyPercentileTracker tracker = new LatencyPercentileTracker(90, 50, 100);
+
+    for (long latency = 1; latency < 50; latency++) {
+      tracker.record(latency);
+    }
+    assertEquals(-1, tracker.getPercentileMillis());
+
+    for (long latency = 50; latency <= 100; latency++) {
+      tracker.record(latency);
+    }
+    assertEquals(90, tracker.getPercentileMillis());
+
+    // older latencies fall out of the window
+    for (int i = 0; i < 100; i++) {
+      tracker.record(5);
+    }
+    assertEquals(5, tracker.getPercentileMillis());
+  }
+}
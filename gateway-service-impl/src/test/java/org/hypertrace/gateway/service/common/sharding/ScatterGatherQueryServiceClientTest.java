@@ -0,0 +1,209 @@
+package org.hypertrace.gateway.service.common.sharding;
+
+import static org.hypertrace.gateway.service.common.converters.QueryRequestUtil.createAttributeExpression;
+import static org.hypertrace.gateway.service.common.converters.QueryRequestUtil.createBetweenTimesFilter;
+import static org.hypertrace.gateway.service.common.converters.QueryRequestUtil.createStringFilter;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.typesafe.config.ConfigFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.hypertrace.core.query.service.api.ColumnMetadata;
+import org.hypertrace.core.query.service.api.Expression;
+import org.hypertrace.core.query.service.api.Filter;
+import org.hypertrace.core.query.service.api.Function;
+import org.hypertrace.core.query.service.api.Operator;
+import org.hypertrace.core.query.service.api.QueryRequest;
+import org.hypertrace.core.query.service.api.ResultSetChunk;
+import org.hypertrace.core.query.service.api.ResultSetMetadata;
+import org.hypertrace.core.query.service.api.Row;
+import org.hypertrace.core.query.service.api.Value;
+import org.hypertrace.core.query.service.api.ValueType;
+import org.hypertrace.gateway.service.common.QueryServiceExecutor;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+public class ScatterGatherQueryServiceClientTest {
+  private static final Map<String, String> CONTEXT = Map.of();
+  private static final long DAY = TimeUnit.DAYS.toMillis(1);
+  private static final Expression SERVICE_NAME = createAttributeExpression("EVENT.serviceName");
+  private static final QueryRequest AGGREGATION_REQUEST =
+      QueryRequest.newBuilder()
+          .setFilter(
+              Filter.newBuilder()
+                  .setOperator(Operator.AND)
+                  .addChildFilter(createBetweenTimesFilter("EVENT.startTime", DAY / 2, 5 * DAY / 2))
+                  .addChildFilter(createStringFilter("EVENT.spanKind", Operator.EQ, "SERVER")))
+          .addSelection(SERVICE_NAME)
+          .addSelection(aggregation("SUM", "sum"))
+          .addSelection(aggregation("AVG", "avg"))
+          .addSelection(aggregation("MAX", "max"))
+          .addGroupBy(SERVICE_NAME)
+          .setLimit(10000)
+          .build();
+
+  private final QueryServiceExecutor delegate = mock(QueryServiceExecutor.class);
+  private final ScatterGatherQueryServiceClient client =
+      new ScatterGatherQueryServiceClient(
+          delegate,
+          new QueryScatterGatherConfig(
+              ConfigFactory.parseMap(
+                  Map.of(
+                      "explore.scatter.gather.config.enabled",
+                      true,
+                      "explore.scatter.gather.config.min.range.millis",
+                      2 * DAY,
+                      "explore.scatter.gather.config.sub.range.millis",
+                      DAY))));
+
+  @Test
+  public void test_executeQuery_longRange_shouldCombineTheAggregatesOfTheSubRanges() {
+    when(delegate.executeQuery(any(), any(), anyInt()))
+        .thenAnswer(
+            invocation -> {
+              QueryRequest request = invocation.getArgument(0);
+              long startTime =
+                  request
+                      .getFilter()
+                      .getChildFilter(0)
+                      .getChildFilter(0)
+                      .getRhs()
+                      .getLiteral()
+                      .getValue()
+                      .getLong();
+              if (startTime == DAY / 2) {
+                return List.of(chunk(row("frontend", "10.0", "6.0", "3", "5"))).iterator();
+              }
+              if (startTime == DAY) {
+                return List.of(
+                        chunk(
+                            row("frontend", "20.0", "2.0", "1", "7"),
+                            row("backend", "1.0", "1.0", "1", "1")))
+                    .iterator();
+              }
+              return List.of(chunk()).iterator();
+            });
+
+    ResultSetChunk result = client.executeQuery(AGGREGATION_REQUEST, CONTEXT, 10_000).next();
+
+    assertEquals(
+        List.of("EVENT.serviceName", "sum", "avg", "max"),
+        result.getResultSetMetadata().getColumnMetadataList().stream()
+            .map(ColumnMetadata::getColumnName)
+            .collect(Collectors.toList()));
+    Map<String, List<String>> rows =
+        result.getRowList().stream()
+            .collect(
+                Collectors.toMap(
+                    row -> row.getColumn(0).getString(),
+                    row ->
+                        row.getColumnList().stream()
+                            .skip(1)
+                            .map(Value::getString)
+                            .collect(Collectors.toList())));
+    assertEquals(
+        Map.of("frontend", List.of("30.0", "2.0", "7"), "backend", List.of("1.0", "1.0", "1")),
+        rows);
+
+    ArgumentCaptor<QueryRequest> subRangeRequests = ArgumentCaptor.forClass(QueryRequest.class);
+    verify(delegate, times(3)).executeQuery(subRangeRequests.capture(), eq(CONTEXT), anyInt());
+    assertEquals(
+        Set.of(
+            createBetweenTimesFilter("EVENT.startTime", DAY / 2, DAY),
+            createBetweenTimesFilter("EVENT.startTime", DAY, 2 * DAY),
+            createBetweenTimesFilter("EVENT.startTime", 2 * DAY, 5 * DAY / 2)),
+        subRangeRequests.getAllValues().stream()
+            .map(request -> request.getFilter().getChildFilter(0))
+            .collect(Collectors.toSet()));
+    assertEquals(
+        List.of(
+            SERVICE_NAME,
+            aggregation("SUM", "sum"),
+            aggregation("SUM", "avg"),
+            aggregation("COUNT", "__scatter_gather_count_avg"),
+            aggregation("MAX", "max")),
+        subRangeRequests.getValue().getSelectionList());
+  }
+
+  @Test
+  public void test_executeQuery_percentile_shouldBePassedThrough() {
+    QueryRequest percentileRequest =
+        QueryRequest.newBuilder(AGGREGATION_REQUEST)
+            .addSelection(aggregation("PERCENTILE99", "p99"))
+            .build();
+    QueryRequest shortRangeRequest =
+        QueryRequest.newBuilder(AGGREGATION_REQUEST)
+            .setFilter(createBetweenTimesFilter("EVENT.startTime", DAY / 2, DAY))
+            .build();
+    when(delegate.executeQuery(any(), any(), anyInt()))
+        .thenAnswer(invocation -> List.of(chunk()).iterator());
+
+    client.executeQuery(percentileRequest, CONTEXT, 10_000);
+    client.executeQuery(shortRangeRequest, CONTEXT, 10_000);
+
+    verify(delegate).executeQuery(percentileRequest, CONTEXT, 10_000);
+    verify(delegate).executeQuery(shortRangeRequest, CONTEXT, 10_000);
+  }
+
+  @Test
+  public void test_executeQuery_subRangeAtTheLimit_shouldRunTheQueryUnsplit() {
+    QueryRequest limitedRequest = QueryRequest.newBuilder(AGGREGATION_REQUEST).setLimit(2).build();
+    ResultSetChunk unsplitResult = chunk(row("frontend", "30.0", "2.0", "7", "7"));
+    when(delegate.executeQuery(any(), any(), anyInt()))
+        .thenAnswer(
+            invocation ->
+                invocation.getArgument(0).equals(limitedRequest)
+                    ? List.of(unsplitResult).iterator()
+                    : List.of(
+                            chunk(
+                                row("frontend", "10.0", "6.0", "3", "5"),
+                                row("backend", "1.0", "1.0", "1", "1")))
+                        .iterator());
+
+    assertEquals(unsplitResult, client.executeQuery(limitedRequest, CONTEXT, 10_000).next());
+    verify(delegate).executeQuery(limitedRequest, CONTEXT, 10_000);
+  }
+
+  private static Expression aggregation(String functionName, String alias) {
+    return Expression.newBuilder()
+        .setFunction(
+            Function.newBuilder()
+                .setFunctionName(functionName)
+                .setAlias(alias)
+                .addArguments(createAttributeExpression("EVENT.duration")))
+        .build();
+  }
+
+  private static ResultSetChunk chunk(Row... rows) {
+    ResultSetMetadata.Builder metadataBuilder = ResultSetMetadata.newBuilder();
+    List.of("EVENT.serviceName", "sum", "avg", "__scatter_gather_count_avg", "max")
+        .forEach(
+            columnName ->
+                metadataBuilder.addColumnMetadata(
+                    ColumnMetadata.newBuilder()
+                        .setColumnName(columnName)
+                        .setValueType(ValueType.STRING)));
+    return ResultSetChunk.newBuilder()
+        .setResultSetMetadata(metadataBuilder)
+        .addAllRow(List.of(rows))
+        .build();
+  }
+
+  private static Row row(String... values) {
+    Row.Builder rowBuilder = Row.newBuilder();
+    for (String value : values) {
+      rowBuilder.addColumn(Value.newBuilder().setValueType(ValueType.STRING).setString(value));
+    }
+    return rowBuilder.build();
+  }
+}
@@ -0,0 +1,141 @@
+package org.hypertrace.gateway.service.common.sharding;
+
+import static org.hypertrace.gateway.service.common.converters.QueryRequestUtil.createAttributeExpression;
+import static org.hypertrace.gateway.service.common.converters.QueryRequestUtil.createBetweenTimesFilter;
+import static org.hypertrace.gateway.service.common.converters.QueryRequestUtil.createStringFilter;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.typesafe.config.ConfigFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.hypertrace.core.query.service.api.Filter;
+import org.hypertrace.core.query.service.api.Operator;
+import org.hypertrace.core.query.service.api.OrderByExpression;
+import org.hypertrace.core.query.service.api.QueryRequest;
+import org.hypertrace.core.query.service.api.ResultSetChunk;
+import org.hypertrace.core.query.service.api.Row;
+import org.hypertrace.core.query.service.api.SortOrder;
+import org.hypertrace.core.query.service.api.Value;
+import org.hypertrace.gateway.service.common.QueryServiceExecutor;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+public class TimeShardingQueryServiceClientTest {
+  private static final Map<String, String> CONTEXT = Map.of();
+  private static final Filter FILTER =
+      Filter.newBuilder()
+          .setOperator(Operator.AND)
+          .addChildFilter(createBetweenTimesFilter("SPAN.startTime", 0, 6400))
+          .addChildFilter(createStringFilter("SPAN.serviceName", Operator.EQ, "frontend"))
+          .build();
+  private static final QueryRequest LATEST_SPANS_REQUEST =
+      QueryRequest.newBuilder()
+          .setFilter(FILTER)
+          .addSelection(createAttributeExpression("SPAN.id"))
+          .addOrderBy(
+              OrderByExpression.newBuilder()
+                  .setExpression(createAttributeExpression("SPAN.startTime"))
+                  .setOrder(SortOrder.DESC))
+          .setLimit(5)
+          .setOffset(2)
+          .build();
+
+  private final QueryServiceExecutor delegate = mock(QueryServiceExecutor.class);
+  private final TimeShardingQueryServiceClient client =
+      new TimeShardingQueryServiceClient(
+          delegate,
+          new QueryTimeShardingConfig(
+              ConfigFactory.parseMap(
+                  Map.of(
+                      "query.service.time.sharding.config.enabled",
+                      true,
+                      "query.service.time.sharding.config.max.shards",
+                      4))));
+
+  @Test
+  public void test_executeQuery_latestRecords_shouldStopOnceEnoughRecordsAreFound() {
+    when(delegate.executeQuery(any(), any(), anyInt()))
+        .thenReturn(List.of(chunk(0, 3)).iterator())
+        .thenReturn(List.of(chunk(3, 4)).iterator());
+
+    ResultSetChunk result = client.executeQuery(LATEST_SPANS_REQUEST, CONTEXT, 10_000).next();
+
+    assertEquals(
+        List.of("span2", "span3", "span4", "span5", "span6"),
+        result.getRowList().stream()
+            .map(row -> row.getColumn(0).getString())
+            .collect(Collectors.toList()));
+    ArgumentCaptor<QueryRequest> shardRequests = ArgumentCaptor.forClass(QueryRequest.class);
+    verify(delegate, times(2)).executeQuery(shardRequests.capture(), eq(CONTEXT), anyInt());
+    // shards of 800, 800, 1600 and 3200 newest first, for the offset and limit of 7 records
+    assertEquals(shardRequest(5600, 6400, 7), shardRequests.getAllValues().get(0));
+    assertEquals(shardRequest(4800, 5600, 4), shardRequests.getAllValues().get(1));
+  }
+
+  @Test
+  public void test_executeQuery_tooFewRecords_shouldQueryTheWholeRange() {
+    when(delegate.executeQuery(any(), any(), anyInt()))
+        .thenAnswer(invocation -> List.of(chunk(0, 1)).iterator());
+
+    ResultSetChunk result = client.executeQuery(LATEST_SPANS_REQUEST, CONTEXT, 10_000).next();
+
+    assertEquals(2, result.getRowCount());
+    ArgumentCaptor<QueryRequest> shardRequests = ArgumentCaptor.forClass(QueryRequest.class);
+    verify(delegate, times(4)).executeQuery(shardRequests.capture(), eq(CONTEXT), anyInt());
+    assertEquals(shardRequest(0, 3200, 4), shardRequests.getAllValues().get(3));
+  }
+
+  @Test
+  public void test_executeQuery_aggregation_shouldBePassedThrough() {
+    QueryRequest ascendingRequest =
+        QueryRequest.newBuilder(LATEST_SPANS_REQUEST)
+            .setOrderBy(
+                0,
+                OrderByExpression.newBuilder()
+                    .setExpression(createAttributeExpression("SPAN.startTime"))
+                    .setOrder(SortOrder.ASC))
+            .build();
+    QueryRequest groupByRequest =
+        QueryRequest.newBuilder(LATEST_SPANS_REQUEST)
+            .addGroupBy(createAttributeExpression("SPAN.serviceName"))
+            .build();
+    when(delegate.executeQuery(any(), any(), anyInt()))
+        .thenAnswer(invocation -> List.of(chunk(0, 1)).iterator());
+
+    client.executeQuery(ascendingRequest, CONTEXT, 10_000);
+    client.executeQuery(groupByRequest, CONTEXT, 10_000);
+
+    verify(delegate).executeQuery(ascendingRequest, CONTEXT, 10_000);
+    verify(delegate).executeQuery(groupByRequest, CONTEXT, 10_000);
+  }
+
+  private static QueryRequest shardRequest(long startTime, long endTime, int limit) {
+    return QueryRequest.newBuilder(LATEST_SPANS_REQUEST)
+        .setFilter(
+            Filter.newBuilder(FILTER)
+                .setChildFilter(0, createBetweenTimesFilter("SPAN.startTime", startTime, endTime)))
+        .setOffset(0)
+        .setLimit(limit)
+        .build();
+  }
+
+  private static ResultSetChunk chunk(int firstSpan, int spanCount) {
+    List<Row> rows = new ArrayList<>();
+    IntStream.range(firstSpan, firstSpan + spanCount)
+        .forEach(
+            i ->
+                rows.add(
+                    Row.newBuilder().addColumn(Value.newBuilder().setString("span" + i)).build()));
+    return ResultSetChunk.newBuilder().addAllRow(rows).build();
+  }
+}
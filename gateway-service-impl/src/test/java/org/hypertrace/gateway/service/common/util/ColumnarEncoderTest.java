@@ -0,0 +1,112 @@
+package org.hypertrace.gateway.service.common.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.hypertrace.gateway.service.v1.common.Column;
+import org.hypertrace.gateway.service.v1.common.ColumnarRows;
+import org.hypertrace.gateway.service.v1.common.Health;
+import org.hypertrace.gateway.service.v1.common.Interval;
+import org.hypertrace.gateway.service.v1.common.MetricSeries;
+import org.hypertrace.gateway.service.v1.common.Row;
+import org.hypertrace.gateway.service.v1.common.Value;
+import org.hypertrace.gateway.service.v1.common.ValueType;
+import org.junit.jupiter.api.Test;
+
+public class ColumnarEncoderTest {
+  @Test
+  public void testEncodeRows_shouldEncodeTheValuesByTheirType() {
+    List<Row> rows =
+        List.of(
+            Row.newBuilder()
+                .putColumns("SERVICE.name", stringValue("frontend"))
+                .putColumns("SERVICE.numCalls", doubleValue(10))
+                .build(),
+            Row.newBuilder()
+                .putColumns("SERVICE.name", stringValue("backend"))
+                .putColumns("SERVICE.numCalls", doubleValue(20))
+                .putColumns("SERVICE.errorCount", longValue(1))
+                .build(),
+            Row.newBuilder()
+                .putColumns("SERVICE.name", stringValue("frontend"))
+                .putColumns("SERVICE.numCalls", longValue(30))
+                .build());
+
+    ColumnarRows columnarRows = ColumnarEncoder.encodeRows(rows);
+
+    assertEquals(3, columnarRows.getRowCount());
+    Column names = getColumn(columnarRows, "SERVICE.name");
+    assertEquals(ValueType.STRING, names.getValueType());
+    assertEquals(List.of("frontend", "backend"), names.getDictionaryList());
+    assertEquals(List.of(0, 1, 0), names.getStringIndexList());
+
+    Column errorCounts = getColumn(columnarRows, "SERVICE.errorCount");
+    assertEquals(ValueType.LONG, errorCounts.getValueType());
+    assertEquals(List.of(0, 2), errorCounts.getMissingRowList());
+    assertEquals(List.of(1L), errorCounts.getLongValueList());
+
+    // mixed value types are kept as values
+    Column numCalls = getColumn(columnarRows, "SERVICE.numCalls");
+    assertEquals(ValueType.UNSET, numCalls.getValueType());
+    assertEquals(List.of(doubleValue(10), doubleValue(20), longValue(30)), numCalls.getValueList());
+  }
+
+  @Test
+  public void testEncodeSeries_shouldEncodeTheIntervals() {
+    MetricSeries series =
+        MetricSeries.newBuilder()
+            .setAggregation("AVG")
+            .addValue(
+                Interval.newBuilder()
+                    .setStartTimeMillis(0)
+                    .setEndTimeMillis(60000)
+                    .setValue(doubleValue(1.5)))
+            .addValue(
+                Interval.newBuilder()
+                    .setStartTimeMillis(60000)
+                    .setEndTimeMillis(120000)
+                    .setValue(doubleValue(2.5)))
+            .build();
+
+    MetricSeries columnarSeries = ColumnarEncoder.encodeSeries(series);
+
+    assertTrue(columnarSeries.getValueList().isEmpty());
+    assertEquals("AVG", columnarSeries.getAggregation());
+    ColumnarRows intervals = columnarSeries.getColumnarValue();
+    assertEquals(2, intervals.getRowCount());
+    assertEquals(3, intervals.getColumnCount());
+    assertEquals(List.of(0L, 60000L), getColumn(intervals, "start_time_millis").getLongValueList());
+    assertEquals(
+        List.of(60000L, 120000L), getColumn(intervals, "end_time_millis").getLongValueList());
+    assertEquals(List.of(1.5, 2.5), getColumn(intervals, "value").getDoubleValueList());
+
+    MetricSeries seriesWithHealth =
+        MetricSeries.newBuilder(series)
+            .setValue(0, Interval.newBuilder(series.getValue(0)).setHealth(Health.RED))
+            .build();
+    Column healths =
+        getColumn(ColumnarEncoder.encodeSeries(seriesWithHealth).getColumnarValue(), "health");
+    assertEquals(List.of("RED"), healths.getDictionaryList());
+    assertEquals(List.of(1), healths.getMissingRowList());
+  }
+
+  private static Column getColumn(ColumnarRows columnarRows, String name) {
+    return columnarRows.getColumnList().stream()
+        .filter(column -> column.getName().equals(name))
+        .findFirst()
+        .orElseThrow();
+  }
+
+  private static Value stringValue(String value) {
+    return Value.newBuilder().setValueType(ValueType.STRING).setString(value).build();
+  }
+
+  private static Value longValue(long value) {
+    return Value.newBuilder().setValueType(ValueType.LONG).setLong(value).build();
+  }
+
+  private static Value doubleValue(double value) {
+    return Value.newBuilder().setValueType(ValueType.DOUBLE).setDouble(value).build();
+  }
+}
@@ -0,0 +1,146 @@
+package org.hypertrace.gateway.service.common.util;
+
+import static org.hypertrace.gateway.service.common.util.QueryExpressionUtil.buildAttributeExpression;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import org.hypertrace.gateway.service.v1.common.Filter;
+import org.hypertrace.gateway.service.v1.common.FunctionType;
+import org.hypertrace.gateway.service.v1.common.Operator;
+import org.hypertrace.gateway.service.v1.common.OrderByExpression;
+import org.hypertrace.gateway.service.v1.common.SortOrder;
+import org.hypertrace.gateway.service.v1.common.Value;
+import org.hypertrace.gateway.service.v1.common.ValueType;
+import org.junit.jupiter.api.Test;
+
+public class KeysetPaginationTest {
+  private static final List<OrderByExpression> ORDER_BY_START_TIME =
+      List.of(
+          OrderByExpression.newBuilder()
+              .setExpression(buildAttributeExpression("EVENT.startTime"))
+              .setOrder(SortOrder.DESC)
+              .build());
+
+  @Test
+  public void testFirstPage_shouldOrderByTieBreakerAndNotFilter() {
+    KeysetPagination keysetPagination =
+        KeysetPagination.of(ORDER_BY_START_TIME, List.of("EVENT.id"), "").orElseThrow();
+
+    assertEquals(
+        List.of(
+            ORDER_BY_START_TIME.get(0),
+            OrderByExpression.newBuilder()
+                .setExpression(buildAttributeExpression("EVENT.id"))
+                .setOrder(SortOrder.ASC)
+                .build()),
+        keysetPagination.getOrderByList());
+    assertEquals(
+        List.of(
+            buildAttributeExpression("EVENT.startTime", "__keyset_0").build(),
+            buildAttributeExpression("EVENT.id", "__keyset_1").build()),
+        keysetPagination.getSelections());
+    assertEquals(
+        Filter.getDefaultInstance(), keysetPagination.getFilter(Filter.getDefaultInstance()));
+    assertEquals(0, keysetPagination.getOffset());
+    // the requested offset applies to the first page only
+    assertEquals(20, keysetPagination.getOffset(20));
+  }
+
+  @Test
+  public void testNextPage_shouldSeekPastTheLastRow() {
+    KeysetPagination firstPage =
+        KeysetPagination.of(ORDER_BY_START_TIME, List.of("EVENT.id"), "").orElseThrow();
+    firstPage.addRow(Map.of("__keyset_0", longValue(20), "__keyset_1", stringValue("span1")));
+    firstPage.addRow(Map.of("__keyset_0", longValue(10), "__keyset_1", stringValue("span2")));
+    String pageToken = firstPage.getNextPageToken(2).orElseThrow();
+
+    KeysetPagination nextPage =
+        KeysetPagination.of(ORDER_BY_START_TIME, List.of("EVENT.id"), pageToken).orElseThrow();
+
+    assertEquals(1, nextPage.getOffset());
+    assertEquals(1, nextPage.getOffset(20));
+    Filter keysetFilter = nextPage.getFilter(Filter.getDefaultInstance());
+    assertEquals(Operator.OR, keysetFilter.getOperator());
+    Filter startTimeFilter = keysetFilter.getChildFilter(0).getChildFilter(0);
+    assertEquals(Operator.LT, startTimeFilter.getOperator());
+    assertEquals(longValue(10), startTimeFilter.getRhs().getLiteral().getValue());
+    Filter idFilter = keysetFilter.getChildFilter(1);
+    assertEquals(Operator.EQ, idFilter.getChildFilter(0).getOperator());
+    assertEquals(Operator.GE, idFilter.getChildFilter(1).getOperator());
+    assertEquals(stringValue("span2"), idFilter.getChildFilter(1).getRhs().getLiteral().getValue());
+  }
+
+  @Test
+  public void testNextPage_withoutTieBreaker_shouldSkipTheRowsOfTheSameValues() {
+    KeysetPagination firstPage =
+        KeysetPagination.of(ORDER_BY_START_TIME, List.of(), "").orElseThrow();
+    firstPage.addRow(Map.of("__keyset_0", longValue(20)));
+    firstPage.addRow(Map.of("__keyset_0", longValue(10)));
+    firstPage.addRow(Map.of("__keyset_0", longValue(10)));
+    KeysetPagination secondPage =
+        KeysetPagination.of(
+                ORDER_BY_START_TIME, List.of(), firstPage.getNextPageToken(3).orElseThrow())
+            .orElseThrow();
+    assertEquals(2, secondPage.getOffset());
+
+    secondPage.addRow(Map.of("__keyset_0", longValue(10)));
+    KeysetPagination thirdPage =
+        KeysetPagination.of(
+                ORDER_BY_START_TIME, List.of(), secondPage.getNextPageToken(1).orElseThrow())
+            .orElseThrow();
+    assertEquals(3, thirdPage.getOffset());
+  }
+
+  @Test
+  public void testPageNotFull_shouldNotHaveNextPage() {
+    KeysetPagination keysetPagination =
+        KeysetPagination.of(ORDER_BY_START_TIME, List.of("EVENT.id"), "").orElseThrow();
+    keysetPagination.addRow(
+        Map.of("__keyset_0", longValue(20), "__keyset_1", stringValue("span1")));
+
+    assertTrue(keysetPagination.getNextPageToken(2).isEmpty());
+  }
+
+  @Test
+  public void testOrderByFunction_shouldNotBePaginatedByKeyset() {
+    List<OrderByExpression> orderByAvgDuration =
+        List.of(
+            OrderByExpression.newBuilder()
+                .setExpression(
+                    QueryExpressionUtil.getAggregateFunctionExpression(
+                        "EVENT.duration", FunctionType.AVG, "avg_duration", false))
+                .build());
+
+    assertTrue(KeysetPagination.of(orderByAvgDuration, List.of("EVENT.id"), "").isEmpty());
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> KeysetPagination.of(orderByAvgDuration, List.of("EVENT.id"), "1.AA"));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> KeysetPagination.of(ORDER_BY_START_TIME, List.of("EVENT.id"), "invalid"));
+  }
+
+  @Test
+  public void testPageTokenWithUnsetValue_shouldBeRejected() {
+    KeysetPagination firstPage =
+        KeysetPagination.of(ORDER_BY_START_TIME, List.of("EVENT.id"), "").orElseThrow();
+    firstPage.addRow(Map.of("__keyset_0", longValue(20), "__keyset_1", stringValue("span1")));
+    firstPage.addRow(Map.of("__keyset_0", longValue(10)));
+    String pageToken = firstPage.getNextPageToken(2).orElseThrow();
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> KeysetPagination.of(ORDER_BY_START_TIME, List.of("EVENT.id"), pageToken));
+  }
+
+  private static Value longValue(long value) {
+    return Value.newBuilder().setValueType(ValueType.LONG).setLong(value).build();
+  }
+
+  private static Value stringValue(String value) {
+    return Value.newBuilder().setValueType(ValueType.STRING).setString(value).build();
+  }
+}
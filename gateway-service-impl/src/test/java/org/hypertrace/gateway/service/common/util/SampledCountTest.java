@@ -0,0 +1,44 @@
+package org.hypertrace.gateway.service.common.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.hypertrace.core.query.service.api.Filter;
+import org.hypertrace.core.query.service.api.Operator;
+import org.junit.jupiter.api.Test;
+
+public class SampledCountTest {
+  private static final long HOUR_MILLIS = 60 * 60 * 1000L;
+
+  @Test
+  public void testShortTimeRange_shouldNotBeSampled() {
+    assertTrue(SampledCount.of(0, HOUR_MILLIS - 1).isEmpty());
+  }
+
+  @Test
+  public void testSampleFilter_shouldCountASliceOfEachStratum() {
+    SampledCount sampledCount = SampledCount.of(0, 10 * HOUR_MILLIS).orElseThrow();
+
+    Filter sampleFilter = sampledCount.createSampleFilter("EVENT.startTime");
+
+    assertEquals(Operator.OR, sampleFilter.getOperator());
+    assertEquals(SampledCount.STRATA, sampleFilter.getChildFilterCount());
+    for (int i = 0; i < SampledCount.STRATA; i++) {
+      Filter sliceFilter = sampleFilter.getChildFilter(i);
+      long sliceStartTime =
+          sliceFilter.getChildFilter(0).getRhs().getLiteral().getValue().getLong();
+      long sliceEndTime = sliceFilter.getChildFilter(1).getRhs().getLiteral().getValue().getLong();
+      assertEquals(i * HOUR_MILLIS, sliceStartTime);
+      assertEquals(HOUR_MILLIS / 10, sliceEndTime - sliceStartTime);
+    }
+  }
+
+  @Test
+  public void testEstimate_shouldScaleTheSampledCountToTheTimeRange() {
+    SampledCount sampledCount = SampledCount.of(0, 10 * HOUR_MILLIS).orElseThrow();
+
+    assertEquals(12340, sampledCount.estimate(1234));
+    assertEquals(Math.sqrt(0.9 / 1234), sampledCount.getRelativeError(1234), 1e-9);
+    assertEquals(1.0, sampledCount.getRelativeError(0));
+  }
+}
@@ -0,0 +1,75 @@
+package org.hypertrace.gateway.service.common.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.hypertrace.gateway.service.v1.common.Downsampling;
+import org.hypertrace.gateway.service.v1.common.Interval;
+import org.hypertrace.gateway.service.v1.common.MetricSeries;
+import org.hypertrace.gateway.service.v1.common.TimeAggregation;
+import org.hypertrace.gateway.service.v1.common.Value;
+import org.hypertrace.gateway.service.v1.common.ValueType;
+import org.junit.jupiter.api.Test;
+
+public class TimeSeriesDownsamplerTest {
+  // flat series with a spike at 3 and a dip at 7
+  private static final List<Double> VALUES =
+      List.of(1.0, 1.0, 1.0, 9.0, 1.0, 1.0, 1.0, -5.0, 1.0, 1.0);
+  private static final MetricSeries SERIES =
+      MetricSeries.newBuilder()
+          .addAllValue(
+              IntStream.range(0, VALUES.size())
+                  .mapToObj(
+                      i ->
+                          Interval.newBuilder()
+                              .setStartTimeMillis(i * 60000L)
+                              .setEndTimeMillis((i + 1) * 60000L)
+                              .setValue(
+                                  Value.newBuilder()
+                                      .setValueType(ValueType.DOUBLE)
+                                      .setDouble(VALUES.get(i)))
+                              .build())
+                  .collect(Collectors.toList()))
+          .build();
+
+  @Test
+  public void testLttb_shouldKeepTheEndsAndTheExtremes() {
+    MetricSeries downsampled =
+        TimeSeriesDownsampler.downsample(
+            SERIES, TimeAggregation.newBuilder().setMaxPoints(4).build());
+
+    assertEquals(List.of(0L, 3L, 7L, 9L), getMinutes(downsampled));
+  }
+
+  @Test
+  public void testMinMax_shouldKeepTheMinAndMaxOfEachBucket() {
+    MetricSeries downsampled =
+        TimeSeriesDownsampler.downsample(
+            SERIES,
+            TimeAggregation.newBuilder()
+                .setMaxPoints(4)
+                .setDownsampling(Downsampling.MIN_MAX)
+                .build());
+
+    assertEquals(List.of(0L, 3L, 5L, 7L), getMinutes(downsampled));
+  }
+
+  @Test
+  public void testNoMaxPoints_shouldKeepTheSeries() {
+    assertSame(
+        SERIES, TimeSeriesDownsampler.downsample(SERIES, TimeAggregation.getDefaultInstance()));
+    assertSame(
+        SERIES,
+        TimeSeriesDownsampler.downsample(
+            SERIES, TimeAggregation.newBuilder().setMaxPoints(10).build()));
+  }
+
+  private static List<Long> getMinutes(MetricSeries series) {
+    return series.getValueList().stream()
+        .map(interval -> interval.getStartTimeMillis() / 60000L)
+        .collect(Collectors.toList());
+  }
+}
@@ -43,11 +43,15 @@ import org.hypertrace.core.query.service.client.QueryServiceClient;
 import org.hypertrace.entity.query.service.client.EntityQueryServiceClient;
 import org.hypertrace.gateway.service.AbstractGatewayServiceTest;
 import org.hypertrace.gateway.service.common.AttributeMetadataProvider;
+import org.hypertrace.gateway.service.common.QueryServiceExecutor;
 import org.hypertrace.gateway.service.common.QueryServiceRequestAndResponseUtils;
 import org.hypertrace.gateway.service.common.RequestContext;
 import org.hypertrace.gateway.service.common.config.ScopeFilterConfigs;
+import org.hypertrace.gateway.service.common.converters.ValueInternerFactory;
 import org.hypertrace.gateway.service.entity.config.EntityIdColumnsConfigs;
 import org.hypertrace.gateway.service.entity.config.LogConfig;
+import org.hypertrace.gateway.service.entity.query.EntitySnapshotStore;
+import org.hypertrace.gateway.service.entity.query.EntityTotalCache;
 import org.hypertrace.gateway.service.v1.common.Expression;
 import org.hypertrace.gateway.service.v1.common.FunctionType;
 import org.hypertrace.gateway.service.v1.common.LiteralConstant;
@@ -64,7 +68,7 @@ import org.mockito.Mockito;
 
 public class EntityServiceTest extends AbstractGatewayServiceTest {
 
-  private QueryServiceClient queryServiceClient;
+  private QueryServiceExecutor queryServiceClient;
   private EntityQueryServiceClient entityQueryServiceClient;
   private AttributeMetadataProvider attributeMetadataProvider;
   private EntityIdColumnsConfigs entityIdColumnsConfigs;
@@ -74,7 +78,7 @@ public class EntityServiceTest extends AbstractGatewayServiceTest {
   public void setup() {
     super.setup();
     mockEntityIdColumnConfigs();
-    queryServiceClient = Mockito.mock(QueryServiceClient.class);
+    queryServiceClient = Mockito.mock(QueryServiceExecutor.class);
     entityQueryServiceClient = Mockito.mock(EntityQueryServiceClient.class);
     attributeMetadataProvider = Mockito.mock(AttributeMetadataProvider.class);
     mock(attributeMetadataProvider);
@@ -278,7 +282,10 @@ public class EntityServiceTest extends AbstractGatewayServiceTest {
             attributeMetadataProvider,
             entityIdColumnsConfigs,
             scopeFilterConfigs,
-            logConfig);
+            logConfig,
+            new ValueInternerFactory(ConfigFactory.empty()),
+            new EntityTotalCache(ConfigFactory.empty()),
+            new EntitySnapshotStore(ConfigFactory.empty()));
     EntitiesResponse response = entityService.getEntities(TENANT_ID, entitiesRequest, Map.of());
     Assertions.assertNotNull(response);
     Assertions.assertEquals(2, response.getTotal());
@@ -312,7 +319,10 @@ public class EntityServiceTest extends AbstractGatewayServiceTest {
             attributeMetadataProvider,
             entityIdColumnsConfigs,
             scopeFilterConfigs,
-            logConfig);
+            logConfig,
+            new ValueInternerFactory(ConfigFactory.empty()),
+            new EntityTotalCache(ConfigFactory.empty()),
+            new EntitySnapshotStore(ConfigFactory.empty()));
     EntitiesRequest entitiesRequest =
         EntitiesRequest.newBuilder()
             .setEntityType("API")
@@ -0,0 +1,86 @@
+package org.hypertrace.gateway.service.entity.query;
+
+import static org.hypertrace.gateway.service.common.EntitiesRequestAndResponseUtils.buildExpression;
+import static org.hypertrace.gateway.service.common.EntitiesRequestAndResponseUtils.buildOrderByExpression;
+import static org.hypertrace.gateway.service.common.EntitiesRequestAndResponseUtils.generateEQFilter;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.typesafe.config.ConfigFactory;
+import java.util.List;
+import java.util.Map;
+import org.hypertrace.gateway.service.entity.EntityKey;
+import org.hypertrace.gateway.service.entity.query.EntitySnapshotStore.EntitySnapshot;
+import org.hypertrace.gateway.service.v1.entity.EntitiesRequest;
+import org.junit.jupiter.api.Test;
+
+public class EntitySnapshotStoreTest {
+  private static final EntitiesRequest ENTITIES_REQUEST =
+      EntitiesRequest.newBuilder()
+          .setEntityType("API")
+          .setStartTimeMillis(10000L)
+          .setEndTimeMillis(90000L)
+          .setFilter(generateEQFilter("API.apiDiscoveryState", "DISCOVERED"))
+          .addSelection(buildExpression("API.name"))
+          .addOrderBy(buildOrderByExpression("API.name"))
+          .setLimit(2)
+          .setUseCursor(true)
+          .build();
+  private static final List<EntityKey> ENTITY_KEYS =
+      List.of(EntityKey.of("id1"), EntityKey.of("id2"), EntityKey.of("id3"));
+
+  private final EntitySnapshotStore entitySnapshotStore =
+      new EntitySnapshotStore(
+          ConfigFactory.parseMap(Map.of("entity.snapshot.store.config.max.entities", 3)));
+
+  @Test
+  public void testGet_nextPage_shouldReturnSnapshot() {
+    EntitySnapshot snapshot =
+        entitySnapshotStore.put("tenant1", ENTITIES_REQUEST, ENTITY_KEYS, 5, 0);
+
+    EntitiesRequest nextPage =
+        EntitiesRequest.newBuilder(ENTITIES_REQUEST)
+            .setCursor(snapshot.getCursor())
+            .setOffset(2)
+            .build();
+    EntitySnapshot nextPageSnapshot = entitySnapshotStore.get("tenant1", nextPage).orElseThrow();
+    assertEquals(5, nextPageSnapshot.getTotal());
+    assertEquals(List.of(EntityKey.of("id3")), nextPageSnapshot.getPage(2, 2));
+    assertEquals(ENTITY_KEYS.subList(0, 2), nextPageSnapshot.getPage(0, 2));
+    assertTrue(nextPageSnapshot.getPage(3, 2).isEmpty());
+  }
+
+  @Test
+  public void testGet_otherTenantOrRequest_shouldNotReturnSnapshot() {
+    EntitySnapshot snapshot =
+        entitySnapshotStore.put("tenant1", ENTITIES_REQUEST, ENTITY_KEYS, 3, 0);
+    EntitiesRequest nextPage =
+        EntitiesRequest.newBuilder(ENTITIES_REQUEST).setCursor(snapshot.getCursor()).build();
+
+    assertTrue(entitySnapshotStore.get("tenant2", nextPage).isEmpty());
+    assertTrue(
+        entitySnapshotStore
+            .get(
+                "tenant1",
+                EntitiesRequest.newBuilder(nextPage)
+                    .setFilter(generateEQFilter("API.apiDiscoveryState", "UNDER_DISCOVERY"))
+                    .build())
+            .isEmpty());
+    assertTrue(entitySnapshotStore.get("tenant1", ENTITIES_REQUEST).isEmpty());
+  }
+
+  @Test
+  public void testPut_tooManyEntities_shouldOnlyKeepTheFirstOnes() {
+    EntitySnapshot snapshot =
+        entitySnapshotStore.put(
+            "tenant1",
+            ENTITIES_REQUEST,
+            List.of(
+                EntityKey.of("id1"), EntityKey.of("id2"), EntityKey.of("id3"), EntityKey.of("id4")),
+            4,
+            0);
+
+    assertEquals(ENTITY_KEYS, snapshot.getPage(0, 0));
+    assertEquals(4, snapshot.getTotal());
+  }
+}
@@ -0,0 +1,83 @@
+package org.hypertrace.gateway.service.entity.query;
+
+import static org.hypertrace.gateway.service.common.EntitiesRequestAndResponseUtils.buildExpression;
+import static org.hypertrace.gateway.service.common.EntitiesRequestAndResponseUtils.buildOrderByExpression;
+import static org.hypertrace.gateway.service.common.EntitiesRequestAndResponseUtils.generateEQFilter;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.typesafe.config.ConfigFactory;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.hypertrace.gateway.service.v1.entity.EntitiesRequest;
+import org.junit.jupiter.api.Test;
+
+public class EntityTotalCacheTest {
+  private static final EntitiesRequest ENTITIES_REQUEST =
+      EntitiesRequest.newBuilder()
+          .setEntityType("API")
+          .setStartTimeMillis(10000L)
+          .setEndTimeMillis(90000L)
+          .setFilter(generateEQFilter("API.apiDiscoveryState", "DISCOVERED"))
+          .addSelection(buildExpression("API.name"))
+          .addOrderBy(buildOrderByExpression("API.name"))
+          .setLimit(10)
+          .setOffset(0)
+          .build();
+
+  private final AtomicInteger loads = new AtomicInteger();
+
+  @Test
+  public void testGetTotal_nextPage_shouldBeServedFromCache() {
+    EntityTotalCache entityTotalCache =
+        new EntityTotalCache(
+            ConfigFactory.parseMap(Map.of("entity.total.cache.config.enabled", true)));
+
+    assertEquals(42, entityTotalCache.getTotal("tenant1", "QS", ENTITIES_REQUEST, this::load));
+    EntitiesRequest nextPage =
+        EntitiesRequest.newBuilder(ENTITIES_REQUEST)
+            .clearSelection()
+            .addSelection(buildExpression("API.id"))
+            .setOffset(10)
+            .build();
+    assertEquals(42, entityTotalCache.getTotal("tenant1", "QS", nextPage, this::load));
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  public void testGetTotal_differentFilterTenantOrSource_shouldNotBeServedFromCache() {
+    EntityTotalCache entityTotalCache =
+        new EntityTotalCache(
+            ConfigFactory.parseMap(Map.of("entity.total.cache.config.enabled", true)));
+
+    entityTotalCache.getTotal("tenant1", "QS", ENTITIES_REQUEST, this::load);
+    entityTotalCache.getTotal(
+        "tenant1",
+        "QS",
+        EntitiesRequest.newBuilder(ENTITIES_REQUEST)
+            .setFilter(generateEQFilter("API.apiDiscoveryState", "UNDER_DISCOVERY"))
+            .build(),
+        this::load);
+    entityTotalCache.getTotal(
+        "tenant1",
+        "QS",
+        EntitiesRequest.newBuilder(ENTITIES_REQUEST).setEndTimeMillis(100000L).build(),
+        this::load);
+    entityTotalCache.getTotal("tenant2", "QS", ENTITIES_REQUEST, this::load);
+    entityTotalCache.getTotal("tenant1", "EDS", ENTITIES_REQUEST, this::load);
+    assertEquals(5, loads.get());
+  }
+
+  @Test
+  public void testGetTotal_disabled_shouldAlwaysLoad() {
+    EntityTotalCache entityTotalCache = new EntityTotalCache(ConfigFactory.empty());
+
+    entityTotalCache.getTotal("tenant1", "QS", ENTITIES_REQUEST, this::load);
+    entityTotalCache.getTotal("tenant1", "QS", ENTITIES_REQUEST, this::load);
+    assertEquals(2, loads.get());
+  }
+
+  private long load() {
+    loads.incrementAndGet();
+    return 42;
+  }
+}
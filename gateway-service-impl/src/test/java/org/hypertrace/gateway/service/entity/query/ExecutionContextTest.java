@@ -6,7 +6,10 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.HashMap;
@@ -184,6 +187,92 @@ class ExecutionContextTest {
     assertEquals(3, executionContext.getSourceToSelectionAttributeMap().get("QS").size());
   }
 
+  @Test
+  void reusesCompiledSourceMapsForRequestsOfTheSameShape() {
+    ExecutionPlanCache executionPlanCache = new ExecutionPlanCache();
+    EntitiesRequest firstRequest =
+        EntitiesRequest.newBuilder()
+            .setEntityType("API")
+            .addSelection(buildExpression(API_NAME_ATTR))
+            .addSelection(buildExpression(API_DISCOVERY_STATE))
+            .setFilter(generateEQFilter(API_NUM_CALLS_ATTR, "20"))
+            .build();
+    ExecutionContext firstContext =
+        ExecutionContext.from(
+            attributeMetadataProvider,
+            entityIdColumnsConfigs,
+            firstRequest,
+            entitiesRequestContext,
+            executionPlanCache);
+    firstContext.removeSelectionAttributes("EDS", Set.of(API_NAME_ATTR));
+    firstContext.removePendingSelectionSource("QS");
+
+    clearInvocations(attributeMetadataProvider);
+    EntitiesRequest secondRequest =
+        firstRequest.toBuilder().setFilter(generateEQFilter(API_NUM_CALLS_ATTR, "50")).build();
+    ExecutionContext secondContext =
+        ExecutionContext.from(
+            attributeMetadataProvider,
+            entityIdColumnsConfigs,
+            secondRequest,
+            entitiesRequestContext,
+            executionPlanCache);
+
+    // only the lookup of the metadata version, the source maps are not compiled again
+    verify(attributeMetadataProvider, times(1))
+        .getAttributesMetadata(any(RequestContext.class), eq(AttributeScope.API.name()));
+    ExecutionContext uncachedContext =
+        ExecutionContext.from(
+            attributeMetadataProvider,
+            entityIdColumnsConfigs,
+            secondRequest,
+            entitiesRequestContext);
+    assertEquals(
+        uncachedContext.getSourceToSelectionExpressionMap(),
+        secondContext.getSourceToSelectionExpressionMap());
+    assertEquals(
+        uncachedContext.getSourceToFilterExpressionMap(),
+        secondContext.getSourceToFilterExpressionMap());
+    assertEquals(
+        uncachedContext.getAllAttributesToSourcesMap(),
+        secondContext.getAllAttributesToSourcesMap());
+    assertEquals(Set.of("QS", "EDS"), secondContext.getPendingSelectionSources());
+  }
+
+  @Test
+  void compilesSourceMapsAgainWhenAttributeMetadataChanges() {
+    ExecutionPlanCache executionPlanCache = new ExecutionPlanCache();
+    EntitiesRequest entitiesRequest =
+        EntitiesRequest.newBuilder()
+            .setEntityType("API")
+            .addSelection(buildExpression(API_NAME_ATTR))
+            .build();
+    ExecutionContext.from(
+        attributeMetadataProvider,
+        entityIdColumnsConfigs,
+        entitiesRequest,
+        entitiesRequestContext,
+        executionPlanCache);
+
+    Map<String, AttributeMetadata> reloadedAttributeSources = new HashMap<>(attributeSources);
+    reloadedAttributeSources.put(
+        API_NAME_ATTR,
+        buildAttributeMetadataForSources(
+            API_NAME_ATTR, AttributeScope.API.name(), "name", List.of(AttributeSource.QS)));
+    when(attributeMetadataProvider.getAttributesMetadata(
+            any(RequestContext.class), eq(AttributeScope.API.name())))
+        .thenReturn(reloadedAttributeSources);
+    ExecutionContext executionContext =
+        ExecutionContext.from(
+            attributeMetadataProvider,
+            entityIdColumnsConfigs,
+            entitiesRequest,
+            entitiesRequestContext,
+            executionPlanCache);
+
+    assertEquals(Set.of("QS"), executionContext.getSourceToSelectionExpressionMap().keySet());
+  }
+
   private static final Map<String, AttributeMetadata> attributeSources =
       new HashMap<>() {
         {
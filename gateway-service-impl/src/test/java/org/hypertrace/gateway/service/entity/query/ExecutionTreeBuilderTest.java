@@ -34,6 +34,7 @@ import org.hypertrace.gateway.service.common.RequestContext;
 import org.hypertrace.gateway.service.entity.EntitiesRequestContext;
 import org.hypertrace.gateway.service.entity.config.EntityIdColumnsConfigs;
 import org.hypertrace.gateway.service.entity.query.visitor.FilterOptimizingVisitor;
+import org.hypertrace.gateway.service.v1.common.Expression;
 import org.hypertrace.gateway.service.v1.common.Filter;
 import org.hypertrace.gateway.service.v1.common.FunctionType;
 import org.hypertrace.gateway.service.v1.common.Operator;
@@ -635,14 +636,12 @@ public class ExecutionTreeBuilderTest {
     ExecutionTreeBuilder executionTreeBuilder = new ExecutionTreeBuilder(executionContext);
     QueryNode executionTree = executionTreeBuilder.build();
     assertNotNull(executionTree);
+    // the metric and time series selections are fused
     assertTrue(executionTree instanceof SelectionNode);
     assertTrue(((SelectionNode) executionTree).getTimeSeriesSelectionSources().contains("QS"));
+    assertTrue(((SelectionNode) executionTree).getAggMetricSelectionSources().contains("QS"));
 
-    QueryNode selectionNode = ((SelectionNode) executionTree).getChildNode();
-    assertTrue(selectionNode instanceof SelectionNode);
-    assertTrue(((SelectionNode) selectionNode).getAggMetricSelectionSources().contains("QS"));
-
-    QueryNode paginateOnlyNode = ((SelectionNode) selectionNode).getChildNode();
+    QueryNode paginateOnlyNode = ((SelectionNode) executionTree).getChildNode();
     assertTrue(paginateOnlyNode instanceof PaginateOnlyNode);
     assertEquals(0, ((PaginateOnlyNode) paginateOnlyNode).getOffset());
     assertEquals(10, ((PaginateOnlyNode) paginateOnlyNode).getLimit());
@@ -740,14 +739,12 @@ public class ExecutionTreeBuilderTest {
     ExecutionTreeBuilder executionTreeBuilder = new ExecutionTreeBuilder(executionContext);
     QueryNode executionTree = executionTreeBuilder.build();
     assertNotNull(executionTree);
+    // the attribute and metric selections are fused
     assertTrue(executionTree instanceof SelectionNode);
     assertTrue(((SelectionNode) executionTree).getAggMetricSelectionSources().contains("QS"));
+    assertTrue(((SelectionNode) executionTree).getAttrSelectionSources().contains("EDS"));
 
-    QueryNode selectionNode = ((SelectionNode) executionTree).getChildNode();
-    assertTrue(selectionNode instanceof SelectionNode);
-    assertTrue(((SelectionNode) selectionNode).getAttrSelectionSources().contains("EDS"));
-
-    QueryNode paginateOnlyNode = ((SelectionNode) selectionNode).getChildNode();
+    QueryNode paginateOnlyNode = ((SelectionNode) executionTree).getChildNode();
     assertTrue(paginateOnlyNode instanceof PaginateOnlyNode);
     assertEquals(10, ((PaginateOnlyNode) paginateOnlyNode).getOffset());
     assertEquals(10, ((PaginateOnlyNode) paginateOnlyNode).getLimit());
@@ -814,6 +811,109 @@ public class ExecutionTreeBuilderTest {
     assertEquals(AttributeSource.QS.name(), ((DataFetcherNode) thirdChild).getSource());
   }
 
+  @Test
+  public void test_build_orderByMetricFromSingleSource_shouldPushPaginationDownToSelection() {
+    Expression numCallsExpression =
+        buildAggregateExpression(API_NUM_CALLS_ATTR, FunctionType.SUM, "SUM_numCalls", List.of());
+    OrderByExpression orderByExpression =
+        OrderByExpression.newBuilder().setExpression(numCallsExpression).build();
+    long endTime = System.currentTimeMillis();
+    long startTime = endTime - 1000;
+    EntitiesRequest entitiesRequest =
+        EntitiesRequest.newBuilder()
+            .setEntityType(AttributeScope.API.name())
+            .setStartTimeMillis(startTime)
+            .setEndTimeMillis(endTime)
+            .addSelection(buildExpression(API_NAME_ATTR))
+            .addSelection(numCallsExpression)
+            .setFilter(generateEQFilter(API_NAME_ATTR, "api1"))
+            .addOrderBy(orderByExpression)
+            .setLimit(10)
+            .setOffset(5)
+            .build();
+    EntitiesRequestContext entitiesRequestContext =
+        new EntitiesRequestContext(
+            TENANT_ID, startTime, endTime, "API", "API.startTime", new HashMap<>());
+    ExecutionContext executionContext =
+        ExecutionContext.from(
+            attributeMetadataProvider,
+            entityIdColumnsConfigs,
+            entitiesRequest,
+            entitiesRequestContext);
+    ExecutionTreeBuilder executionTreeBuilder = new ExecutionTreeBuilder(executionContext);
+    QueryNode executionTree = executionTreeBuilder.build();
+    assertNotNull(executionTree);
+
+    assertTrue(executionTree instanceof PaginateOnlyNode);
+    assertEquals(10, ((PaginateOnlyNode) executionTree).getLimit());
+    assertEquals(5, ((PaginateOnlyNode) executionTree).getOffset());
+
+    QueryNode firstChild = ((PaginateOnlyNode) executionTree).getChildNode();
+    assertTrue(firstChild instanceof SelectionNode);
+    SelectionNode selectionNode = (SelectionNode) firstChild;
+    assertTrue(selectionNode.isPaginated());
+    assertEquals(15, selectionNode.getLimit());
+    assertEquals(List.of(orderByExpression), selectionNode.getOrderByExpressionList());
+    assertEquals(Set.of(AttributeSource.QS.name()), selectionNode.getAggMetricSelectionSources());
+    assertTrue(selectionNode.getAttrSelectionSources().isEmpty());
+
+    QueryNode secondChild = selectionNode.getChildNode();
+    assertTrue(secondChild instanceof AndNode);
+  }
+
+  @Test
+  public void test_build_orderByOneOfTheMetrics_shouldSelectOtherMetricsAfterPagination() {
+    Expression sumNumCallsExpression =
+        buildAggregateExpression(API_NUM_CALLS_ATTR, FunctionType.SUM, "SUM_numCalls", List.of());
+    Expression avgNumCallsExpression =
+        buildAggregateExpression(API_NUM_CALLS_ATTR, FunctionType.AVG, "AVG_numCalls", List.of());
+    EntitiesRequest entitiesRequest =
+        EntitiesRequest.newBuilder()
+            .setEntityType(AttributeScope.API.name())
+            .setFilter(generateEQFilter(API_PATTERN_ATTR, "/login"))
+            .addSelection(sumNumCallsExpression)
+            .addSelection(avgNumCallsExpression)
+            .addOrderBy(OrderByExpression.newBuilder().setExpression(sumNumCallsExpression))
+            .setIncludeNonLiveEntities(true)
+            .setLimit(10)
+            .build();
+    EntitiesRequestContext entitiesRequestContext =
+        new EntitiesRequestContext(TENANT_ID, 0L, 10L, "API", "API.startTime", new HashMap<>());
+    ExecutionContext executionContext =
+        ExecutionContext.from(
+            attributeMetadataProvider,
+            entityIdColumnsConfigs,
+            entitiesRequest,
+            entitiesRequestContext);
+    ExecutionTreeBuilder executionTreeBuilder = new ExecutionTreeBuilder(executionContext);
+    QueryNode executionTree = executionTreeBuilder.build();
+    assertNotNull(executionTree);
+
+    // all the metrics are selected for the entities of the page
+    assertTrue(executionTree instanceof SelectionNode);
+    assertEquals(
+        Set.of(AttributeSource.QS.name()),
+        ((SelectionNode) executionTree).getAggMetricSelectionSources());
+
+    QueryNode firstChild = ((SelectionNode) executionTree).getChildNode();
+    assertTrue(firstChild instanceof SortAndPaginateNode);
+
+    // only the order by metric is selected for sorting
+    QueryNode secondChild = ((SortAndPaginateNode) firstChild).getChildNode();
+    assertTrue(secondChild instanceof SelectionNode);
+    assertTrue(((SelectionNode) secondChild).getAggMetricSelectionSources().isEmpty());
+    assertEquals(
+        Set.of(AttributeSource.QS.name()),
+        ((SelectionNode) secondChild).getAggMetricOrderBySelectionSources());
+    assertEquals(
+        List.of(sumNumCallsExpression),
+        executionContext.getSelectedMetricOrderByExpressions(AttributeSource.QS.name()));
+
+    QueryNode thirdChild = ((SelectionNode) secondChild).getChildNode();
+    assertTrue(thirdChild instanceof DataFetcherNode);
+    assertEquals(AttributeSource.EDS.name(), ((DataFetcherNode) thirdChild).getSource());
+  }
+
   @Test
   public void test_build_selectAttributeWithFiltersWithDifferentSource_shouldCreateDifferentNode() {
     EntitiesRequest entitiesRequest =
@@ -924,19 +1024,18 @@ public class ExecutionTreeBuilderTest {
     ExecutionTreeBuilder executionTreeBuilder = new ExecutionTreeBuilder(executionContext);
     QueryNode executionTree = executionTreeBuilder.build();
     assertNotNull(executionTree);
+    // the attribute and metric selections are fused
     assertTrue(executionTree instanceof SelectionNode);
     assertTrue(
         ((SelectionNode) executionTree)
             .getAggMetricSelectionSources()
             .contains(AttributeSource.QS.name()));
-    QueryNode firstChild = ((SelectionNode) executionTree).getChildNode();
-    assertTrue(firstChild instanceof SelectionNode);
     assertTrue(
-        ((SelectionNode) firstChild)
+        ((SelectionNode) executionTree)
             .getAttrSelectionSources()
             .contains(AttributeSource.EDS.name()));
 
-    QueryNode secondChild = ((SelectionNode) firstChild).getChildNode();
+    QueryNode secondChild = ((SelectionNode) executionTree).getChildNode();
     assertTrue(secondChild instanceof PaginateOnlyNode);
     assertEquals(0, ((PaginateOnlyNode) secondChild).getOffset());
     assertEquals(10, ((PaginateOnlyNode) secondChild).getLimit());
@@ -0,0 +1,130 @@
+package org.hypertrace.gateway.service.entity.query.planner;
+
+import static org.hypertrace.gateway.service.common.EntitiesRequestAndResponseUtils.generateEQFilter;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.base.Ticker;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.hypertrace.gateway.service.entity.query.AndNode;
+import org.hypertrace.gateway.service.entity.query.DataFetcherNode;
+import org.hypertrace.gateway.service.entity.query.QueryNode;
+import org.hypertrace.gateway.service.entity.query.SemiJoinNode;
+import org.hypertrace.gateway.service.v1.common.Filter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class CostBasedPlannerTest {
+  private static final String TENANT_ID = "tenant1";
+  private static final String ENTITY_TYPE = "API";
+
+  private final Filter edsFilter = generateEQFilter("API.apiDiscoveryState", "DISCOVERED");
+  private final Filter qsFilter = generateEQFilter("API.name", "checkout");
+
+  private final AtomicLong nanos = new AtomicLong();
+  private SourceStatisticsRegistry sourceStatisticsRegistry;
+  private CostBasedPlanner costBasedPlanner;
+
+  @BeforeEach
+  public void setup() {
+    sourceStatisticsRegistry =
+        new SourceStatisticsRegistry(
+            new Ticker() {
+              @Override
+              public long read() {
+                return nanos.get();
+              }
+            });
+    costBasedPlanner = new CostBasedPlanner(sourceStatisticsRegistry);
+  }
+
+  @Test
+  public void test_plan_noStatistics_shouldReturnFilterTree() {
+    QueryNode filterTree = buildAndNode();
+    assertSame(filterTree, costBasedPlanner.plan(TENANT_ID, ENTITY_TYPE, filterTree));
+  }
+
+  @Test
+  public void test_plan_selectiveSource_shouldNarrowOtherSources() {
+    recordStatistics("EDS", edsFilter, 10, 20);
+    recordStatistics("QS", qsFilter, 50000, 200);
+
+    QueryNode plannedTree = costBasedPlanner.plan(TENANT_ID, ENTITY_TYPE, buildAndNode());
+
+    assertTrue(plannedTree instanceof SemiJoinNode);
+    SemiJoinNode semiJoinNode = (SemiJoinNode) plannedTree;
+    assertEquals("EDS", ((DataFetcherNode) semiJoinNode.getDrivingNode()).getSource());
+    assertEquals(1, semiJoinNode.getNarrowedNodes().size());
+    assertEquals("QS", semiJoinNode.getNarrowedNodes().get(0).getSource());
+  }
+
+  @Test
+  public void test_plan_narrowedSourceGetsSelective_shouldReturnFilterTree() {
+    recordStatistics("EDS", edsFilter, 10, 20);
+    recordStatistics("QS", qsFilter, 50000, 200);
+    assertTrue(
+        costBasedPlanner.plan(TENANT_ID, ENTITY_TYPE, buildAndNode()) instanceof SemiJoinNode);
+
+    // the narrowed fetches of the semi join keep sampling the original filter of the source
+    for (int i = 0; i < 20; i++) {
+      sourceStatisticsRegistry.record(TENANT_ID, ENTITY_TYPE, "QS", qsFilter, 5, 200);
+    }
+
+    QueryNode filterTree = buildAndNode();
+    assertSame(filterTree, costBasedPlanner.plan(TENANT_ID, ENTITY_TYPE, filterTree));
+  }
+
+  @Test
+  public void test_plan_statisticsExpired_shouldReturnFilterTree() {
+    recordStatistics("EDS", edsFilter, 10, 20);
+    recordStatistics("QS", qsFilter, 50000, 200);
+
+    // reading the statistics while planning doesn't keep them alive
+    for (int i = 0; i < 10; i++) {
+      nanos.addAndGet(TimeUnit.MINUTES.toNanos(1));
+      costBasedPlanner.plan(TENANT_ID, ENTITY_TYPE, buildAndNode());
+    }
+
+    QueryNode filterTree = buildAndNode();
+    assertSame(filterTree, costBasedPlanner.plan(TENANT_ID, ENTITY_TYPE, filterTree));
+  }
+
+  @Test
+  public void test_plan_comparableSources_shouldReturnFilterTree() {
+    recordStatistics("EDS", edsFilter, 500, 20);
+    recordStatistics("QS", qsFilter, 600, 200);
+
+    QueryNode filterTree = buildAndNode();
+    assertSame(filterTree, costBasedPlanner.plan(TENANT_ID, ENTITY_TYPE, filterTree));
+  }
+
+  @Test
+  public void test_plan_statisticsOfOtherTenant_shouldReturnFilterTree() {
+    recordStatistics("EDS", edsFilter, 10, 20);
+    recordStatistics("QS", qsFilter, 50000, 200);
+
+    QueryNode filterTree = buildAndNode();
+    assertSame(filterTree, costBasedPlanner.plan("tenant2", ENTITY_TYPE, filterTree));
+  }
+
+  @Test
+  public void test_getFilterShape_shouldIgnoreLiterals() {
+    assertEquals(
+        SourceStatisticsRegistry.getFilterShape(generateEQFilter("API.name", "checkout")),
+        SourceStatisticsRegistry.getFilterShape(generateEQFilter("API.name", "payment")));
+  }
+
+  private QueryNode buildAndNode() {
+    return new AndNode(
+        List.of(new DataFetcherNode("EDS", edsFilter), new DataFetcherNode("QS", qsFilter)));
+  }
+
+  private void recordStatistics(String source, Filter filter, long rows, long latencyMillis) {
+    for (int i = 0; i < 3; i++) {
+      sourceStatisticsRegistry.record(TENANT_ID, ENTITY_TYPE, source, filter, rows, latencyMillis);
+    }
+  }
+}
@@ -12,6 +12,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -20,6 +21,7 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import io.grpc.Status;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
@@ -27,10 +29,13 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.hypertrace.core.attribute.service.v1.AttributeScope;
 import org.hypertrace.entity.v1.entitytype.EntityType;
+import org.hypertrace.gateway.service.common.circuitbreaker.CircuitBreakerOpenException;
 import org.hypertrace.gateway.service.common.datafetcher.EntityDataServiceEntityFetcher;
 import org.hypertrace.gateway.service.common.datafetcher.EntityFetcherResponse;
 import org.hypertrace.gateway.service.common.datafetcher.EntityResponse;
@@ -43,7 +48,9 @@ import org.hypertrace.gateway.service.entity.query.ExecutionContext;
 import org.hypertrace.gateway.service.entity.query.NoOpNode;
 import org.hypertrace.gateway.service.entity.query.PaginateOnlyNode;
 import org.hypertrace.gateway.service.entity.query.SelectionNode;
+import org.hypertrace.gateway.service.entity.query.SemiJoinNode;
 import org.hypertrace.gateway.service.entity.query.SortAndPaginateNode;
+import org.hypertrace.gateway.service.entity.query.planner.SourceStatisticsRegistry;
 import org.hypertrace.gateway.service.v1.common.ColumnIdentifier;
 import org.hypertrace.gateway.service.v1.common.DomainEntityType;
 import org.hypertrace.gateway.service.v1.common.Expression;
@@ -489,6 +496,49 @@ public class ExecutionVisitorTest {
         executionVisitor.visit(dataFetcherNode));
   }
 
+  @Test
+  public void test_visitDataFetcherNode_pageFetchFails_shouldInterruptTotalFetch()
+      throws InterruptedException {
+    List<OrderByExpression> orderByExpressions = List.of(buildOrderByExpression(API_ID_ATTR));
+    EntitiesRequest entitiesRequest =
+        EntitiesRequest.newBuilder(ENTITIES_REQUEST)
+            .setFilter(generateEQFilter(API_DISCOVERY_STATE, "DISCOVERED"))
+            .addAllOrderBy(orderByExpressions)
+            .setLimit(10)
+            .build();
+    when(executionContext.getSourceToSelectionExpressionMap()).thenReturn(Collections.emptyMap());
+    when(executionContext.getEntitiesRequest()).thenReturn(entitiesRequest);
+    when(executionContext.getTenantId()).thenReturn("tenantId");
+    when(executionContext.getRequestHeaders()).thenReturn(Collections.emptyMap());
+    CountDownLatch totalStarted = new CountDownLatch(1);
+    CountDownLatch totalInterrupted = new CountDownLatch(1);
+    when(queryServiceEntityFetcher.getTotal(any(), any()))
+        .thenAnswer(
+            invocation -> {
+              totalStarted.countDown();
+              try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+              } catch (InterruptedException e) {
+                totalInterrupted.countDown();
+                throw e;
+              }
+              return 100L;
+            });
+    when(queryServiceEntityFetcher.getEntities(any(), any()))
+        .thenAnswer(
+            invocation -> {
+              totalStarted.await(10, TimeUnit.SECONDS);
+              throw Status.UNAVAILABLE.asRuntimeException();
+            });
+
+    DataFetcherNode dataFetcherNode =
+        new DataFetcherNode(
+            QS_SOURCE, entitiesRequest.getFilter(), 10, 0, orderByExpressions, true);
+
+    Assertions.assertThrows(RuntimeException.class, () -> executionVisitor.visit(dataFetcherNode));
+    assertTrue(totalInterrupted.await(10, TimeUnit.SECONDS));
+  }
+
   @Test
   public void test_visitDataFetcherNodeEds() {
     List<OrderByExpression> orderByExpressions = List.of(buildOrderByExpression(API_ID_ATTR));
@@ -596,6 +646,34 @@ public class ExecutionVisitorTest {
     verify(queryServiceEntityFetcher, times(1)).getEntities(any(), any());
   }
 
+  @Test
+  public void test_visitSemiJoinNode_shouldRecordNarrowedFetchUnderOriginalFilter() {
+    Filter edsFilter = generateEQFilter(API_DISCOVERY_STATE, "DISCOVERED");
+    Filter qsFilter = generateEQFilter(API_NAME_ATTR, "checkout");
+    SourceStatisticsRegistry sourceStatisticsRegistry = mock(SourceStatisticsRegistry.class);
+    executionVisitor =
+        new ExecutionVisitor(
+            executionContext, entityQueryHandlerRegistry, sourceStatisticsRegistry);
+    when(executionContext.getTenantId()).thenReturn("tenantId");
+    when(executionContext.getRequestHeaders()).thenReturn(Collections.emptyMap());
+    when(executionContext.getEntitiesRequest()).thenReturn(ENTITIES_REQUEST);
+    when(executionContext.getSourceToSelectionExpressionMap()).thenReturn(Collections.emptyMap());
+    when(executionContext.getEntityIdExpressions())
+        .thenReturn(List.of(buildExpression(API_ID_ATTR)));
+    when(entityDataServiceEntityFetcher.getEntities(any(), any())).thenReturn(result1);
+    when(queryServiceEntityFetcher.getEntities(any(), any())).thenReturn(result2);
+
+    executionVisitor.visit(
+        new SemiJoinNode(
+            new DataFetcherNode(EDS_SOURCE, edsFilter),
+            List.of(new DataFetcherNode(QS_SOURCE, qsFilter))));
+
+    verify(sourceStatisticsRegistry)
+        .record(eq("tenantId"), eq(ENTITY_TYPE), eq(EDS_SOURCE), eq(edsFilter), eq(3L), anyLong());
+    verify(sourceStatisticsRegistry)
+        .record(eq("tenantId"), eq(ENTITY_TYPE), eq(QS_SOURCE), eq(qsFilter), eq(2L), anyLong());
+  }
+
   @Test
   public void test_visitPaginateOnlyNode() {
     List<OrderByExpression> orderByExpressions = List.of(buildOrderByExpression(API_ID_ATTR));
@@ -773,6 +851,38 @@ public class ExecutionVisitorTest {
     verify(queryServiceEntityFetcher).getEntities(any(), any());
   }
 
+  @Test
+  public void test_visitSelectionNode_unavailableSource_shouldReturnPartialResult() {
+    ExecutionVisitor executionVisitor =
+        spy(new ExecutionVisitor(executionContext, entityQueryHandlerRegistry));
+    when(executionContext.getTimestampAttributeId()).thenReturn("API.startTime");
+    SelectionNode selectionNode =
+        new SelectionNode.Builder(new NoOpNode())
+            .setAttrSelectionSources(Set.of(EDS_SOURCE))
+            .setAggMetricSelectionSources(Set.of(QS_SOURCE))
+            .build();
+    mockExecutionContext(
+        Set.of(EDS_SOURCE),
+        Set.of(QS_SOURCE),
+        Map.of(EDS_SOURCE, Collections.emptyList()),
+        Map.of(QS_SOURCE, Collections.emptyList()));
+    when(entityDataServiceEntityFetcher.getEntities(any(), any())).thenReturn(result4);
+    when(queryServiceEntityFetcher.getEntities(any(), any()))
+        .thenThrow(
+            Status.UNAVAILABLE
+                .withCause(new CircuitBreakerOpenException("query_service"))
+                .asRuntimeException());
+    when(executionVisitor.visit(any(NoOpNode.class)))
+        .thenReturn(new EntityResponse(result4, result4.getEntityKeyBuilderMap().size()));
+
+    EntityResponse response = executionVisitor.visit(selectionNode);
+
+    assertEquals(
+        result4.getEntityKeyBuilderMap().keySet(),
+        response.getEntityFetcherResponse().getEntityKeyBuilderMap().keySet());
+    verify(executionContext).markPartialResult();
+  }
+
   @Test
   public void test_visitOnlySelectionsNode_shouldSetTotalEntityKeys() {
     List<OrderByExpression> orderByExpressions = List.of(buildOrderByExpression(API_ID_ATTR));
@@ -944,6 +1054,132 @@ public class ExecutionVisitorTest {
     verify(queryServiceEntityFetcher, never()).getEntities(any(), any());
   }
 
+  @Test
+  public void test_visitPaginatedSelectionNode_shouldRetainOnlyThePageInSourceOrder() {
+    ExecutionVisitor executionVisitor =
+        spy(new ExecutionVisitor(executionContext, entityQueryHandlerRegistry));
+    when(executionContext.getTimestampAttributeId()).thenReturn("API.startTime");
+    Expression metricExpression =
+        buildAggregateExpression(API_NUM_CALLS_ATTR, FunctionType.SUM, "SUM_numCalls", List.of());
+    List<OrderByExpression> orderByExpressions =
+        List.of(OrderByExpression.newBuilder().setExpression(metricExpression).build());
+    SelectionNode selectionNode =
+        new SelectionNode.Builder(new NoOpNode())
+            .setAggMetricSelectionSources(Set.of(QS_SOURCE))
+            .setLimit(2)
+            .setOrderByExpressionList(orderByExpressions)
+            .build();
+    mockExecutionContext(
+        Collections.emptySet(),
+        Set.of(QS_SOURCE),
+        Collections.emptyMap(),
+        Map.of(QS_SOURCE, List.of(metricExpression)));
+
+    Map<EntityKey, Builder> pageEntityKeyBuilderMap = new LinkedHashMap<>();
+    pageEntityKeyBuilderMap.put(
+        EntityKey.of("id3"),
+        Entity.newBuilder().putAttribute("SUM_numCalls", getStringValue("30")));
+    pageEntityKeyBuilderMap.put(
+        EntityKey.of("id1"),
+        Entity.newBuilder().putAttribute("SUM_numCalls", getStringValue("10")));
+    when(queryServiceEntityFetcher.getEntities(any(), any()))
+        .thenReturn(new EntityFetcherResponse(pageEntityKeyBuilderMap));
+    when(executionVisitor.visit(any(NoOpNode.class)))
+        .thenReturn(new EntityResponse(result1, result1.getEntityKeyBuilderMap().size()));
+
+    EntityResponse response = executionVisitor.visit(selectionNode);
+
+    assertEquals(
+        List.of(EntityKey.of("id3"), EntityKey.of("id1")),
+        List.copyOf(response.getEntityFetcherResponse().getEntityKeyBuilderMap().keySet()));
+    assertEquals(3, response.getTotal());
+    assertEquals(
+        getStringValue("value11"),
+        response
+            .getEntityFetcherResponse()
+            .getEntityKeyBuilderMap()
+            .get(EntityKey.of("id1"))
+            .getAttributeOrThrow("key11"));
+    verify(queryServiceEntityFetcher)
+        .getEntities(
+            any(),
+            eq(
+                EntitiesRequest.newBuilder(ENTITIES_REQUEST)
+                    .addSelection(metricExpression)
+                    .setFilter(executionVisitor.constructFilterFromChildNodesResult(result1))
+                    .addAllOrderBy(orderByExpressions)
+                    .setLimit(2)
+                    .build()));
+  }
+
+  @Test
+  public void
+      test_visitSelectionNodeOverUnpaginatedDataFetcherNode_shouldCollapseSameSourceFetches() {
+    when(executionContext.getTimestampAttributeId()).thenReturn("API.startTime");
+    Expression metricExpression =
+        buildAggregateExpression(API_NUM_CALLS_ATTR, FunctionType.SUM, "SUM_numCalls", List.of());
+    Filter filter = generateEQFilter(API_DISCOVERY_STATE, "DISCOVERED");
+    mockExecutionContext(
+        Set.of(QS_SOURCE),
+        Set.of(QS_SOURCE),
+        Map.of(QS_SOURCE, List.of(buildExpression(API_NAME_ATTR))),
+        Map.of(QS_SOURCE, List.of(metricExpression)));
+    SelectionNode selectionNode =
+        new SelectionNode.Builder(new DataFetcherNode(QS_SOURCE, filter))
+            .setAggMetricSelectionSources(Set.of(QS_SOURCE))
+            .build();
+    EntitiesRequest expectedRequest =
+        EntitiesRequest.newBuilder(ENTITIES_REQUEST)
+            .addSelection(buildExpression(API_NAME_ATTR))
+            .addSelection(metricExpression)
+            .setFilter(filter)
+            .build();
+    when(queryServiceEntityFetcher.getEntities(any(), eq(expectedRequest))).thenReturn(result1);
+
+    EntityResponse response = executionVisitor.visit(selectionNode);
+
+    assertEquals(3, response.getTotal());
+    assertEquals(
+        result1.getEntityKeyBuilderMap().keySet(),
+        response.getEntityFetcherResponse().getEntityKeyBuilderMap().keySet());
+    verify(queryServiceEntityFetcher, times(1)).getEntities(any(), any());
+  }
+
+  @Test
+  public void test_visitSelectionNode_sameSource_shouldFuseAttributeAndMetricSelections() {
+    ExecutionVisitor executionVisitor =
+        spy(new ExecutionVisitor(executionContext, entityQueryHandlerRegistry));
+    when(executionContext.getTimestampAttributeId()).thenReturn("API.startTime");
+    Expression metricExpression =
+        buildAggregateExpression(API_NUM_CALLS_ATTR, FunctionType.SUM, "SUM_numCalls", List.of());
+    mockExecutionContext(
+        Set.of(QS_SOURCE),
+        Set.of(QS_SOURCE),
+        Map.of(QS_SOURCE, List.of(buildExpression(API_NAME_ATTR))),
+        Map.of(QS_SOURCE, List.of(metricExpression)));
+    SelectionNode selectionNode =
+        new SelectionNode.Builder(new NoOpNode())
+            .setAttrSelectionSources(Set.of(QS_SOURCE))
+            .setAggMetricSelectionSources(Set.of(QS_SOURCE))
+            .build();
+    EntitiesRequest expectedRequest =
+        EntitiesRequest.newBuilder(ENTITIES_REQUEST)
+            .addSelection(buildExpression(API_NAME_ATTR))
+            .addSelection(metricExpression)
+            .setFilter(executionVisitor.constructFilterFromChildNodesResult(result1))
+            .build();
+    when(queryServiceEntityFetcher.getEntities(any(), eq(expectedRequest))).thenReturn(result1);
+    when(executionVisitor.visit(any(NoOpNode.class)))
+        .thenReturn(new EntityResponse(result1, result1.getEntityKeyBuilderMap().size()));
+
+    EntityResponse response = executionVisitor.visit(selectionNode);
+
+    assertEquals(
+        result1.getEntityKeyBuilderMap().keySet(),
+        response.getEntityFetcherResponse().getEntityKeyBuilderMap().keySet());
+    verify(queryServiceEntityFetcher, times(1)).getEntities(any(), any());
+  }
+
   private MetricSeries getMockMetricSeries(int period, String aggregation) {
     return MetricSeries.newBuilder()
         .setPeriod(Period.newBuilder().setUnit("Seconds").setValue(period).build())
@@ -0,0 +1,131 @@
+package org.hypertrace.gateway.service.entity.query.visitor;
+
+import static org.hypertrace.gateway.service.common.EntitiesRequestAndResponseUtils.buildExpression;
+import static org.hypertrace.gateway.service.common.EntitiesRequestAndResponseUtils.generateEQFilter;
+import static org.hypertrace.gateway.service.common.EntitiesRequestAndResponseUtils.getStringValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.hypertrace.gateway.service.common.datafetcher.EntityFetcherResponse;
+import org.hypertrace.gateway.service.common.datafetcher.IEntityFetcher;
+import org.hypertrace.gateway.service.entity.EntitiesRequestContext;
+import org.hypertrace.gateway.service.entity.EntityKey;
+import org.hypertrace.gateway.service.v1.entity.EntitiesRequest;
+import org.hypertrace.gateway.service.v1.entity.Entity;
+import org.hypertrace.gateway.service.v1.entity.Entity.Builder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class FetchMemoTest {
+  private static final String QS_SOURCE = "QS";
+
+  private final EntitiesRequestContext requestContext =
+      new EntitiesRequestContext("tenant1", 0L, 10L, "API", "API.startTime", Map.of());
+  private final EntitiesRequest baseRequest =
+      EntitiesRequest.newBuilder()
+          .setEntityType("API")
+          .setStartTimeMillis(0L)
+          .setEndTimeMillis(10L)
+          .setFilter(generateEQFilter("API.apiDiscoveryState", "DISCOVERED"))
+          .build();
+
+  private IEntityFetcher entityFetcher;
+  private FetchMemo fetchMemo;
+
+  @BeforeEach
+  public void setup() {
+    entityFetcher = mock(IEntityFetcher.class);
+    fetchMemo = new FetchMemo();
+    Map<EntityKey, Builder> entityKeyBuilderMap = new LinkedHashMap<>();
+    entityKeyBuilderMap.put(
+        EntityKey.of("id1"), Entity.newBuilder().putAttribute("API.name", getStringValue("a")));
+    when(entityFetcher.getEntities(any(), any()))
+        .thenAnswer(
+            invocation -> new EntityFetcherResponse(new LinkedHashMap<>(entityKeyBuilderMap)));
+  }
+
+  @Test
+  public void test_getEntities_subsetOfEarlierSelections_shouldBeServedFromMemo() {
+    fetchMemo.getEntities(
+        QS_SOURCE, entityFetcher, requestContext, withSelections("API.name", "API.id"));
+    EntityFetcherResponse response =
+        fetchMemo.getEntities(QS_SOURCE, entityFetcher, requestContext, withSelections("API.id"));
+
+    assertEquals(1, response.size());
+    verify(entityFetcher, times(1)).getEntities(any(), any());
+  }
+
+  @Test
+  public void test_getEntities_differentSourceOrFilter_shouldFetchAgain() {
+    fetchMemo.getEntities(QS_SOURCE, entityFetcher, requestContext, withSelections("API.name"));
+    fetchMemo.getEntities("EDS", entityFetcher, requestContext, withSelections("API.name"));
+    fetchMemo.getEntities(
+        QS_SOURCE,
+        entityFetcher,
+        requestContext,
+        EntitiesRequest.newBuilder(withSelections("API.name"))
+            .setFilter(generateEQFilter("API.apiDiscoveryState", "UNDER_DISCOVERY"))
+            .build());
+
+    verify(entityFetcher, times(3)).getEntities(any(), any());
+  }
+
+  @Test
+  public void test_getEntities_plannedSelections_shouldBeMergedIntoFirstFetch() {
+    fetchMemo.planSelections(QS_SOURCE, withSelections("API.numCalls"));
+
+    fetchMemo.getEntities(QS_SOURCE, entityFetcher, requestContext, withSelections("API.name"));
+    fetchMemo.getEntities(QS_SOURCE, entityFetcher, requestContext, withSelections("API.numCalls"));
+
+    verify(entityFetcher, times(1))
+        .getEntities(any(), eq(withSelections("API.name", "API.numCalls")));
+    verify(entityFetcher, times(1)).getEntities(any(), any());
+  }
+
+  @Test
+  public void test_getEntities_memoizedResponse_shouldNotBeSharedAcrossCallers() {
+    EntityFetcherResponse first =
+        fetchMemo.getEntities(QS_SOURCE, entityFetcher, requestContext, withSelections("API.name"));
+    first
+        .getEntityKeyBuilderMap()
+        .get(EntityKey.of("id1"))
+        .putAttribute("API.state", getStringValue("b"));
+
+    EntityFetcherResponse second =
+        fetchMemo.getEntities(QS_SOURCE, entityFetcher, requestContext, withSelections("API.name"));
+    assertFalse(
+        second.getEntityKeyBuilderMap().get(EntityKey.of("id1")).containsAttribute("API.state"));
+  }
+
+  @Test
+  public void test_getEntities_failedFetch_shouldNotBeMemoized() {
+    IEntityFetcher failingFetcher = mock(IEntityFetcher.class);
+    when(failingFetcher.getEntities(any(), any())).thenThrow(new IllegalStateException());
+
+    assertThrows(
+        IllegalStateException.class,
+        () ->
+            fetchMemo.getEntities(
+                QS_SOURCE, failingFetcher, requestContext, withSelections("API.name")));
+    fetchMemo.getEntities(QS_SOURCE, entityFetcher, requestContext, withSelections("API.name"));
+
+    verify(entityFetcher, times(1)).getEntities(any(), any());
+  }
+
+  private EntitiesRequest withSelections(String... columnNames) {
+    EntitiesRequest.Builder builder = EntitiesRequest.newBuilder(baseRequest);
+    for (String columnName : columnNames) {
+      builder.addSelection(buildExpression(columnName));
+    }
+    return builder.build();
+  }
+}
@@ -0,0 +1,80 @@
+package org.hypertrace.gateway.service.entity.query.visitor;
+
+import static org.hypertrace.gateway.service.common.EntitiesRequestAndResponseUtils.buildAggregateExpression;
+import static org.hypertrace.gateway.service.common.EntitiesRequestAndResponseUtils.generateEQFilter;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.hypertrace.gateway.service.entity.query.DataFetcherNode;
+import org.hypertrace.gateway.service.entity.query.ExecutionContext;
+import org.hypertrace.gateway.service.entity.query.QueryNode;
+import org.hypertrace.gateway.service.entity.query.SelectionNode;
+import org.hypertrace.gateway.service.entity.query.SortAndPaginateNode;
+import org.hypertrace.gateway.service.v1.common.Expression;
+import org.hypertrace.gateway.service.v1.common.FunctionType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class PaginationValidatingVisitorTest {
+  private final Expression sumNumCalls =
+      buildAggregateExpression("API.numCalls", FunctionType.SUM, "SUM_numCalls", List.of());
+  private final Expression avgNumCalls =
+      buildAggregateExpression("API.numCalls", FunctionType.AVG, "AVG_numCalls", List.of());
+
+  private ExecutionContext executionContext;
+  private QueryNode dataFetcherNode;
+
+  @BeforeEach
+  public void setup() {
+    executionContext = mock(ExecutionContext.class);
+    when(executionContext.getSourceToMetricExpressionMap())
+        .thenReturn(Map.of("QS", List.of(sumNumCalls, avgNumCalls)));
+    when(executionContext.getSelectedMetricOrderByExpressions("QS"))
+        .thenReturn(List.of(sumNumCalls));
+    dataFetcherNode = new DataFetcherNode("EDS", generateEQFilter("API.apiId", "api1"));
+  }
+
+  @Test
+  public void test_visit_selectionsAfterPagination_shouldHaveNoViolations() {
+    QueryNode sortAndPaginateNode =
+        new SortAndPaginateNode(
+            new SelectionNode.Builder(dataFetcherNode)
+                .setAggMetricOrderBySelectionSources(Set.of("QS"))
+                .build(),
+            10,
+            0,
+            List.of());
+    QueryNode executionTree =
+        new SelectionNode.Builder(
+                new SelectionNode.Builder(sortAndPaginateNode)
+                    .setAggMetricSelectionSources(Set.of("QS"))
+                    .build())
+            .setTimeSeriesSelectionSources(Set.of("QS"))
+            .build();
+
+    assertTrue(
+        executionTree.acceptVisitor(new PaginationValidatingVisitor(executionContext)).isEmpty());
+  }
+
+  @Test
+  public void test_visit_selectionsBeforePagination_shouldListViolations() {
+    QueryNode executionTree =
+        new SortAndPaginateNode(
+            new SelectionNode.Builder(dataFetcherNode)
+                .setAggMetricSelectionSources(Set.of("QS"))
+                .setTimeSeriesSelectionSources(Set.of("QS"))
+                .build(),
+            10,
+            0,
+            List.of());
+
+    List<String> violations =
+        executionTree.acceptVisitor(new PaginationValidatingVisitor(executionContext));
+    assertEquals(2, violations.size());
+  }
+}
@@ -0,0 +1,124 @@
+package org.hypertrace.gateway.service.entity.query.visitor;
+
+import static org.hypertrace.gateway.service.common.EntitiesRequestAndResponseUtils.buildOrderByExpression;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+import org.hypertrace.gateway.service.entity.query.DataFetcherNode;
+import org.hypertrace.gateway.service.entity.query.NoOpNode;
+import org.hypertrace.gateway.service.entity.query.QueryNode;
+import org.hypertrace.gateway.service.entity.query.SelectionNode;
+import org.hypertrace.gateway.service.entity.query.SortAndPaginateNode;
+import org.hypertrace.gateway.service.v1.common.Filter;
+import org.hypertrace.gateway.service.v1.common.OrderByExpression;
+import org.junit.jupiter.api.Test;
+
+public class SelectionFusingVisitorTest {
+  private final DataFetcherNode dataFetcherNode =
+      new DataFetcherNode("EDS", Filter.getDefaultInstance());
+
+  @Test
+  public void testStackedSelectionNodes_shouldBeFused() {
+    QueryNode executionTree =
+        new SelectionNode.Builder(
+                new SelectionNode.Builder(
+                        new SelectionNode.Builder(dataFetcherNode)
+                            .setAttrSelectionSources(Set.of("QS", "EDS"))
+                            .build())
+                    .setAggMetricSelectionSources(Set.of("QS"))
+                    .build())
+            .setTimeSeriesSelectionSources(Set.of("QS"))
+            .build();
+
+    QueryNode fusedTree = executionTree.acceptVisitor(new SelectionFusingVisitor());
+
+    assertTrue(fusedTree instanceof SelectionNode);
+    SelectionNode selectionNode = (SelectionNode) fusedTree;
+    assertEquals(Set.of("QS", "EDS"), selectionNode.getAttrSelectionSources());
+    assertEquals(Set.of("QS"), selectionNode.getAggMetricSelectionSources());
+    assertEquals(Set.of("QS"), selectionNode.getTimeSeriesSelectionSources());
+    assertSame(dataFetcherNode, selectionNode.getChildNode());
+  }
+
+  @Test
+  public void testSelectionNodeOnNoOpNode_shouldNotBeFused() {
+    NoOpNode noOpNode = new NoOpNode();
+    SelectionNode entitySelectionNode =
+        new SelectionNode.Builder(noOpNode).setAttrSelectionSources(Set.of("EDS")).build();
+    QueryNode executionTree =
+        new SelectionNode.Builder(
+                new SelectionNode.Builder(entitySelectionNode)
+                    .setAttrSelectionSources(Set.of("QS"))
+                    .build())
+            .setAggMetricSelectionSources(Set.of("QS"))
+            .build();
+
+    QueryNode fusedTree = executionTree.acceptVisitor(new SelectionFusingVisitor());
+
+    // the selections above are restricted to the entities selected on top of the NoOpNode
+    assertTrue(fusedTree instanceof SelectionNode);
+    SelectionNode selectionNode = (SelectionNode) fusedTree;
+    assertEquals(Set.of("QS"), selectionNode.getAttrSelectionSources());
+    assertEquals(Set.of("QS"), selectionNode.getAggMetricSelectionSources());
+    assertTrue(selectionNode.getChildNode() instanceof SelectionNode);
+    SelectionNode childSelectionNode = (SelectionNode) selectionNode.getChildNode();
+    assertEquals(Set.of("EDS"), childSelectionNode.getAttrSelectionSources());
+    assertTrue(childSelectionNode.getAggMetricSelectionSources().isEmpty());
+    assertSame(noOpNode, childSelectionNode.getChildNode());
+  }
+
+  @Test
+  public void testSelectionNodesSeparatedByPagination_shouldNotBeFused() {
+    List<OrderByExpression> orderByExpressions = List.of(buildOrderByExpression("API.name"));
+    QueryNode executionTree =
+        new SelectionNode.Builder(
+                new SortAndPaginateNode(
+                    new SelectionNode.Builder(dataFetcherNode)
+                        .setAttrSelectionSources(Set.of("QS"))
+                        .build(),
+                    10,
+                    0,
+                    orderByExpressions))
+            .setAggMetricSelectionSources(Set.of("QS"))
+            .build();
+
+    QueryNode fusedTree = executionTree.acceptVisitor(new SelectionFusingVisitor());
+
+    SelectionNode selectionNode = (SelectionNode) fusedTree;
+    assertEquals(Set.of("QS"), selectionNode.getAggMetricSelectionSources());
+    assertTrue(selectionNode.getAttrSelectionSources().isEmpty());
+    assertTrue(selectionNode.getChildNode() instanceof SortAndPaginateNode);
+    SortAndPaginateNode sortAndPaginateNode = (SortAndPaginateNode) selectionNode.getChildNode();
+    assertEquals(10, sortAndPaginateNode.getLimit());
+    assertEquals(orderByExpressions, sortAndPaginateNode.getOrderByExpressionList());
+    assertEquals(
+        Set.of("QS"),
+        ((SelectionNode) sortAndPaginateNode.getChildNode()).getAttrSelectionSources());
+  }
+
+  @Test
+  public void testPaginatedSelectionNode_shouldNotBeFused() {
+    List<OrderByExpression> orderByExpressions = List.of(buildOrderByExpression("API.name"));
+    QueryNode executionTree =
+        new SelectionNode.Builder(
+                new SelectionNode.Builder(dataFetcherNode)
+                    .setAttrSelectionSources(Set.of("QS"))
+                    .setLimit(10)
+                    .setOrderByExpressionList(orderByExpressions)
+                    .build())
+            .setAggMetricSelectionSources(Set.of("QS"))
+            .build();
+
+    QueryNode fusedTree = executionTree.acceptVisitor(new SelectionFusingVisitor());
+
+    SelectionNode selectionNode = (SelectionNode) fusedTree;
+    assertEquals(Set.of("QS"), selectionNode.getAggMetricSelectionSources());
+    SelectionNode paginatedSelectionNode = (SelectionNode) selectionNode.getChildNode();
+    assertTrue(paginatedSelectionNode.isPaginated());
+    assertEquals(Set.of("QS"), paginatedSelectionNode.getAttrSelectionSources());
+    assertSame(dataFetcherNode, paginatedSelectionNode.getChildNode());
+  }
+}
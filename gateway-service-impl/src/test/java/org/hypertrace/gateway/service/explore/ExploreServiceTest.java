@@ -3,9 +3,9 @@ package org.hypertrace.gateway.service.explore;
 import com.google.protobuf.GeneratedMessageV3;
 import java.util.HashMap;
 import java.util.stream.Stream;
-import org.hypertrace.core.query.service.client.QueryServiceClient;
 import org.hypertrace.gateway.service.common.AbstractServiceTest;
 import org.hypertrace.gateway.service.common.AttributeMetadataProvider;
+import org.hypertrace.gateway.service.common.QueryServiceExecutor;
 import org.hypertrace.gateway.service.common.config.ScopeFilterConfigs;
 import org.hypertrace.gateway.service.v1.explore.ExploreRequest;
 import org.hypertrace.gateway.service.v1.explore.ExploreResponse;
@@ -35,7 +35,7 @@ public class ExploreServiceTest extends AbstractServiceTest<ExploreRequest, Expl
   @Override
   protected ExploreResponse executeApi(
       ExploreRequest request,
-      QueryServiceClient queryServiceClient,
+      QueryServiceExecutor queryServiceClient,
       AttributeMetadataProvider attributeMetadataProvider,
       ScopeFilterConfigs scopeFilterConfigs) {
     ExploreService exploreService =
@@ -9,16 +9,19 @@ import static org.mockito.Mockito.when;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.protobuf.util.Durations;
+import com.typesafe.config.ConfigFactory;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import org.hypertrace.core.attribute.service.v1.AttributeKind;
 import org.hypertrace.core.attribute.service.v1.AttributeMetadata;
 import org.hypertrace.core.attribute.service.v1.AttributeType;
-import org.hypertrace.core.query.service.client.QueryServiceClient;
 import org.hypertrace.gateway.service.AbstractGatewayServiceTest;
 import org.hypertrace.gateway.service.common.AttributeMetadataProvider;
+import org.hypertrace.gateway.service.common.QueryServiceExecutor;
 import org.hypertrace.gateway.service.common.RequestContext;
+import org.hypertrace.gateway.service.common.converters.ValueInternerFactory;
+import org.hypertrace.gateway.service.entity.config.EntityIdColumnsConfigs;
 import org.hypertrace.gateway.service.v1.common.ColumnIdentifier;
 import org.hypertrace.gateway.service.v1.common.Expression;
 import org.hypertrace.gateway.service.v1.common.Filter;
@@ -37,13 +40,13 @@ import org.mockito.Mockito;
 public class LogEventsServiceTest extends AbstractGatewayServiceTest {
 
   private static final String TENANT_ID = "tenant1";
-  private QueryServiceClient queryServiceClient;
+  private QueryServiceExecutor queryServiceClient;
   private AttributeMetadataProvider attributeMetadataProvider;
 
   @BeforeEach
   public void setup() {
     super.setup();
-    queryServiceClient = Mockito.mock(QueryServiceClient.class);
+    queryServiceClient = Mockito.mock(QueryServiceExecutor.class);
     attributeMetadataProvider = Mockito.mock(AttributeMetadataProvider.class);
 
     when(attributeMetadataProvider.getAttributeMetadata(
@@ -132,7 +135,13 @@ public class LogEventsServiceTest extends AbstractGatewayServiceTest {
             .build();
 
     LogEventsService logEventsService =
-        new LogEventsService(queryServiceClient, 60_000, attributeMetadataProvider);
+        new LogEventsService(
+            queryServiceClient,
+            60_000,
+            attributeMetadataProvider,
+            new ValueInternerFactory(
+                ConfigFactory.parseString("response.value.interning.config.enabled = true")),
+            new EntityIdColumnsConfigs(Map.of()));
 
     String logAttributeString =
         new ObjectMapper()
@@ -1,11 +1,23 @@
 package org.hypertrace.gateway.service;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.grpc.Server;
-import io.grpc.ServerBuilder;
+import io.grpc.ServerInterceptors;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.netty.NettyServerBuilder;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
 import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import org.hypertrace.core.grpcutils.server.InterceptorUtil;
 import org.hypertrace.core.serviceframework.PlatformService;
 import org.hypertrace.core.serviceframework.config.ConfigClient;
+import org.hypertrace.gateway.service.common.admission.AdmissionControlConfig;
+import org.hypertrace.gateway.service.common.admission.AdmissionControlInterceptor;
 import org.hypertrace.gateway.service.entity.config.InteractionConfigs;
 import org.hypertrace.gateway.service.entity.config.TimestampConfigs;
 import org.slf4j.Logger;
@@ -20,6 +32,10 @@ public class GatewayServiceStarter extends PlatformService {
 
   private String serviceName;
   private Server server;
+  // set only when configured, otherwise grpc manages its own
+  private ExecutorService executor;
+  private EventLoopGroup bossEventLoopGroup;
+  private EventLoopGroup workerEventLoopGroup;
 
   public GatewayServiceStarter(ConfigClient configClient) {
     super(configClient);
@@ -38,7 +54,85 @@ public class GatewayServiceStarter extends PlatformService {
 
     GatewayServiceImpl ht = new GatewayServiceImpl(getAppConfig());
 
-    server = ServerBuilder.forPort(port).addService(InterceptorUtil.wrapInterceptors(ht)).build();
+    ServerServiceDefinition serviceDefinition = InterceptorUtil.wrapInterceptors(ht);
+    AdmissionControlConfig admissionControlConfig = new AdmissionControlConfig(getAppConfig());
+    if (admissionControlConfig.isEnabled()) {
+      // intercepted last, so that overloaded requests are rejected before anything else runs
+      serviceDefinition =
+          ServerInterceptors.intercept(
+              serviceDefinition, new AdmissionControlInterceptor(admissionControlConfig));
+    }
+
+    server = buildServer(port, serviceDefinition, new GrpcServerConfig(getAppConfig()));
+  }
+
+  private Server buildServer(
+      int port, ServerServiceDefinition serviceDefinition, GrpcServerConfig serverConfig) {
+    NettyServerBuilder serverBuilder =
+        NettyServerBuilder.forPort(port)
+            .addService(serviceDefinition)
+            .flowControlWindow(serverConfig.getFlowControlWindowBytes())
+            .maxInboundMessageSize(serverConfig.getMaxInboundMessageBytes())
+            .maxConcurrentCallsPerConnection(serverConfig.getMaxConcurrentCallsPerConnection())
+            .permitKeepAliveTime(
+                serverConfig.getPermitKeepaliveTimeMillis(), TimeUnit.MILLISECONDS);
+    if (serverConfig.getKeepaliveTimeMillis() > 0) {
+      serverBuilder
+          .keepAliveTime(serverConfig.getKeepaliveTimeMillis(), TimeUnit.MILLISECONDS)
+          .keepAliveTimeout(serverConfig.getKeepaliveTimeoutMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    if (serverConfig.getBossEventLoopThreads() > 0
+        || serverConfig.getWorkerEventLoopThreads() > 0) {
+      // netty needs the event loop groups and the channel type to be set together
+      bossEventLoopGroup =
+          new NioEventLoopGroup(
+              Math.max(1, serverConfig.getBossEventLoopThreads()),
+              new ThreadFactoryBuilder().setNameFormat("grpc-boss-event-loop-%d").build());
+      workerEventLoopGroup =
+          new NioEventLoopGroup(
+              serverConfig.getWorkerEventLoopThreads(),
+              new ThreadFactoryBuilder().setNameFormat("grpc-worker-event-loop-%d").build());
+      serverBuilder
+          .bossEventLoopGroup(bossEventLoopGroup)
+          .workerEventLoopGroup(workerEventLoopGroup)
+          .channelType(NioServerSocketChannel.class);
+    }
+
+    switch (serverConfig.getExecutorType()) {
+      case FIXED:
+        executor =
+            Executors.newFixedThreadPool(
+                serverConfig.getExecutorThreads(),
+                new ThreadFactoryBuilder().setNameFormat("grpc-executor-%d").build());
+        serverBuilder.executor(executor);
+        break;
+      case VIRTUAL:
+        executor = newVirtualThreadPerTaskExecutor().orElse(null);
+        if (executor == null) {
+          LOG.warn("Virtual threads are not supported by this runtime, using the default executor");
+        } else {
+          serverBuilder.executor(executor);
+        }
+        break;
+      case DIRECT:
+        serverBuilder.directExecutor();
+        break;
+      default:
+        break;
+    }
+    return serverBuilder.build();
+  }
+
+  /** Looked up reflectively, as virtual threads are newer than the java version targeted */
+  private static Optional<ExecutorService> newVirtualThreadPerTaskExecutor() {
+    try {
+      return Optional.of(
+          (ExecutorService)
+              Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null));
+    } catch (ReflectiveOperationException e) {
+      return Optional.empty();
+    }
   }
 
   @Override
@@ -66,6 +160,13 @@ public class GatewayServiceStarter extends PlatformService {
       } catch (InterruptedException ignore) {
       }
     }
+    if (executor != null) {
+      executor.shutdown();
+    }
+    if (bossEventLoopGroup != null) {
+      bossEventLoopGroup.shutdownGracefully();
+      workerEventLoopGroup.shutdownGracefully();
+    }
   }
 
   @Override
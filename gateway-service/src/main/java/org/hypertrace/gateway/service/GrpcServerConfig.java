@@ -0,0 +1,140 @@
+package org.hypertrace.gateway.service;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+/** Transport and executor settings of the gRPC server */
+public class GrpcServerConfig {
+  private static final String GRPC_SERVER_CONFIG = "grpc.server.config";
+  private static final String EXECUTOR_TYPE = "executor.type";
+  private static final String EXECUTOR_THREADS = "executor.threads";
+  private static final String BOSS_EVENT_LOOP_THREADS = "boss.event.loop.threads";
+  private static final String WORKER_EVENT_LOOP_THREADS = "worker.event.loop.threads";
+  private static final String FLOW_CONTROL_WINDOW_BYTES = "flow.control.window.bytes";
+  private static final String MAX_INBOUND_MESSAGE_BYTES = "max.inbound.message.bytes";
+  private static final String MAX_CONCURRENT_CALLS_PER_CONNECTION =
+      "max.concurrent.calls.per.connection";
+  private static final String KEEPALIVE_TIME_MILLIS = "keepalive.time.millis";
+  private static final String KEEPALIVE_TIMEOUT_MILLIS = "keepalive.timeout.millis";
+  private static final String PERMIT_KEEPALIVE_TIME_MILLIS = "permit.keepalive.time.millis";
+
+  private static final ExecutorType DEFAULT_EXECUTOR_TYPE = ExecutorType.DEFAULT;
+  private static final int DEFAULT_EXECUTOR_THREADS =
+      Runtime.getRuntime().availableProcessors() * 8;
+  // 0 keeps the netty defaults
+  private static final int DEFAULT_BOSS_EVENT_LOOP_THREADS = 0;
+  private static final int DEFAULT_WORKER_EVENT_LOOP_THREADS = 0;
+  private static final int DEFAULT_FLOW_CONTROL_WINDOW_BYTES = 1024 * 1024;
+  private static final int DEFAULT_MAX_INBOUND_MESSAGE_BYTES = 4 * 1024 * 1024;
+  private static final int DEFAULT_MAX_CONCURRENT_CALLS_PER_CONNECTION = Integer.MAX_VALUE;
+  // 0 disables keepalive
+  private static final long DEFAULT_KEEPALIVE_TIME_MILLIS = 0L;
+  private static final long DEFAULT_KEEPALIVE_TIMEOUT_MILLIS = 20000L;
+  private static final long DEFAULT_PERMIT_KEEPALIVE_TIME_MILLIS = 300000L;
+
+  /** Executor of the service methods */
+  public enum ExecutorType {
+    /** the cached thread pool of grpc */
+    DEFAULT,
+    FIXED,
+    /** a virtual thread per call, on runtimes which support them */
+    VIRTUAL,
+    /** the netty event loops, only fit for services which never block */
+    DIRECT
+  }
+
+  private final ExecutorType executorType;
+  private final int executorThreads;
+  private final int bossEventLoopThreads;
+  private final int workerEventLoopThreads;
+  private final int flowControlWindowBytes;
+  private final int maxInboundMessageBytes;
+  private final int maxConcurrentCallsPerConnection;
+  private final long keepaliveTimeMillis;
+  private final long keepaliveTimeoutMillis;
+  private final long permitKeepaliveTimeMillis;
+
+  public GrpcServerConfig(Config appConfig) {
+    Config serverConfig =
+        appConfig.hasPath(GRPC_SERVER_CONFIG)
+            ? appConfig.getConfig(GRPC_SERVER_CONFIG)
+            : ConfigFactory.empty();
+
+    this.executorType =
+        serverConfig.hasPath(EXECUTOR_TYPE)
+            ? serverConfig.getEnum(ExecutorType.class, EXECUTOR_TYPE)
+            : DEFAULT_EXECUTOR_TYPE;
+    this.executorThreads = getInt(serverConfig, EXECUTOR_THREADS, DEFAULT_EXECUTOR_THREADS);
+    this.bossEventLoopThreads =
+        getInt(serverConfig, BOSS_EVENT_LOOP_THREADS, DEFAULT_BOSS_EVENT_LOOP_THREADS);
+    this.workerEventLoopThreads =
+        getInt(serverConfig, WORKER_EVENT_LOOP_THREADS, DEFAULT_WORKER_EVENT_LOOP_THREADS);
+    this.flowControlWindowBytes =
+        getInt(serverConfig, FLOW_CONTROL_WINDOW_BYTES, DEFAULT_FLOW_CONTROL_WINDOW_BYTES);
+    this.maxInboundMessageBytes =
+        getInt(serverConfig, MAX_INBOUND_MESSAGE_BYTES, DEFAULT_MAX_INBOUND_MESSAGE_BYTES);
+    this.maxConcurrentCallsPerConnection =
+        getInt(
+            serverConfig,
+            MAX_CONCURRENT_CALLS_PER_CONNECTION,
+            DEFAULT_MAX_CONCURRENT_CALLS_PER_CONNECTION);
+    this.keepaliveTimeMillis =
+        serverConfig.hasPath(KEEPALIVE_TIME_MILLIS)
+            ? serverConfig.getLong(KEEPALIVE_TIME_MILLIS)
+            : DEFAULT_KEEPALIVE_TIME_MILLIS;
+    this.keepaliveTimeoutMillis =
+        serverConfig.hasPath(KEEPALIVE_TIMEOUT_MILLIS)
+            ? serverConfig.getLong(KEEPALIVE_TIMEOUT_MILLIS)
+            : DEFAULT_KEEPALIVE_TIMEOUT_MILLIS;
+    this.permitKeepaliveTimeMillis =
+        serverConfig.hasPath(PERMIT_KEEPALIVE_TIME_MILLIS)
+            ? serverConfig.getLong(PERMIT_KEEPALIVE_TIME_MILLIS)
+            : DEFAULT_PERMIT_KEEPALIVE_TIME_MILLIS;
+  }
+
+  private static int getInt(Config config, String path, int defaultValue) {
+    return config.hasPath(path) ? config.getInt(path) : defaultValue;
+  }
+
+  public ExecutorType getExecutorType() {
+    return executorType;
+  }
+
+  /** @return size of the {@link ExecutorType#FIXED} executor */
+  public int getExecutorThreads() {
+    return executorThreads;
+  }
+
+  public int getBossEventLoopThreads() {
+    return bossEventLoopThreads;
+  }
+
+  public int getWorkerEventLoopThreads() {
+    return workerEventLoopThreads;
+  }
+
+  public int getFlowControlWindowBytes() {
+    return flowControlWindowBytes;
+  }
+
+  public int getMaxInboundMessageBytes() {
+    return maxInboundMessageBytes;
+  }
+
+  public int getMaxConcurrentCallsPerConnection() {
+    return maxConcurrentCallsPerConnection;
+  }
+
+  public long getKeepaliveTimeMillis() {
+    return keepaliveTimeMillis;
+  }
+
+  public long getKeepaliveTimeoutMillis() {
+    return keepaliveTimeoutMillis;
+  }
+
+  /** @return most frequent keepalive pings allowed from the clients */
+  public long getPermitKeepaliveTimeMillis() {
+    return permitKeepaliveTimeMillis;
+  }
+}